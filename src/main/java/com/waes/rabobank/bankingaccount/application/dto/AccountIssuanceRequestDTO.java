@@ -0,0 +1,23 @@
+package com.waes.rabobank.bankingaccount.application.dto;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.UUID;
+
+public record AccountIssuanceRequestDTO(
+        // One new account per entry, a user may appear more than once
+        @NotEmpty(message = "At least one user ID is required")
+        @Size(max = 10000, message = "At most 10000 accounts per request")
+        List<@NotNull UUID> userIds,
+
+        @Pattern(regexp = "[A-Z]{3}", message = "Currency must be an ISO 4217 code")
+        String currency, // EUR when absent
+
+        CardType cardType // No card when absent
+) {
+}
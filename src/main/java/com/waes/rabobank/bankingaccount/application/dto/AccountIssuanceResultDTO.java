@@ -0,0 +1,13 @@
+package com.waes.rabobank.bankingaccount.application.dto;
+
+import java.util.List;
+
+public record AccountIssuanceResultDTO(
+        int accountsIssued,
+        int cardsIssued,
+        long candidatesScreenedOut, // Dropped by the Bloom filter before reaching the database
+        long candidatesConflicted, // Passed the filter but already taken
+        long elapsedMs,
+        List<IssuedAccountDTO> accounts // In request order
+) {
+}
@@ -0,0 +1,13 @@
+package com.waes.rabobank.bankingaccount.application.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of accounts, in account id order. {@code nextCursor} is passed back as {@code after} to fetch
+ * the next page, {@code null} on the last page.
+ */
+public record AccountPageDTO(
+        List<AccountBalanceDTO> accounts,
+        String nextCursor
+) {
+}
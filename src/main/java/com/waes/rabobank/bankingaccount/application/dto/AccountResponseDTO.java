@@ -4,11 +4,10 @@ import java.math.BigDecimal;
 
 public record AccountResponseDTO(
         String accountId,
+        String userId,
         String accountNumber,
         BigDecimal balance,
         String currency,
-        String accountName,
-        String accountType,
         String status
 ) {
 }
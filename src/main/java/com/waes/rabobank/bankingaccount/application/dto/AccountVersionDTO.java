@@ -0,0 +1,9 @@
+package com.waes.rabobank.bankingaccount.application.dto;
+
+import java.util.UUID;
+
+public record AccountVersionDTO(
+        UUID accountId,
+        long version
+) {
+}
@@ -0,0 +1,14 @@
+package com.waes.rabobank.bankingaccount.application.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Accounts of one currency and status, and what they hold together.
+ */
+public record BalanceTotalDTO(
+        String currency,
+        String status,
+        long accounts,
+        BigDecimal totalBalance
+) {
+}
@@ -0,0 +1,12 @@
+package com.waes.rabobank.bankingaccount.application.dto;
+
+public record CustomerImportResultDTO(
+        String importId,
+        long records,
+        long usersCreated,
+        long accountsCreated,
+        long cardsCreated,
+        long rejected, // Listed in GET /api/imports/customers/{importId}/rejects
+        long elapsedMs
+) {
+}
@@ -0,0 +1,10 @@
+package com.waes.rabobank.bankingaccount.application.dto;
+
+public record IssuedAccountDTO(
+        String userId,
+        String accountId,
+        String accountNumber,
+        String cardId, // null when no card was requested
+        String cardNumber
+) {
+}
@@ -0,0 +1,17 @@
+package com.waes.rabobank.bankingaccount.application.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Transactions of one type on accounts of one currency during a day: how many, their amounts and their fees.
+ */
+public record PaymentVolumeDTO(
+        LocalDate day,
+        String transactionType,
+        String currency,
+        long transactions,
+        BigDecimal amount,
+        BigDecimal fees
+) {
+}
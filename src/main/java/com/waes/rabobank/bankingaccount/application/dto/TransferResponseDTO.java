@@ -10,6 +10,8 @@ public record TransferResponseDTO(
         BigDecimal amount,
         BigDecimal fee,
         BigDecimal fromAccountBalanceAfter,
-        BigDecimal toAccountBalanceAfter
+        BigDecimal toAccountBalanceAfter,
+        BigDecimal creditedAmount, // In the destination account's currency
+        BigDecimal fxRate // 1 for same-currency transfers
 ) {
 }
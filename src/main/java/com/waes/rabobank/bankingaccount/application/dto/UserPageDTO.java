@@ -0,0 +1,13 @@
+package com.waes.rabobank.bankingaccount.application.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of users. {@code nextCursor} is passed back as {@code after} to fetch the next page,
+ * {@code null} on the last page.
+ */
+public record UserPageDTO(
+        List<UserResponseDTO> users,
+        String nextCursor
+) {
+}
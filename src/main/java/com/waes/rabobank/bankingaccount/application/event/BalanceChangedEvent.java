@@ -0,0 +1,21 @@
+package com.waes.rabobank.bankingaccount.application.event;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.domain.model.Account;
+
+/**
+ * Published by the money paths for every account whose balance they changed. Listeners that talk to clients
+ * only act once the transaction has committed.
+ */
+public record BalanceChangedEvent(AccountBalanceDTO balance) {
+
+    // The user is a lazy proxy: reading its id does not load it
+    public static BalanceChangedEvent of(Account account) {
+        return new BalanceChangedEvent(new AccountBalanceDTO(
+                account.getUser().getId().toString(),
+                account.getId().toString(),
+                account.getAccountNumber(),
+                account.getBalance(),
+                account.getCurrency()));
+    }
+}
@@ -0,0 +1,224 @@
+package com.waes.rabobank.bankingaccount.application.service;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountIssuanceRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountIssuanceResultDTO;
+import com.waes.rabobank.bankingaccount.application.dto.IssuedAccountDTO;
+import com.waes.rabobank.bankingaccount.domain.enums.AccountStatus;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates;
+import com.waes.rabobank.bankingaccount.infrastructure.issuance.IssuanceRepository;
+import com.waes.rabobank.bankingaccount.infrastructure.issuance.IssuedNumberFilters;
+import com.waes.rabobank.bankingaccount.infrastructure.issuance.IssuedNumberFilters.Kind;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardRegistry;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardedAccountRepository;
+import com.waes.rabobank.bankingaccount.shared.exception.UserNotFoundException;
+import com.waes.rabobank.bankingaccount.shared.identifier.Iban;
+import com.waes.rabobank.bankingaccount.shared.identifier.Luhn;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.security.SecureRandom;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Opens accounts, with or without a card, in bulk under freshly generated numbers.
+ * <p>
+ * Numbers are drawn at random (IBAN {@code NLkkRABO} + 10 digits, PAN BIN + 9 digits + Luhn digit) and screened
+ * against the {@link IssuedNumberFilters}: a candidate the filter may have seen is replaced before it reaches the
+ * database. The survivors of a round go out in one {@code INSERT ... ON CONFLICT DO NOTHING}, and the few that
+ * still collide (numbers unknown to this instance) are drawn again in the next round.
+ * <p>
+ * Meter: {@code banking.issuance.candidates}, tags {@code kind} and {@code outcome}
+ * ({@code issued}, {@code screened_out}, {@code conflict}).
+ * <p>
+ * While sharding is on, each account and card is placed on its user's shard through
+ * {@link ShardedAccountRepository}: the number is claimed globally first, and a number another shard already holds
+ * counts as a conflict and is drawn again. Every placement commits on its own, so a failure part way leaves the
+ * accounts opened so far in place.
+ */
+@Service
+public class AccountIssuanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountIssuanceService.class);
+
+    private static final String BANK_CODE = "RABO";
+    private static final long ACCOUNT_NUMBER_BOUND = 10_000_000_000L; // Ten digits
+    private static final String DEBIT_BIN = "676770";
+    private static final String CREDIT_BIN = "535110";
+    private static final int CARD_SERIAL_BOUND = 1_000_000_000; // Nine digits between BIN and check digit
+    private static final int CARD_VALIDITY_YEARS = 5;
+    private static final String DEFAULT_CURRENCY = "EUR";
+    private static final int MAX_ROUNDS = 10;
+    private static final int MAX_DRAWS_PER_NUMBER = 1000;
+
+    private final IssuanceRepository issuanceRepository;
+    private final IssuedNumberFilters filters;
+    private final MeterRegistry meterRegistry;
+    private final BankAggregates bankAggregates;
+    private final ShardRegistry shards;
+    private final ShardedAccountRepository shardedAccountRepository;
+    private final RandomGenerator random = new SecureRandom();
+
+    public AccountIssuanceService(IssuanceRepository issuanceRepository,
+                                  IssuedNumberFilters filters,
+                                  MeterRegistry meterRegistry,
+                                  BankAggregates bankAggregates,
+                                  ShardRegistry shards,
+                                  ShardedAccountRepository shardedAccountRepository
+    ) {
+        this.issuanceRepository = issuanceRepository;
+        this.filters = filters;
+        this.meterRegistry = meterRegistry;
+        this.bankAggregates = bankAggregates;
+        this.shards = shards;
+        this.shardedAccountRepository = shardedAccountRepository;
+    }
+
+    @Transactional
+    public AccountIssuanceResultDTO issueAccounts(AccountIssuanceRequestDTO request) {
+        long start = System.nanoTime();
+        List<UUID> userIds = request.userIds();
+        boolean sharded = shards.isEnabled();
+
+        Set<UUID> existing = sharded
+                ? shardedAccountRepository.findExistingUserIds(new HashSet<>(userIds))
+                : issuanceRepository.findExistingUserIds(new HashSet<>(userIds));
+        for (UUID userId : userIds) {
+            if (!existing.contains(userId)) {
+                throw new UserNotFoundException(userId);
+            }
+        }
+
+        String currency = request.currency() == null ? DEFAULT_CURRENCY : request.currency();
+        Issued accounts;
+        if (sharded) {
+            // Each shard's aggregates are updated with its account
+            accounts = issue(Kind.ACCOUNT_NUMBER, userIds, this::accountNumber,
+                    (owners, numbers) -> shardedAccountRepository.insertAccounts(owners, numbers, currency));
+        } else {
+            accounts = issue(Kind.ACCOUNT_NUMBER, userIds, this::accountNumber,
+                    (owners, numbers) -> issuanceRepository.insertAccounts(owners, numbers, currency));
+            bankAggregates.record(new AggregateDelta()
+                    .accounts(currency, AccountStatus.ACTIVE, accounts.ids().length, BigDecimal.ZERO));
+        }
+
+        CardType cardType = request.cardType();
+        Issued cards = null;
+        if (cardType != null) {
+            String bin = cardType == CardType.DEBIT ? DEBIT_BIN : CREDIT_BIN;
+            YearMonth expiry = YearMonth.now().plusYears(CARD_VALIDITY_YEARS);
+            cards = issue(Kind.CARD_NUMBER, List.of(accounts.ids()), () -> cardNumber(bin), sharded
+                    ? (owners, numbers) -> shardedAccountRepository.insertCards(owners, numbers, cardType, expiry)
+                    : (owners, numbers) -> issuanceRepository.insertCards(owners, numbers, cardType, expiry));
+        }
+
+        List<IssuedAccountDTO> issued = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            issued.add(new IssuedAccountDTO(userIds.get(i).toString(),
+                    accounts.ids()[i].toString(), accounts.numbers()[i],
+                    cards == null ? null : cards.ids()[i].toString(), cards == null ? null : cards.numbers()[i]));
+        }
+        long screenedOut = accounts.screenedOut() + (cards == null ? 0 : cards.screenedOut());
+        long conflicts = accounts.conflicts() + (cards == null ? 0 : cards.conflicts());
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        logger.info("account_issuance.completed",
+                kv("accounts", issued.size()),
+                kv("cardType", cardType),
+                kv("screenedOut", screenedOut),
+                kv("conflicts", conflicts),
+                kv("elapsedMs", elapsedMs));
+        return new AccountIssuanceResultDTO(issued.size(), cards == null ? 0 : issued.size(),
+                screenedOut, conflicts, elapsedMs, issued);
+    }
+
+    /**
+     * Inserts one row per owner under a fresh number, in rounds until every owner has one.
+     * Inserted and conflicting numbers both go into the filter; a rolled back insert only leaves a false positive.
+     */
+    private Issued issue(Kind kind, List<UUID> owners, Supplier<String> generator,
+                         BiFunction<List<UUID>, List<String>, Map<String, UUID>> insert) {
+        int size = owners.size();
+        UUID[] ids = new UUID[size];
+        String[] numbers = new String[size];
+        long screenedOut = 0;
+        long conflicts = 0;
+
+        List<Integer> pending = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            pending.add(i);
+        }
+        for (int round = 0; round < MAX_ROUNDS && !pending.isEmpty(); round++) {
+            Set<String> drawn = new HashSet<>();
+            List<UUID> roundOwners = new ArrayList<>(pending.size());
+            List<String> candidates = new ArrayList<>(pending.size());
+            for (int index : pending) {
+                String candidate = null;
+                for (int draw = 0; draw < MAX_DRAWS_PER_NUMBER && candidate == null; draw++) {
+                    String next = generator.get();
+                    if (filters.mightBeTaken(kind, next)) {
+                        screenedOut++;
+                    } else if (drawn.add(next)) {
+                        candidate = next;
+                    }
+                }
+                if (candidate == null) {
+                    throw new IllegalStateException("No free " + kind + " found in " + MAX_DRAWS_PER_NUMBER + " draws");
+                }
+                roundOwners.add(owners.get(index));
+                candidates.add(candidate);
+            }
+
+            Map<String, UUID> inserted = insert.apply(roundOwners, candidates);
+            List<Integer> retry = new ArrayList<>();
+            for (int j = 0; j < candidates.size(); j++) {
+                String candidate = candidates.get(j);
+                filters.add(kind, candidate);
+                UUID id = inserted.get(candidate);
+                if (id == null) {
+                    conflicts++;
+                    retry.add(pending.get(j));
+                } else {
+                    ids[pending.get(j)] = id;
+                    numbers[pending.get(j)] = candidate;
+                }
+            }
+            pending = retry;
+        }
+        if (!pending.isEmpty()) {
+            throw new IllegalStateException(pending.size() + " " + kind + " still conflicting after " + MAX_ROUNDS + " rounds");
+        }
+
+        meterRegistry.counter("banking.issuance.candidates", "kind", kind.name(), "outcome", "issued").increment(size);
+        meterRegistry.counter("banking.issuance.candidates", "kind", kind.name(), "outcome", "screened_out").increment(screenedOut);
+        meterRegistry.counter("banking.issuance.candidates", "kind", kind.name(), "outcome", "conflict").increment(conflicts);
+        return new Issued(ids, numbers, screenedOut, conflicts);
+    }
+
+    private String accountNumber() {
+        return Iban.dutch(BANK_CODE, random.nextLong(ACCOUNT_NUMBER_BOUND));
+    }
+
+    private String cardNumber(String bin) {
+        return Luhn.withCheckDigit(bin + String.format("%09d", random.nextInt(CARD_SERIAL_BOUND)));
+    }
+
+    private record Issued(UUID[] ids, String[] numbers, long screenedOut, long conflicts) {
+    }
+}
@@ -1,52 +1,216 @@
 package com.waes.rabobank.bankingaccount.application.service;
 
 import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountPageDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountVersionDTO;
+import com.waes.rabobank.bankingaccount.application.event.BalanceChangedEvent;
 import com.waes.rabobank.bankingaccount.domain.model.Account;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.AccountRepository;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.UserRepository;
+import com.waes.rabobank.bankingaccount.infrastructure.persistence.querybudget.QueryBudget;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardRegistry;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardedAccountRepository;
+import com.waes.rabobank.bankingaccount.shared.concurrent.SingleFlight;
+import com.waes.rabobank.bankingaccount.shared.exception.AccountNotFoundException;
 import com.waes.rabobank.bankingaccount.shared.exception.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @Service
 public class AccountService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // Sorts before every UUID, keyset pagination starts after it
+    private static final UUID FIRST_CURSOR = new UUID(0L, 0L);
+
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
+    // Reads of sharded accounts go to their shard, when banking.sharding.enabled=true
+    private final ShardRegistry shards;
+    private final ShardedAccountRepository shardedAccountRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    // null when banking.single-flight.enabled=false
+    private final SingleFlight<UUID, List<AccountBalanceDTO>> balanceReads;
+    private final SingleFlight<UUID, String> balanceETagReads;
 
-    public AccountService(AccountRepository accountRepository, UserRepository userRepository) {
+    public AccountService(
+            AccountRepository accountRepository,
+            UserRepository userRepository,
+            ShardRegistry shards,
+            ShardedAccountRepository shardedAccountRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${banking.single-flight.enabled:true}") boolean singleFlightEnabled,
+            @Value("${banking.single-flight.timeout:2s}") Duration singleFlightTimeout
+    ) {
         this.accountRepository = accountRepository;
         this.userRepository = userRepository;
+        this.shards = shards;
+        this.shardedAccountRepository = shardedAccountRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.balanceReads = singleFlightEnabled ? new SingleFlight<>(singleFlightTimeout) : null;
+        this.balanceETagReads = singleFlightEnabled ? new SingleFlight<>(singleFlightTimeout) : null;
     }
 
+    // balances projection, existsById only when the user has no active account
+    @QueryBudget(2)
     public List<AccountBalanceDTO> getBalancesByUserId(UUID userId) {
-        if (!userRepository.existsById(userId)) {
-            throw new UserNotFoundException(userId);
+        return coalesce(balanceReads, userId, () -> {
+            List<AccountBalanceDTO> balances = shards.isEnabled()
+                    ? shardedAccountRepository.findBalancesByUserId(userId)
+                    : accountRepository.findBalancesByUserId(userId);
+
+            if (balances.isEmpty() && !userExists(userId)) {
+                throw new UserNotFoundException(userId);
+            }
+            // Shared by every caller of the flight
+            return List.copyOf(balances);
+        });
+    }
+
+    // ETag of getBalancesByUserId from ids and versions only, so If-None-Match is answered without the balances
+    @QueryBudget(1)
+    public String getBalancesETag(UUID userId) {
+        return coalesce(balanceETagReads, userId, () -> eTagOf(userId, shards.isEnabled()
+                ? shardedAccountRepository.findVersionsByUserId(userId)
+                : accountRepository.findVersionsByUserId(userId)));
+    }
+
+    private boolean userExists(UUID userId) {
+        return shards.isEnabled() ? shardedAccountRepository.existsUser(userId) : userRepository.existsById(userId);
+    }
+
+    /**
+     * Identical reads of a user that overlap share one read-only transaction and its result: the followers take
+     * no connection at all. Inside a caller's transaction the read runs on its own, it may have to see that
+     * transaction's writes.
+     */
+    private <T> T coalesce(SingleFlight<UUID, T> flights, UUID userId, Supplier<T> read) {
+        // A shard read is one statement on the shard's pool, it takes no connection of the primary database
+        Supplier<T> transactional = shards.isEnabled() ? read : () -> readOnlyTransaction.execute(status -> read.get());
+        if (flights == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactional.get();
+        }
+        return flights.execute(userId, transactional);
+    }
+
+    // A read that started before the commit must not be handed to callers that arrive after it
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBalanceChanged(BalanceChangedEvent event) {
+        if (balanceReads != null) {
+            UUID userId = UUID.fromString(event.balance().userId());
+            balanceReads.forget(userId);
+            balanceETagReads.forget(userId);
         }
+    }
+
+    @QueryBudget(1)
+    @Transactional(readOnly = true)
+    public String getAccountETag(UUID accountId) {
+        long version = (shards.isEnabled()
+                ? shardedAccountRepository.findVersionById(accountId)
+                : accountRepository.findVersionById(accountId))
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+        return eTagOf(accountId, List.of(new AccountVersionDTO(accountId, version)));
+    }
 
-        return accountRepository.findBalancesByUserId(userId)
-                .stream()
-                .map(
-                        account -> new AccountBalanceDTO(
-                                account.getUser().getId().toString(),
-                                account.getId().toString(),
-                                account.getAccountNumber(),
-                                account.getBalance(),
-                                account.getCurrency()
-                        )
-                )
-                .toList();
+    @QueryBudget(1)
+    @Transactional(readOnly = true)
+    public AccountResponseDTO getAccount(UUID accountId) {
+        return (shards.isEnabled()
+                ? shardedAccountRepository.findAccountById(accountId)
+                : accountRepository.findAccountById(accountId))
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
     }
 
-    // Admin use case only
+    /**
+     * Strong ETag of a set of accounts: a digest of the resource id (user or account) and the ids and versions
+     * of the accounts. Balance and status changes all go through the entity and bump {@code @Version}, and the
+     * other columns never change, so equal tags mean equal representations.
+     */
+    public static String eTagOf(UUID resourceId, List<AccountVersionDTO> versions) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        digest.update((resourceId + "\n").getBytes(StandardCharsets.US_ASCII));
+        versions.stream()
+                .sorted(Comparator.comparing(AccountVersionDTO::accountId))
+                .forEach(version -> digest.update(
+                        (version.accountId() + ":" + version.version() + "\n").getBytes(StandardCharsets.US_ASCII)));
+        // 128 bits: a collision would serve a stale balance as 304
+        return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+
+    // Admin use case only - page + count; with sharding both are gathered from every shard
+    @QueryBudget(2)
     public Page<AccountBalanceDTO> getAllAccounts(Pageable pageable) {
+        if (shards.isEnabled()) {
+            return shardedAccountRepository.findPage(pageable);
+        }
         return accountRepository.findAllAccounts(pageable);
     }
 
+    /**
+     * Keyset pagination ordered by account id. With sharding every shard is read in parallel and the pages
+     * merged, so a page costs one index range scan per shard, however deep the client is.
+     *
+     * @param after cursor returned with the previous page, {@code null} for the first page
+     */
+    @QueryBudget(1)
+    public AccountPageDTO getAccountsAfter(String after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // One extra row tells whether another page exists without a count query
+        UUID cursor = parseCursor(after);
+        List<AccountBalanceDTO> accounts = shards.isEnabled()
+                ? shardedAccountRepository.findPageAfter(cursor, size)
+                : readOnlyTransaction.execute(status -> accountRepository.findPageAfter(cursor, Limit.of(size + 1)));
+        if (accounts.size() <= size) {
+            return new AccountPageDTO(accounts, null);
+        }
+
+        List<AccountBalanceDTO> page = accounts.subList(0, size);
+        return new AccountPageDTO(List.copyOf(page), page.getLast().accountId());
+    }
+
+    private static UUID parseCursor(String after) {
+        if (after == null || after.isBlank()) {
+            return FIRST_CURSOR;
+        }
+        try {
+            return UUID.fromString(after);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + after);
+        }
+    }
+
+    @QueryBudget(1)
     public Account findById(UUID id) {
         return accountRepository.findById(id).orElseThrow(() -> new RuntimeException("Account not found")); // Add custom exception
     }
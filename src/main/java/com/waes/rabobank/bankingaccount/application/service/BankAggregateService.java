@@ -0,0 +1,53 @@
+package com.waes.rabobank.bankingaccount.application.service;
+
+import com.waes.rabobank.bankingaccount.application.dto.BalanceTotalDTO;
+import com.waes.rabobank.bankingaccount.application.dto.PaymentVolumeDTO;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Bank-wide figures for the admin dashboards, read from the aggregate tables: the cost does not grow with the
+ * number of accounts or transactions.
+ */
+@Service
+public class BankAggregateService {
+
+    public static final int MAX_VOLUME_DAYS = 366;
+
+    private final BankAggregates bankAggregates;
+
+    public BankAggregateService(BankAggregates bankAggregates) {
+        this.bankAggregates = bankAggregates;
+    }
+
+    /**
+     * @return Whether the aggregates are maintained ({@code banking.aggregates.enabled}); stale otherwise
+     */
+    public boolean isEnabled() {
+        return bankAggregates.isEnabled();
+    }
+
+    public List<BalanceTotalDTO> getBalanceTotals() {
+        return bankAggregates.balanceTotals();
+    }
+
+    /**
+     * @param from First day, {@code to} when {@code null}
+     * @param to   Last day (inclusive), today when {@code null}
+     */
+    public List<PaymentVolumeDTO> getPaymentVolumes(LocalDate from, LocalDate to) {
+        LocalDate last = to == null ? LocalDate.now() : to;
+        LocalDate first = from == null ? last : from;
+        if (first.isAfter(last)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(first, last) >= MAX_VOLUME_DAYS) {
+            throw new IllegalArgumentException("At most " + MAX_VOLUME_DAYS + " days per request");
+        }
+        return bankAggregates.paymentVolumes(first, last);
+    }
+}
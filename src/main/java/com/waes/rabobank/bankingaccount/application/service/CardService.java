@@ -1,7 +1,58 @@
 package com.waes.rabobank.bankingaccount.application.service;
 
+import com.waes.rabobank.bankingaccount.domain.model.Account;
+import com.waes.rabobank.bankingaccount.domain.model.Card;
+import com.waes.rabobank.bankingaccount.infrastructure.cache.CardAuthorization;
+import com.waes.rabobank.bankingaccount.infrastructure.cache.CardAuthorizationIndex;
+import com.waes.rabobank.bankingaccount.shared.exception.CardAccountMismatchException;
+import com.waes.rabobank.bankingaccount.shared.exception.CardNotFoundException;
+import com.waes.rabobank.bankingaccount.shared.exception.InactiveCardException;
 import org.springframework.stereotype.Service;
 
+import java.util.UUID;
+
 @Service
 public class CardService {
+
+    private final CardAuthorizationIndex cardAuthorizationIndex;
+
+    public CardService(CardAuthorizationIndex cardAuthorizationIndex) {
+        this.cardAuthorizationIndex = cardAuthorizationIndex;
+    }
+
+    /**
+     * Validates that the card may pay from the account, before any account is loaded.
+     * Served from the authorization index: a cached card costs no database round trip,
+     * also when the payment is rejected.
+     */
+    public CardAuthorization authorize(UUID cardId, UUID accountId) {
+        CardAuthorization authorization = cardAuthorizationIndex.find(cardId)
+                .orElseThrow(() -> new CardNotFoundException(cardId));
+
+        if (!authorization.accountId().equals(accountId)) {
+            throw new CardAccountMismatchException(cardId, accountId);
+        }
+        if (!authorization.isActive()) {
+            throw new InactiveCardException(cardId);
+        }
+        return authorization;
+    }
+
+    /**
+     * Returns the authorized card from the loaded account (fetched with it, no extra query). A different card, or
+     * one no longer active, means the index entry was stale (a change made on another node or by SQL): it is
+     * evicted and the payment rejected.
+     */
+    public Card heldBy(Account account, UUID cardId) {
+        Card card = account.getCard();
+        if (card == null || !card.getId().equals(cardId)) {
+            cardAuthorizationIndex.invalidate(cardId);
+            throw new CardAccountMismatchException(cardId, account.getId());
+        }
+        if (!card.isActive()) {
+            cardAuthorizationIndex.invalidate(cardId);
+            throw new InactiveCardException(cardId);
+        }
+        return card;
+    }
 }
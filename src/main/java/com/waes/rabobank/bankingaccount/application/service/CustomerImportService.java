@@ -0,0 +1,322 @@
+package com.waes.rabobank.bankingaccount.application.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waes.rabobank.bankingaccount.application.dto.CustomerImportResultDTO;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates;
+import com.waes.rabobank.bankingaccount.infrastructure.directory.UserDirectoryIndex;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.CustomerImportStaging;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.CustomerRecord;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.CustomerRecordParser;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.CustomerRecordValidator;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.ImportFormat;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.RejectFiles;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.ImportRejectReason;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardRegistry;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardedAccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Bulk onboarding of customers, accounts and cards from a CSV or NDJSON stream, in one transaction.
+ * <ol>
+ *     <li>The calling thread reads lines and hands batches to a pool that parses and validates them in parallel</li>
+ *     <li>Results are taken back in file order: valid records go into the staging table through one
+ *     {@code COPY}, invalid ones to the reject file</li>
+ *     <li>Set-based SQL rejects duplicates and conflicts with existing data, then merges the rest</li>
+ * </ol>
+ * At most {@code 2 × threads} batches are in flight, so memory stays flat whatever the size of the file.
+ * <p>
+ * While sharding is on the checks run against the global unique keys, and each accepted row is then placed on
+ * its customer's shard by {@link ShardedAccountRepository}, in file order. A row whose key was taken by a
+ * concurrent writer in between is rejected. Placed rows commit shard by shard, so an import that fails part way
+ * keeps the rows placed so far; rerunning the file rejects them as existing.
+ * <p>
+ * The reject file is deleted when the import does not commit.
+ */
+@Service
+public class CustomerImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerImportService.class);
+
+    static final int BATCH_SIZE = 1_000;
+
+    private final CustomerImportStaging staging;
+    private final BankAggregates bankAggregates;
+    private final RejectFiles rejectFiles;
+    private final UserDirectoryIndex userDirectoryIndex;
+    private final ObjectMapper objectMapper;
+    private final ShardRegistry shards;
+    private final ShardedAccountRepository shardedAccountRepository;
+    private final int validationThreads;
+
+    public CustomerImportService(
+            CustomerImportStaging staging,
+            BankAggregates bankAggregates,
+            RejectFiles rejectFiles,
+            UserDirectoryIndex userDirectoryIndex,
+            ObjectMapper objectMapper,
+            ShardRegistry shards,
+            ShardedAccountRepository shardedAccountRepository,
+            @Value("${banking.import.validation-threads:0}") int validationThreads
+    ) {
+        this.staging = staging;
+        this.bankAggregates = bankAggregates;
+        this.rejectFiles = rejectFiles;
+        this.userDirectoryIndex = userDirectoryIndex;
+        this.objectMapper = objectMapper;
+        this.shards = shards;
+        this.shardedAccountRepository = shardedAccountRepository;
+        this.validationThreads = validationThreads > 0 ? validationThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @throws IllegalArgumentException when a CSV header lacks a required column (nothing is imported)
+     */
+    @Transactional
+    public CustomerImportResultDTO importCustomers(InputStream input, ImportFormat format) {
+        long start = System.nanoTime();
+        UUID importId = UUID.randomUUID();
+        staging.deleteStale();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        long lineNumber = 0;
+        CustomerRecordParser parser;
+        if (format == ImportFormat.CSV) {
+            parser = CustomerRecordParser.csv(readLine(reader));
+            lineNumber++;
+        } else {
+            parser = CustomerRecordParser.ndjson(objectMapper);
+        }
+        CustomerRecordValidator validator = new CustomerRecordValidator(parser, YearMonth.now());
+
+        long records = 0;
+        long rejected;
+        CustomerImportStaging.MergeResult merge;
+        deleteRejectsOnRollback(importId);
+        try (RejectFiles.Writer rejects = rejectFiles.create(importId)) {
+            try (ExecutorService validators = Executors.newFixedThreadPool(validationThreads);
+                 CustomerImportStaging.Copy copy = staging.openCopy(importId)) {
+                Deque<Future<List<CustomerRecordValidator.Outcome>>> inFlight = new ArrayDeque<>();
+                List<Line> batch = new ArrayList<>(BATCH_SIZE);
+                String line;
+                while ((line = readLine(reader)) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    records++;
+                    batch.add(new Line(lineNumber, line));
+                    if (batch.size() == BATCH_SIZE) {
+                        inFlight.add(submit(validators, validator, batch));
+                        batch = new ArrayList<>(BATCH_SIZE);
+                        if (inFlight.size() >= 2 * validationThreads) {
+                            drain(inFlight.removeFirst(), copy, rejects);
+                        }
+                    }
+                }
+                inFlight.add(submit(validators, validator, batch));
+                while (!inFlight.isEmpty()) {
+                    drain(inFlight.removeFirst(), copy, rejects);
+                }
+                copy.finish();
+            }
+
+            if (shards.isEnabled()) {
+                merge = placeOnShards(importId);
+            } else {
+                merge = staging.merge(importId);
+                bankAggregates.record(staging.mergedAccounts(importId));
+            }
+            staging.forEachReject(importId, reject ->
+                    rejects.write(reject.lineNumber(), reject.reason(), reject.rawRecord()));
+            rejected = rejects.count();
+        } catch (RuntimeException | Error ex) {
+            deleteRejects(importId, ex);
+            throw ex;
+        }
+
+        afterCommit(importId);
+
+        CustomerImportResultDTO result = new CustomerImportResultDTO(importId.toString(), records,
+                merge.usersCreated(), merge.accountsCreated(), merge.cardsCreated(), rejected,
+                (System.nanoTime() - start) / 1_000_000);
+        logger.info("customer_import.completed",
+                kv("importId", importId),
+                kv("records", records),
+                kv("usersCreated", result.usersCreated()),
+                kv("accountsCreated", result.accountsCreated()),
+                kv("cardsCreated", result.cardsCreated()),
+                kv("rejected", rejected),
+                kv("elapsedMs", result.elapsedMs()));
+
+        return result;
+    }
+
+    // Each shard's aggregates are updated with its accounts
+    private CustomerImportStaging.MergeResult placeOnShards(UUID importId) {
+        long[] created = new long[3]; // users, accounts, cards
+        long rejected = staging.rejectForShards(importId);
+        long[] lost = new long[1];
+        staging.forEachAccepted(importId, page -> {
+            for (CustomerRecord record : page) {
+                ImportRejectReason reason = place(record, created);
+                if (reason != null) {
+                    staging.reject(importId, record.lineNumber(), reason);
+                    lost[0]++;
+                }
+            }
+        });
+        return new CustomerImportStaging.MergeResult(rejected + lost[0], created[0], created[1], created[2]);
+    }
+
+    // A customer known by BSN gets the account; the email was checked to belong to the same customer
+    private ImportRejectReason place(CustomerRecord record, long[] created) {
+        UUID userId = shardedAccountRepository.findUserIdByBsn(record.bsn()).orElse(null);
+        if (userId == null) {
+            try {
+                userId = shardedAccountRepository.insertUser(record.email(), record.fullName(), record.bsn());
+                created[0]++;
+            } catch (DuplicateKeyException ex) {
+                return ImportRejectReason.CONFLICTING_CUSTOMER;
+            }
+        }
+        try {
+            if (record.cardNumber() == null) {
+                shardedAccountRepository.insertAccount(userId, record.accountNumber(), record.currency(),
+                        record.balance());
+            } else {
+                shardedAccountRepository.insertAccountWithCard(userId, record.accountNumber(), record.currency(),
+                        record.balance(), record.cardType(), record.cardNumber(), record.cardExpiry());
+                created[2]++;
+            }
+            created[1]++;
+            return null;
+        } catch (DuplicateKeyException ex) {
+            return shardedAccountRepository.findAccountIdByNumber(record.accountNumber()).isPresent()
+                    ? ImportRejectReason.ACCOUNT_EXISTS
+                    : ImportRejectReason.CARD_EXISTS;
+        }
+    }
+
+    private static Future<List<CustomerRecordValidator.Outcome>> submit(
+            ExecutorService validators, CustomerRecordValidator validator, List<Line> batch) {
+        return validators.submit(() -> {
+            List<CustomerRecordValidator.Outcome> outcomes = new ArrayList<>(batch.size());
+            for (Line line : batch) {
+                outcomes.add(validator.validate(line.number(), line.text()));
+            }
+            return outcomes;
+        });
+    }
+
+    private static void drain(Future<List<CustomerRecordValidator.Outcome>> pending,
+                              CustomerImportStaging.Copy copy,
+                              RejectFiles.Writer rejects) {
+        List<CustomerRecordValidator.Outcome> outcomes;
+        try {
+            outcomes = pending.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Customer import interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Customer import validation failed", ex.getCause());
+        }
+
+        List<CustomerRecord> valid = new ArrayList<>(outcomes.size());
+        for (CustomerRecordValidator.Outcome outcome : outcomes) {
+            if (outcome.isAccepted()) {
+                valid.add(outcome.record());
+            } else {
+                rejects.write(outcome.lineNumber(), outcome.rejectReason(), outcome.rawRecord());
+            }
+        }
+        copy.write(valid);
+    }
+
+    // Imported users reach the directory and the staging rows go away only once the import is committed
+    private void afterCommit(UUID importId) {
+        Runnable followUp = () -> Thread.ofVirtual().name("customer-import-" + importId).start(() -> {
+            try {
+                if (userDirectoryIndex.isEnabled()) {
+                    staging.forEachImportedUserPage(importId, page -> page.forEach(userDirectoryIndex::upsert));
+                }
+                staging.delete(importId);
+            } catch (RuntimeException ex) {
+                logger.error("customer_import.follow_up_failed", kv("importId", importId), ex);
+            }
+        });
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            followUp.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                followUp.run();
+            }
+        });
+    }
+
+    // The commit itself can fail after the method returned
+    private void deleteRejectsOnRollback(UUID importId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        deleteRejects(importId, null);
+                    }
+                }
+            });
+        }
+    }
+
+    private void deleteRejects(UUID importId, Throwable cause) {
+        try {
+            rejectFiles.delete(importId);
+        } catch (UncheckedIOException ex) {
+            if (cause != null) {
+                cause.addSuppressed(ex);
+            } else {
+                logger.warn("customer_import.reject_file_not_deleted", kv("importId", importId), ex);
+            }
+        }
+    }
+
+    private static String readLine(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read import stream", ex);
+        }
+    }
+
+    private record Line(long number, String text) {
+    }
+}
@@ -2,17 +2,30 @@ package com.waes.rabobank.bankingaccount.application.service;
 
 import com.waes.rabobank.bankingaccount.application.dto.TransferRequestDTO;
 import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.event.BalanceChangedEvent;
 import com.waes.rabobank.bankingaccount.domain.enums.AccountStatus;
-import com.waes.rabobank.bankingaccount.domain.enums.CardStatus;
+import com.waes.rabobank.bankingaccount.domain.enums.TransactionType;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedules;
+import com.waes.rabobank.bankingaccount.domain.fx.FxRates;
 import com.waes.rabobank.bankingaccount.domain.model.Account;
 import com.waes.rabobank.bankingaccount.domain.model.Card;
 import com.waes.rabobank.bankingaccount.domain.model.Transaction;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates;
+import com.waes.rabobank.bankingaccount.infrastructure.cache.CardAuthorization;
+import com.waes.rabobank.bankingaccount.infrastructure.fx.FxRateProvider;
+import com.waes.rabobank.bankingaccount.infrastructure.groupcommit.GroupCommitExecutor;
+import com.waes.rabobank.bankingaccount.infrastructure.ledger.LedgerEngine;
+import com.waes.rabobank.bankingaccount.infrastructure.metrics.PaymentMetrics;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.TransactionOutbox;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.AccountRepository;
-import com.waes.rabobank.bankingaccount.infrastructure.persistence.CardRepository;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.TransactionRepository;
+import com.waes.rabobank.bankingaccount.infrastructure.persistence.querybudget.QueryBudget;
+import com.waes.rabobank.bankingaccount.infrastructure.profiling.PhaseTimer;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardedPayments;
 import com.waes.rabobank.bankingaccount.shared.exception.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.UUID;
@@ -21,51 +34,154 @@ import java.util.UUID;
 public class TransferService {
 
     private final AccountRepository accountRepository;
-    private final CardRepository cardRepository;
+    private final CardService cardService;
     private final TransactionRepository transactionRepository;
+    private final PaymentMetrics paymentMetrics;
+    private final FxRateProvider fxRateProvider;
+    private final TransactionOutbox transactionOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final GroupCommitExecutor groupCommit;
+    private final LedgerEngine ledger;
+    private final ShardedPayments shardedPayments;
+    private final BankAggregates bankAggregates;
 
     public TransferService(
             AccountRepository accountRepository,
-            CardRepository cardRepository,
-            TransactionRepository transactionRepository
+            CardService cardService,
+            TransactionRepository transactionRepository,
+            PaymentMetrics paymentMetrics,
+            FxRateProvider fxRateProvider,
+            TransactionOutbox transactionOutbox,
+            ApplicationEventPublisher eventPublisher,
+            GroupCommitExecutor groupCommit,
+            LedgerEngine ledger,
+            ShardedPayments shardedPayments,
+            BankAggregates bankAggregates
     ) {
         this.accountRepository = accountRepository;
-        this.cardRepository = cardRepository;
+        this.cardService = cardService;
         this.transactionRepository = transactionRepository;
+        this.paymentMetrics = paymentMetrics;
+        this.fxRateProvider = fxRateProvider;
+        this.transactionOutbox = transactionOutbox;
+        this.eventPublisher = eventPublisher;
+        this.groupCommit = groupCommit;
+        this.ledger = ledger;
+        this.shardedPayments = shardedPayments;
+        this.bankAggregates = bankAggregates;
     }
 
-    @Transactional
+    // 2 accounts (cards joined) + 2 account updates + 2 transaction inserts + outbox insert,
+    // + card on an authorization index miss. In group-commit mode the statements run on the committer thread and
+    // are charged back to the caller; in ledger mode none run on the request, in sharding mode they run on the accounts' shards, outside Hibernate.
+    // Aggregate upserts go out at commit, outside Hibernate too
+    @QueryBudget(8)
     public TransferResponseDTO transfer(TransferRequestDTO request) {
+        PaymentMetrics.Observation observation = paymentMetrics.observe("transfer");
+        PhaseTimer phases = PhaseTimer.start("transfer");
+        try {
+            TransferResponseDTO response;
+            if (shardedPayments.isEnabled()) {
+                response = transferOnShards(request, observation, phases);
+            } else if (ledger.isEnabled()) {
+                response = transferInLedger(request, observation, phases);
+            } else {
+                response = groupCommit.execute(() -> doTransfer(request, observation, phases));
+            }
+            observation.succeeded();
+            return response;
+        } catch (RuntimeException ex) {
+            observation.failed(ex);
+            throw ex;
+        } finally {
+            phases.end();
+        }
+    }
+
+    private TransferResponseDTO transferOnShards(
+            TransferRequestDTO request,
+            PaymentMetrics.Observation observation,
+            PhaseTimer phases
+    ) {
+        // One local transaction when both accounts share a shard, a two-phase commit across their shards otherwise
+        phases.next("shards");
+        return shardedPayments.transfer(UUID.fromString(request.fromAccountId()), UUID.fromString(request.toAccountId()),
+                UUID.fromString(request.cardId()), request.amount(), FeeSchedules.current(), fxRateProvider.current(),
+                observation::cardType);
+    }
+
+    private TransferResponseDTO transferInLedger(
+            TransferRequestDTO request,
+            PaymentMetrics.Observation observation,
+            PhaseTimer phases
+    ) {
+        UUID fromAccountId = UUID.fromString(request.fromAccountId());
+        UUID toAccountId = UUID.fromString(request.toAccountId());
+        UUID cardId = UUID.fromString(request.cardId());
+
+        phases.next("authorize_card");
+        CardAuthorization authorization = cardService.authorize(cardId, fromAccountId);
+        observation.cardType(authorization.type());
+
+        // Workflow validations, balance check, journaling and the database writes happen in the ledger
+        phases.next("ledger");
+        BigDecimal fee = FeeSchedules.current().fee(authorization.type(), authorization.feeSegment(), request.amount());
+        return ledger.transfer(fromAccountId, toAccountId, cardId, request.amount(), fee, fxRateProvider.current());
+    }
+
+    private TransferResponseDTO doTransfer(
+            TransferRequestDTO request,
+            PaymentMetrics.Observation observation,
+            PhaseTimer phases
+    ) {
         UUID fromAccountId = UUID.fromString(request.fromAccountId());
         UUID toAccountId = UUID.fromString(request.toAccountId());
         UUID cardId = UUID.fromString(request.cardId());
 
-        // 1. Load entities
+        // 1. Card validations, rejected cards never reach the database
+        phases.next("authorize_card");
+        CardAuthorization authorization = cardService.authorize(cardId, fromAccountId);
+        observation.cardType(authorization.type());
+
+        // 2. Load entities, each account query already joins its card
+        phases.next("load_accounts");
         Account fromAccount = accountRepository.findById(fromAccountId)
                 .orElseThrow(() -> new AccountNotFoundException(fromAccountId));
+        Card card = cardService.heldBy(fromAccount, cardId);
 
         Account toAccount = accountRepository.findById(toAccountId)
                 .orElseThrow(() -> new AccountNotFoundException(toAccountId));
 
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new CardNotFoundException(cardId));
+        // 3. Workflow validations
+        phases.next("validate");
+        validateTransfer(fromAccount, toAccount);
 
-        // 2. Workflow validations
-        validateTransfer(fromAccount, toAccount, card);
-
-        // 3. Calculate fee
+        // 4. Calculate fee (source currency) and the credited amount (destination currency), rates from memory
         BigDecimal fee = card.calculateFee(request.amount());
         BigDecimal totalAmount = request.amount().add(fee);
 
-        // 4. Execute transfer (domain validates balance)
+        String fromCurrency = fromAccount.getCurrency();
+        String toCurrency = toAccount.getCurrency();
+        boolean crossCurrency = !fromCurrency.equals(toCurrency);
+        FxRates rates = fxRateProvider.current();
+        BigDecimal fxRate = rates.rate(fromCurrency, toCurrency);
+        BigDecimal creditedAmount = crossCurrency ? FxRates.convert(request.amount(), fxRate) : request.amount();
+
+        // 5. Execute transfer (domain validates balance)
         fromAccount.withdraw(totalAmount);
-        toAccount.deposit(request.amount());
+        toAccount.deposit(creditedAmount);
 
-        // 5. Save accounts
+        // 6. Save accounts, flushed explicitly so version conflicts surface here and the phase is measurable;
+        // a batch flushes at commit
+        phases.next("flush");
         accountRepository.save(fromAccount);
         accountRepository.save(toAccount);
+        if (!GroupCommitExecutor.inBatch()) {
+            accountRepository.flush();
+        }
 
-        // 6. Create linked transactions
+        // 7. Create linked transactions
+        phases.next("insert_transactions");
         Transaction transferOut = Transaction.transfer(
                 fromAccount,
                 card,
@@ -74,18 +190,23 @@ public class TransferService {
                 fromAccount.getBalance(),
                 toAccount
         );
-        transactionRepository.save(transferOut);
-
         Transaction transferIn = Transaction.deposit(
                 toAccount,
-                request.amount(),
+                creditedAmount,
                 toAccount.getBalance(),
                 transferOut
         );
+        if (crossCurrency) {
+            transferOut.recordConversion(fxRate, creditedAmount, toCurrency);
+            transferIn.recordConversion(rates.rate(toCurrency, fromCurrency), request.amount(), fromCurrency);
+        }
+        transactionRepository.save(transferOut);
         transactionRepository.save(transferIn);
+        if (!GroupCommitExecutor.inBatch()) {
+            transactionRepository.flush();
+        }
 
-        // 7. Return response
-        return new TransferResponseDTO(
+        TransferResponseDTO response = new TransferResponseDTO(
                 transferOut.getId().toString(),
                 transferIn.getId().toString(),
                 fromAccount.getId().toString(),
@@ -93,21 +214,30 @@ public class TransferService {
                 request.amount(),
                 fee,
                 fromAccount.getBalance(),
-                toAccount.getBalance()
+                toAccount.getBalance(),
+                creditedAmount,
+                fxRate
         );
-    }
 
-    private void validateTransfer(Account fromAccount, Account toAccount, Card card) {
-        // Card belongs to fromAccount
-        if (!card.getAccount().getId().equals(fromAccount.getId())) {
-            throw new CardAccountMismatchException(card.getId(), fromAccount.getId());
-        }
-
-        // Card is active
-        if (card.getStatus() != CardStatus.ACTIVE) {
-            throw new InactiveCardException(card.getId());
-        }
+        // 8. Record the event for downstream systems, published from the outbox once this transaction commits
+        phases.next("record_event");
+        transactionOutbox.record(TransactionOutbox.TRANSFER_COMPLETED, fromAccount.getId(), response);
+        // Admin dashboard aggregates, added when this transaction commits
+        bankAggregates.record(new AggregateDelta()
+                .balance(fromCurrency, fromAccount.getStatus(), totalAmount.negate())
+                .balance(toCurrency, toAccount.getStatus(), creditedAmount)
+                .transaction(transferOut.getCreatedAt(), TransactionType.TRANSFER, fromCurrency, request.amount(), fee)
+                .transaction(transferIn.getCreatedAt(), TransactionType.DEPOSIT, toCurrency, creditedAmount,
+                        BigDecimal.ZERO));
+        // Pushed to open balance streams after commit
+        eventPublisher.publishEvent(BalanceChangedEvent.of(fromAccount));
+        eventPublisher.publishEvent(BalanceChangedEvent.of(toAccount));
+        phases.end();
+
+        return response;
+    }
 
+    private void validateTransfer(Account fromAccount, Account toAccount) {
         // Cannot transfer to same account
         if (fromAccount.getId().equals(toAccount.getId())) {
             throw new SelfTransferException(fromAccount.getId());
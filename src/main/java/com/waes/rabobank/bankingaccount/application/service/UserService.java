@@ -1,43 +1,162 @@
 package com.waes.rabobank.bankingaccount.application.service;
 
+import com.waes.rabobank.bankingaccount.application.dto.UserPageDTO;
 import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
 import com.waes.rabobank.bankingaccount.domain.model.User;
+import com.waes.rabobank.bankingaccount.infrastructure.directory.UserDirectoryIndex;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.UserRepository;
+import com.waes.rabobank.bankingaccount.infrastructure.persistence.querybudget.QueryBudget;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardRegistry;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardedAccountRepository;
 import com.waes.rabobank.bankingaccount.shared.exception.UserNotFoundException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
 
+/**
+ * User listing and search. While sharding is on users live on the shards: listings are gathered from every shard
+ * and an email lookup goes to the one shard named by the email's unique-key claim. Type-ahead suggestions need the
+ * directory, which only indexes the primary database, so they are rejected.
+ */
 @Service
 public class UserService {
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Sorts before every UUID, keyset pagination starts after it
+    private static final UUID FIRST_CURSOR = new UUID(0L, 0L);
+
+    public static final int MAX_SUGGESTIONS = 50;
+    private static final int MIN_SUGGEST_QUERY_LENGTH = 2;
+
     private final UserRepository userRepository;
+    private final UserDirectoryIndex userDirectoryIndex;
+    private final ShardRegistry shards;
+    private final ShardedAccountRepository shardedAccountRepository;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository,
+                       UserDirectoryIndex userDirectoryIndex,
+                       ShardRegistry shards,
+                       ShardedAccountRepository shardedAccountRepository) {
         this.userRepository = userRepository;
+        this.userDirectoryIndex = userDirectoryIndex;
+        this.shards = shards;
+        this.shardedAccountRepository = shardedAccountRepository;
     }
 
-    public List<UserResponseDTO> getAllUsers() {
-        return userRepository.findAll()
-                .stream()
-                .map(user -> new UserResponseDTO(
-                        user.getId().toString(),
-                        user.getFullName(),
-                        user.getEmail()))
-                .toList();
+    /**
+     * Keyset pagination ordered by id: every page costs the same index range scan, however deep the client is.
+     *
+     * @param after cursor returned with the previous page, {@code null} for the first page
+     */
+    @QueryBudget(1)
+    @Transactional(readOnly = true)
+    public UserPageDTO getUsers(String after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // One extra row tells whether another page exists without a count query
+        List<UserResponseDTO> users = findPageAfter(parseCursor(after), size + 1);
+        if (users.size() <= size) {
+            return new UserPageDTO(users, null);
+        }
+
+        List<UserResponseDTO> page = users.subList(0, size);
+        return new UserPageDTO(List.copyOf(page), page.getLast().id());
     }
 
+    public long countUsers() {
+        return userRepository.count();
+    }
+
+    /**
+     * Hands every user to {@code pageConsumer}, one keyset page at a time. Each page is a short query of its own,
+     * so no connection or transaction is held while the caller writes the previous page to the client.
+     */
+    public void streamUsers(int pageSize, Consumer<List<UserResponseDTO>> pageConsumer) {
+        UUID after = FIRST_CURSOR;
+        List<UserResponseDTO> page;
+        do {
+            page = findPageAfter(after, pageSize);
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page);
+                after = UUID.fromString(page.getLast().id());
+            }
+        } while (page.size() == pageSize);
+    }
+
+    // Served from the directory index, the database is only asked on a miss
+    @QueryBudget(1)
     public UserResponseDTO searchUserByEmail(String email) {
         if (email == null || email.trim().isEmpty()) {
             throw new IllegalArgumentException("Email must not be blank");
         }
+        if (shards.isEnabled()) {
+            return shardedAccountRepository.findUserByEmail(email.trim())
+                    .orElseThrow(() -> new UserNotFoundException(email));
+        }
+
+        // A miss can be a user created by another instance, so it is not taken as "not found". Entries older than
+        // expire-after-write are misses too: another instance may have changed or removed the user since
+        Optional<UserResponseDTO> indexed = userDirectoryIndex.findByEmail(email);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
 
         User user = userRepository.findByEmailIgnoreCase(email.trim())
                 .orElseThrow(() -> new UserNotFoundException(email));  // ← Llama al constructor String
 
-        return new UserResponseDTO(
+        UserResponseDTO found = new UserResponseDTO(
                 user.getId().toString(),
                 user.getFullName(),
                 user.getEmail()
         );
+        userDirectoryIndex.upsert(found);
+        return found;
+    }
+
+    /**
+     * Type-ahead search over email prefixes and name tokens for support staff.
+     */
+    public List<UserResponseDTO> suggestUsers(String query, int limit) {
+        shards.requireUnsharded("User search");
+        if (query == null || query.trim().length() < MIN_SUGGEST_QUERY_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Query must have at least " + MIN_SUGGEST_QUERY_LENGTH + " characters");
+        }
+        int boundedLimit = Math.clamp(limit, 1, MAX_SUGGESTIONS);
+
+        if (!userDirectoryIndex.isReady()) {
+            // Still loading: email prefixes only, served by idx_user_email_lower
+            String prefix = query.trim().toLowerCase(Locale.ROOT)
+                    .replace("\\", "\\\\")
+                    .replace("%", "\\%")
+                    .replace("_", "\\_");
+            return userRepository.findByEmailPrefix(prefix + "%", Limit.of(boundedLimit));
+        }
+        return userDirectoryIndex.search(query.trim(), boundedLimit);
+    }
+
+    private List<UserResponseDTO> findPageAfter(UUID after, int limit) {
+        return shards.isEnabled()
+                ? shardedAccountRepository.findUserPageAfter(after, limit)
+                : userRepository.findPageAfter(after, Limit.of(limit));
+    }
+
+    private static UUID parseCursor(String after) {
+        if (after == null || after.isBlank()) {
+            return FIRST_CURSOR;
+        }
+        try {
+            return UUID.fromString(after);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + after);
+        }
     }
 }
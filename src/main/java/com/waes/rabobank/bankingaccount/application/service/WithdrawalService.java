@@ -2,17 +2,27 @@ package com.waes.rabobank.bankingaccount.application.service;
 
 import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
 import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
-import com.waes.rabobank.bankingaccount.domain.enums.CardStatus;
+import com.waes.rabobank.bankingaccount.application.event.BalanceChangedEvent;
 import com.waes.rabobank.bankingaccount.domain.enums.TransactionType;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedules;
 import com.waes.rabobank.bankingaccount.domain.model.Account;
 import com.waes.rabobank.bankingaccount.domain.model.Card;
 import com.waes.rabobank.bankingaccount.domain.model.Transaction;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates;
+import com.waes.rabobank.bankingaccount.infrastructure.cache.CardAuthorization;
+import com.waes.rabobank.bankingaccount.infrastructure.groupcommit.GroupCommitExecutor;
+import com.waes.rabobank.bankingaccount.infrastructure.ledger.LedgerEngine;
+import com.waes.rabobank.bankingaccount.infrastructure.metrics.PaymentMetrics;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.TransactionOutbox;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.AccountRepository;
-import com.waes.rabobank.bankingaccount.infrastructure.persistence.CardRepository;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.TransactionRepository;
+import com.waes.rabobank.bankingaccount.infrastructure.persistence.querybudget.QueryBudget;
+import com.waes.rabobank.bankingaccount.infrastructure.profiling.PhaseTimer;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardedPayments;
 import com.waes.rabobank.bankingaccount.shared.exception.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.UUID;
@@ -21,49 +31,133 @@ import java.util.UUID;
 public class WithdrawalService {
 
     private final AccountRepository accountRepository;
-    private final CardRepository cardRepository;
+    private final CardService cardService;
     private final TransactionRepository transactionRepository;
+    private final PaymentMetrics paymentMetrics;
+    private final TransactionOutbox transactionOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final GroupCommitExecutor groupCommit;
+    private final LedgerEngine ledger;
+    private final ShardedPayments shardedPayments;
+    private final BankAggregates bankAggregates;
 
     public WithdrawalService(
             AccountRepository accountRepository,
-            CardRepository cardRepository,
-            TransactionRepository transactionRepository
+            CardService cardService,
+            TransactionRepository transactionRepository,
+            PaymentMetrics paymentMetrics,
+            TransactionOutbox transactionOutbox,
+            ApplicationEventPublisher eventPublisher,
+            GroupCommitExecutor groupCommit,
+            LedgerEngine ledger,
+            ShardedPayments shardedPayments,
+            BankAggregates bankAggregates
     ) {
         this.accountRepository = accountRepository;
-        this.cardRepository = cardRepository;
+        this.cardService = cardService;
         this.transactionRepository = transactionRepository;
+        this.paymentMetrics = paymentMetrics;
+        this.transactionOutbox = transactionOutbox;
+        this.eventPublisher = eventPublisher;
+        this.groupCommit = groupCommit;
+        this.ledger = ledger;
+        this.shardedPayments = shardedPayments;
+        this.bankAggregates = bankAggregates;
     }
 
-    @Transactional
+    // account (card joined) + account update + transaction insert + outbox insert, + card on an authorization index miss.
+    // In group-commit mode the statements run on the committer thread and are charged back to the caller; in ledger
+    // mode none run on the request, in sharding mode they run on the account's shard, outside Hibernate. Aggregate
+    // upserts go out at commit, outside Hibernate too
+    @QueryBudget(5)
     public WithdrawalResponseDTO withdraw(WithdrawalRequestDTO request) {
+        PaymentMetrics.Observation observation = paymentMetrics.observe("withdrawal");
+        PhaseTimer phases = PhaseTimer.start("withdrawal");
+        try {
+            WithdrawalResponseDTO response;
+            if (shardedPayments.isEnabled()) {
+                response = withdrawOnShard(request, observation, phases);
+            } else if (ledger.isEnabled()) {
+                response = withdrawFromLedger(request, observation, phases);
+            } else {
+                response = groupCommit.execute(() -> doWithdraw(request, observation, phases));
+            }
+            observation.succeeded();
+            return response;
+        } catch (RuntimeException ex) {
+            observation.failed(ex);
+            throw ex;
+        } finally {
+            phases.end();
+        }
+    }
+
+    private WithdrawalResponseDTO withdrawOnShard(
+            WithdrawalRequestDTO request,
+            PaymentMetrics.Observation observation,
+            PhaseTimer phases
+    ) {
+        // Card check, balance check and every write happen in one transaction on the account's shard
+        phases.next("shard");
+        return shardedPayments.withdraw(UUID.fromString(request.accountId()), UUID.fromString(request.cardId()),
+                request.amount(), FeeSchedules.current(), observation::cardType);
+    }
+
+    private WithdrawalResponseDTO withdrawFromLedger(
+            WithdrawalRequestDTO request,
+            PaymentMetrics.Observation observation,
+            PhaseTimer phases
+    ) {
+        UUID accountId = UUID.fromString(request.accountId());
+        UUID cardId = UUID.fromString(request.cardId());
+
+        phases.next("authorize_card");
+        CardAuthorization authorization = cardService.authorize(cardId, accountId);
+        observation.cardType(authorization.type());
+
+        // Balance check, journaling and the database writes happen in the ledger
+        phases.next("ledger");
+        BigDecimal fee = FeeSchedules.current().fee(authorization.type(), authorization.feeSegment(), request.amount());
+        return ledger.withdraw(accountId, cardId, request.amount(), fee);
+    }
+
+    private WithdrawalResponseDTO doWithdraw(
+            WithdrawalRequestDTO request,
+            PaymentMetrics.Observation observation,
+            PhaseTimer phases
+    ) {
         // Fetch account by ID
         UUID accountId = UUID.fromString(request.accountId());
         UUID cardId = UUID.fromString(request.cardId());
 
-        // Load entities
+        // Card validations, rejected cards never reach the database
+        phases.next("authorize_card");
+        CardAuthorization authorization = cardService.authorize(cardId, accountId);
+        observation.cardType(authorization.type());
+
+        // Load entities, the account query already joins its card
+        phases.next("load_account");
         Account account = accountRepository.findById(accountId)
                 .orElseThrow(() -> new AccountNotFoundException(accountId));
-
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new CardNotFoundException(cardId));
-
-        // Workflow validations
-        if (!card.getAccount().getId().equals(account.getId())) {
-            throw new CardAccountMismatchException(cardId, accountId);
-        }
-        if (card.getStatus() != CardStatus.ACTIVE) {
-            throw new InactiveCardException(cardId);
-        }
+        Card card = cardService.heldBy(account, cardId);
 
         // Calculate fee
+        phases.next("validate");
         BigDecimal fee = card.calculateFee(request.amount());
         BigDecimal totalAmount = request.amount().add(fee);
 
         // Execute withdrawal (domain validates balance)
         account.withdraw(totalAmount);
+
+        // Flush explicitly so version conflicts surface here and the phase is measurable; a batch flushes at commit
+        phases.next("flush");
         accountRepository.save(account);
+        if (!GroupCommitExecutor.inBatch()) {
+            accountRepository.flush();
+        }
 
         // Create transaction for audit
+        phases.next("insert_transactions");
         Transaction transaction = new Transaction(
                 account,
                 card,
@@ -73,8 +167,11 @@ public class WithdrawalService {
                 account.getBalance()
         );
         transactionRepository.save(transaction);
+        if (!GroupCommitExecutor.inBatch()) {
+            transactionRepository.flush();
+        }
 
-        return new WithdrawalResponseDTO(
+        WithdrawalResponseDTO response = new WithdrawalResponseDTO(
                 transaction.getId().toString(),
                 account.getId().toString(),
                 card.getId().toString(),
@@ -82,5 +179,19 @@ public class WithdrawalService {
                 fee,
                 account.getBalance()
         );
+
+        // Downstream systems read it from the outbox once this transaction commits
+        phases.next("record_event");
+        transactionOutbox.record(TransactionOutbox.WITHDRAWAL_COMPLETED, account.getId(), response);
+        // Admin dashboard aggregates, added when this transaction commits
+        bankAggregates.record(new AggregateDelta()
+                .balance(account.getCurrency(), account.getStatus(), totalAmount.negate())
+                .transaction(transaction.getCreatedAt(), TransactionType.WITHDRAWAL, account.getCurrency(),
+                        request.amount(), fee));
+        // Pushed to open balance streams after commit
+        eventPublisher.publishEvent(BalanceChangedEvent.of(account));
+        phases.end();
+
+        return response;
     }
 }
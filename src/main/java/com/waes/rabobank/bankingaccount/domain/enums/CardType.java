@@ -0,0 +1,7 @@
+package com.waes.rabobank.bankingaccount.domain.enums;
+
+// Mirrors the card_type discriminator values
+public enum CardType {
+    DEBIT,
+    CREDIT
+}
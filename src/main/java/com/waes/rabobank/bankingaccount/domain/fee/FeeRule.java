@@ -0,0 +1,43 @@
+package com.waes.rabobank.bankingaccount.domain.fee;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One row of a fee schedule, as loaded from the {@code fee_schedules} table.
+ * <p>
+ * {@code fee = fixedFee + amount × rateBps / 10 000}, clamped to {@code [minFee, maxFee]}, for amounts from
+ * {@code bandFrom} up to the next band of the same card type and segment. Rules with a validity window
+ * (promotions) replace the rules without one while the window is open.
+ *
+ * @param maxFee    {@code null} for no cap
+ * @param validFrom {@code null} together with {@code validUntil} for a standard rule
+ */
+public record FeeRule(
+        CardType cardType,
+        String segment,
+        BigDecimal bandFrom,
+        int rateBps,
+        BigDecimal fixedFee,
+        BigDecimal minFee,
+        BigDecimal maxFee,
+        LocalDate validFrom,
+        LocalDate validUntil
+) {
+
+    public static FeeRule standard(CardType cardType, int rateBps) {
+        return new FeeRule(cardType, FeeSchedule.STANDARD_SEGMENT, BigDecimal.ZERO, rateBps,
+                BigDecimal.ZERO, BigDecimal.ZERO, null, null, null);
+    }
+
+    boolean isPromotion() {
+        return validFrom != null || validUntil != null;
+    }
+
+    boolean isEffectiveOn(LocalDate date) {
+        return (validFrom == null || !date.isBefore(validFrom))
+                && (validUntil == null || !date.isAfter(validUntil));
+    }
+}
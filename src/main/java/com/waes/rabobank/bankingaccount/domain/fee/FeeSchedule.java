@@ -0,0 +1,186 @@
+package com.waes.rabobank.bankingaccount.domain.fee;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Immutable, compiled fee schedule.
+ * <p>
+ * Every (card type, segment) pair is compiled into parallel primitive arrays indexed by amount band, with all
+ * money held as {@code long} minor units of {@value #SCALE} decimals. {@link #feeMinor(CardType, String, long)}
+ * is a binary search plus integer arithmetic and allocates nothing. A schedule is compiled for one day:
+ * promotions are resolved at compile time, the schedule is recompiled on every reload.
+ */
+public final class FeeSchedule {
+
+    public static final String STANDARD_SEGMENT = "STANDARD";
+    public static final int SCALE = 4;
+
+    private static final long BPS_DIVISOR = 10_000L;
+
+    private final Map<String, Table[]> tablesBySegment;
+    private final LocalDate compiledFor;
+
+    private FeeSchedule(Map<String, Table[]> tablesBySegment, LocalDate compiledFor) {
+        this.tablesBySegment = tablesBySegment;
+        this.compiledFor = compiledFor;
+    }
+
+    /**
+     * @throws IllegalArgumentException when a card type of the standard segment has no rule,
+     *                                  or the lowest band of a table does not start at zero
+     */
+    public static FeeSchedule compile(List<FeeRule> rules, LocalDate date) {
+        Map<String, Map<CardType, List<FeeRule>>> grouped = rules.stream()
+                .filter(rule -> rule.isEffectiveOn(date))
+                .collect(Collectors.groupingBy(FeeRule::segment,
+                        Collectors.groupingBy(FeeRule::cardType, () -> new EnumMap<>(CardType.class), Collectors.toList())));
+
+        // The standard segment first: its rules price the amounts below a promotion of a segment without own rules
+        Map<CardType, List<FeeRule>> standardRules = new EnumMap<>(CardType.class);
+        grouped.getOrDefault(STANDARD_SEGMENT, Map.of())
+                .forEach((type, typeRules) -> standardRules.put(type, resolve(typeRules, List.of())));
+
+        Map<String, Table[]> tables = new HashMap<>();
+        grouped.forEach((segment, byType) -> {
+            Table[] segmentTables = new Table[CardType.values().length];
+            byType.forEach((type, typeRules) -> {
+                List<FeeRule> resolved = STANDARD_SEGMENT.equals(segment)
+                        ? standardRules.get(type)
+                        : resolve(typeRules, standardRules.getOrDefault(type, List.of()));
+                segmentTables[type.ordinal()] = Table.compile(type, segment, resolved);
+            });
+            tables.put(segment, segmentTables);
+        });
+
+        Table[] standard = tables.get(STANDARD_SEGMENT);
+        for (CardType type : CardType.values()) {
+            if (standard == null || standard[type.ordinal()] == null) {
+                throw new IllegalArgumentException("No " + STANDARD_SEGMENT + " fee rule for " + type);
+            }
+        }
+        return new FeeSchedule(Map.copyOf(tables), date);
+    }
+
+    /**
+     * An open promotion replaces the rules without a window from its lowest band up. Amounts below that band keep
+     * the base rules of the card type and segment, or {@code fallback} when the segment has none.
+     */
+    private static List<FeeRule> resolve(List<FeeRule> candidates, List<FeeRule> fallback) {
+        List<FeeRule> promotions = candidates.stream().filter(FeeRule::isPromotion).toList();
+        if (promotions.isEmpty()) {
+            return candidates;
+        }
+        List<FeeRule> base = candidates.stream().filter(rule -> !rule.isPromotion()).toList();
+        if (base.isEmpty()) {
+            base = fallback;
+        }
+        BigDecimal promotionFrom = promotions.stream().map(FeeRule::bandFrom).min(Comparator.naturalOrder()).orElseThrow();
+        return Stream.concat(
+                base.stream().filter(rule -> rule.bandFrom().compareTo(promotionFrom) < 0),
+                promotions.stream()
+        ).toList();
+    }
+
+    public LocalDate compiledFor() {
+        return compiledFor;
+    }
+
+    /**
+     * Fee of the {@value #STANDARD_SEGMENT} segment. Payments use {@link #fee(CardType, String, BigDecimal)} with
+     * the segment of their card.
+     */
+    public BigDecimal fee(CardType type, BigDecimal amount) {
+        return fee(type, STANDARD_SEGMENT, amount);
+    }
+
+    /**
+     * BigDecimal facade over {@link #feeMinor(CardType, String, long)}. Amounts with more than {@value #SCALE}
+     * decimals are rounded half-up first, like the {@code NUMERIC(19, 4)} columns they end up in.
+     */
+    public BigDecimal fee(CardType type, String segment, BigDecimal amount) {
+        long amountMinor = amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        return BigDecimal.valueOf(feeMinor(type, segment, amountMinor), SCALE);
+    }
+
+    /**
+     * Allocation-free fee computation.
+     *
+     * @param amountMinor Amount in 1/10 000 units
+     * @return Fee in 1/10 000 units, rounded half-up
+     */
+    public long feeMinor(CardType type, String segment, long amountMinor) {
+        Table[] tables = tablesBySegment.get(segment);
+        Table table = tables == null ? null : tables[type.ordinal()];
+        if (table == null) {
+            table = tablesBySegment.get(STANDARD_SEGMENT)[type.ordinal()];
+        }
+        return table.feeMinor(amountMinor);
+    }
+
+    /**
+     * One (card type, segment) pair: band {@code i} covers {@code [bandFrom[i], bandFrom[i + 1])}.
+     */
+    private record Table(long[] bandFrom, long[] rateBps, long[] fixedFee, long[] minFee, long[] maxFee) {
+
+        static Table compile(CardType type, String segment, List<FeeRule> rules) {
+            FeeRule[] sorted = rules.stream()
+                    .sorted(Comparator.comparing(FeeRule::bandFrom))
+                    .toArray(FeeRule[]::new);
+
+            if (sorted[0].bandFrom().signum() != 0) {
+                throw new IllegalArgumentException(
+                        "Lowest fee band of " + type + "/" + segment + " must start at 0, got " + sorted[0].bandFrom());
+            }
+
+            for (int i = 1; i < sorted.length; i++) {
+                if (sorted[i].bandFrom().compareTo(sorted[i - 1].bandFrom()) == 0) {
+                    throw new IllegalArgumentException(
+                            "Overlapping fee bands of " + type + "/" + segment + " at " + sorted[i].bandFrom());
+                }
+            }
+
+            int bands = sorted.length;
+            Table table = new Table(new long[bands], new long[bands], new long[bands], new long[bands], new long[bands]);
+            for (int i = 0; i < bands; i++) {
+                FeeRule rule = sorted[i];
+                table.bandFrom[i] = toMinor(rule.bandFrom());
+                table.rateBps[i] = rule.rateBps();
+                table.fixedFee[i] = toMinor(rule.fixedFee());
+                table.minFee[i] = toMinor(rule.minFee());
+                table.maxFee[i] = rule.maxFee() == null ? Long.MAX_VALUE : toMinor(rule.maxFee());
+            }
+            return table;
+        }
+
+        long feeMinor(long amountMinor) {
+            int band = Arrays.binarySearch(bandFrom, amountMinor);
+            if (band < 0) {
+                band = -band - 2; // Insertion point - 1: the band whose lower bound is below the amount
+            }
+            long fee = fixedFee[band] + percentage(amountMinor, rateBps[band]);
+            return Math.min(Math.max(fee, minFee[band]), maxFee[band]);
+        }
+
+        // amount × bps / 10 000, rounded half-up (amounts are never negative)
+        private static long percentage(long amountMinor, long bps) {
+            long product = Math.multiplyExact(amountMinor, bps);
+            return (product + BPS_DIVISOR / 2) / BPS_DIVISOR;
+        }
+
+        private static long toMinor(BigDecimal value) {
+            return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.waes.rabobank.bankingaccount.domain.fee;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holder of the schedule in force. Entities are not Spring beans, so {@code Card.calculateFee} reads it from here;
+ * a reload compiles a new schedule off the request path and swaps it in with a single atomic write.
+ * <p>
+ * Until the first load, the built-in schedule applies: debit cards free, credit cards 1%.
+ */
+public final class FeeSchedules {
+
+    public static final List<FeeRule> DEFAULT_RULES = List.of(
+            FeeRule.standard(CardType.DEBIT, 0),
+            FeeRule.standard(CardType.CREDIT, 100)
+    );
+
+    private static final AtomicReference<FeeSchedule> CURRENT =
+            new AtomicReference<>(FeeSchedule.compile(DEFAULT_RULES, LocalDate.now()));
+
+    private FeeSchedules() {
+    }
+
+    public static FeeSchedule current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return The schedule that was replaced
+     */
+    public static FeeSchedule swap(FeeSchedule schedule) {
+        return CURRENT.getAndSet(schedule);
+    }
+}
@@ -0,0 +1,90 @@
+package com.waes.rabobank.bankingaccount.domain.fx;
+
+import com.waes.rabobank.bankingaccount.shared.exception.UnsupportedCurrencyPairException;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of exchange rates.
+ * <p>
+ * Built once from the published rates: inverse rates and cross rates through the pivot currency are derived at
+ * build time, so a lookup is two hash probes with no arithmetic and no allocation.
+ */
+public final class FxRates {
+
+    public static final String PIVOT_CURRENCY = "EUR";
+    public static final int RATE_SCALE = 8;
+    public static final int AMOUNT_SCALE = 4;
+
+    private static final MathContext DERIVED = new MathContext(20, RoundingMode.HALF_EVEN);
+
+    private final Map<String, Map<String, BigDecimal>> rates;
+    private final Instant loadedAt;
+
+    private FxRates(Map<String, Map<String, BigDecimal>> rates, Instant loadedAt) {
+        this.rates = rates;
+        this.loadedAt = loadedAt;
+    }
+
+    public static FxRates empty() {
+        return new FxRates(Map.of(), Instant.EPOCH);
+    }
+
+    /**
+     * @param pivotRates Units of each currency per one unit of {@value #PIVOT_CURRENCY}, e.g. {@code USD -> 1.0842}
+     */
+    public static FxRates of(Map<String, BigDecimal> pivotRates, Instant loadedAt) {
+        Map<String, BigDecimal> perPivot = new HashMap<>(pivotRates);
+        perPivot.put(PIVOT_CURRENCY, BigDecimal.ONE);
+        perPivot.forEach((currency, rate) -> {
+            if (rate.signum() <= 0) {
+                throw new IllegalArgumentException("Rate for " + currency + " must be positive, got " + rate);
+            }
+        });
+
+        // from -> to = (to per pivot) / (from per pivot)
+        Map<String, Map<String, BigDecimal>> rates = new HashMap<>();
+        perPivot.forEach((from, fromPerPivot) -> {
+            Map<String, BigDecimal> row = new HashMap<>();
+            perPivot.forEach((to, toPerPivot) -> row.put(to, from.equals(to)
+                    ? BigDecimal.ONE
+                    : toPerPivot.divide(fromPerPivot, DERIVED).setScale(RATE_SCALE, RoundingMode.HALF_EVEN)));
+            rates.put(from, Map.copyOf(row));
+        });
+
+        return new FxRates(Map.copyOf(rates), loadedAt);
+    }
+
+    /**
+     * @throws UnsupportedCurrencyPairException when either currency has no published rate
+     */
+    public BigDecimal rate(String fromCurrency, String toCurrency) {
+        if (fromCurrency.equals(toCurrency)) {
+            return BigDecimal.ONE;
+        }
+        Map<String, BigDecimal> row = rates.get(fromCurrency);
+        BigDecimal rate = row == null ? null : row.get(toCurrency);
+        if (rate == null) {
+            throw new UnsupportedCurrencyPairException(fromCurrency, toCurrency);
+        }
+        return rate;
+    }
+
+    public static BigDecimal convert(BigDecimal amount, BigDecimal rate) {
+        return amount.multiply(rate).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+    }
+
+    public Set<String> currencies() {
+        return rates.keySet();
+    }
+
+    public Instant loadedAt() {
+        return loadedAt;
+    }
+}
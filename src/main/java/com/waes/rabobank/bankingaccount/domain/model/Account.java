@@ -14,7 +14,9 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "accounts")
+@Table(name = "accounts", indexes = {
+        @Index(name = "idx_account_user_id", columnList = "user_id")
+})
 @EntityListeners(AuditingEntityListener.class)
 @OptimisticLocking(type = OptimisticLockType.VERSION) // Protecting against race conditions - Review
 public class Account {
@@ -60,8 +62,16 @@ public class Account {
 
     // Business constructor
     public Account(User user, String accountNumber) {
+        this(user, accountNumber, "EUR");
+    }
+
+    public Account(User user, String accountNumber, String currency) {
+        if (currency == null || !currency.matches("[A-Z]{3}")) {
+            throw new IllegalArgumentException("Currency must be an ISO 4217 code, got " + currency);
+        }
         this.user = user;
         this.accountNumber = accountNumber;
+        this.currency = currency;
     }
 
     // Business methods
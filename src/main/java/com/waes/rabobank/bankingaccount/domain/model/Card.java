@@ -1,6 +1,10 @@
 package com.waes.rabobank.bankingaccount.domain.model;
 
 import com.waes.rabobank.bankingaccount.domain.enums.CardStatus;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedule;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedules;
+import com.waes.rabobank.bankingaccount.infrastructure.cache.CardAuthorizationListener;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.converter.YearMonthConverter;
 import jakarta.persistence.*;
 import org.springframework.data.annotation.CreatedDate;
@@ -16,7 +20,7 @@ import java.util.UUID;
 @Table(name = "cards")
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE) // review single table and discriminator column
 @DiscriminatorColumn(name = "card_type", discriminatorType = DiscriminatorType.STRING)
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, CardAuthorizationListener.class})
 public abstract class Card { // review possible usage of java 21 sealed classes
 
     @Id
@@ -40,6 +44,10 @@ public abstract class Card { // review possible usage of java 21 sealed classes
     @Column(nullable = false, length = 20)
     private CardStatus status = CardStatus.ACTIVE;
 
+    // Segment of the fee_schedules rows that price this card's payments
+    @Column(name = "fee_segment", nullable = false, length = 20)
+    private String feeSegment = FeeSchedule.STANDARD_SEGMENT;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
@@ -58,12 +66,19 @@ public abstract class Card { // review possible usage of java 21 sealed classes
     }
 
     /**
-     * Calculate withdrawal fee based on card type - polymorphic method
+     * Calculate withdrawal fee based on card type and fee segment, from the fee schedule in force
      *
      * @param amount Transaction amount
-     * @return Fee to be charged (0 for debit, 1% for credit)
+     * @return Fee to be charged (by default 0 for debit, 1% for credit, see {@link FeeSchedules})
+     */
+    public BigDecimal calculateFee(BigDecimal amount) {
+        return FeeSchedules.current().fee(getType(), feeSegment, amount);
+    }
+
+    /**
+     * @return Card type matching the discriminator value of the concrete class
      */
-    public abstract BigDecimal calculateFee(BigDecimal amount);
+    public abstract CardType getType();
 
     public boolean isExpired() {
         return YearMonth.now().isAfter(expiryDate);
@@ -94,6 +109,10 @@ public abstract class Card { // review possible usage of java 21 sealed classes
         return status;
     }
 
+    public String getFeeSegment() {
+        return feeSegment;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
@@ -109,4 +128,8 @@ public abstract class Card { // review possible usage of java 21 sealed classes
     public void setStatus(CardStatus status) {
         this.status = status;
     }
+
+    public void setFeeSegment(String feeSegment) {
+        this.feeSegment = feeSegment;
+    }
 }
@@ -1,18 +1,15 @@
 package com.waes.rabobank.bankingaccount.domain.model;
 
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
 import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.YearMonth;
 
 @Entity
 @DiscriminatorValue("CREDIT")
 public class CreditCard extends Card {
 
-    private static final BigDecimal FEE_PERCENTAGE = new BigDecimal("0.01"); // 1% fee, review location and a transform it to dynamic value
-
     protected CreditCard() {
     }
 
@@ -21,7 +18,7 @@ public class CreditCard extends Card {
     }
 
     @Override
-    public BigDecimal calculateFee(BigDecimal amount) {
-        return amount.multiply(FEE_PERCENTAGE).setScale(4, RoundingMode.HALF_UP); // Review scale and rounding mode compare with banking market standards
+    public CardType getType() {
+        return CardType.CREDIT;
     }
 }
@@ -1,9 +1,9 @@
 package com.waes.rabobank.bankingaccount.domain.model;
 
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
 import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 
-import java.math.BigDecimal;
 import java.time.YearMonth;
 
 @Entity
@@ -18,7 +18,7 @@ public class DebitCard extends Card {
     }
 
     @Override
-    public BigDecimal calculateFee(BigDecimal amount) {
-        return BigDecimal.ZERO; // No fees for debit cards
+    public CardType getType() {
+        return CardType.DEBIT;
     }
 }
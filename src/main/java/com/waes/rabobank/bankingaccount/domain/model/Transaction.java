@@ -49,6 +49,16 @@ public class Transaction {
     @Column(name = "balance_after", nullable = false, precision = 19, scale = 4)
     private BigDecimal balanceAfter;
 
+    // Cross-currency transfers only: rate from this account's currency to the counterpart's, amount on the other leg
+    @Column(name = "fx_rate", precision = 19, scale = 8)
+    private BigDecimal fxRate;
+
+    @Column(name = "counter_amount", precision = 19, scale = 4)
+    private BigDecimal counterAmount;
+
+    @Column(name = "counter_currency", length = 3)
+    private String counterCurrency;
+
     @Column(length = 255) // At least this is the size used by my bank account
     private String description;
 
@@ -115,6 +125,12 @@ public class Transaction {
         return transaction;
     }
 
+    public void recordConversion(BigDecimal fxRate, BigDecimal counterAmount, String counterCurrency) {
+        this.fxRate = fxRate;
+        this.counterAmount = counterAmount;
+        this.counterCurrency = counterCurrency;
+    }
+
     public BigDecimal getTotalAmount() {
         return amount.add(fee);
     }
@@ -156,6 +172,18 @@ public class Transaction {
         return balanceAfter;
     }
 
+    public BigDecimal getFxRate() {
+        return fxRate;
+    }
+
+    public BigDecimal getCounterAmount() {
+        return counterAmount;
+    }
+
+    public String getCounterCurrency() {
+        return counterCurrency;
+    }
+
     public String getDescription() {
         return description;
     }
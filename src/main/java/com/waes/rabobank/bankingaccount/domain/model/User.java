@@ -1,5 +1,6 @@
 package com.waes.rabobank.bankingaccount.domain.model;
 
+import com.waes.rabobank.bankingaccount.infrastructure.directory.UserDirectoryListener;
 import jakarta.persistence.*;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
@@ -15,7 +16,7 @@ import java.util.UUID;
         @Index(name = "idx_user_email", columnList = "email", unique = true),
         @Index(name = "idx_user_bsn", columnList = "bsn_id", unique = true)
 })
-@EntityListeners(AuditingEntityListener.class) // Review Automatic Auditing
+@EntityListeners({AuditingEntityListener.class, UserDirectoryListener.class}) // Review Automatic Auditing
 public class User {
 
     @Id
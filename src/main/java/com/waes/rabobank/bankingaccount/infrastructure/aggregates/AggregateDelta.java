@@ -0,0 +1,107 @@
+package com.waes.rabobank.bankingaccount.infrastructure.aggregates;
+
+import com.waes.rabobank.bankingaccount.domain.enums.AccountStatus;
+import com.waes.rabobank.bankingaccount.domain.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Changes to the bank-wide aggregates made by one or more payments or account openings. Changes to the same
+ * aggregate row are merged, and rows are kept in key order, so they are written, and locked, in the same order
+ * by every transaction.
+ */
+public final class AggregateDelta {
+
+    private final Map<TotalKey, Change> totals = new TreeMap<>();
+    private final Map<VolumeKey, Change> volumes = new TreeMap<>();
+
+    /**
+     * Money in ({@code amount} positive) or out of accounts of the currency and status.
+     */
+    public AggregateDelta balance(String currency, AccountStatus status, BigDecimal amount) {
+        return accounts(currency, status, 0, amount);
+    }
+
+    /**
+     * Accounts opened ({@code count} positive) or closed, with what they hold.
+     */
+    public AggregateDelta accounts(String currency, AccountStatus status, long count, BigDecimal balance) {
+        totals.merge(new TotalKey(currency, status.name()), new Change(count, balance, BigDecimal.ZERO), Change::plus);
+        return this;
+    }
+
+    /**
+     * One {@code transactions} row, in the currency of its account.
+     */
+    public AggregateDelta transaction(Instant createdAt, TransactionType type, String currency, BigDecimal amount,
+                                      BigDecimal fee) {
+        volumes.merge(new VolumeKey(day(createdAt), type.name(), currency), new Change(1, amount, fee), Change::plus);
+        return this;
+    }
+
+    public AggregateDelta add(AggregateDelta other) {
+        other.totals.forEach((key, change) -> totals.merge(key, change, Change::plus));
+        other.volumes.forEach((key, change) -> volumes.merge(key, change, Change::plus));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return totals.isEmpty() && volumes.isEmpty();
+    }
+
+    Map<TotalKey, Change> totals() {
+        return totals;
+    }
+
+    Map<VolumeKey, Change> volumes() {
+        return volumes;
+    }
+
+    // created_at is written as local time of the JVM's zone (the session time zone): its date there is the day
+    static LocalDate day(Instant createdAt) {
+        return LocalDate.ofInstant(createdAt, ZoneId.systemDefault());
+    }
+
+    record TotalKey(String currency, String status) implements Comparable<TotalKey> {
+
+        private static final Comparator<TotalKey> ORDER =
+                Comparator.comparing(TotalKey::currency).thenComparing(TotalKey::status);
+
+        @Override
+        public int compareTo(TotalKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    record VolumeKey(LocalDate day, String transactionType, String currency) implements Comparable<VolumeKey> {
+
+        private static final Comparator<VolumeKey> ORDER = Comparator.comparing(VolumeKey::day)
+                .thenComparing(VolumeKey::transactionType)
+                .thenComparing(VolumeKey::currency);
+
+        @Override
+        public int compareTo(VolumeKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * Count and amounts added to one aggregate row; {@code fee} is zero for account totals.
+     */
+    record Change(long count, BigDecimal amount, BigDecimal fee) {
+
+        Change plus(Change other) {
+            return new Change(count + other.count, amount.add(other.amount), fee.add(other.fee));
+        }
+
+        boolean sameAs(Change other) {
+            return count == other.count && amount.compareTo(other.amount) == 0 && fee.compareTo(other.fee) == 0;
+        }
+    }
+}
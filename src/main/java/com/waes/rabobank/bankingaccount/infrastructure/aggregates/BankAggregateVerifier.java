@@ -0,0 +1,218 @@
+package com.waes.rabobank.bankingaccount.infrastructure.aggregates;
+
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta.Change;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta.TotalKey;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta.VolumeKey;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates.Database;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Recomputes the bank-wide aggregates from {@code accounts} and {@code transactions} every
+ * {@code verify-interval} and compares them with what the deltas added up to: all account totals, and the payment
+ * volumes of the last {@code verify-days} days. Both sides are read in one snapshot (repeatable read), so
+ * concurrent payments cannot make them differ.
+ * <p>
+ * Rows found off are logged and counted. With {@code repair} on they are then replaced by the recomputed ones,
+ * with the aggregate tables locked against writers: payments wait for their delta until the recompute is done,
+ * so none is lost or counted twice. Reads go on meanwhile.
+ * <p>
+ * Meter: {@code banking.aggregates.drift} (aggregate rows found off, tag {@code table}).
+ */
+@Component
+public class BankAggregateVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(BankAggregateVerifier.class);
+
+    private static final String RECOMPUTE_TOTALS = """
+            SELECT currency, status, count(*), sum(balance)
+            FROM accounts
+            GROUP BY currency, status
+            """;
+    private static final String RECOMPUTE_VOLUMES = """
+            SELECT t.created_at::date, t.transaction_type, a.currency, count(*), sum(t.amount), sum(t.fee)
+            FROM transactions t
+            JOIN accounts a ON a.id = t.account_id
+            WHERE t.created_at >= ? AND t.created_at < ?
+            GROUP BY t.created_at::date, t.transaction_type, a.currency
+            """;
+    // Same order as the writers: totals, then volumes
+    private static final String LOCK_AGGREGATES = "LOCK TABLE account_totals, daily_payment_volumes IN EXCLUSIVE MODE";
+    private static final String REBUILD_TOTALS = """
+            INSERT INTO account_totals (currency, status, stripe, account_count, total_balance, updated_at)
+            SELECT currency, status, 0, count(*), sum(balance), now()
+            FROM accounts
+            GROUP BY currency, status
+            """;
+    private static final String REBUILD_VOLUMES = """
+            INSERT INTO daily_payment_volumes (day, transaction_type, currency, stripe, transaction_count,
+                                               total_amount, total_fee, updated_at)
+            SELECT t.created_at::date, t.transaction_type, a.currency, 0, count(*), sum(t.amount), sum(t.fee), now()
+            FROM transactions t
+            JOIN accounts a ON a.id = t.account_id
+            WHERE t.created_at >= ?
+            GROUP BY t.created_at::date, t.transaction_type, a.currency
+            """;
+
+    private static final Change NONE = new Change(0, BigDecimal.ZERO, BigDecimal.ZERO);
+    private static final int LOGGED_KEYS = 10;
+
+    private final BankAggregates aggregates;
+    private final int verifyDays;
+    private final boolean repair;
+    private final Counter totalsDrift;
+    private final Counter volumesDrift;
+
+    public BankAggregateVerifier(
+            BankAggregates aggregates,
+            @Value("${banking.aggregates.verify-days:7}") int verifyDays,
+            @Value("${banking.aggregates.repair:true}") boolean repair,
+            MeterRegistry meterRegistry
+    ) {
+        this.aggregates = aggregates;
+        this.verifyDays = Math.max(1, verifyDays);
+        this.repair = repair;
+        this.totalsDrift = Counter.builder("banking.aggregates.drift").tag("table", "account_totals")
+                .description("Aggregate rows that differed from the recomputed ones")
+                .register(meterRegistry);
+        this.volumesDrift = Counter.builder("banking.aggregates.drift").tag("table", "daily_payment_volumes")
+                .description("Aggregate rows that differed from the recomputed ones")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${banking.aggregates.verify-interval:1h}",
+            initialDelayString = "${banking.aggregates.verify-interval:1h}")
+    public void poll() {
+        verify();
+    }
+
+    /**
+     * @return Aggregate rows found off, on every database; a database that cannot be read is logged and skipped
+     */
+    public int verify() {
+        if (!aggregates.isEnabled()) {
+            return 0;
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(verifyDays - 1L);
+        int drifted = 0;
+        for (Database database : aggregates.databases()) {
+            try {
+                int off = compare(database, from, today);
+                if (off > 0 && repair) {
+                    rebuild(database, from);
+                    logger.info("aggregates.repaired", kv("database", database.name()), kv("from", from));
+                }
+                drifted += off;
+            } catch (RuntimeException ex) {
+                logger.warn("aggregates.verify_failed", kv("database", database.name()), ex);
+            }
+        }
+        return drifted;
+    }
+
+    /**
+     * Recomputes all aggregates, whole history, on every database. For loads that write the tables without
+     * recording deltas, like the synthetic dataset.
+     */
+    public void rebuild() {
+        if (!aggregates.isEnabled()) {
+            return;
+        }
+        for (Database database : aggregates.databases()) {
+            rebuild(database, LocalDate.EPOCH);
+            logger.info("aggregates.rebuilt", kv("database", database.name()));
+        }
+    }
+
+    private int compare(Database database, LocalDate from, LocalDate today) {
+        TransactionTemplate snapshot = new TransactionTemplate(database.transactionTemplate().getTransactionManager());
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshot.setReadOnly(true);
+        JdbcTemplate jdbcTemplate = database.jdbcTemplate();
+        return snapshot.execute(status -> {
+            List<TotalKey> totals = differences(
+                    recomputeTotals(jdbcTemplate), BankAggregates.readTotals(jdbcTemplate));
+            List<VolumeKey> volumes = differences(
+                    recomputeVolumes(jdbcTemplate, from, today), BankAggregates.readVolumes(jdbcTemplate, from, today));
+            report(database, "account_totals", totals, totalsDrift);
+            report(database, "daily_payment_volumes", volumes, volumesDrift);
+            return totals.size() + volumes.size();
+        });
+    }
+
+    private void rebuild(Database database, LocalDate from) {
+        JdbcTemplate jdbcTemplate = database.jdbcTemplate();
+        database.transactionTemplate().executeWithoutResult(status -> {
+            // Read committed: the statements below see every change whose delta went in before the lock
+            jdbcTemplate.execute(LOCK_AGGREGATES);
+            jdbcTemplate.update("DELETE FROM account_totals");
+            jdbcTemplate.update(REBUILD_TOTALS);
+            jdbcTemplate.update("DELETE FROM daily_payment_volumes WHERE day >= ?", Date.valueOf(from));
+            jdbcTemplate.update(REBUILD_VOLUMES, Date.valueOf(from));
+        });
+    }
+
+    private static Map<TotalKey, Change> recomputeTotals(JdbcTemplate jdbcTemplate) {
+        Map<TotalKey, Change> totals = new TreeMap<>();
+        jdbcTemplate.query(RECOMPUTE_TOTALS, rs -> {
+            totals.put(new TotalKey(rs.getString(1), rs.getString(2)),
+                    new Change(rs.getLong(3), rs.getBigDecimal(4), BigDecimal.ZERO));
+        });
+        return totals;
+    }
+
+    private static Map<VolumeKey, Change> recomputeVolumes(JdbcTemplate jdbcTemplate, LocalDate from, LocalDate to) {
+        Map<VolumeKey, Change> volumes = new TreeMap<>();
+        jdbcTemplate.query(RECOMPUTE_VOLUMES, rs -> {
+            volumes.put(new VolumeKey(rs.getDate(1).toLocalDate(), rs.getString(2), rs.getString(3)),
+                    new Change(rs.getLong(4), rs.getBigDecimal(5), rs.getBigDecimal(6)));
+        }, Date.valueOf(from), Date.valueOf(to.plusDays(1)));
+        return volumes;
+    }
+
+    // A row missing on one side counts as zero: an aggregate that went back to zero is not drift
+    static <K> List<K> differences(Map<K, Change> expected, Map<K, Change> actual) {
+        Set<K> keys = new HashSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        List<K> different = new ArrayList<>();
+        for (K key : keys) {
+            if (!expected.getOrDefault(key, NONE).sameAs(actual.getOrDefault(key, NONE))) {
+                different.add(key);
+            }
+        }
+        return different;
+    }
+
+    private static void report(Database database, String table, List<?> keys, Counter drift) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        drift.increment(keys.size());
+        logger.warn("aggregates.drift",
+                kv("database", database.name()),
+                kv("table", table),
+                kv("rows", keys.size()),
+                kv("keys", keys.subList(0, Math.min(LOGGED_KEYS, keys.size()))));
+    }
+}
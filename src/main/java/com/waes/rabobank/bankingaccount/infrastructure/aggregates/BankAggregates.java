@@ -0,0 +1,221 @@
+package com.waes.rabobank.bankingaccount.infrastructure.aggregates;
+
+import com.waes.rabobank.bankingaccount.application.dto.BalanceTotalDTO;
+import com.waes.rabobank.bankingaccount.application.dto.PaymentVolumeDTO;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta.Change;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta.TotalKey;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta.VolumeKey;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bank-wide aggregates for the admin dashboards (V9): accounts and deposits per currency and status, and
+ * transaction counts, amounts and fees per day, type and currency. Writers add their {@link AggregateDelta} in the
+ * database transaction of the change, so the aggregates are exactly as consistent as the rows they summarize, and
+ * reading them costs the same however many accounts and transactions there are.
+ * <p>
+ * Each transaction adds to one random stripe of every row it touches: concurrent payments rarely wait on each
+ * other's aggregate row. With sharding, every shard keeps the aggregates of its own rows and reads add them up.
+ * {@link BankAggregateVerifier} recomputes them from the tables now and then.
+ */
+@Component
+public class BankAggregates {
+
+    private static final String ADD_TO_TOTALS = """
+            INSERT INTO account_totals AS t (currency, status, stripe, account_count, total_balance, updated_at)
+            VALUES (?, ?, ?, ?, ?, now())
+            ON CONFLICT (currency, status, stripe) DO UPDATE
+            SET account_count = t.account_count + EXCLUDED.account_count,
+                total_balance = t.total_balance + EXCLUDED.total_balance,
+                updated_at    = EXCLUDED.updated_at
+            """;
+    private static final String ADD_TO_VOLUMES = """
+            INSERT INTO daily_payment_volumes AS v (day, transaction_type, currency, stripe, transaction_count,
+                                                    total_amount, total_fee, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, now())
+            ON CONFLICT (day, transaction_type, currency, stripe) DO UPDATE
+            SET transaction_count = v.transaction_count + EXCLUDED.transaction_count,
+                total_amount      = v.total_amount + EXCLUDED.total_amount,
+                total_fee         = v.total_fee + EXCLUDED.total_fee,
+                updated_at        = EXCLUDED.updated_at
+            """;
+    static final String READ_TOTALS = """
+            SELECT currency, status, sum(account_count), sum(total_balance)
+            FROM account_totals
+            GROUP BY currency, status
+            """;
+    static final String READ_VOLUMES = """
+            SELECT day, transaction_type, currency, sum(transaction_count), sum(total_amount), sum(total_fee)
+            FROM daily_payment_volumes
+            WHERE day BETWEEN ? AND ?
+            GROUP BY day, transaction_type, currency
+            """;
+
+    private final boolean enabled;
+    private final int stripes;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRegistry shards;
+
+    public BankAggregates(
+            @Value("${banking.aggregates.enabled:true}") boolean enabled,
+            @Value("${banking.aggregates.stripes:16}") int stripes,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ShardRegistry shards
+    ) {
+        if (stripes < 1) {
+            throw new IllegalStateException("banking.aggregates.stripes must be at least 1");
+        }
+        this.enabled = enabled;
+        this.stripes = stripes;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds the delta to the aggregates of the primary database when the caller's transaction commits. The deltas
+     * of one transaction (a group-commit batch, an import) are merged and written together, last: aggregate rows
+     * are locked for the shortest possible time, and always after the account rows.
+     */
+    public void record(AggregateDelta delta) {
+        if (!enabled || delta.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalTransactionStateException(
+                    "Aggregate deltas are recorded in the transaction of the change");
+        }
+        // Looked up among the synchronizations of the current transaction, suspended with it by REQUIRES_NEW
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Pending pending && pending.owner() == this) {
+                pending.delta().add(delta);
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new Pending(this, new AggregateDelta().add(delta)));
+    }
+
+    /**
+     * Adds the delta at once, in the transaction open on the database of {@code jdbcTemplate}. For writers that
+     * batch their own changes or write outside the primary database's transactions, like the ledger and shards.
+     */
+    public void apply(JdbcTemplate jdbcTemplate, AggregateDelta delta) {
+        if (!enabled || delta.isEmpty()) {
+            return;
+        }
+        short stripe = (short) ThreadLocalRandom.current().nextInt(stripes);
+        // Totals before volumes, each in key order: the same order as every other writer and the verifier's locks
+        if (!delta.totals().isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_TO_TOTALS, delta.totals().entrySet().stream()
+                    .map(total -> new Object[]{total.getKey().currency(), total.getKey().status(), stripe,
+                            total.getValue().count(), total.getValue().amount()})
+                    .toList());
+        }
+        if (!delta.volumes().isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_TO_VOLUMES, delta.volumes().entrySet().stream()
+                    .map(volume -> new Object[]{Date.valueOf(volume.getKey().day()),
+                            volume.getKey().transactionType(), volume.getKey().currency(), stripe,
+                            volume.getValue().count(), volume.getValue().amount(), volume.getValue().fee()})
+                    .toList());
+        }
+    }
+
+    /**
+     * @return Accounts and balances per currency and status, in that order; pairs without accounts are left out
+     */
+    public List<BalanceTotalDTO> balanceTotals() {
+        Map<TotalKey, Change> totals = new TreeMap<>();
+        for (Database database : databases()) {
+            merge(totals, readTotals(database.jdbcTemplate()));
+        }
+        return totals.entrySet().stream()
+                .filter(total -> total.getValue().count() != 0 || total.getValue().amount().signum() != 0)
+                .map(total -> new BalanceTotalDTO(total.getKey().currency(), total.getKey().status(),
+                        total.getValue().count(), total.getValue().amount()))
+                .toList();
+    }
+
+    /**
+     * @return Transactions per day, type and currency from {@code from} to {@code to} (inclusive), in that order
+     */
+    public List<PaymentVolumeDTO> paymentVolumes(LocalDate from, LocalDate to) {
+        Map<VolumeKey, Change> volumes = new TreeMap<>();
+        for (Database database : databases()) {
+            merge(volumes, readVolumes(database.jdbcTemplate(), from, to));
+        }
+        return volumes.entrySet().stream()
+                .map(volume -> new PaymentVolumeDTO(volume.getKey().day(), volume.getKey().transactionType(),
+                        volume.getKey().currency(), volume.getValue().count(), volume.getValue().amount(),
+                        volume.getValue().fee()))
+                .toList();
+    }
+
+    /**
+     * @return Databases holding aggregates: every shard when sharding is on, the primary database otherwise
+     */
+    List<Database> databases() {
+        if (!shards.isEnabled()) {
+            return List.of(new Database("primary", jdbcTemplate, transactionTemplate));
+        }
+        return shards.shards().stream()
+                .map(shard -> new Database("shard-" + shard.index(), shard.jdbcTemplate(), shard.transactionTemplate()))
+                .toList();
+    }
+
+    static Map<TotalKey, Change> readTotals(JdbcTemplate jdbcTemplate) {
+        Map<TotalKey, Change> totals = new TreeMap<>();
+        jdbcTemplate.query(READ_TOTALS, rs -> {
+            totals.put(new TotalKey(rs.getString(1), rs.getString(2)),
+                    new Change(rs.getLong(3), rs.getBigDecimal(4), BigDecimal.ZERO));
+        });
+        return totals;
+    }
+
+    static Map<VolumeKey, Change> readVolumes(JdbcTemplate jdbcTemplate, LocalDate from, LocalDate to) {
+        Map<VolumeKey, Change> volumes = new TreeMap<>();
+        jdbcTemplate.query(READ_VOLUMES, rs -> {
+            volumes.put(new VolumeKey(rs.getDate(1).toLocalDate(), rs.getString(2), rs.getString(3)),
+                    new Change(rs.getLong(4), rs.getBigDecimal(5), rs.getBigDecimal(6)));
+        }, Date.valueOf(from), Date.valueOf(to));
+        return volumes;
+    }
+
+    private static <K> void merge(Map<K, Change> into, Map<K, Change> from) {
+        from.forEach((key, change) -> into.merge(key, change, Change::plus));
+    }
+
+    record Database(String name, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+    }
+
+    /**
+     * Deltas recorded in one transaction, written just before it commits.
+     */
+    private record Pending(BankAggregates owner, AggregateDelta delta) implements TransactionSynchronization {
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            owner.apply(owner.jdbcTemplate, delta);
+        }
+    }
+}
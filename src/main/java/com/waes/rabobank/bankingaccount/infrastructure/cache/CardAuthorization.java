@@ -0,0 +1,38 @@
+package com.waes.rabobank.bankingaccount.infrastructure.cache;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardStatus;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.domain.model.Card;
+
+import java.time.YearMonth;
+import java.util.UUID;
+
+/**
+ * What a payment needs to know about a card before touching any account: owner, status, expiry, type and the fee
+ * segment that prices it.
+ */
+public record CardAuthorization(
+        UUID cardId,
+        UUID accountId,
+        CardStatus status,
+        YearMonth expiryDate,
+        CardType type,
+        String feeSegment
+) {
+
+    static CardAuthorization of(Card card) {
+        return new CardAuthorization(
+                card.getId(),
+                card.getAccount().getId(), // Foreign key, the lazy account is not initialized
+                card.getStatus(),
+                card.getExpiryDate(),
+                card.getType(),
+                card.getFeeSegment()
+        );
+    }
+
+    // Same rule as Card.isActive()
+    public boolean isActive() {
+        return status == CardStatus.ACTIVE && !YearMonth.now().isAfter(expiryDate);
+    }
+}
@@ -0,0 +1,72 @@
+package com.waes.rabobank.bankingaccount.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.waes.rabobank.bankingaccount.infrastructure.persistence.CardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded card ID → {@link CardAuthorization} index, loaded on a miss.
+ * <p>
+ * Card writes of this instance invalidate entries through {@link CardAuthorizationListener};
+ * {@code expire-after-write} bounds how long a change made by another instance can go unnoticed.
+ * Meters: {@code cache.*{cache=card_authorization}}.
+ */
+@Component
+public class CardAuthorizationIndex {
+
+    private final CardRepository cardRepository;
+    private final Cache<UUID, CardAuthorization> cache;
+
+    // Bumped by every invalidation, lets a load detect that it raced with one
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CardAuthorizationIndex(
+            CardRepository cardRepository,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${banking.card-authorization.maximum-size:100000}") long maximumSize,
+            @Value("${banking.card-authorization.expire-after-write:5m}") Duration expireAfterWrite
+    ) {
+        this.cardRepository = cardRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                cache, "card_authorization");
+    }
+
+    public Optional<CardAuthorization> find(UUID cardId) {
+        CardAuthorization cached = cache.getIfPresent(cardId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        // Not computeIfAbsent: the database read must not run while holding the cache's bin lock
+        long generation = invalidations.get();
+        Optional<CardAuthorization> loaded = cardRepository.findById(cardId).map(CardAuthorization::of);
+        loaded.ifPresent(authorization -> {
+            cache.put(cardId, authorization);
+            if (invalidations.get() != generation) {
+                cache.invalidate(cardId); // The card changed while it was read, the value may be stale
+            }
+        });
+        return loaded;
+    }
+
+    public void invalidate(UUID cardId) {
+        invalidations.incrementAndGet();
+        cache.invalidate(cardId);
+    }
+}
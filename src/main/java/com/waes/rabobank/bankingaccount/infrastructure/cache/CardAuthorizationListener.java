@@ -0,0 +1,41 @@
+package com.waes.rabobank.bankingaccount.infrastructure.cache;
+
+import com.waes.rabobank.bankingaccount.domain.model.Card;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Evicts a card from the {@link CardAuthorizationIndex} when a status or account change is flushed,
+ * and again once the transaction completes: a load inside the writing transaction may have cached
+ * the uncommitted value, and a rollback must not leave it behind.
+ */
+@Component
+public class CardAuthorizationListener {
+
+    // Resolved lazily: the index depends on CardRepository, which needs the EntityManagerFactory creating this listener
+    private final ObjectProvider<CardAuthorizationIndex> indexProvider;
+
+    public CardAuthorizationListener(ObjectProvider<CardAuthorizationIndex> indexProvider) {
+        this.indexProvider = indexProvider;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onChange(Card card) {
+        CardAuthorizationIndex index = indexProvider.getObject();
+        index.invalidate(card.getId());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    index.invalidate(card.getId());
+                }
+            });
+        }
+    }
+}
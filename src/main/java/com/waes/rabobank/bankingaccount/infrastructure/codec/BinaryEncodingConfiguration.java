@@ -0,0 +1,29 @@
+package com.waes.rabobank.bankingaccount.infrastructure.codec;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Binary encodings next to JSON, chosen per request with {@code Accept} / {@code Content-Type}:
+ * <ul>
+ *   <li>{@code application/cbor}: Jackson's CBOR converter, registered by Spring MVC as soon as
+ *       {@code jackson-dataformat-cbor} is on the classpath; works for every endpoint.</li>
+ *   <li>{@code application/x-protobuf}: {@link ProtobufDtoHttpMessageConverter}, for balances, withdrawals and
+ *       transfers.</li>
+ * </ul>
+ * The protobuf converter goes to the end of the list, so JSON still wins when the client accepts anything.
+ * {@code ProblemDetail} errors stay {@code application/problem+json} whatever the client asked for.
+ */
+@Configuration
+@ConditionalOnProperty(name = "banking.protobuf.enabled", havingValue = "true", matchIfMissing = true)
+public class BinaryEncodingConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new ProtobufDtoHttpMessageConverter());
+    }
+}
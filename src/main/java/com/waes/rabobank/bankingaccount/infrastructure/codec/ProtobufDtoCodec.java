@@ -0,0 +1,316 @@
+package com.waes.rabobank.bankingaccount.infrastructure.codec;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodes the payment and balance DTOs in the protobuf wire format of {@code proto/banking.proto}, written by hand
+ * on top of the protobuf runtime so that no generated classes sit between the records and the bytes.
+ * <p>
+ * Ids travel as 16 UUID bytes and amounts as {@code Decimal} (unscaled {@code sint64} + scale), so no number or id
+ * is ever formatted or parsed as text. Absent fields decode to {@code null}, leaving the checks to bean validation;
+ * unknown fields are skipped.
+ */
+public final class ProtobufDtoCodec {
+
+    private ProtobufDtoCodec() {
+    }
+
+    // === AccountBalanceList / AccountBalance ===
+
+    public static byte[] encodeBalances(List<AccountBalanceDTO> balances) {
+        Writer writer = new Writer();
+        for (AccountBalanceDTO balance : balances) {
+            writer.message(1, encodeBalance(balance));
+        }
+        return writer.toByteArray();
+    }
+
+    public static List<AccountBalanceDTO> decodeBalances(byte[] bytes) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(bytes);
+        List<AccountBalanceDTO> balances = new ArrayList<>();
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            if (WireFormat.getTagFieldNumber(tag) == 1) {
+                balances.add(decodeBalance(in.readByteArray()));
+            } else {
+                in.skipField(tag);
+            }
+        }
+        return balances;
+    }
+
+    static byte[] encodeBalance(AccountBalanceDTO balance) {
+        return new Writer()
+                .uuid(1, balance.userId())
+                .uuid(2, balance.accountId())
+                .string(3, balance.accountNumber())
+                .decimal(4, balance.balance())
+                .string(5, balance.currency())
+                .toByteArray();
+    }
+
+    static AccountBalanceDTO decodeBalance(byte[] bytes) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(bytes);
+        String userId = null, accountId = null, accountNumber = null, currency = null;
+        BigDecimal balance = null;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> userId = readUuid(in);
+                case 2 -> accountId = readUuid(in);
+                case 3 -> accountNumber = in.readStringRequireUtf8();
+                case 4 -> balance = readDecimal(in);
+                case 5 -> currency = in.readStringRequireUtf8();
+                default -> in.skipField(tag);
+            }
+        }
+        return new AccountBalanceDTO(userId, accountId, accountNumber, balance, currency);
+    }
+
+    // === WithdrawalRequest / WithdrawalResponse ===
+
+    public static byte[] encode(WithdrawalRequestDTO request) {
+        return new Writer()
+                .uuid(1, request.accountId())
+                .decimal(2, request.amount())
+                .uuid(3, request.cardId())
+                .toByteArray();
+    }
+
+    public static WithdrawalRequestDTO decodeWithdrawalRequest(byte[] bytes) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(bytes);
+        String accountId = null, cardId = null;
+        BigDecimal amount = null;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> accountId = readUuid(in);
+                case 2 -> amount = readDecimal(in);
+                case 3 -> cardId = readUuid(in);
+                default -> in.skipField(tag);
+            }
+        }
+        return new WithdrawalRequestDTO(accountId, amount, cardId);
+    }
+
+    public static byte[] encode(WithdrawalResponseDTO response) {
+        return new Writer()
+                .uuid(1, response.transactionId())
+                .uuid(2, response.accountId())
+                .uuid(3, response.cardId())
+                .decimal(4, response.amount())
+                .decimal(5, response.fee())
+                .decimal(6, response.balanceAfter())
+                .toByteArray();
+    }
+
+    public static WithdrawalResponseDTO decodeWithdrawalResponse(byte[] bytes) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(bytes);
+        String transactionId = null, accountId = null, cardId = null;
+        BigDecimal amount = null, fee = null, balanceAfter = null;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> transactionId = readUuid(in);
+                case 2 -> accountId = readUuid(in);
+                case 3 -> cardId = readUuid(in);
+                case 4 -> amount = readDecimal(in);
+                case 5 -> fee = readDecimal(in);
+                case 6 -> balanceAfter = readDecimal(in);
+                default -> in.skipField(tag);
+            }
+        }
+        return new WithdrawalResponseDTO(transactionId, accountId, cardId, amount, fee, balanceAfter);
+    }
+
+    // === TransferRequest / TransferResponse ===
+
+    public static byte[] encode(TransferRequestDTO request) {
+        return new Writer()
+                .uuid(1, request.fromAccountId())
+                .uuid(2, request.toAccountId())
+                .decimal(3, request.amount())
+                .uuid(4, request.cardId())
+                .toByteArray();
+    }
+
+    public static TransferRequestDTO decodeTransferRequest(byte[] bytes) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(bytes);
+        String fromAccountId = null, toAccountId = null, cardId = null;
+        BigDecimal amount = null;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> fromAccountId = readUuid(in);
+                case 2 -> toAccountId = readUuid(in);
+                case 3 -> amount = readDecimal(in);
+                case 4 -> cardId = readUuid(in);
+                default -> in.skipField(tag);
+            }
+        }
+        return new TransferRequestDTO(fromAccountId, toAccountId, amount, cardId);
+    }
+
+    public static byte[] encode(TransferResponseDTO response) {
+        return new Writer()
+                .uuid(1, response.transferTransactionId())
+                .uuid(2, response.depositTransactionId())
+                .uuid(3, response.fromAccountId())
+                .uuid(4, response.toAccountId())
+                .decimal(5, response.amount())
+                .decimal(6, response.fee())
+                .decimal(7, response.fromAccountBalanceAfter())
+                .decimal(8, response.toAccountBalanceAfter())
+                .decimal(9, response.creditedAmount())
+                .decimal(10, response.fxRate())
+                .toByteArray();
+    }
+
+    public static TransferResponseDTO decodeTransferResponse(byte[] bytes) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(bytes);
+        String transferTransactionId = null, depositTransactionId = null, fromAccountId = null, toAccountId = null;
+        BigDecimal amount = null, fee = null, fromBalanceAfter = null, toBalanceAfter = null, creditedAmount = null,
+                fxRate = null;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> transferTransactionId = readUuid(in);
+                case 2 -> depositTransactionId = readUuid(in);
+                case 3 -> fromAccountId = readUuid(in);
+                case 4 -> toAccountId = readUuid(in);
+                case 5 -> amount = readDecimal(in);
+                case 6 -> fee = readDecimal(in);
+                case 7 -> fromBalanceAfter = readDecimal(in);
+                case 8 -> toBalanceAfter = readDecimal(in);
+                case 9 -> creditedAmount = readDecimal(in);
+                case 10 -> fxRate = readDecimal(in);
+                default -> in.skipField(tag);
+            }
+        }
+        return new TransferResponseDTO(transferTransactionId, depositTransactionId, fromAccountId, toAccountId,
+                amount, fee, fromBalanceAfter, toBalanceAfter, creditedAmount, fxRate);
+    }
+
+    // === Scalars ===
+
+    private static String readUuid(CodedInputStream in) throws IOException {
+        int length = in.readRawVarint32();
+        if (length != 16) {
+            throw new IOException("UUID field must be 16 bytes, got " + length);
+        }
+        long most = 0;
+        for (int i = 0; i < 8; i++) {
+            most = (most << 8) | (in.readRawByte() & 0xFF);
+        }
+        long least = 0;
+        for (int i = 0; i < 8; i++) {
+            least = (least << 8) | (in.readRawByte() & 0xFF);
+        }
+        return new UUID(most, least).toString();
+    }
+
+    private static BigDecimal readDecimal(CodedInputStream in) throws IOException {
+        int limit = in.pushLimit(in.readRawVarint32());
+        long unscaled = 0;
+        int scale = 0;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> unscaled = in.readSInt64();
+                case 2 -> scale = in.readInt32();
+                default -> in.skipField(tag);
+            }
+        }
+        in.popLimit(limit);
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * Fields of one message, appended in field order. Null fields are left out, as proto3 does with defaults.
+     */
+    private static final class Writer {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        private final CodedOutputStream out = CodedOutputStream.newInstance(bytes, 64);
+
+        Writer uuid(int field, String value) {
+            if (value != null) {
+                UUID uuid = UUID.fromString(value);
+                try {
+                    out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                    out.writeUInt32NoTag(16);
+                    writeBigEndian(uuid.getMostSignificantBits());
+                    writeBigEndian(uuid.getLeastSignificantBits());
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return this;
+        }
+
+        Writer string(int field, String value) {
+            if (value != null) {
+                try {
+                    out.writeString(field, value);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return this;
+        }
+
+        Writer decimal(int field, BigDecimal value) {
+            if (value != null) {
+                BigInteger unscaledValue = value.unscaledValue();
+                if (unscaledValue.bitLength() > 63) {
+                    throw new IllegalArgumentException("Decimal out of sint64 range: " + value);
+                }
+                long unscaled = unscaledValue.longValue();
+                int scale = value.scale();
+                try {
+                    out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                    out.writeUInt32NoTag(CodedOutputStream.computeSInt64Size(1, unscaled)
+                            + CodedOutputStream.computeInt32Size(2, scale));
+                    out.writeSInt64(1, unscaled);
+                    out.writeInt32(2, scale);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return this;
+        }
+
+        Writer message(int field, byte[] message) {
+            try {
+                out.writeByteArray(field, message);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return this;
+        }
+
+        byte[] toByteArray() {
+            try {
+                out.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return bytes.toByteArray();
+        }
+
+        private void writeBigEndian(long value) throws IOException {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.writeRawByte((byte) (value >>> shift));
+            }
+        }
+    }
+}
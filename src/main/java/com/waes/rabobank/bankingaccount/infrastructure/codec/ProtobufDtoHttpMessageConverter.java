@@ -0,0 +1,126 @@
+package com.waes.rabobank.bankingaccount.infrastructure.codec;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads and writes {@code application/x-protobuf} bodies for the DTOs that {@link ProtobufDtoCodec} knows:
+ * balances ({@code List<AccountBalanceDTO>} as {@code AccountBalanceList}), withdrawals and transfers.
+ * Any other type is left to the JSON converters.
+ */
+public class ProtobufDtoHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_X_PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final Set<Class<?>> MESSAGES = Set.of(
+            AccountBalanceDTO.class,
+            WithdrawalRequestDTO.class,
+            WithdrawalResponseDTO.class,
+            TransferRequestDTO.class,
+            TransferResponseDTO.class
+    );
+
+    public ProtobufDtoHttpMessageConverter() {
+        super(APPLICATION_X_PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return MESSAGES.contains(clazz);
+    }
+
+    // MVC asks with the runtime class when it lists producible types; canWrite(Type, ...) checks the element type
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz) || supports(clazz) ? getSupportedMediaTypes() : List.of();
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (isBalanceList(type) || type instanceof Class<?> clazz && supports(clazz)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (isBalanceList(type) || supports(clazz)) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        byte[] bytes = inputMessage.getBody().readAllBytes();
+        try {
+            if (isBalanceList(type)) {
+                return ProtobufDtoCodec.decodeBalances(bytes);
+            }
+            if (type == AccountBalanceDTO.class) {
+                return ProtobufDtoCodec.decodeBalance(bytes);
+            }
+            if (type == WithdrawalRequestDTO.class) {
+                return ProtobufDtoCodec.decodeWithdrawalRequest(bytes);
+            }
+            if (type == WithdrawalResponseDTO.class) {
+                return ProtobufDtoCodec.decodeWithdrawalResponse(bytes);
+            }
+            if (type == TransferRequestDTO.class) {
+                return ProtobufDtoCodec.decodeTransferRequest(bytes);
+            }
+            if (type == TransferResponseDTO.class) {
+                return ProtobufDtoCodec.decodeTransferResponse(bytes);
+            }
+        } catch (IOException ex) {
+            throw new HttpMessageNotReadableException("Malformed protobuf body: " + ex.getMessage(), ex, inputMessage);
+        }
+        throw new HttpMessageNotReadableException("Unsupported protobuf message: " + type, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = switch (body) {
+                case List<?> balances -> ProtobufDtoCodec.encodeBalances((List<AccountBalanceDTO>) balances);
+                case AccountBalanceDTO balance -> ProtobufDtoCodec.encodeBalance(balance);
+                case WithdrawalRequestDTO request -> ProtobufDtoCodec.encode(request);
+                case WithdrawalResponseDTO response -> ProtobufDtoCodec.encode(response);
+                case TransferRequestDTO request -> ProtobufDtoCodec.encode(request);
+                case TransferResponseDTO response -> ProtobufDtoCodec.encode(response);
+                default -> throw new HttpMessageNotWritableException("Unsupported protobuf message: " + body.getClass());
+            };
+        } catch (IllegalArgumentException ex) {
+            // An id that is not a UUID or an amount beyond sint64 has no protobuf form
+            throw new HttpMessageNotWritableException("Cannot encode as protobuf: " + ex.getMessage(), ex);
+        }
+        outputMessage.getHeaders().setContentLength(bytes.length);
+        outputMessage.getBody().write(bytes);
+    }
+
+    private static boolean isBalanceList(Type type) {
+        if (type == null) {
+            return false;
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        return List.class.isAssignableFrom(resolved.toClass())
+                && resolved.getGeneric(0).toClass() == AccountBalanceDTO.class;
+    }
+}
@@ -4,6 +4,7 @@ import com.waes.rabobank.bankingaccount.domain.model.Account;
 import com.waes.rabobank.bankingaccount.domain.model.CreditCard;
 import com.waes.rabobank.bankingaccount.domain.model.DebitCard;
 import com.waes.rabobank.bankingaccount.domain.model.User;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregateVerifier;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.AccountRepository;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.CardRepository;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.UserRepository;
@@ -28,11 +29,14 @@ public class LocalDataLoader implements CommandLineRunner {
     private final UserRepository userRepository;
     private final AccountRepository accountRepository;
     private final CardRepository cardRepository;
+    private final BankAggregateVerifier aggregateVerifier;
 
-    public LocalDataLoader(UserRepository userRepository, AccountRepository accountRepository, CardRepository cardRepository) {
+    public LocalDataLoader(UserRepository userRepository, AccountRepository accountRepository,
+                           CardRepository cardRepository, BankAggregateVerifier aggregateVerifier) {
         this.userRepository = userRepository;
         this.accountRepository = accountRepository;
         this.cardRepository = cardRepository;
+        this.aggregateVerifier = aggregateVerifier;
     }
 
     @Override
@@ -45,6 +49,8 @@ public class LocalDataLoader implements CommandLineRunner {
         logger.info("Loading seed data for local development...");
 
         createSeedData();
+        // The seed accounts are saved directly, without aggregate deltas
+        aggregateVerifier.rebuild();
 
         logger.info("Seed data loading completed.");
         logger.info("Users count: {}", userRepository.count());
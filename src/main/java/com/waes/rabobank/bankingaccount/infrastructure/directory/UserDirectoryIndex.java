@@ -0,0 +1,533 @@
+package com.waes.rabobank.bankingaccount.infrastructure.directory;
+
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * In-process directory of users for exact, prefix and type-ahead search.
+ * <p>
+ * Two layers answer every lookup as an O(log n) seek plus a short range scan:
+ * <ul>
+ *     <li>a {@link UserDirectorySnapshot}: the bulk of the users, packed into one byte arena with sorted arrays of
+ *     positions by id, lower-cased email and name token, ~100 bytes per user</li>
+ *     <li>a delta: the users written since the snapshot was built, in sorted maps by lower-cased email and by
+ *     every lower-cased, accent-free name token suffixed with the user id. A removed user leaves a tombstone
+ *     there. An id in the delta hides the same id in the snapshot</li>
+ * </ul>
+ * Readers never lock. Writers are serialized, so an update replaces the old keys of a user atomically with respect
+ * to other writers. Once the delta holds more than an eighth of the snapshot it is frozen and merged into a new
+ * snapshot on a background thread, while a fresh delta takes the writes.
+ * <p>
+ * Only this instance's writes reach the index: an exact email hit older than
+ * {@code banking.user-directory.expire-after-write} is not served, the caller asks the database and writes the
+ * answer back.
+ * <p>
+ * Off by default ({@code banking.user-directory.enabled}). Past {@code banking.user-directory.max-entries} users
+ * (default: what fits half the heap while a compaction runs, ~2.2M users with 1 GB) it empties itself and never becomes ready. Either way every lookup
+ * then goes to the database.
+ */
+@Component
+public class UserDirectoryIndex {
+
+    // ~117 bytes per user measured for a snapshot of generated users; a compaction holds two snapshots at once
+    static final int BYTES_PER_ENTRY = 240;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[\\s\\-'.]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final char RANGE_END = '\uffff';
+    private static final int MIN_COMPACTION = 65_536;
+
+    // Upper bound of candidates inspected per search, so a very common prefix cannot scan the whole map
+    private static final int SCAN_FACTOR = 50;
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDirectoryIndex.class);
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long expireAfterWriteNanos;
+    private final long origin = System.nanoTime();
+    private volatile Layers layers = new Layers(UserDirectorySnapshot.EMPTY, null, new Delta());
+    private volatile int size;
+    private volatile boolean ready;
+    private volatile boolean overflowed;
+
+    public UserDirectoryIndex(
+            @Value("${banking.user-directory.enabled:false}") boolean enabled,
+            @Value("${banking.user-directory.max-entries:0}") int maxEntries,
+            @Value("${banking.user-directory.expire-after-write:5m}") Duration expireAfterWrite
+    ) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries > 0
+                ? maxEntries
+                : (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 2 / BYTES_PER_ENTRY);
+        this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+    }
+
+    public synchronized void upsert(UserResponseDTO user) {
+        Entry previous = find(user.id());
+        if (!accepts(previous)) {
+            return;
+        }
+        write(new Entry(user.id(), user, System.nanoTime()));
+        if (previous == null || previous.removed()) {
+            size++;
+        }
+        compactWhenDeltaIsLarge();
+    }
+
+    /**
+     * Never overwrites an entry, or a removal, that a committed change already put in the index.
+     */
+    public synchronized void putIfAbsent(UserResponseDTO user) {
+        if (find(user.id()) == null && accepts(null)) {
+            write(new Entry(user.id(), user, System.nanoTime()));
+            size++;
+            compactWhenDeltaIsLarge();
+        }
+    }
+
+    public synchronized void remove(String userId) {
+        Entry previous = find(userId);
+        if (previous == null || previous.removed()) {
+            return;
+        }
+        Layers current = layers;
+        if (current.snapshot.findById(userId) < 0 && (current.frozen == null || !current.frozen.byId.containsKey(userId))) {
+            // Nothing underneath to hide
+            Entry old = current.delta.byId.remove(userId);
+            current.delta.unindex(old);
+        } else {
+            write(new Entry(userId, null, System.nanoTime()));
+        }
+        size--;
+    }
+
+    /**
+     * Bulk load path: the users are packed straight into a snapshot, without going through the delta. Entries
+     * that committed changes write meanwhile stay in the delta and hide the loaded ones.
+     */
+    public BulkLoad bulkLoad() {
+        return new BulkLoad();
+    }
+
+    /**
+     * @return The user with this email, unless its entry was written longer than {@code expire-after-write} ago:
+     * it may have changed on another instance since
+     */
+    public Optional<UserResponseDTO> findByEmail(String email) {
+        String key = normalizeEmail(email);
+        Layers current = layers;
+        Entry entry = current.delta.byEmail.get(key);
+        if (entry == null && current.frozen != null) {
+            entry = current.frozen.byEmail.get(key);
+            if (entry != null && current.delta.byId.containsKey(entry.id())) {
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            int slot = current.snapshot.findByEmail(key);
+            if (slot < 0 || current.hidesSnapshot(current.snapshot.id(slot))) {
+                return Optional.empty();
+            }
+            entry = new Entry(null, current.snapshot.user(slot), current.snapshot.writtenAtNanos(slot));
+        }
+        return System.nanoTime() - entry.writtenAt() < expireAfterWriteNanos
+                ? Optional.of(entry.user())
+                : Optional.empty();
+    }
+
+    /**
+     * Type-ahead search: email prefix matches first, then users whose name tokens start with every query token
+     * ({@code "jan de"} matches "Jan de Vries" and "Dennis Jansen").
+     */
+    public List<UserResponseDTO> search(String query, int limit) {
+        Layers current = layers;
+        Map<String, UserResponseDTO> results = new LinkedHashMap<>();
+
+        String emailPrefix = normalizeEmail(query);
+        if (!emailPrefix.contains(" ")) {
+            List<Match> matches = new ArrayList<>();
+            collect(prefixRange(current.delta.byEmail, emailPrefix), user -> true, id -> false, limit, matches);
+            if (current.frozen != null) {
+                collect(prefixRange(current.frozen.byEmail, emailPrefix), user -> true,
+                        current.delta.byId::containsKey, limit, matches);
+            }
+            collectSnapshot(current, visitor -> current.snapshot.forEachEmailWithPrefix(emailPrefix, visitor),
+                    slot -> true, slot -> normalizeEmail(current.snapshot.user(slot).email()), limit, matches);
+            addInKeyOrder(matches, results, limit);
+        }
+
+        String[] queryTokens = tokens(query);
+        if (queryTokens.length > 0 && results.size() < limit) {
+            // Seek on the longest token, it narrows the range the most
+            String seek = Arrays.stream(queryTokens).max(Comparator.comparingInt(String::length)).orElseThrow();
+            int wanted = limit - results.size();
+            Predicate<UserResponseDTO> filter = user -> !results.containsKey(user.id()) && matchesAll(tokens(user.name()), queryTokens);
+            List<Match> matches = new ArrayList<>();
+            collect(prefixRange(current.delta.byName, seek), filter, id -> false, wanted, matches);
+            if (current.frozen != null) {
+                collect(prefixRange(current.frozen.byName, seek), filter, current.delta.byId::containsKey, wanted, matches);
+            }
+            collectSnapshot(current, visitor -> current.snapshot.forEachTokenWithPrefix(seek, visitor),
+                    slot -> matchesAll(current.snapshot.tokens(slot), queryTokens),
+                    slot -> firstTokenWithPrefix(current.snapshot.tokens(slot), seek) + KEY_SEPARATOR + current.snapshot.id(slot),
+                    wanted, matches);
+            addInKeyOrder(matches, results, limit);
+        }
+
+        return new ArrayList<>(results.values());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return ready && !overflowed;
+    }
+
+    public void markReady() {
+        this.ready = true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Drops every entry for good: more users than {@code max-entries} would not fit the heap budgeted for them.
+     */
+    public synchronized void overflow() {
+        if (!overflowed) {
+            overflowed = true;
+            layers = new Layers(UserDirectorySnapshot.EMPTY, null, new Delta());
+            size = 0;
+            logger.warn("user_directory.overflowed", kv("maxEntries", maxEntries));
+        }
+    }
+
+    /**
+     * Merges the delta into a new snapshot now, on the calling thread.
+     */
+    void compact() {
+        Layers frozen;
+        synchronized (this) {
+            if (overflowed || layers.frozen != null || layers.delta.byId.isEmpty()) {
+                return;
+            }
+            frozen = new Layers(layers.snapshot, layers.delta, new Delta());
+            layers = frozen;
+        }
+        merge(frozen);
+    }
+
+    private void compactWhenDeltaIsLarge() {
+        Layers current = layers;
+        if (ready && current.frozen == null
+                && current.delta.byId.size() >= Math.max(MIN_COMPACTION, current.snapshot.size() / 8)) {
+            Layers frozen = new Layers(current.snapshot, current.delta, new Delta());
+            layers = frozen;
+            Thread.ofVirtual().name("user-directory-compaction").start(() -> merge(frozen));
+        }
+    }
+
+    private void merge(Layers frozen) {
+        long start = System.nanoTime();
+        try {
+            UserDirectorySnapshot.Builder builder = new UserDirectorySnapshot.Builder(origin);
+            UserDirectorySnapshot snapshot = frozen.snapshot;
+            BitSet replaced = new BitSet(snapshot.size());
+            for (String id : frozen.frozen.byId.keySet()) {
+                int slot = snapshot.findById(id);
+                if (slot >= 0) {
+                    replaced.set(slot);
+                }
+            }
+            boolean fits = true;
+            for (int slot = replaced.nextClearBit(0); slot < snapshot.size() && fits; slot = replaced.nextClearBit(slot + 1)) {
+                fits = builder.copy(snapshot, slot);
+            }
+            for (Entry entry : frozen.frozen.byId.values()) {
+                if (fits && !entry.removed()) {
+                    fits = builder.add(entry.user(), entry.writtenAt());
+                }
+            }
+            if (!fits) {
+                overflow();
+                return;
+            }
+            UserDirectorySnapshot merged = builder.build();
+            synchronized (this) {
+                if (layers.frozen == frozen.frozen) {
+                    layers = new Layers(merged, null, layers.delta);
+                }
+            }
+            logger.info("user_directory.compacted",
+                    kv("users", merged.size()),
+                    kv("elapsedMs", (System.nanoTime() - start) / 1_000_000));
+        } catch (RuntimeException ex) {
+            logger.error("user_directory.compaction_failed", ex);
+            overflow();
+        }
+    }
+
+    private boolean accepts(Entry previous) {
+        if (!enabled || overflowed) {
+            return false;
+        }
+        if ((previous == null || previous.removed()) && size >= maxEntries) {
+            overflow();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The newest entry for this id in any layer, a tombstone when removed, null when never seen
+     */
+    private Entry find(String id) {
+        Layers current = layers;
+        Entry entry = current.delta.byId.get(id);
+        if (entry == null && current.frozen != null) {
+            entry = current.frozen.byId.get(id);
+        }
+        if (entry == null) {
+            int slot = current.snapshot.findById(id);
+            if (slot >= 0) {
+                entry = new Entry(id, current.snapshot.user(slot), current.snapshot.writtenAtNanos(slot));
+            }
+        }
+        return entry;
+    }
+
+    private void write(Entry entry) {
+        Delta delta = layers.delta;
+        Entry old = delta.byId.put(entry.id(), entry);
+        delta.unindex(old);
+        delta.index(entry);
+    }
+
+    // === Layers ===
+
+    private record Entry(String id, UserResponseDTO user, long writtenAt) {
+
+        boolean removed() {
+            return user == null;
+        }
+    }
+
+    private record Match(String key, UserResponseDTO user) {
+    }
+
+    /**
+     * @param frozen Delta being merged into the next snapshot, null when no merge runs
+     */
+    private record Layers(UserDirectorySnapshot snapshot, Delta frozen, Delta delta) {
+
+        boolean hidesSnapshot(String id) {
+            return delta.byId.containsKey(id) || (frozen != null && frozen.byId.containsKey(id));
+        }
+    }
+
+    private static final class Delta {
+
+        final Map<String, Entry> byId = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<String, Entry> byEmail = new ConcurrentSkipListMap<>();
+        final ConcurrentSkipListMap<String, Entry> byName = new ConcurrentSkipListMap<>();
+
+        void index(Entry entry) {
+            if (entry.removed()) {
+                return;
+            }
+            byEmail.put(normalizeEmail(entry.user().email()), entry);
+            for (String token : tokens(entry.user().name())) {
+                byName.put(token + KEY_SEPARATOR + entry.id(), entry);
+            }
+        }
+
+        void unindex(Entry entry) {
+            if (entry == null || entry.removed()) {
+                return;
+            }
+            byEmail.remove(normalizeEmail(entry.user().email()), entry);
+            for (String token : tokens(entry.user().name())) {
+                byName.remove(token + KEY_SEPARATOR + entry.id());
+            }
+        }
+    }
+
+    /**
+     * Packs streamed users into the first snapshot; {@link #finish()} installs it.
+     */
+    public final class BulkLoad {
+
+        private final UserDirectorySnapshot.Builder builder = new UserDirectorySnapshot.Builder(origin);
+        private boolean full;
+
+        private BulkLoad() {
+        }
+
+        public void add(UserResponseDTO user) {
+            if (full || overflowed) {
+                return;
+            }
+            if (builder.size() >= maxEntries || !builder.add(user, System.nanoTime())) {
+                full = true;
+                overflow();
+            }
+        }
+
+        public void finish() {
+            if (full || overflowed) {
+                return;
+            }
+            UserDirectorySnapshot loaded = builder.build();
+            synchronized (UserDirectoryIndex.this) {
+                Layers current = layers;
+                if (overflowed || current.snapshot.size() > 0 || current.frozen != null) {
+                    logger.warn("user_directory.load_discarded", kv("users", loaded.size()));
+                    return;
+                }
+                int count = loaded.size();
+                for (Entry entry : current.delta.byId.values()) {
+                    boolean loadedToo = loaded.findById(entry.id()) >= 0;
+                    if (loadedToo && entry.removed()) {
+                        count--;
+                    } else if (!loadedToo && !entry.removed()) {
+                        count++;
+                    }
+                }
+                if (count > maxEntries) {
+                    overflow();
+                    return;
+                }
+                layers = new Layers(loaded, null, current.delta);
+                size = count;
+            }
+        }
+    }
+
+    // === Keys ===
+
+    private static NavigableMap<String, Entry> prefixRange(ConcurrentSkipListMap<String, Entry> map, String prefix) {
+        return map.subMap(prefix, true, prefix + RANGE_END, false);
+    }
+
+    private static void collect(NavigableMap<String, Entry> range,
+                                Predicate<UserResponseDTO> filter,
+                                Predicate<String> hidden,
+                                int limit,
+                                List<Match> matches) {
+        int scanned = 0;
+        int found = 0;
+        for (Map.Entry<String, Entry> candidate : range.entrySet()) {
+            if (found >= limit || ++scanned > limit * SCAN_FACTOR) {
+                return;
+            }
+            UserResponseDTO user = candidate.getValue().user();
+            if (!hidden.test(user.id()) && filter.test(user)) {
+                matches.add(new Match(candidate.getKey(), user));
+                found++;
+            }
+        }
+    }
+
+    private static void collectSnapshot(Layers current,
+                                        Consumer<IntPredicate> scan,
+                                        IntPredicate filter,
+                                        IntFunction<String> key,
+                                        int limit,
+                                        List<Match> matches) {
+        int[] scanned = {0};
+        int[] found = {0};
+        scan.accept(slot -> {
+            if (found[0] >= limit || ++scanned[0] > limit * SCAN_FACTOR) {
+                return false;
+            }
+            if (filter.test(slot)) {
+                UserResponseDTO user = current.snapshot.user(slot);
+                if (!current.hidesSnapshot(user.id())) {
+                    matches.add(new Match(key.apply(slot), user));
+                    found[0]++;
+                }
+            }
+            return true;
+        });
+    }
+
+    private static void addInKeyOrder(List<Match> matches, Map<String, UserResponseDTO> results, int limit) {
+        matches.sort(Comparator.comparing(Match::key));
+        for (Match match : matches) {
+            if (results.size() >= limit) {
+                return;
+            }
+            results.putIfAbsent(match.user().id(), match.user());
+        }
+    }
+
+    private static String firstTokenWithPrefix(String[] nameTokens, String prefix) {
+        for (String token : nameTokens) {
+            if (token.startsWith(prefix)) {
+                return token;
+            }
+        }
+        return prefix;
+    }
+
+    private static boolean matchesAll(String[] nameTokens, String[] queryTokens) {
+        for (String queryToken : queryTokens) {
+            boolean matched = false;
+            for (String nameToken : nameTokens) {
+                if (nameToken.startsWith(queryToken)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String[] tokens(String text) {
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return Arrays.stream(TOKEN_SEPARATOR.split(folded.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,50 @@
+package com.waes.rabobank.bankingaccount.infrastructure.directory;
+
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
+import com.waes.rabobank.bankingaccount.domain.model.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the {@link UserDirectoryIndex} in step with user writes made by this instance.
+ * Changes are applied after commit, so a rolled back write never shows up in search results.
+ */
+@Component
+public class UserDirectoryListener {
+
+    private final UserDirectoryIndex index;
+
+    public UserDirectoryListener(UserDirectoryIndex index) {
+        this.index = index;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(User user) {
+        UserResponseDTO entry = new UserResponseDTO(user.getId().toString(), user.getFullName(), user.getEmail());
+        afterCommit(() -> index.upsert(entry));
+    }
+
+    @PostRemove
+    public void onRemove(User user) {
+        String userId = user.getId().toString();
+        afterCommit(() -> index.remove(userId));
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package com.waes.rabobank.bankingaccount.infrastructure.directory;
+
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
+import com.waes.rabobank.bankingaccount.application.service.UserService;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Fills the {@link UserDirectoryIndex} once the application is up, on a background thread so startup and
+ * readiness do not wait for it. Until it is ready, lookups fall back to the database. A table with more users
+ * than {@code max-entries} is not loaded at all. The index is built from the primary database, so the
+ * application refuses to start with both the directory and sharding enabled.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.user-directory.enabled", havingValue = "true")
+public class UserDirectoryLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDirectoryLoader.class);
+
+    private static final int PAGE_SIZE = 5000;
+
+    private final UserService userService;
+    private final UserDirectoryIndex index;
+
+    public UserDirectoryLoader(UserService userService, UserDirectoryIndex index, ShardRegistry shards) {
+        if (shards.isEnabled()) {
+            throw new IllegalStateException(
+                    "banking.user-directory.enabled requires banking.sharding.enabled=false: users live on the shards");
+        }
+        this.userService = userService;
+        this.index = index;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        Thread.ofVirtual().name("user-directory-loader").start(this::load);
+    }
+
+    void load() {
+        long start = System.nanoTime();
+        try {
+            long users = userService.countUsers();
+            if (users > index.maxEntries()) {
+                index.overflow();
+                logger.warn("user_directory.not_loaded", kv("users", users), kv("maxEntries", index.maxEntries()));
+                return;
+            }
+            UserDirectoryIndex.BulkLoad bulkLoad = index.bulkLoad();
+            userService.streamUsers(PAGE_SIZE, page -> {
+                for (UserResponseDTO user : page) {
+                    bulkLoad.add(user);
+                }
+            });
+            bulkLoad.finish();
+            index.markReady();
+
+            logger.info("user_directory.loaded",
+                    kv("users", index.size()),
+                    kv("elapsedMs", (System.nanoTime() - start) / 1_000_000));
+        } catch (RuntimeException ex) {
+            logger.error("user_directory.load_failed", ex);
+        }
+    }
+}
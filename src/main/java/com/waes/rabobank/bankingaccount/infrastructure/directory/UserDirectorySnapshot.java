@@ -0,0 +1,467 @@
+package com.waes.rabobank.bankingaccount.infrastructure.directory;
+
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable, compact bulk of the {@link UserDirectoryIndex}. Every user is one record in a single byte arena, and
+ * the id, email and name-token orders are primitive arrays of positions into it, searched by binary search. No
+ * object per user: about 100 bytes per user where one {@code UserResponseDTO} with its map entries takes ~0.7 KB.
+ * <p>
+ * Record layout, lengths as unsigned 16-bit:
+ * <pre>
+ * id        tag 0 + 16 bytes (canonical UUID) | tag 1 + length + UTF-8
+ * email key length + lower-cased UTF-8
+ * email     length + UTF-8, length 0 when equal to the key
+ * name      length + UTF-8
+ * tokens    length + lower-cased, accent-free name tokens, each followed by a space
+ * </pre>
+ * Keys are compared as unsigned UTF-8 bytes, which for prefixes is the same as comparing characters.
+ */
+final class UserDirectorySnapshot {
+
+    static final UserDirectorySnapshot EMPTY = new Builder(0).build();
+
+    private static final byte UUID_ID = 0;
+    private static final byte TEXT_ID = 1;
+    private static final byte TOKEN_END = ' ';
+    private static final int MAX_ARENA = Integer.MAX_VALUE - 16;
+
+    private final byte[] arena;
+    private final int[] records; // arena position, by slot
+    private final int[] writtenAt; // seconds after origin, by slot
+    private final int[] byId; // slots in id order
+    private final int[] byEmail; // slots in email key order
+    private final long[] byToken; // arena position of the token << 16 | its length, in token order
+    private final long origin;
+
+    private UserDirectorySnapshot(byte[] arena, int[] records, int[] writtenAt, long origin) {
+        this.arena = arena;
+        this.records = records;
+        this.writtenAt = writtenAt;
+        this.origin = origin;
+        this.byId = sortedSlots(this::compareIds);
+        this.byEmail = sortedSlots(this::compareEmailKeys);
+        this.byToken = sortedTokens();
+    }
+
+    int size() {
+        return records.length;
+    }
+
+    String id(int slot) {
+        int position = records[slot];
+        if (arena[position] == UUID_ID) {
+            return new UUID(readLong(position + 1), readLong(position + 9)).toString();
+        }
+        return text(position + 1);
+    }
+
+    UserResponseDTO user(int slot) {
+        int emailKey = emailKeyPosition(slot);
+        int email = emailKey + 2 + readLength(emailKey);
+        int name = email + 2 + readLength(email);
+        String emailKeyText = text(emailKey);
+        return new UserResponseDTO(id(slot), text(name), readLength(email) == 0 ? emailKeyText : text(email));
+    }
+
+    long writtenAtNanos(int slot) {
+        return origin + writtenAt[slot] * 1_000_000_000L;
+    }
+
+    String[] tokens(int slot) {
+        int position = tokensPosition(slot);
+        String tokens = text(position);
+        return tokens.isEmpty() ? new String[0] : tokens.split(" ");
+    }
+
+    /**
+     * @return Slot of the user with this id, -1 when absent
+     */
+    int findById(String id) {
+        byte[] key = encodeId(id);
+        int low = 0;
+        int high = byId.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int position = records[byId[middle]];
+            int order = compare(arena, position, idLength(position), key, 0, key.length);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return byId[middle];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Slot of the user with this lower-cased email, -1 when absent
+     */
+    int findByEmail(String emailKey) {
+        byte[] key = emailKey.getBytes(StandardCharsets.UTF_8);
+        int index = lowerBound(byEmail, key);
+        if (index < byEmail.length) {
+            int position = emailKeyPosition(byEmail[index]);
+            if (compare(arena, position + 2, readLength(position), key, 0, key.length) == 0) {
+                return byEmail[index];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hands the slots whose email key starts with {@code prefix} to {@code visitor}, in key order, until it
+     * returns false.
+     */
+    void forEachEmailWithPrefix(String prefix, IntPredicate visitor) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        for (int index = lowerBound(byEmail, key); index < byEmail.length; index++) {
+            int position = emailKeyPosition(byEmail[index]);
+            if (!startsWith(position + 2, readLength(position), key) || !visitor.test(byEmail[index])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hands the slots with a name token starting with {@code prefix} to {@code visitor}, in token order, until it
+     * returns false. A user with two matching tokens is handed over twice.
+     */
+    void forEachTokenWithPrefix(String prefix, IntPredicate visitor) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = byToken.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long token = byToken[middle];
+            if (compare(arena, tokenPosition(token), tokenLength(token), key, 0, key.length) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        for (int index = low; index < byToken.length; index++) {
+            long token = byToken[index];
+            if (!startsWith(tokenPosition(token), tokenLength(token), key) || !visitor.test(slotAt(tokenPosition(token)))) {
+                return;
+            }
+        }
+    }
+
+    // === Layout ===
+
+    private int idLength(int position) {
+        return arena[position] == UUID_ID ? 17 : 3 + readLength(position + 1);
+    }
+
+    private int emailKeyPosition(int slot) {
+        int position = records[slot];
+        return position + idLength(position);
+    }
+
+    private int tokensPosition(int slot) {
+        int emailKey = emailKeyPosition(slot);
+        int email = emailKey + 2 + readLength(emailKey);
+        int name = email + 2 + readLength(email);
+        return name + 2 + readLength(name);
+    }
+
+    private int recordLength(int slot) {
+        int tokens = tokensPosition(slot);
+        return tokens + 2 + readLength(tokens) - records[slot];
+    }
+
+    private static int tokenPosition(long token) {
+        return (int) (token >>> 16);
+    }
+
+    private static int tokenLength(long token) {
+        return (int) (token & 0xffff);
+    }
+
+    // Records are appended in slot order, so their positions are ascending
+    private int slotAt(int position) {
+        int slot = Arrays.binarySearch(records, position);
+        return slot >= 0 ? slot : -slot - 2;
+    }
+
+    private int readLength(int position) {
+        return ((arena[position] & 0xff) << 8) | (arena[position + 1] & 0xff);
+    }
+
+    private long readLong(int position) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (arena[position + i] & 0xff);
+        }
+        return value;
+    }
+
+    private String text(int position) {
+        return new String(arena, position + 2, readLength(position), StandardCharsets.UTF_8);
+    }
+
+    private boolean startsWith(int position, int length, byte[] prefix) {
+        return length >= prefix.length && Arrays.equals(arena, position, position + prefix.length, prefix, 0, prefix.length);
+    }
+
+    // === Orders ===
+
+    private int lowerBound(int[] order, byte[] key) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int position = emailKeyPosition(order[middle]);
+            if (compare(arena, position + 2, readLength(position), key, 0, key.length) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compareIds(long left, long right) {
+        int leftPosition = records[(int) left];
+        int rightPosition = records[(int) right];
+        return compare(arena, leftPosition, idLength(leftPosition), arena, rightPosition, idLength(rightPosition));
+    }
+
+    private int compareEmailKeys(long left, long right) {
+        int leftPosition = emailKeyPosition((int) left);
+        int rightPosition = emailKeyPosition((int) right);
+        return compare(arena, leftPosition + 2, readLength(leftPosition),
+                arena, rightPosition + 2, readLength(rightPosition));
+    }
+
+    private int compareTokens(long left, long right) {
+        int order = compare(arena, tokenPosition(left), tokenLength(left), arena, tokenPosition(right), tokenLength(right));
+        return order != 0 ? order : Long.compare(left, right);
+    }
+
+    private int[] sortedSlots(LongOrder order) {
+        long[] slots = new long[records.length];
+        for (int slot = 0; slot < slots.length; slot++) {
+            slots[slot] = slot;
+        }
+        sort(slots, order);
+        int[] sorted = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            sorted[i] = (int) slots[i];
+        }
+        return sorted;
+    }
+
+    private long[] sortedTokens() {
+        int count = 0;
+        for (int slot = 0; slot < records.length; slot++) {
+            int position = tokensPosition(slot);
+            for (int i = position + 2, end = i + readLength(position); i < end; i++) {
+                if (arena[i] == TOKEN_END) {
+                    count++;
+                }
+            }
+        }
+        long[] tokens = new long[count];
+        int next = 0;
+        for (int slot = 0; slot < records.length; slot++) {
+            int position = tokensPosition(slot);
+            int start = position + 2;
+            for (int i = start, end = start + readLength(position); i < end; i++) {
+                if (arena[i] == TOKEN_END) {
+                    tokens[next++] = ((long) start << 16) | (i - start);
+                    start = i + 1;
+                }
+            }
+        }
+        sort(tokens, this::compareTokens);
+        return tokens;
+    }
+
+    // Bottom-up merge sort: no boxing, one scratch array
+    private static void sort(long[] values, LongOrder order) {
+        long[] source = values;
+        long[] target = new long[values.length];
+        for (int width = 1; width < values.length; width *= 2) {
+            for (int low = 0; low < values.length; low += 2 * width) {
+                int middle = Math.min(low + width, values.length);
+                int high = Math.min(low + 2 * width, values.length);
+                int left = low;
+                int right = middle;
+                for (int i = low; i < high; i++) {
+                    target[i] = right >= high || (left < middle && order.compare(source[left], source[right]) <= 0)
+                            ? source[left++]
+                            : source[right++];
+                }
+            }
+            long[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != values) {
+            System.arraycopy(source, 0, values, 0, values.length);
+        }
+    }
+
+    private static int compare(byte[] left, int leftFrom, int leftLength, byte[] right, int rightFrom, int rightLength) {
+        return Arrays.compareUnsigned(left, leftFrom, leftFrom + leftLength, right, rightFrom, rightFrom + rightLength);
+    }
+
+    static byte[] encodeId(String id) {
+        UUID uuid = parseCanonicalUuid(id);
+        if (uuid != null) {
+            byte[] encoded = new byte[17];
+            encoded[0] = UUID_ID;
+            writeLong(encoded, 1, uuid.getMostSignificantBits());
+            writeLong(encoded, 9, uuid.getLeastSignificantBits());
+            return encoded;
+        }
+        byte[] text = id.getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = new byte[3 + text.length];
+        encoded[0] = TEXT_ID;
+        encoded[1] = (byte) (text.length >>> 8);
+        encoded[2] = (byte) text.length;
+        System.arraycopy(text, 0, encoded, 3, text.length);
+        return encoded;
+    }
+
+    // Only ids that print back the same are stored as 16 bytes
+    private static UUID parseCanonicalUuid(String id) {
+        if (id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static void writeLong(byte[] target, int position, long value) {
+        for (int i = 7; i >= 0; i--) {
+            target[position + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    @FunctionalInterface
+    private interface LongOrder {
+        int compare(long left, long right);
+    }
+
+    /**
+     * Appends records to a growing arena; {@link #build()} sorts the orders once.
+     */
+    static final class Builder {
+
+        private final long origin;
+        private byte[] arena = new byte[1 << 12];
+        private int used;
+        private int[] records = new int[64];
+        private int[] writtenAt = new int[64];
+        private int size;
+
+        /**
+         * @param origin {@code System.nanoTime()} that write times are counted from
+         */
+        Builder(long origin) {
+            this.origin = origin;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return False when the arena is full (2 GB); nothing is added
+         */
+        boolean add(UserResponseDTO user, long writtenAtNanos) {
+            byte[] id = encodeId(user.id());
+            byte[] emailKey = UserDirectoryIndex.normalizeEmail(user.email()).getBytes(StandardCharsets.UTF_8);
+            byte[] email = user.email().getBytes(StandardCharsets.UTF_8);
+            boolean sameEmail = Arrays.equals(email, emailKey);
+            byte[] name = user.name().getBytes(StandardCharsets.UTF_8);
+            StringBuilder tokens = new StringBuilder();
+            for (String token : UserDirectoryIndex.tokens(user.name())) {
+                tokens.append(token).append(' ');
+            }
+            byte[] folded = tokens.toString().getBytes(StandardCharsets.UTF_8);
+
+            int length = id.length + 8 + emailKey.length + (sameEmail ? 0 : email.length) + name.length + folded.length;
+            if (!reserve(length)) {
+                return false;
+            }
+            int position = used;
+            put(id);
+            putField(emailKey);
+            putField(sameEmail ? new byte[0] : email);
+            putField(name);
+            putField(folded);
+            append(position, writtenAtNanos);
+            return true;
+        }
+
+        /**
+         * Copies a record of another snapshot as is.
+         *
+         * @return False when the arena is full (2 GB); nothing is added
+         */
+        boolean copy(UserDirectorySnapshot snapshot, int slot) {
+            int length = snapshot.recordLength(slot);
+            if (!reserve(length)) {
+                return false;
+            }
+            int position = used;
+            System.arraycopy(snapshot.arena, snapshot.records[slot], arena, used, length);
+            used += length;
+            append(position, snapshot.writtenAtNanos(slot));
+            return true;
+        }
+
+        UserDirectorySnapshot build() {
+            return new UserDirectorySnapshot(Arrays.copyOf(arena, used), Arrays.copyOf(records, size),
+                    Arrays.copyOf(writtenAt, size), origin);
+        }
+
+        private void append(int position, long writtenAtNanos) {
+            if (size == records.length) {
+                records = Arrays.copyOf(records, size * 2);
+                writtenAt = Arrays.copyOf(writtenAt, size * 2);
+            }
+            records[size] = position;
+            writtenAt[size] = (int) Math.max(0, (writtenAtNanos - origin) / 1_000_000_000L);
+            size++;
+        }
+
+        private boolean reserve(int length) {
+            long needed = (long) used + length;
+            if (needed > MAX_ARENA) {
+                return false;
+            }
+            if (needed > arena.length) {
+                arena = Arrays.copyOf(arena, (int) Math.min(MAX_ARENA, Math.max(needed, (long) arena.length * 2)));
+            }
+            return true;
+        }
+
+        private void put(byte[] bytes) {
+            System.arraycopy(bytes, 0, arena, used, bytes.length);
+            used += bytes.length;
+        }
+
+        private void putField(byte[] bytes) {
+            arena[used++] = (byte) (bytes.length >>> 8);
+            arena[used++] = (byte) bytes.length;
+            put(bytes);
+        }
+    }
+}
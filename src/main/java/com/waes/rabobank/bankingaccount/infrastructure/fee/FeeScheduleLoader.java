@@ -0,0 +1,85 @@
+package com.waes.rabobank.bankingaccount.infrastructure.fee;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeRule;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedule;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedules;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Loads {@code fee_schedules}, compiles it and swaps it into {@link FeeSchedules}.
+ * <p>
+ * Runs at startup and every {@code banking.fee-schedule.refresh-interval}, so edits to the table and promotion
+ * windows take effect without a restart. Payments in flight keep the schedule they already read.
+ * An invalid table is logged and ignored: the previous schedule stays in force.
+ */
+@Component
+public class FeeScheduleLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeeScheduleLoader.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private List<FeeRule> loadedRules = List.of();
+
+    public FeeScheduleLoader(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        reload();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${banking.fee-schedule.refresh-interval:60s}",
+            initialDelayString = "${banking.fee-schedule.refresh-interval:60s}"
+    )
+    public synchronized void reload() {
+        try {
+            List<FeeRule> rules = jdbcTemplate.query("""
+                    SELECT card_type, segment, band_from, rate_bps, fixed_fee, min_fee, max_fee, valid_from, valid_until
+                    FROM fee_schedules
+                    ORDER BY card_type, segment, band_from
+                    """, (rs, rowNum) -> new FeeRule(
+                    CardType.valueOf(rs.getString("card_type")),
+                    rs.getString("segment"),
+                    rs.getBigDecimal("band_from"),
+                    rs.getInt("rate_bps"),
+                    rs.getBigDecimal("fixed_fee"),
+                    rs.getBigDecimal("min_fee"),
+                    rs.getBigDecimal("max_fee"),
+                    toLocalDate(rs.getDate("valid_from")),
+                    toLocalDate(rs.getDate("valid_until"))
+            ));
+
+            LocalDate today = LocalDate.now();
+            // Recompile when the table changed, or when the day changed (a promotion may have opened or closed)
+            if (rules.equals(loadedRules) && today.equals(FeeSchedules.current().compiledFor())) {
+                return;
+            }
+
+            FeeSchedules.swap(FeeSchedule.compile(rules, today));
+            loadedRules = rules;
+            logger.info("fee_schedule.reloaded", kv("rules", rules.size()), kv("compiledFor", today));
+        } catch (RuntimeException ex) {
+            logger.error("fee_schedule.reload_failed", ex);
+        }
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date == null ? null : date.toLocalDate();
+    }
+}
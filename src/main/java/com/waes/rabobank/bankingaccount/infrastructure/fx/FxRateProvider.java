@@ -0,0 +1,67 @@
+package com.waes.rabobank.bankingaccount.infrastructure.fx;
+
+import com.waes.rabobank.bankingaccount.domain.fx.FxRates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Serves the {@link FxRates} snapshot in force. Transfers read it without touching the database.
+ * <p>
+ * The {@code fx_rates} table is reloaded at startup and every {@code banking.fx.refresh-interval}; the new snapshot
+ * is built off the request path and swapped in with one atomic write, so a refresh never blocks a transfer.
+ * A failed refresh keeps the previous snapshot.
+ */
+@Component
+public class FxRateProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(FxRateProvider.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicReference<FxRates> snapshot = new AtomicReference<>(FxRates.empty());
+
+    public FxRateProvider(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public FxRates current() {
+        return snapshot.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        refresh();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${banking.fx.refresh-interval:60s}",
+            initialDelayString = "${banking.fx.refresh-interval:60s}"
+    )
+    public void refresh() {
+        try {
+            Map<String, BigDecimal> ratesPerEuro = new HashMap<>();
+            jdbcTemplate.query("SELECT currency, rate_per_eur FROM fx_rates",
+                    rs -> {
+                        ratesPerEuro.put(rs.getString("currency"), rs.getBigDecimal("rate_per_eur"));
+                    });
+
+            FxRates rates = FxRates.of(ratesPerEuro, Instant.now());
+            snapshot.set(rates);
+            logger.debug("fx.rates_refreshed", kv("currencies", rates.currencies().size()));
+        } catch (RuntimeException ex) {
+            logger.error("fx.refresh_failed", ex);
+        }
+    }
+}
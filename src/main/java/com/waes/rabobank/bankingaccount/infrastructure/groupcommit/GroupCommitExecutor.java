@@ -0,0 +1,301 @@
+package com.waes.rabobank.bankingaccount.infrastructure.groupcommit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import com.waes.rabobank.bankingaccount.infrastructure.persistence.querybudget.QueryCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Runs money commands in a transaction, one transaction per command or, in group-commit mode, per batch.
+ * <p>
+ * With {@code banking.group-commit.enabled=true} callers hand their command to one committer thread and wait. The
+ * committer takes what is queued, waits up to {@code max-delay} for more, and runs up to {@code max-batch}
+ * commands in a single transaction: one commit, so one WAL flush, for all of them. Inside a batch
+ * {@link #inBatch()} is true and the commands leave flushing to the executor, which flushes after each command.
+ * <p>
+ * Each command runs behind a savepoint. A command that throws (insufficient funds, inactive account, wrong card)
+ * is rolled back to its savepoint and fails alone; the others commit. A command records its aggregate delta last,
+ * so a rolled back command leaves none behind. A database error, or a failing commit, rolls the whole batch back
+ * and every command runs again on its own, in its own transaction. Each caller gets the result or the exception
+ * it would have had alone.
+ * <p>
+ * The statements a command issues on the committer are charged to its caller's {@link QueryCounter}, so
+ * {@code @QueryBudget} sees them as if the command had run on the caller's thread.
+ * <p>
+ * A caller already in a transaction runs its command in it, on its own thread: it may depend on writes that are
+ * not committed yet.
+ * <p>
+ * Meters: {@code banking.group_commit.batch.size}, {@code banking.group_commit.rejections} (commands rolled back
+ * to their savepoint), {@code banking.group_commit.fallbacks} (batches retried one by one) and
+ * {@code banking.group_commit.queued}.
+ */
+@Component
+public class GroupCommitExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitExecutor.class);
+
+    private static final ThreadLocal<Boolean> IN_BATCH = new ThreadLocal<>();
+
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Command<?>> queue = new LinkedBlockingQueue<>();
+    private final DistributionSummary batchSize;
+    private final Counter rejections;
+    private final Counter fallbacks;
+    private final Thread committer;
+
+    private volatile boolean running = true;
+
+    public GroupCommitExecutor(
+            PlatformTransactionManager transactionManager,
+            EntityManagerFactory entityManagerFactory,
+            @Value("${banking.group-commit.enabled:false}") boolean enabled,
+            @Value("${banking.group-commit.max-batch:32}") int maxBatch,
+            @Value("${banking.group-commit.max-delay:2ms}") Duration maxDelay,
+            MeterRegistry meterRegistry
+    ) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.batchSize = DistributionSummary.builder("banking.group_commit.batch.size")
+                .description("Money commands committed together")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("banking.group_commit.rejections")
+                .description("Commands of a batch rolled back to their savepoint, the rest of the batch committed")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("banking.group_commit.fallbacks")
+                .description("Batches rolled back and run again one command at a time")
+                .register(meterRegistry);
+        Gauge.builder("banking.group_commit.queued", queue, BlockingQueue::size)
+                .description("Money commands waiting for the committer")
+                .register(meterRegistry);
+        this.committer = enabled ? Thread.ofPlatform().name("group-commit").daemon().start(this::commitLoop) : null;
+    }
+
+    /**
+     * @return Whether the current thread is running a command of a batch: flushing is left to the commit
+     */
+    public static boolean inBatch() {
+        return IN_BATCH.get() != null;
+    }
+
+    /**
+     * Runs the command in a transaction and returns its result once committed; its exception otherwise.
+     */
+    public <T> T execute(Supplier<T> command) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(status -> command.get());
+        }
+        if (!running) {
+            throw new IllegalStateException("Group commit is shutting down");
+        }
+
+        Command<T> queued = new Command<>(command);
+        queue.add(queued);
+        try {
+            // Not bounded: once queued the command may still commit, a caller that stopped waiting would not know
+            return queued.result.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the group commit", ex);
+        } finally {
+            if (queued.result.isDone()) {
+                QueryCounter.charge(queued.statements);
+            }
+        }
+    }
+
+    private void commitLoop() {
+        List<Command<?>> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Command<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+                commit(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException | Error ex) {
+                // commit() completes every command; this only guards the loop itself
+                logger.error("group_commit.loop_failed", ex);
+            } finally {
+                batch.clear();
+            }
+        }
+        for (Command<?> left = queue.poll(); left != null; left = queue.poll()) {
+            left.result.completeExceptionally(new IllegalStateException("Group commit is shut down"));
+        }
+    }
+
+    private void fill(List<Command<?>> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatch) {
+            queue.drainTo(batch, maxBatch - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatch || remaining <= 0) {
+                return;
+            }
+            Command<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<Command<?>> batch) {
+        batchSize.record(batch.size());
+        if (batch.size() == 1) {
+            runAlone(batch.getFirst());
+            return;
+        }
+
+        List<Outcome> outcomes = new ArrayList<>(batch.size());
+        IN_BATCH.set(Boolean.TRUE);
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(command ->
+                    outcomes.add(runBehindSavepoint(command, status))));
+        } catch (RuntimeException | Error ex) {
+            fallbacks.increment();
+            logger.debug("group_commit.batch_rolled_back", kv("size", batch.size()), kv("exception", ex.getClass().getSimpleName()));
+            outcomes.clear();
+        } finally {
+            IN_BATCH.remove();
+        }
+
+        if (outcomes.isEmpty()) {
+            batch.forEach(this::runAlone);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Command<?> command = batch.get(i);
+            Outcome outcome = outcomes.get(i);
+            command.statements = outcome.statements();
+            if (outcome.failure() == null) {
+                command.complete(outcome.value());
+            } else {
+                command.result.completeExceptionally(outcome.failure());
+            }
+        }
+    }
+
+    /**
+     * Runs the command and flushes its changes. A rejection rolls back to the savepoint and is kept for the caller;
+     * database errors propagate and roll the whole batch back.
+     */
+    private Outcome runBehindSavepoint(Command<?> command, TransactionStatus status) {
+        // JDBC savepoint on the transaction's connection: Hibernate's JpaDialect offers none
+        EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        Session session = entityManager.unwrap(Session.class);
+        Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+        long before = QueryCounter.current();
+        try {
+            Object value = command.supplier.get();
+            // Account rows go out before the aggregate deltas written at commit: always locked in that order
+            status.flush();
+            session.doWork(connection -> connection.releaseSavepoint(savepoint));
+            return new Outcome(value, null, QueryCounter.current() - before);
+        } catch (DataAccessException | PersistenceException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            session.doWork(connection -> connection.rollback(savepoint));
+            // Entities the command changed in memory are dropped; those of the commands before it are flushed
+            entityManager.clear();
+            // A transactional method the command called may have marked the whole batch rollback-only
+            if (TransactionSynchronizationManager.getResource(entityManagerFactory) instanceof EntityManagerHolder holder) {
+                holder.resetRollbackOnly();
+            }
+            rejections.increment();
+            return new Outcome(null, ex, QueryCounter.current() - before);
+        }
+    }
+
+    private void runAlone(Command<?> command) {
+        long before = QueryCounter.current();
+        try {
+            Object value = transactionTemplate.execute(status -> command.supplier.get());
+            command.statements = QueryCounter.current() - before;
+            command.complete(value);
+        } catch (RuntimeException | Error ex) {
+            command.statements = QueryCounter.current() - before;
+            command.result.completeExceptionally(ex);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (committer != null) {
+            // Commands already queued are still committed
+            committer.join(Duration.ofSeconds(10));
+        }
+    }
+
+    private static final class Command<T> {
+
+        private final Supplier<T> supplier;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        // Issued on the committer; written before the result completes, read by the caller after
+        private long statements;
+
+        private Command(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(Object value) {
+            result.complete((T) value);
+        }
+    }
+
+    private record Outcome(Object value, RuntimeException failure, long statements) {
+    }
+}
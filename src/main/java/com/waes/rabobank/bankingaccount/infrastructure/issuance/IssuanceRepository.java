@@ -0,0 +1,131 @@
+package com.waes.rabobank.bankingaccount.infrastructure.issuance;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.infrastructure.issuance.IssuedNumberFilters.Kind;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Set-based writes for bulk issuance: one statement per batch, whatever its size. Inserts skip numbers that are
+ * taken ({@code ON CONFLICT DO NOTHING}) instead of failing the transaction, and return what they inserted.
+ */
+@Repository
+public class IssuanceRepository {
+
+    private static final int PAGE_SIZE = 10_000;
+
+    private static final String INSERT_ACCOUNTS = """
+            INSERT INTO accounts (user_id, account_number, balance, currency, status, version, created_at, updated_at)
+            SELECT t.user_id, t.account_number, 0, ?, 'ACTIVE', 0, now(), now()
+            FROM unnest(?::uuid[], ?::varchar[]) AS t(user_id, account_number)
+            ON CONFLICT (account_number) DO NOTHING
+            RETURNING account_number, id
+            """;
+    private static final String INSERT_CARDS = """
+            INSERT INTO cards (card_type, account_id, card_number, expiry_date, status, created_at, updated_at)
+            SELECT ?, t.account_id, t.card_number, ?, 'ACTIVE', now(), now()
+            FROM unnest(?::uuid[], ?::varchar[]) AS t(account_id, card_number)
+            ON CONFLICT (card_number) DO NOTHING
+            RETURNING card_number, id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IssuanceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Set<UUID> findExistingUserIds(Set<UUID> userIds) {
+        return new HashSet<>(jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement("SELECT id FROM users WHERE id = ANY(?)");
+                    ps.setArray(1, con.createArrayOf("uuid", userIds.toArray()));
+                    return ps;
+                },
+                (rs, rowNum) -> rs.getObject(1, UUID.class)));
+    }
+
+    /**
+     * @return Id of each inserted account by account number; numbers missing from the map were taken
+     */
+    public Map<String, UUID> insertAccounts(List<UUID> userIds, List<String> accountNumbers, String currency) {
+        return insertReturning(INSERT_ACCOUNTS, ps -> {
+            ps.setString(1, currency);
+            ps.setArray(2, ps.getConnection().createArrayOf("uuid", userIds.toArray()));
+            ps.setArray(3, ps.getConnection().createArrayOf("varchar", accountNumbers.toArray()));
+        });
+    }
+
+    /**
+     * @return Id of each inserted card by card number; numbers missing from the map were taken
+     */
+    public Map<String, UUID> insertCards(List<UUID> accountIds, List<String> cardNumbers, CardType type, YearMonth expiry) {
+        return insertReturning(INSERT_CARDS, ps -> {
+            ps.setString(1, type.name());
+            ps.setDate(2, Date.valueOf(expiry.atDay(1)));
+            ps.setArray(3, ps.getConnection().createArrayOf("uuid", accountIds.toArray()));
+            ps.setArray(4, ps.getConnection().createArrayOf("varchar", cardNumbers.toArray()));
+        });
+    }
+
+    public long count(Kind kind) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + table(kind), Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * All numbers of the kind in use, one keyset page at a time over the unique index.
+     */
+    public void forEachNumberPage(Kind kind, Consumer<List<String>> pageConsumer) {
+        String column = column(kind);
+        String sql = "SELECT " + column + " FROM " + table(kind) + " WHERE " + column + " > ? ORDER BY " + column + " LIMIT ?";
+        String after = "";
+        List<String> page;
+        do {
+            page = jdbcTemplate.queryForList(sql, String.class, after, PAGE_SIZE);
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page);
+                after = page.getLast();
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    private Map<String, UUID> insertReturning(String sql, StatementBinder binder) {
+        Map<String, UUID> inserted = new HashMap<>();
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(sql);
+                    binder.bind(ps);
+                    return ps;
+                },
+                rs -> {
+                    inserted.put(rs.getString(1), rs.getObject(2, UUID.class));
+                });
+        return inserted;
+    }
+
+    private static String table(Kind kind) {
+        return kind == Kind.ACCOUNT_NUMBER ? "accounts" : "cards";
+    }
+
+    private static String column(Kind kind) {
+        return kind == Kind.ACCOUNT_NUMBER ? "account_number" : "card_number";
+    }
+
+    @FunctionalInterface
+    private interface StatementBinder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+}
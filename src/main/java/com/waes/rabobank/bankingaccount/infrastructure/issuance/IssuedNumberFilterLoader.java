@@ -0,0 +1,55 @@
+package com.waes.rabobank.bankingaccount.infrastructure.issuance;
+
+import com.waes.rabobank.bankingaccount.infrastructure.issuance.IssuedNumberFilters.Kind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Fills the {@link IssuedNumberFilters} from the accounts and cards tables once the application is up, on a
+ * background thread. Until it is done, issuance relies on the unique constraints alone.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.issuance.bloom-filter.enabled", havingValue = "true", matchIfMissing = true)
+public class IssuedNumberFilterLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(IssuedNumberFilterLoader.class);
+
+    private final IssuanceRepository issuanceRepository;
+    private final IssuedNumberFilters filters;
+
+    public IssuedNumberFilterLoader(IssuanceRepository issuanceRepository, IssuedNumberFilters filters) {
+        this.issuanceRepository = issuanceRepository;
+        this.filters = filters;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        Thread.ofVirtual().name("issued-number-filter-loader").start(this::load);
+    }
+
+    void load() {
+        long start = System.nanoTime();
+        try {
+            long accounts = issuanceRepository.count(Kind.ACCOUNT_NUMBER);
+            long cards = issuanceRepository.count(Kind.CARD_NUMBER);
+            filters.reset(accounts, cards);
+            for (Kind kind : Kind.values()) {
+                issuanceRepository.forEachNumberPage(kind, page -> page.forEach(number -> filters.add(kind, number)));
+            }
+            filters.markReady();
+
+            logger.info("issued_number_filter.loaded",
+                    kv("accountNumbers", accounts),
+                    kv("cardNumbers", cards),
+                    kv("elapsedMs", (System.nanoTime() - start) / 1_000_000));
+        } catch (RuntimeException ex) {
+            logger.error("issued_number_filter.load_failed", ex);
+        }
+    }
+}
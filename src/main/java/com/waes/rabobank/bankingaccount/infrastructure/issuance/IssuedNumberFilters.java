@@ -0,0 +1,98 @@
+package com.waes.rabobank.bankingaccount.infrastructure.issuance;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bloom filters over the account and card numbers in use, so that freshly generated candidates which are
+ * already taken are dropped before they reach the database.
+ * <p>
+ * A filter only ever answers "maybe taken" or "certainly not added here": numbers written by other instances or
+ * by the customer import are unknown to it, so the unique constraints stay the last word and a number that
+ * still conflicts is {@linkplain #add added} once the insert reports it. Until the {@link IssuedNumberFilterLoader}
+ * has read the tables nothing is screened.
+ * <p>
+ * Meters: {@code banking.issuance.bloom_filter.false_positive_rate} (expected, from the fill) and
+ * {@code banking.issuance.bloom_filter.numbers}, tag {@code kind}.
+ */
+@Component
+public class IssuedNumberFilters {
+
+    public enum Kind {
+        ACCOUNT_NUMBER,
+        CARD_NUMBER
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final long expectedNumbers;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter[] filters;
+    private volatile boolean ready;
+
+    public IssuedNumberFilters(
+            @Value("${banking.issuance.bloom-filter.expected-numbers:2000000}") long expectedNumbers,
+            @Value("${banking.issuance.bloom-filter.false-positive-rate:0.001}") double falsePositiveRate,
+            MeterRegistry meterRegistry
+    ) {
+        this.expectedNumbers = expectedNumbers;
+        this.falsePositiveRate = falsePositiveRate;
+        for (Kind kind : KINDS) {
+            Gauge.builder("banking.issuance.bloom_filter.false_positive_rate", this,
+                            f -> f.filters == null ? 0 : f.filters[kind.ordinal()].expectedFalsePositiveRate())
+                    .description("Expected false positive rate of the issued number filter at its current fill")
+                    .tag("kind", kind.name())
+                    .register(meterRegistry);
+            Gauge.builder("banking.issuance.bloom_filter.numbers", this,
+                            f -> f.filters == null ? 0 : f.filters[kind.ordinal()].insertions())
+                    .description("Numbers added to the issued number filter")
+                    .tag("kind", kind.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Replaces both filters with empty ones, each sized for twice the numbers in use today (at least the configured
+     * expected count), so that growth does not push the false positive rate up right away. Numbers added from now
+     * on land in the new filters while the loader fills them.
+     */
+    void reset(long accountNumbers, long cardNumbers) {
+        ready = false;
+        BloomFilter[] fresh = new BloomFilter[KINDS.length];
+        fresh[Kind.ACCOUNT_NUMBER.ordinal()] = BloomFilter.create(Math.max(expectedNumbers, 2 * accountNumbers), falsePositiveRate);
+        fresh[Kind.CARD_NUMBER.ordinal()] = BloomFilter.create(Math.max(expectedNumbers, 2 * cardNumbers), falsePositiveRate);
+        filters = fresh;
+    }
+
+    void markReady() {
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return {@code false} when the number is certainly not in use as far as this instance knows, and always
+     * before the filters are loaded
+     */
+    public boolean mightBeTaken(Kind kind, String number) {
+        BloomFilter[] current = filters;
+        return ready && current != null && current[kind.ordinal()].mightContain(number);
+    }
+
+    public void add(Kind kind, String number) {
+        BloomFilter[] current = filters;
+        if (current != null) {
+            current[kind.ordinal()].put(number);
+        }
+    }
+
+    public double expectedFalsePositiveRate(Kind kind) {
+        BloomFilter[] current = filters;
+        return current == null ? 0 : current[kind.ordinal()].expectedFalsePositiveRate();
+    }
+}
@@ -0,0 +1,32 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ledger;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * An account as the ledger holds it. Only the balance changes, and only on the thread of the owning shard (or of
+ * the shard that parked it for a cross-shard transfer); the other fields may be read from any thread.
+ */
+final class LedgerAccount {
+
+    final UUID id;
+    final UUID userId;
+    final String accountNumber;
+    final String currency;
+    final boolean active;
+
+    BigDecimal balance;
+
+    LedgerAccount(UUID id, UUID userId, String accountNumber, String currency, boolean active, BigDecimal balance) {
+        this.id = id;
+        this.userId = userId;
+        this.accountNumber = accountNumber;
+        this.currency = currency;
+        this.active = active;
+        this.balance = balance;
+    }
+
+    LedgerEntry.Opened opened(long sequence) {
+        return new LedgerEntry.Opened(sequence, id, userId, accountNumber, currency, active, balance);
+    }
+}
@@ -0,0 +1,138 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ledger;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Binary form of {@link LedgerEntry} in the journal: a type byte, then the fields in declaration order.
+ * <p>
+ * Amounts are written as their scale and unscaled value. Every amount of the schema ({@code NUMERIC(19, 4)},
+ * rates {@code NUMERIC(19, 8)}) fits a {@code long} unscaled; anything larger fails the command, not the journal.
+ */
+final class LedgerCodec {
+
+    static final int MAX_ENTRY_BYTES = 512;
+
+    private static final byte OPENED = 1;
+    private static final byte WITHDRAWN = 2;
+    private static final byte TRANSFERRED = 3;
+    private static final byte NULL_SCALE = Byte.MIN_VALUE;
+
+    private LedgerCodec() {
+    }
+
+    static void encode(LedgerEntry entry, ByteBuffer buffer) {
+        switch (entry) {
+            case LedgerEntry.Opened opened -> {
+                buffer.put(OPENED);
+                buffer.putLong(opened.sequence());
+                putUuid(buffer, opened.accountId());
+                putUuid(buffer, opened.userId());
+                putString(buffer, opened.accountNumber());
+                putString(buffer, opened.currency());
+                buffer.put((byte) (opened.active() ? 1 : 0));
+                putAmount(buffer, opened.balance());
+            }
+            case LedgerEntry.Withdrawn withdrawn -> {
+                buffer.put(WITHDRAWN);
+                buffer.putLong(withdrawn.sequence());
+                putUuid(buffer, withdrawn.transactionId());
+                putUuid(buffer, withdrawn.accountId());
+                putUuid(buffer, withdrawn.cardId());
+                putAmount(buffer, withdrawn.amount());
+                putAmount(buffer, withdrawn.fee());
+                putAmount(buffer, withdrawn.balanceAfter());
+                putInstant(buffer, withdrawn.createdAt());
+            }
+            case LedgerEntry.Transferred transferred -> {
+                buffer.put(TRANSFERRED);
+                buffer.putLong(transferred.fromSequence());
+                buffer.putLong(transferred.toSequence());
+                putUuid(buffer, transferred.transferTransactionId());
+                putUuid(buffer, transferred.depositTransactionId());
+                putUuid(buffer, transferred.fromAccountId());
+                putUuid(buffer, transferred.toAccountId());
+                putUuid(buffer, transferred.cardId());
+                putAmount(buffer, transferred.amount());
+                putAmount(buffer, transferred.fee());
+                putAmount(buffer, transferred.fromBalanceAfter());
+                putAmount(buffer, transferred.toBalanceAfter());
+                putAmount(buffer, transferred.creditedAmount());
+                putString(buffer, transferred.fromCurrency());
+                putString(buffer, transferred.toCurrency());
+                putAmount(buffer, transferred.fxRate());
+                putAmount(buffer, transferred.inverseFxRate());
+                putInstant(buffer, transferred.createdAt());
+            }
+        }
+    }
+
+    static LedgerEntry decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        return switch (type) {
+            case OPENED -> new LedgerEntry.Opened(
+                    buffer.getLong(), getUuid(buffer), getUuid(buffer), getString(buffer), getString(buffer),
+                    buffer.get() == 1, getAmount(buffer));
+            case WITHDRAWN -> new LedgerEntry.Withdrawn(
+                    buffer.getLong(), getUuid(buffer), getUuid(buffer), getUuid(buffer),
+                    getAmount(buffer), getAmount(buffer), getAmount(buffer), getInstant(buffer));
+            case TRANSFERRED -> new LedgerEntry.Transferred(
+                    buffer.getLong(), buffer.getLong(),
+                    getUuid(buffer), getUuid(buffer), getUuid(buffer), getUuid(buffer), getUuid(buffer),
+                    getAmount(buffer), getAmount(buffer), getAmount(buffer), getAmount(buffer), getAmount(buffer),
+                    getString(buffer), getString(buffer), getAmount(buffer), getAmount(buffer), getInstant(buffer));
+            default -> throw new IllegalStateException("Unknown ledger entry type " + type);
+        };
+    }
+
+    static void putUuid(ByteBuffer buffer, UUID value) {
+        buffer.putLong(value.getMostSignificantBits());
+        buffer.putLong(value.getLeastSignificantBits());
+    }
+
+    static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void putAmount(ByteBuffer buffer, BigDecimal value) {
+        if (value == null) {
+            buffer.put(NULL_SCALE);
+            return;
+        }
+        buffer.put((byte) value.scale());
+        buffer.putLong(value.unscaledValue().longValueExact());
+    }
+
+    static BigDecimal getAmount(ByteBuffer buffer) {
+        byte scale = buffer.get();
+        if (scale == NULL_SCALE) {
+            return null;
+        }
+        return new BigDecimal(BigInteger.valueOf(buffer.getLong()), scale);
+    }
+
+    private static void putInstant(ByteBuffer buffer, Instant value) {
+        buffer.putLong(value.getEpochSecond());
+        buffer.putInt(value.getNano());
+    }
+
+    private static Instant getInstant(ByteBuffer buffer) {
+        return Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+    }
+}
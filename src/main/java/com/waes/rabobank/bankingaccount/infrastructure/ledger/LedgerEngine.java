@@ -0,0 +1,463 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ledger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+import com.waes.rabobank.bankingaccount.domain.enums.AccountStatus;
+import com.waes.rabobank.bankingaccount.domain.fx.FxRates;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates;
+import com.waes.rabobank.bankingaccount.shared.exception.AccountNotFoundException;
+import com.waes.rabobank.bankingaccount.shared.exception.InactiveAccountException;
+import com.waes.rabobank.bankingaccount.shared.exception.InsufficientFundsException;
+import com.waes.rabobank.bankingaccount.shared.exception.SelfTransferException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * In-memory execution engine for withdrawals and transfers, enabled with {@code banking.ledger.enabled=true}.
+ * <p>
+ * Balances live in memory in {@link LedgerShard}s, each changed by its own thread only. A command runs on the
+ * shard of its account, without locks or database reads, and produces a {@link LedgerEntry}. The caller is
+ * answered once the {@link LedgerJournaler} has made the entry durable in the local journal. The
+ * {@link LedgerPersister} writes {@code accounts}, {@code transactions} and {@code transaction_outbox}
+ * afterwards.
+ * <p>
+ * An account is read from the database the first time the ledger sees it; from then on the ledger owns its
+ * balance. While the engine is enabled, nothing else may change balances. On startup the engine loads the latest
+ * snapshot, replays the journal after it, and resumes persistence at the database checkpoint.
+ * <p>
+ * A transfer between two shards runs on the shard of the source account while the other shard waits. Cross-shard
+ * transfers and snapshots are queued to the shards under one lock, so they reach every shard in the same order.
+ * <p>
+ * Meters: {@code banking.ledger.accounts}, {@code banking.ledger.journal.batch.size},
+ * {@code banking.ledger.persist.lag} and {@code banking.ledger.persist.failures}.
+ */
+@Component
+public class LedgerEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerEngine.class);
+
+    private static final String LOAD_ACCOUNT =
+            "SELECT id, user_id, account_number, currency, status, balance FROM accounts WHERE id = ?";
+    private static final long STOP_TIMEOUT_MILLIS = 10_000;
+
+    private final boolean enabled;
+    private final JdbcTemplate jdbcTemplate;
+    private final LedgerShard[] shards;
+    private final LedgerJournal journal;
+    private final LedgerJournaler journaler;
+    private final LedgerPersister persister;
+    private final LedgerSnapshots snapshots;
+    private final ReentrantLock crossShard = new ReentrantLock();
+
+    public LedgerEngine(
+            @Value("${banking.ledger.enabled:false}") boolean enabled,
+            @Value("${banking.ledger.directory:${java.io.tmpdir}/banking-ledger}") Path directory,
+            @Value("${banking.ledger.shards:4}") int shardCount,
+            @Value("${banking.ledger.queue-capacity:8192}") int queueCapacity,
+            @Value("${banking.ledger.segment-size:64MB}") DataSize segmentSize,
+            @Value("${banking.ledger.fsync:true}") boolean fsync,
+            @Value("${banking.ledger.persist-batch:500}") int persistBatch,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher,
+            BankAggregates bankAggregates,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.jdbcTemplate = jdbcTemplate;
+        if (!enabled) {
+            this.shards = null;
+            this.journal = null;
+            this.journaler = null;
+            this.persister = null;
+            this.snapshots = null;
+            return;
+        }
+
+        this.shards = new LedgerShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new LedgerShard(i, queueCapacity);
+        }
+        this.journal = new LedgerJournal(directory, (int) segmentSize.toBytes());
+        this.snapshots = new LedgerSnapshots(directory);
+        this.persister = new LedgerPersister(jdbcTemplate, new TransactionTemplate(transactionManager), objectMapper,
+                eventPublisher, bankAggregates, accountId -> shardOf(accountId).account(accountId), persistBatch,
+                meterRegistry);
+        this.journaler = new LedgerJournaler(journal, fsync, queueCapacity, persister::enqueue, meterRegistry);
+        Gauge.builder("banking.ledger.accounts", this, engine -> Arrays.stream(engine.shards).mapToInt(LedgerShard::size).sum())
+                .description("Accounts held by the in-memory ledger")
+                .register(meterRegistry);
+
+        recover();
+        persister.start();
+        journaler.start();
+        for (LedgerShard shard : shards) {
+            shard.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public WithdrawalResponseDTO withdraw(UUID accountId, UUID cardId, BigDecimal amount, BigDecimal fee) {
+        LedgerShard shard = shardOf(accountId);
+        LedgerAccount loaded = shard.knows(accountId) ? null : load(accountId);
+
+        CompletableFuture<LedgerEntry.Withdrawn> result = new CompletableFuture<>();
+        shard.submit(() -> {
+            try {
+                LedgerAccount account = open(shard, accountId, loaded);
+                BigDecimal total = debit(account, amount, fee);
+                BigDecimal balanceAfter = account.balance.subtract(total);
+
+                journaler.append(new LedgerEntry.Withdrawn(shard.nextSequence(), UUID.randomUUID(), accountId, cardId,
+                        amount, fee, balanceAfter, Instant.now()), result);
+                account.balance = balanceAfter;
+            } catch (RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return await(result).toResponse();
+    }
+
+    public TransferResponseDTO transfer(UUID fromAccountId, UUID toAccountId, UUID cardId, BigDecimal amount,
+                                        BigDecimal fee, FxRates rates) {
+        LedgerShard from = shardOf(fromAccountId);
+        LedgerShard to = shardOf(toAccountId);
+        LedgerAccount loadedFrom = from.knows(fromAccountId) ? null : load(fromAccountId);
+        LedgerAccount loadedTo = to.knows(toAccountId) ? null : load(toAccountId);
+        if (fromAccountId.equals(toAccountId)) {
+            throw new SelfTransferException(fromAccountId);
+        }
+
+        CompletableFuture<LedgerEntry.Transferred> result = new CompletableFuture<>();
+        Runnable transfer = () -> {
+            try {
+                transfer(from, open(from, fromAccountId, loadedFrom), to, open(to, toAccountId, loadedTo),
+                        cardId, amount, fee, rates, result);
+            } catch (RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        };
+
+        if (from == to) {
+            from.submit(transfer);
+        } else {
+            CountDownLatch parked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            crossShard.lock();
+            try {
+                to.park(parked, release);
+                from.submit(() -> {
+                    try {
+                        awaitUninterruptibly(parked);
+                        transfer.run();
+                    } finally {
+                        release.countDown();
+                    }
+                });
+            } finally {
+                crossShard.unlock();
+            }
+        }
+        return await(result).toResponse();
+    }
+
+    /**
+     * @return The balance as the ledger has it, if the ledger holds the account
+     */
+    public Optional<BigDecimal> balance(UUID accountId) {
+        LedgerShard shard = shardOf(accountId);
+        if (!shard.knows(accountId)) {
+            return Optional.empty();
+        }
+        CompletableFuture<BigDecimal> balance = new CompletableFuture<>();
+        shard.submit(() -> balance.complete(shard.account(accountId).balance));
+        return Optional.of(balance.join());
+    }
+
+    /**
+     * Writes a snapshot of every shard, then drops the older snapshots and the journal segments that neither
+     * recovery nor persistence needs anymore.
+     */
+    @Scheduled(fixedDelayString = "${banking.ledger.snapshot-interval:5m}",
+            initialDelayString = "${banking.ledger.snapshot-interval:5m}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        long segment;
+        List<CompletableFuture<ShardCopy>> copies = new ArrayList<>(shards.length);
+        crossShard.lock();
+        try {
+            // Whatever a shard does after its copy lands in the new segment, which recovery replays
+            segment = journaler.roll().join();
+            for (LedgerShard shard : shards) {
+                CompletableFuture<ShardCopy> copy = new CompletableFuture<>();
+                shard.submit(() -> {
+                    ShardCopy state = new ShardCopy(shard.sequence(), shard.copy());
+                    // The copy may hold changes not forced yet: it is written once they are durable
+                    journaler.sync().whenComplete((ignored, failure) -> {
+                        if (failure == null) {
+                            copy.complete(state);
+                        } else {
+                            copy.completeExceptionally(failure);
+                        }
+                    });
+                });
+                copies.add(copy);
+            }
+        } finally {
+            crossShard.unlock();
+        }
+
+        int accounts = 0;
+        for (int i = 0; i < shards.length; i++) {
+            ShardCopy copy = copies.get(i).join();
+            snapshots.write(segment, i, copy.sequence(), copy.accounts());
+            accounts += copy.accounts().size();
+        }
+        snapshots.complete(segment, shards.length);
+        snapshots.deleteBefore(segment);
+
+        long persisted = persister.persistedUpTo();
+        long firstKept = Math.min(segment, persisted < 0 ? 0 : LedgerJournal.segmentOf(persisted));
+        journal.deleteBefore(firstKept);
+        logger.info("ledger.snapshot_written", kv("segment", segment), kv("accounts", accounts),
+                kv("journalKeptFrom", firstKept));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        // Commands already queued still complete, and what they journaled is still persisted
+        for (LedgerShard shard : shards) {
+            shard.stop(STOP_TIMEOUT_MILLIS);
+        }
+        journaler.stop(STOP_TIMEOUT_MILLIS);
+        persister.stop(STOP_TIMEOUT_MILLIS);
+        logger.info("ledger.stopped", kv("unpersisted", persister.lag()));
+    }
+
+    private void transfer(LedgerShard from, LedgerAccount source, LedgerShard to, LedgerAccount target,
+                          UUID cardId, BigDecimal amount, BigDecimal fee, FxRates rates,
+                          CompletableFuture<LedgerEntry.Transferred> result) {
+        if (!source.active) {
+            throw new InactiveAccountException(source.id);
+        }
+        if (!target.active) {
+            throw new InactiveAccountException(target.id);
+        }
+        boolean crossCurrency = !source.currency.equals(target.currency);
+        BigDecimal fxRate = rates.rate(source.currency, target.currency);
+        BigDecimal inverseFxRate = rates.rate(target.currency, source.currency);
+        BigDecimal creditedAmount = crossCurrency ? FxRates.convert(amount, fxRate) : amount;
+        if (creditedAmount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        BigDecimal total = debit(source, amount, fee);
+        BigDecimal fromBalanceAfter = source.balance.subtract(total);
+        BigDecimal toBalanceAfter = target.balance.add(creditedAmount);
+
+        long fromSequence = from.nextSequence();
+        long toSequence = to == from ? fromSequence : to.nextSequence();
+        journaler.append(new LedgerEntry.Transferred(fromSequence, toSequence, UUID.randomUUID(), UUID.randomUUID(),
+                source.id, target.id, cardId, amount, fee, fromBalanceAfter, toBalanceAfter, creditedAmount,
+                source.currency, target.currency, fxRate, inverseFxRate, Instant.now()), result);
+        source.balance = fromBalanceAfter;
+        target.balance = toBalanceAfter;
+    }
+
+    // Same rules as Account.withdraw
+    private static BigDecimal debit(LedgerAccount account, BigDecimal amount, BigDecimal fee) {
+        BigDecimal total = amount.add(fee);
+        if (total.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (account.balance.compareTo(total) < 0) {
+            throw new InsufficientFundsException(account.id, account.balance, total);
+        }
+        return total;
+    }
+
+    /**
+     * The shard's account; one loaded by the caller is taken over first, unless a concurrent command did already.
+     */
+    private LedgerAccount open(LedgerShard shard, UUID accountId, LedgerAccount loaded) {
+        LedgerAccount account = shard.account(accountId);
+        if (account != null) {
+            return account;
+        }
+        if (loaded == null) {
+            throw new AccountNotFoundException(accountId);
+        }
+        journaler.append(loaded.opened(shard.nextSequence()));
+        shard.put(loaded);
+        return loaded;
+    }
+
+    private LedgerAccount load(UUID accountId) {
+        return jdbcTemplate.query(LOAD_ACCOUNT, rs -> {
+            if (!rs.next()) {
+                throw new AccountNotFoundException(accountId);
+            }
+            return new LedgerAccount(
+                    rs.getObject("id", UUID.class),
+                    rs.getObject("user_id", UUID.class),
+                    rs.getString("account_number"),
+                    rs.getString("currency"),
+                    AccountStatus.ACTIVE.name().equals(rs.getString("status")),
+                    rs.getBigDecimal("balance"));
+        }, accountId);
+    }
+
+    private void recover() {
+        long[] snapshotSequences = new long[shards.length];
+        long replayFrom = 0;
+        Optional<LedgerSnapshots.Snapshot> snapshot = snapshots.latest(shards.length);
+        if (snapshot.isPresent()) {
+            replayFrom = snapshot.get().segment();
+            for (int i = 0; i < shards.length; i++) {
+                snapshotSequences[i] = snapshot.get().sequences()[i];
+                shards[i].sequence(snapshotSequences[i]);
+                for (LedgerEntry.Opened opened : snapshot.get().accounts().get(i)) {
+                    shards[i].put(account(opened));
+                }
+            }
+        }
+
+        long checkpoint = persister.loadCheckpoint();
+        long replayFromPosition = LedgerJournal.position(replayFrom, 0);
+        long[] counts = new long[2];
+        journal.read(Math.min(replayFrom, checkpoint < 0 ? 0 : LedgerJournal.segmentOf(checkpoint)), (position, record) -> {
+            LedgerEntry entry = LedgerCodec.decode(record);
+            if (position >= replayFromPosition) {
+                replay(entry, snapshotSequences);
+                counts[0]++;
+            }
+            if (position > checkpoint) {
+                persister.enqueue(position, entry);
+                counts[1]++;
+            }
+        });
+        logger.info("ledger.recovered",
+                kv("snapshotSegment", snapshot.map(LedgerSnapshots.Snapshot::segment).orElse(null)),
+                kv("accounts", Arrays.stream(shards).mapToInt(LedgerShard::size).sum()),
+                kv("replayed", counts[0]),
+                kv("unpersisted", counts[1]));
+    }
+
+    private void replay(LedgerEntry entry, long[] snapshotSequences) {
+        switch (entry) {
+            case LedgerEntry.Opened opened -> {
+                LedgerShard shard = shardOf(opened.accountId());
+                if (advance(shard, opened.sequence(), snapshotSequences)) {
+                    shard.put(account(opened));
+                }
+            }
+            case LedgerEntry.Withdrawn withdrawn -> setBalance(withdrawn.accountId(), withdrawn.sequence(),
+                    withdrawn.balanceAfter(), snapshotSequences);
+            case LedgerEntry.Transferred transferred -> {
+                setBalance(transferred.fromAccountId(), transferred.fromSequence(), transferred.fromBalanceAfter(),
+                        snapshotSequences);
+                setBalance(transferred.toAccountId(), transferred.toSequence(), transferred.toBalanceAfter(),
+                        snapshotSequences);
+            }
+        }
+    }
+
+    private void setBalance(UUID accountId, long sequence, BigDecimal balance, long[] snapshotSequences) {
+        LedgerShard shard = shardOf(accountId);
+        if (advance(shard, sequence, snapshotSequences)) {
+            LedgerAccount account = shard.account(accountId);
+            if (account == null) {
+                throw new IllegalStateException("Ledger journal changes account " + accountId + " before opening it");
+            }
+            account.balance = balance;
+        }
+    }
+
+    // Whether the change is newer than the shard's snapshot; the shard continues after the highest number seen
+    private static boolean advance(LedgerShard shard, long sequence, long[] snapshotSequences) {
+        if (sequence <= snapshotSequences[shard.index()]) {
+            return false;
+        }
+        shard.sequence(Math.max(shard.sequence(), sequence));
+        return true;
+    }
+
+    private static LedgerAccount account(LedgerEntry.Opened opened) {
+        return new LedgerAccount(opened.accountId(), opened.userId(), opened.accountNumber(), opened.currency(),
+                opened.active(), opened.balance());
+    }
+
+    private LedgerShard shardOf(UUID accountId) {
+        return shards[Math.floorMod(accountId.hashCode(), shards.length)];
+    }
+
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ledger", ex);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record ShardCopy(long sequence, List<LedgerEntry.Opened> accounts) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ledger;
+
+import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * What the journal records: the outcome of a command, not the command. Balances are recorded as they are after
+ * the entry, so replaying an entry sets them and never recomputes a fee, a rate or a balance check.
+ * <p>
+ * Every change to an account carries the sequence number it got in the account's shard. Recovery applies a
+ * change only if that number is above the one of the shard's snapshot.
+ */
+public sealed interface LedgerEntry {
+
+    /**
+     * An account the ledger took over from the database, as it was read there.
+     */
+    record Opened(
+            long sequence,
+            UUID accountId,
+            UUID userId,
+            String accountNumber,
+            String currency,
+            boolean active,
+            BigDecimal balance
+    ) implements LedgerEntry {
+    }
+
+    record Withdrawn(
+            long sequence,
+            UUID transactionId,
+            UUID accountId,
+            UUID cardId,
+            BigDecimal amount,
+            BigDecimal fee,
+            BigDecimal balanceAfter,
+            Instant createdAt
+    ) implements LedgerEntry {
+
+        public WithdrawalResponseDTO toResponse() {
+            return new WithdrawalResponseDTO(
+                    transactionId.toString(), accountId.toString(), cardId.toString(), amount, fee, balanceAfter);
+        }
+    }
+
+    /**
+     * Both legs of a transfer, also when the accounts live in different shards: the transfer is durable or not as
+     * a whole. {@code inverseFxRate} is the rate of the deposit leg, from the destination currency back.
+     */
+    record Transferred(
+            long fromSequence,
+            long toSequence,
+            UUID transferTransactionId,
+            UUID depositTransactionId,
+            UUID fromAccountId,
+            UUID toAccountId,
+            UUID cardId,
+            BigDecimal amount,
+            BigDecimal fee,
+            BigDecimal fromBalanceAfter,
+            BigDecimal toBalanceAfter,
+            BigDecimal creditedAmount,
+            String fromCurrency,
+            String toCurrency,
+            BigDecimal fxRate,
+            BigDecimal inverseFxRate,
+            Instant createdAt
+    ) implements LedgerEntry {
+
+        public boolean crossCurrency() {
+            return !fromCurrency.equals(toCurrency);
+        }
+
+        public TransferResponseDTO toResponse() {
+            return new TransferResponseDTO(
+                    transferTransactionId.toString(),
+                    depositTransactionId.toString(),
+                    fromAccountId.toString(),
+                    toAccountId.toString(),
+                    amount,
+                    fee,
+                    fromBalanceAfter,
+                    toBalanceAfter,
+                    creditedAmount,
+                    fxRate
+            );
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ledger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of records in memory-mapped segment files ({@code journal-<segment>.log}), written by one
+ * thread.
+ * <p>
+ * A record is its length, a CRC32C of its bytes and the bytes. Reading a segment stops at the first record that
+ * is not complete and intact: the tail of a write cut short by a crash. Opening the journal always starts a new
+ * segment, so such a tail is never appended to and reads the same on every recovery.
+ * <p>
+ * A position is {@code segment << 32 | offset}, increasing over the whole journal.
+ */
+final class LedgerJournal implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final CRC32C crc = new CRC32C();
+
+    // Read by the thread that deletes old segments
+    private volatile long segment;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private int forcedUpTo;
+
+    LedgerJournal(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        List<Long> existing = segments();
+        this.segment = existing.isEmpty() ? 0 : existing.getLast();
+        roll();
+    }
+
+    static long position(long segment, int offset) {
+        return segment << 32 | offset;
+    }
+
+    static long segmentOf(long position) {
+        return position >>> 32;
+    }
+
+    /**
+     * Appends a record, to a new segment if it does not fit the current one. Not durable before {@link #force()}.
+     *
+     * @return Position of the record
+     */
+    long append(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (length > segmentBytes - HEADER_BYTES) {
+            throw new IllegalArgumentException("Record of " + length + " bytes exceeds the segment size");
+        }
+        if (mapped.remaining() < HEADER_BYTES + length) {
+            roll();
+        }
+        int offset = mapped.position();
+        crc.reset();
+        crc.update(payload.duplicate());
+        mapped.putInt(length);
+        mapped.putInt((int) crc.getValue());
+        mapped.put(payload);
+        return position(segment, offset);
+    }
+
+    /**
+     * Makes every record appended so far durable.
+     */
+    void force() {
+        int writtenUpTo = mapped.position();
+        if (writtenUpTo > forcedUpTo) {
+            mapped.force(forcedUpTo, writtenUpTo - forcedUpTo);
+            forcedUpTo = writtenUpTo;
+        }
+    }
+
+    /**
+     * Forces the current segment and continues in a new one.
+     *
+     * @return Number of the new segment
+     */
+    long roll() {
+        try {
+            if (mapped != null) {
+                force();
+                channel.close();
+            }
+            segment++;
+            channel = FileChannel.open(file(segment),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            forcedUpTo = 0;
+            return segment;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open journal segment " + segment, ex);
+        }
+    }
+
+    long segment() {
+        return segment;
+    }
+
+    /**
+     * Reads the intact records of every segment from {@code fromSegment} on, oldest first, up to the current
+     * segment excluded.
+     */
+    void read(long fromSegment, RecordConsumer consumer) {
+        for (long number : segments()) {
+            if (number < fromSegment || number >= segment) {
+                continue;
+            }
+            try (FileChannel file = FileChannel.open(file(number), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                while (buffer.remaining() >= HEADER_BYTES) {
+                    int offset = buffer.position();
+                    int length = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    if (length <= 0 || length > buffer.remaining()) {
+                        break;
+                    }
+                    ByteBuffer record = buffer.slice(buffer.position(), length);
+                    crc.reset();
+                    crc.update(record.duplicate());
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                    consumer.accept(position(number, offset), record);
+                    buffer.position(offset + HEADER_BYTES + length);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot read journal segment " + number, ex);
+            }
+        }
+    }
+
+    /**
+     * Deletes the segments before the given one; never the current one.
+     */
+    void deleteBefore(long firstKept) {
+        for (long number : segments()) {
+            if (number < firstKept && number < segment) {
+                try {
+                    Files.deleteIfExists(file(number));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Cannot delete journal segment " + number, ex);
+                }
+            }
+        }
+    }
+
+    List<Long> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Long> numbers = new ArrayList<>();
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> numbers.add(Long.parseLong(name, PREFIX.length(), name.length() - SUFFIX.length(), 10)));
+            numbers.sort(null);
+            return numbers;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            force();
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Path file(long number) {
+        return directory.resolve(PREFIX + "%016d".formatted(number) + SUFFIX);
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(long position, ByteBuffer record);
+    }
+}
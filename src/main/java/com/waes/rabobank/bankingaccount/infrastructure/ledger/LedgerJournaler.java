@@ -0,0 +1,219 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ledger;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * The one thread that writes the {@link LedgerJournal}. Entries are appended in the order the shards hand them
+ * over, so the journal holds every account's changes in the order they were made. The thread takes what is
+ * queued and forces once for all of it. Only then does it complete the commands and pass the entries on to
+ * persistence.
+ * <p>
+ * A journal that cannot be written stops the ledger: memory would be ahead of anything that can be recovered.
+ */
+final class LedgerJournaler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerJournaler.class);
+
+    private static final int MAX_BATCH = 1024;
+    // One per shard thread
+    private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(LedgerCodec.MAX_ENTRY_BYTES));
+
+    private final LedgerJournal journal;
+    private final boolean fsync;
+    private final BiConsumer<Long, LedgerEntry> journaled;
+    private final BlockingQueue<Pending> queue;
+    private final DistributionSummary batchSize;
+    private final Thread thread;
+
+    private volatile boolean running = true;
+    private volatile RuntimeException failure;
+
+    LedgerJournaler(LedgerJournal journal, boolean fsync, int capacity, BiConsumer<Long, LedgerEntry> journaled,
+                    MeterRegistry meterRegistry) {
+        this.journal = journal;
+        this.fsync = fsync;
+        this.journaled = journaled;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = DistributionSummary.builder("banking.ledger.journal.batch.size")
+                .description("Ledger entries made durable by one journal force")
+                .register(meterRegistry);
+        this.thread = Thread.ofPlatform().name("ledger-journal").daemon().unstarted(this::run);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queues an entry; {@code result} completes with it once it is durable. The entry is encoded on the calling
+     * thread: one that cannot be fails here, before the caller changed any state.
+     */
+    <E extends LedgerEntry> void append(E entry, CompletableFuture<E> result) {
+        enqueue(new Pending(entry, encode(entry), result, null, null));
+    }
+
+    /**
+     * Queues an entry nobody waits for; it is durable before any entry queued after it.
+     */
+    void append(LedgerEntry entry) {
+        enqueue(new Pending(entry, encode(entry), null, null, null));
+    }
+
+    /**
+     * Queues a switch to a new segment: entries queued after this go to the new one.
+     *
+     * @return Number of the new segment, once it is open
+     */
+    CompletableFuture<Long> roll() {
+        CompletableFuture<Long> segment = new CompletableFuture<>();
+        enqueue(new Pending(null, null, null, segment, null));
+        return segment;
+    }
+
+    /**
+     * @return Completes once everything queued before it is durable
+     */
+    CompletableFuture<Void> sync() {
+        CompletableFuture<Void> synced = new CompletableFuture<>();
+        enqueue(new Pending(null, null, null, null, synced));
+        return synced;
+    }
+
+    RuntimeException failure() {
+        return failure;
+    }
+
+    /**
+     * Writes what is queued, then ends the thread.
+     */
+    void stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        thread.join(timeoutMillis);
+        if (failure == null) {
+            journal.close();
+        }
+    }
+
+    private void enqueue(Pending pending) {
+        if (failure != null) {
+            throw new IllegalStateException("Ledger journal failed", failure);
+        }
+        try {
+            queue.put(pending);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing to the ledger journal", ex);
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        List<Long> positions = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                write(batch, positions);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+                positions.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch, List<Long> positions) {
+        if (failure != null) {
+            batch.forEach(pending -> pending.fail(failure));
+            return;
+        }
+        try {
+            for (Pending pending : batch) {
+                if (pending.roll != null) {
+                    // In queue order: what was queued after the roll belongs to the new segment
+                    positions.add(-1L);
+                    pending.roll.complete(journal.roll());
+                    continue;
+                }
+                if (pending.sync != null) {
+                    positions.add(-1L);
+                    continue;
+                }
+                positions.add(journal.append(ByteBuffer.wrap(pending.bytes)));
+            }
+            if (fsync) {
+                journal.force();
+            }
+        } catch (RuntimeException ex) {
+            failure = ex;
+            logger.error("ledger.journal_failed", kv("entries", batch.size()), ex);
+            batch.forEach(pending -> pending.fail(ex));
+            return;
+        }
+
+        int entries = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            if (pending.entry != null) {
+                journaled.accept(positions.get(i), pending.entry);
+                entries++;
+            }
+            pending.complete();
+        }
+        batchSize.record(entries);
+    }
+
+    private static byte[] encode(LedgerEntry entry) {
+        ByteBuffer buffer = SCRATCH.get().clear();
+        LedgerCodec.encode(entry, buffer);
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    private record Pending(LedgerEntry entry, byte[] bytes, CompletableFuture<? extends LedgerEntry> result,
+                           CompletableFuture<Long> roll, CompletableFuture<Void> sync) {
+
+        @SuppressWarnings("unchecked")
+        void complete() {
+            if (result != null) {
+                ((CompletableFuture<LedgerEntry>) result).complete(entry);
+            }
+            if (sync != null) {
+                sync.complete(null);
+            }
+        }
+
+        void fail(Throwable cause) {
+            if (result != null) {
+                result.completeExceptionally(new IllegalStateException("Ledger journal failed", cause));
+            }
+            if (roll != null) {
+                roll.completeExceptionally(cause);
+            }
+            if (sync != null) {
+                sync.completeExceptionally(cause);
+            }
+        }
+    }
+}
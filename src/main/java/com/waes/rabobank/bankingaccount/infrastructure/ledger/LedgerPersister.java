@@ -0,0 +1,283 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ledger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.event.BalanceChangedEvent;
+import com.waes.rabobank.bankingaccount.domain.enums.AccountStatus;
+import com.waes.rabobank.bankingaccount.domain.enums.TransactionType;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.TransactionOutbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Writes durable ledger entries to {@code accounts}, {@code transactions} and {@code transaction_outbox}, in
+ * batches, each in one database transaction together with the journal position it reached
+ * ({@code ledger_checkpoint}) and the aggregate deltas of the batch. After a restart persistence resumes after
+ * that position: nothing is written twice or skipped.
+ * <p>
+ * A batch that fails is retried until it succeeds; entries wait in memory meanwhile, and in the journal. Balance
+ * streams and cached reads learn about a change once its batch committed, like for any payment.
+ */
+final class LedgerPersister {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerPersister.class);
+
+    private static final String UPDATE_BALANCE =
+            "UPDATE accounts SET balance = ?, version = version + 1, updated_at = now() WHERE id = ?";
+    private static final String INSERT_TRANSACTION = """
+            INSERT INTO transactions (id, account_id, card_id, transaction_type, amount, fee, related_account_id,
+                                      related_transaction_id, balance_after, fx_rate, counter_amount, counter_currency,
+                                      created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String INSERT_OUTBOX =
+            "INSERT INTO transaction_outbox (event_type, aggregate_id, payload, created_at) VALUES (?, ?, ?, ?)";
+    private static final String SAVE_CHECKPOINT =
+            "UPDATE ledger_checkpoint SET journal_position = ?, updated_at = now() WHERE id = 1";
+    private static final String LOAD_CHECKPOINT = "SELECT journal_position FROM ledger_checkpoint WHERE id = 1";
+    private static final String LOAD_STATUS = "SELECT status FROM accounts WHERE id = ?";
+
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BankAggregates bankAggregates;
+    private final Function<UUID, LedgerAccount> accounts;
+    private final int batchSize;
+    private final BlockingQueue<Journaled> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong persistedUpTo = new AtomicLong(-1);
+    private final Map<UUID, AccountStatus> inactiveStatuses = new HashMap<>(); // Persister thread only
+    private final Counter failures;
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    LedgerPersister(JdbcTemplate jdbcTemplate,
+                    TransactionTemplate transactionTemplate,
+                    ObjectMapper objectMapper,
+                    ApplicationEventPublisher eventPublisher,
+                    BankAggregates bankAggregates,
+                    Function<UUID, LedgerAccount> accounts,
+                    int batchSize,
+                    MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.bankAggregates = bankAggregates;
+        this.accounts = accounts;
+        this.batchSize = batchSize;
+        Gauge.builder("banking.ledger.persist.lag", queue, BlockingQueue::size)
+                .description("Journaled ledger entries not written to the database yet")
+                .register(meterRegistry);
+        this.failures = Counter.builder("banking.ledger.persist.failures")
+                .description("Ledger batches the database rejected, retried")
+                .register(meterRegistry);
+        this.thread = Thread.ofPlatform().name("ledger-persist").daemon().unstarted(this::run);
+    }
+
+    /**
+     * @return Position of the last journal record in the database, {@code -1} if none
+     */
+    long loadCheckpoint() {
+        long checkpoint = jdbcTemplate.queryForObject(LOAD_CHECKPOINT, Long.class);
+        persistedUpTo.set(checkpoint);
+        return checkpoint;
+    }
+
+    long persistedUpTo() {
+        return persistedUpTo.get();
+    }
+
+    int lag() {
+        return queue.size();
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void enqueue(long position, LedgerEntry entry) {
+        queue.add(new Journaled(position, entry));
+    }
+
+    /**
+     * Writes what is queued, as long as the database takes it within the timeout, then ends the thread.
+     */
+    void stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        thread.join(timeoutMillis);
+    }
+
+    private void run() {
+        List<Journaled> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Journaled first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                persistWithRetry(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persistWithRetry(List<Journaled> batch) throws InterruptedException {
+        long backoffMillis = 100;
+        while (true) {
+            try {
+                persist(batch);
+                return;
+            } catch (RuntimeException ex) {
+                failures.increment();
+                logger.warn("ledger.persist_failed", kv("entries", batch.size()), kv("retryInMs", backoffMillis), ex);
+                Thread.sleep(backoffMillis);
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void persist(List<Journaled> batch) {
+        Map<UUID, BigDecimal> balances = new LinkedHashMap<>();
+        List<Object[]> transactions = new ArrayList<>();
+        List<Object[]> events = new ArrayList<>();
+        AggregateDelta aggregates = new AggregateDelta();
+        for (Journaled journaled : batch) {
+            switch (journaled.entry()) {
+                case LedgerEntry.Opened ignored -> {
+                    // Read from the database, nothing to write back
+                }
+                case LedgerEntry.Withdrawn withdrawn -> {
+                    balances.put(withdrawn.accountId(), withdrawn.balanceAfter());
+                    transactions.add(new Object[]{
+                            withdrawn.transactionId(), withdrawn.accountId(), withdrawn.cardId(),
+                            TransactionType.WITHDRAWAL.name(), withdrawn.amount(), withdrawn.fee(), null, null,
+                            withdrawn.balanceAfter(), null, null, null, timestamp(withdrawn.createdAt())});
+                    events.add(event(TransactionOutbox.WITHDRAWAL_COMPLETED, withdrawn.accountId(),
+                            withdrawn.toResponse(), withdrawn.createdAt()));
+                    LedgerAccount account = accounts.apply(withdrawn.accountId());
+                    aggregates.balance(account.currency, statusOf(account),
+                                    withdrawn.amount().add(withdrawn.fee()).negate())
+                            .transaction(withdrawn.createdAt(), TransactionType.WITHDRAWAL, account.currency,
+                                    withdrawn.amount(), withdrawn.fee());
+                }
+                case LedgerEntry.Transferred transferred -> {
+                    balances.put(transferred.fromAccountId(), transferred.fromBalanceAfter());
+                    balances.put(transferred.toAccountId(), transferred.toBalanceAfter());
+                    boolean cross = transferred.crossCurrency();
+                    // The deposit row references the transfer row, which comes first in the batch
+                    transactions.add(new Object[]{
+                            transferred.transferTransactionId(), transferred.fromAccountId(), transferred.cardId(),
+                            TransactionType.TRANSFER.name(), transferred.amount(), transferred.fee(),
+                            transferred.toAccountId(), null, transferred.fromBalanceAfter(),
+                            cross ? transferred.fxRate() : null,
+                            cross ? transferred.creditedAmount() : null,
+                            cross ? transferred.toCurrency() : null,
+                            timestamp(transferred.createdAt())});
+                    transactions.add(new Object[]{
+                            transferred.depositTransactionId(), transferred.toAccountId(), transferred.cardId(),
+                            TransactionType.DEPOSIT.name(), transferred.creditedAmount(), BigDecimal.ZERO,
+                            null, transferred.transferTransactionId(), transferred.toBalanceAfter(),
+                            cross ? transferred.inverseFxRate() : null,
+                            cross ? transferred.amount() : null,
+                            cross ? transferred.fromCurrency() : null,
+                            timestamp(transferred.createdAt())});
+                    events.add(event(TransactionOutbox.TRANSFER_COMPLETED, transferred.fromAccountId(),
+                            transferred.toResponse(), transferred.createdAt()));
+                    // Both accounts of a transfer are active, the ledger refuses it otherwise
+                    aggregates.balance(transferred.fromCurrency(), AccountStatus.ACTIVE,
+                                    transferred.amount().add(transferred.fee()).negate())
+                            .balance(transferred.toCurrency(), AccountStatus.ACTIVE, transferred.creditedAmount())
+                            .transaction(transferred.createdAt(), TransactionType.TRANSFER, transferred.fromCurrency(),
+                                    transferred.amount(), transferred.fee())
+                            .transaction(transferred.createdAt(), TransactionType.DEPOSIT, transferred.toCurrency(),
+                                    transferred.creditedAmount(), BigDecimal.ZERO);
+                }
+            }
+        }
+
+        long position = batch.getLast().position();
+        transactionTemplate.executeWithoutResult(status -> {
+            // Only the last balance of each account in the batch is written
+            jdbcTemplate.batchUpdate(UPDATE_BALANCE, balances.entrySet().stream()
+                    .map(balance -> new Object[]{balance.getValue(), balance.getKey()})
+                    .toList());
+            jdbcTemplate.batchUpdate(INSERT_TRANSACTION, transactions);
+            jdbcTemplate.batchUpdate(INSERT_OUTBOX, events);
+            jdbcTemplate.update(SAVE_CHECKPOINT, position);
+            // One upsert per aggregate row for the whole batch
+            bankAggregates.apply(jdbcTemplate, aggregates);
+            // Pushed to open balance streams after commit
+            balances.forEach((accountId, balance) -> publishBalance(accountId, balance));
+        });
+        persistedUpTo.set(position);
+    }
+
+    // Withdrawals do not need an active account, and the journal only records whether it is. The status is read
+    // once: nothing else changes it while the ledger owns the account
+    private AccountStatus statusOf(LedgerAccount account) {
+        if (account.active) {
+            return AccountStatus.ACTIVE;
+        }
+        return inactiveStatuses.computeIfAbsent(account.id,
+                accountId -> AccountStatus.valueOf(jdbcTemplate.queryForObject(LOAD_STATUS, String.class, accountId)));
+    }
+
+    private void publishBalance(UUID accountId, BigDecimal balance) {
+        LedgerAccount account = accounts.apply(accountId);
+        if (account != null) {
+            eventPublisher.publishEvent(new BalanceChangedEvent(new AccountBalanceDTO(
+                    account.userId.toString(), accountId.toString(), account.accountNumber, balance, account.currency)));
+        }
+    }
+
+    private Object[] event(String eventType, UUID aggregateId, Object payload, Instant createdAt) {
+        try {
+            return new Object[]{eventType, aggregateId, objectMapper.writeValueAsString(payload), timestamp(createdAt)};
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize " + eventType + " event", ex);
+        }
+    }
+
+    private static Timestamp timestamp(Instant instant) {
+        return Timestamp.from(instant);
+    }
+
+    private record Journaled(long position, LedgerEntry entry) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * A partition of the accounts and the one thread that changes them. Commands are tasks run in arrival order on
+ * that thread; nothing is locked.
+ * <p>
+ * A cross-shard transfer borrows a second shard: that shard runs a task that parks its thread until the transfer
+ * is done, and the first shard changes both. The latches give the happens-before edges in both directions.
+ */
+final class LedgerShard {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerShard.class);
+
+    private final int index;
+    private final BlockingQueue<Runnable> inbox;
+    // Written by the owning thread only; concurrent so callers can tell whether an account must be loaded first
+    private final Map<UUID, LedgerAccount> accounts = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    private volatile boolean running = true;
+    private long sequence;
+
+    LedgerShard(int index, int capacity) {
+        this.index = index;
+        this.inbox = new ArrayBlockingQueue<>(capacity);
+        this.thread = Thread.ofPlatform().name("ledger-shard-" + index).daemon().unstarted(this::run);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queues a task, waiting for room if the shard is behind.
+     */
+    void submit(Runnable task) {
+        if (!running) {
+            throw new IllegalStateException("Ledger shard " + index + " is stopped");
+        }
+        try {
+            inbox.put(task);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing to ledger shard " + index, ex);
+        }
+    }
+
+    /**
+     * Queues a task that holds this shard's thread until {@code release} opens; {@code parked} opens once it does.
+     */
+    void park(CountDownLatch parked, CountDownLatch release) {
+        submit(() -> {
+            parked.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    int index() {
+        return index;
+    }
+
+    boolean knows(UUID accountId) {
+        return accounts.containsKey(accountId);
+    }
+
+    // The methods below run on the shard's thread, or on the thread that parked it
+
+    LedgerAccount account(UUID accountId) {
+        return accounts.get(accountId);
+    }
+
+    void put(LedgerAccount account) {
+        accounts.put(account.id, account);
+    }
+
+    long nextSequence() {
+        return ++sequence;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    void sequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    int size() {
+        return accounts.size();
+    }
+
+    List<LedgerEntry.Opened> copy() {
+        List<LedgerEntry.Opened> copy = new ArrayList<>(accounts.size());
+        for (LedgerAccount account : accounts.values()) {
+            copy.add(account.opened(sequence));
+        }
+        return copy;
+    }
+
+    /**
+     * Runs what is queued, then ends the thread.
+     */
+    void stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        thread.join(timeoutMillis);
+    }
+
+    private void run() {
+        while (running || !inbox.isEmpty()) {
+            try {
+                Runnable task = inbox.poll(100, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    task.run();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException | Error ex) {
+                // Commands complete their own caller; this only keeps the thread alive
+                logger.error("ledger.shard_task_failed", kv("shard", index), ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Snapshot files of the shards. A snapshot is named after the journal segment started with it; it holds, per
+ * shard, the shard's sequence number and its accounts ({@code snapshot-<segment>-<shard>.bin}). It counts only
+ * once every shard is written and {@code snapshot-<segment>.done} exists. Each file is written under a temporary
+ * name and moved in place.
+ */
+final class LedgerSnapshots {
+
+    private static final String PREFIX = "snapshot-";
+    private static final String DONE = ".done";
+
+    private final Path directory;
+
+    LedgerSnapshots(Path directory) {
+        this.directory = directory;
+    }
+
+    void write(long segment, int shard, long sequence, List<LedgerEntry.Opened> accounts) {
+        Path file = directory.resolve(PREFIX + "%016d-%03d.bin".formatted(segment, shard));
+        ByteBuffer buffer = ByteBuffer.allocate(LedgerCodec.MAX_ENTRY_BYTES);
+        writeAtomically(file, out -> {
+            out.writeLong(sequence);
+            out.writeInt(accounts.size());
+            for (LedgerEntry.Opened account : accounts) {
+                buffer.clear();
+                LedgerCodec.encode(account, buffer);
+                buffer.flip();
+                out.writeShort(buffer.remaining());
+                out.write(buffer.array(), 0, buffer.remaining());
+            }
+        });
+    }
+
+    void complete(long segment, int shards) {
+        writeAtomically(directory.resolve(PREFIX + "%016d".formatted(segment) + DONE), out -> out.writeInt(shards));
+    }
+
+    /**
+     * @return The most recent complete snapshot, if any
+     */
+    Optional<Snapshot> latest(int shards) {
+        List<Long> done = completed();
+        if (done.isEmpty()) {
+            return Optional.empty();
+        }
+        long segment = done.getLast();
+        try {
+            int written = readFile(directory.resolve(PREFIX + "%016d".formatted(segment) + DONE), DataInputStream::readInt);
+            if (written != shards) {
+                throw new IllegalStateException("Ledger snapshot " + segment + " has " + written
+                        + " shards, configured are " + shards + ": accounts would not be found in their shard");
+            }
+            long[] sequences = new long[shards];
+            List<List<LedgerEntry.Opened>> accounts = new ArrayList<>(shards);
+            for (int shard = 0; shard < shards; shard++) {
+                int index = shard;
+                accounts.add(readFile(directory.resolve(PREFIX + "%016d-%03d.bin".formatted(segment, shard)), in -> {
+                    sequences[index] = in.readLong();
+                    int count = in.readInt();
+                    List<LedgerEntry.Opened> rows = new ArrayList<>(count);
+                    byte[] bytes = new byte[LedgerCodec.MAX_ENTRY_BYTES];
+                    for (int i = 0; i < count; i++) {
+                        int length = in.readUnsignedShort();
+                        in.readFully(bytes, 0, length);
+                        rows.add((LedgerEntry.Opened) LedgerCodec.decode(ByteBuffer.wrap(bytes, 0, length)));
+                    }
+                    return rows;
+                }));
+            }
+            return Optional.of(new Snapshot(segment, sequences, accounts));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read ledger snapshot " + segment, ex);
+        }
+    }
+
+    /**
+     * Deletes the snapshots, complete or not, older than the given one.
+     */
+    void deleteBefore(long segment) {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(PREFIX) && Long.parseLong(name, PREFIX.length(), PREFIX.length() + 16, 10) < segment) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private List<Long> completed() {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Long> segments = new ArrayList<>();
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(DONE))
+                    .forEach(name -> segments.add(Long.parseLong(name, PREFIX.length(), name.length() - DONE.length(), 10)));
+            segments.sort(null);
+            return segments;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void writeAtomically(Path file, Writer writer) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                writer.write(out);
+                out.flush();
+                // Durable before it is moved in place, or a crash could leave a complete snapshot of empty files
+                stream.getFD().sync();
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write " + file, ex);
+        }
+    }
+
+    private static <T> T readFile(Path file, Reader<T> reader) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return reader.read(in);
+        }
+    }
+
+    record Snapshot(long segment, long[] sequences, List<List<LedgerEntry.Opened>> accounts) {
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,63 @@
+package com.waes.rabobank.bankingaccount.infrastructure.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Pool saturation gauges on top of the {@code hikaricp.connections.*} meters Spring Boot already binds.
+ * <p>
+ * {@code banking.db.pool.saturation}: active / maximum pool size (1.0 = every connection in use).
+ * {@code banking.db.pool.pressure}: (active + pending) / maximum pool size, above 1.0 requests are queueing.
+ */
+@Component
+public class HikariPoolSaturationMetrics implements MeterBinder {
+
+    private final DataSource dataSource;
+
+    public HikariPoolSaturationMetrics(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        HikariDataSource hikari = unwrap();
+        if (hikari == null) {
+            return;
+        }
+
+        Gauge.builder("banking.db.pool.saturation", hikari, ds -> ratio(ds, false))
+                .description("Active connections divided by maximum pool size")
+                .tag("pool", String.valueOf(hikari.getPoolName()))
+                .register(registry);
+
+        Gauge.builder("banking.db.pool.pressure", hikari, ds -> ratio(ds, true))
+                .description("Active plus pending connection requests divided by maximum pool size")
+                .tag("pool", String.valueOf(hikari.getPoolName()))
+                .register(registry);
+    }
+
+    private static double ratio(HikariDataSource dataSource, boolean includePending) {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return 0.0; // Pool not started yet
+        }
+        int inUse = pool.getActiveConnections() + (includePending ? pool.getThreadsAwaitingConnection() : 0);
+
+        return inUse / (double) dataSource.getMaximumPoolSize();
+    }
+
+    private HikariDataSource unwrap() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.waes.rabobank.bankingaccount.infrastructure.metrics;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Business timers for the money paths.
+ * <p>
+ * Meter: {@code banking.payment} (percentile histogram), tags {@code operation}, {@code card_type}, {@code outcome}.
+ * A successful call is only recorded once its transaction completes, so commit time and commit-time
+ * failures (e.g. optimistic lock conflicts, outcome {@code rollback}) are part of the measurement.
+ */
+@Component
+public class PaymentMetrics {
+
+    static final String PAYMENT_TIMER = "banking.payment";
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+
+    public PaymentMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Observation observe(String operation) {
+        return new Observation(operation, Timer.start(meterRegistry));
+    }
+
+    private void record(Timer.Sample sample, String operation, String cardType, String outcome) {
+        sample.stop(Timer.builder(PAYMENT_TIMER)
+                .description("Latency of withdrawals and transfers, including commit")
+                .tag("operation", operation)
+                .tag("card_type", cardType)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    public final class Observation {
+        private final String operation;
+        private final Timer.Sample sample;
+        private String cardType = UNKNOWN;
+
+        private Observation(String operation, Timer.Sample sample) {
+            this.operation = operation;
+            this.sample = sample;
+        }
+
+        public void cardType(CardType type) {
+            this.cardType = type.name();
+        }
+
+        public void succeeded() {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                record(sample, operation, cardType, "success");
+                return;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    record(sample, operation, cardType, status == STATUS_COMMITTED ? "success" : "rollback");
+                }
+            });
+        }
+
+        public void failed(Throwable ex) {
+            record(sample, operation, cardType, ex.getClass().getSimpleName());
+        }
+    }
+}
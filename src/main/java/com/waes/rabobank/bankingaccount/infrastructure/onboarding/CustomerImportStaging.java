@@ -0,0 +1,443 @@
+package com.waes.rabobank.bankingaccount.infrastructure.onboarding;
+
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
+import com.waes.rabobank.bankingaccount.domain.enums.AccountStatus;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * SQL side of the customer import, on the {@code customer_import_staging} table (V5).
+ * <p>
+ * Valid records are streamed in with {@code COPY}. The checks that need the whole file or the live tables, and
+ * the merge into {@code users}, {@code accounts} and {@code cards}, are a fixed number of set-based statements,
+ * however many records the file has. Everything runs on the connection of the caller's transaction.
+ * <p>
+ * While sharding is on the live rows are on the shards: the same checks run against the global unique keys
+ * ({@code shard_unique_keys}) instead, and the accepted rows are handed back for placement.
+ */
+@Component
+public class CustomerImportStaging {
+
+    static final String COPY_SQL = """
+            COPY customer_import_staging (import_id, line_no, email, full_name, bsn, account_number, currency,
+                                          balance, card_number, card_type, card_expiry, raw_record) FROM STDIN
+            """;
+
+    private static final int PAGE_SIZE = 5_000;
+
+    // Within the file: the first line with an IBAN or card number wins
+    private static final String REJECT_DUPLICATE_ACCOUNTS = """
+            UPDATE customer_import_staging s SET reject_reason = 'DUPLICATE_ACCOUNT_IN_FILE'
+            FROM (SELECT line_no, row_number() OVER (PARTITION BY account_number ORDER BY line_no) AS occurrence
+                  FROM customer_import_staging WHERE import_id = ?) d
+            WHERE s.import_id = ? AND s.line_no = d.line_no AND d.occurrence > 1
+            """;
+    private static final String REJECT_DUPLICATE_CARDS = """
+            UPDATE customer_import_staging s SET reject_reason = 'DUPLICATE_CARD_IN_FILE'
+            FROM (SELECT line_no, row_number() OVER (PARTITION BY card_number ORDER BY line_no) AS occurrence
+                  FROM customer_import_staging
+                  WHERE import_id = ? AND card_number IS NOT NULL AND reject_reason IS NULL) d
+            WHERE s.import_id = ? AND s.line_no = d.line_no AND d.occurrence > 1
+            """;
+    // Within the file: one BSN with several emails or one email with several BSNs rejects all lines involved
+    private static final String REJECT_CONFLICTS_IN_FILE = """
+            UPDATE customer_import_staging s SET reject_reason = 'CONFLICTING_CUSTOMER'
+            WHERE s.import_id = ? AND s.reject_reason IS NULL
+              AND (s.bsn IN (SELECT bsn FROM customer_import_staging WHERE import_id = ?
+                             GROUP BY bsn HAVING count(DISTINCT lower(email)) > 1)
+                OR lower(s.email) IN (SELECT lower(email) FROM customer_import_staging WHERE import_id = ?
+                                      GROUP BY lower(email) HAVING count(DISTINCT bsn) > 1))
+            """;
+    // Against the live tables. A known customer (same BSN and email) is fine: the new accounts are added to it.
+    private static final String REJECT_CONFLICTS_BY_BSN = """
+            UPDATE customer_import_staging s SET reject_reason = 'CONFLICTING_CUSTOMER'
+            FROM users u
+            WHERE s.import_id = ? AND s.reject_reason IS NULL
+              AND u.bsn_id = s.bsn AND lower(u.email) <> lower(s.email)
+            """;
+    private static final String REJECT_CONFLICTS_BY_EMAIL = """
+            UPDATE customer_import_staging s SET reject_reason = 'CONFLICTING_CUSTOMER'
+            FROM users u
+            WHERE s.import_id = ? AND s.reject_reason IS NULL
+              AND lower(u.email) = lower(s.email) AND u.bsn_id IS DISTINCT FROM s.bsn
+            """;
+    private static final String REJECT_EXISTING_ACCOUNTS = """
+            UPDATE customer_import_staging s SET reject_reason = 'ACCOUNT_EXISTS'
+            FROM accounts a
+            WHERE s.import_id = ? AND s.reject_reason IS NULL AND a.account_number = s.account_number
+            """;
+    private static final String REJECT_EXISTING_CARDS = """
+            UPDATE customer_import_staging s SET reject_reason = 'CARD_EXISTS'
+            FROM cards c
+            WHERE s.import_id = ? AND s.reject_reason IS NULL AND c.card_number = s.card_number
+            """;
+
+    // Against the unique keys claimed by the shards: a known customer holds both the BSN and the email
+    private static final String REJECT_CLAIMED_CONFLICTS_BY_BSN = """
+            UPDATE customer_import_staging s SET reject_reason = 'CONFLICTING_CUSTOMER'
+            FROM shard_unique_keys b
+            WHERE s.import_id = ? AND s.reject_reason IS NULL
+              AND b.kind = 'BSN' AND b.key_value = s.bsn
+              AND NOT EXISTS (SELECT 1 FROM shard_unique_keys e
+                              WHERE e.kind = 'EMAIL' AND e.key_value = lower(s.email) AND e.owner_id = b.owner_id)
+            """;
+    private static final String REJECT_CLAIMED_CONFLICTS_BY_EMAIL = """
+            UPDATE customer_import_staging s SET reject_reason = 'CONFLICTING_CUSTOMER'
+            FROM shard_unique_keys e
+            WHERE s.import_id = ? AND s.reject_reason IS NULL
+              AND e.kind = 'EMAIL' AND e.key_value = lower(s.email)
+              AND NOT EXISTS (SELECT 1 FROM shard_unique_keys b
+                              WHERE b.kind = 'BSN' AND b.key_value = s.bsn AND b.owner_id = e.owner_id)
+            """;
+    private static final String REJECT_CLAIMED_ACCOUNTS = """
+            UPDATE customer_import_staging s SET reject_reason = 'ACCOUNT_EXISTS'
+            FROM shard_unique_keys k
+            WHERE s.import_id = ? AND s.reject_reason IS NULL
+              AND k.kind = 'ACCOUNT_NUMBER' AND k.key_value = s.account_number
+            """;
+    private static final String REJECT_CLAIMED_CARDS = """
+            UPDATE customer_import_staging s SET reject_reason = 'CARD_EXISTS'
+            FROM shard_unique_keys k
+            WHERE s.import_id = ? AND s.reject_reason IS NULL
+              AND k.kind = 'CARD_NUMBER' AND k.key_value = s.card_number
+            """;
+
+    private static final String INSERT_USERS = """
+            INSERT INTO users (email, full_name, bsn_id, created_at, updated_at)
+            SELECT DISTINCT ON (bsn) email, full_name, bsn, now(), now()
+            FROM customer_import_staging
+            WHERE import_id = ? AND reject_reason IS NULL
+            ORDER BY bsn, line_no
+            ON CONFLICT DO NOTHING
+            """;
+    // A row whose account number a concurrent writer committed since the checks is rejected instead
+    private static final String INSERT_ACCOUNTS = """
+            WITH inserted AS (
+                INSERT INTO accounts (user_id, account_number, balance, currency, status, version, created_at, updated_at)
+                SELECT u.id, s.account_number, s.balance, s.currency, 'ACTIVE', 0, now(), now()
+                FROM customer_import_staging s
+                JOIN users u ON u.bsn_id = s.bsn
+                WHERE s.import_id = ? AND s.reject_reason IS NULL
+                ON CONFLICT DO NOTHING
+                RETURNING account_number
+            ), lost AS (
+                UPDATE customer_import_staging s SET reject_reason = 'ACCOUNT_EXISTS'
+                WHERE s.import_id = ? AND s.reject_reason IS NULL
+                  AND NOT EXISTS (SELECT 1 FROM inserted i WHERE i.account_number = s.account_number)
+                RETURNING 1
+            )
+            SELECT (SELECT count(*) FROM inserted), (SELECT count(*) FROM lost)
+            """;
+    // Same for card numbers; the account just inserted for such a row goes again
+    private static final String INSERT_CARDS = """
+            WITH inserted AS (
+                INSERT INTO cards (card_type, account_id, card_number, expiry_date, status, created_at, updated_at)
+                SELECT s.card_type, a.id, s.card_number, s.card_expiry, 'ACTIVE', now(), now()
+                FROM customer_import_staging s
+                JOIN accounts a ON a.account_number = s.account_number
+                WHERE s.import_id = ? AND s.reject_reason IS NULL AND s.card_number IS NOT NULL
+                ON CONFLICT DO NOTHING
+                RETURNING card_number
+            ), lost AS (
+                UPDATE customer_import_staging s SET reject_reason = 'CARD_EXISTS'
+                WHERE s.import_id = ? AND s.reject_reason IS NULL AND s.card_number IS NOT NULL
+                  AND NOT EXISTS (SELECT 1 FROM inserted i WHERE i.card_number = s.card_number)
+                RETURNING s.account_number
+            ), removed AS (
+                DELETE FROM accounts a USING lost l WHERE a.account_number = l.account_number
+                RETURNING 1
+            )
+            SELECT (SELECT count(*) FROM inserted), (SELECT count(*) FROM lost)
+            """;
+    // Customers created by this transaction (created_at is its start time) whose every row was lost
+    private static final String DELETE_USERS_WITHOUT_ACCOUNTS = """
+            DELETE FROM users u
+            USING customer_import_staging s
+            WHERE s.import_id = ? AND u.bsn_id = s.bsn AND u.created_at = now()
+              AND NOT EXISTS (SELECT 1 FROM accounts a WHERE a.user_id = u.id)
+            """;
+
+    // The accounts merge inserted: one per accepted row
+    private static final String MERGED_ACCOUNTS = """
+            SELECT currency, count(*), sum(balance)
+            FROM customer_import_staging
+            WHERE import_id = ? AND reject_reason IS NULL
+            GROUP BY currency
+            """;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerImportStaging(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Opens the {@code COPY} into the staging table. Nothing else may run on the connection until it is finished.
+     */
+    public Copy openCopy(UUID importId) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return new Copy(importId.toString(), connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL));
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Cannot start COPY into customer_import_staging", ex);
+        }
+    }
+
+    /**
+     * Runs the set-based checks, then inserts users, accounts and cards for the rows that passed. A row whose
+     * customer, account number or card number a concurrent writer committed in between is rejected as well, and
+     * nothing of it is left behind.
+     */
+    public MergeResult merge(UUID importId) {
+        long rejected = rejectInFile(importId)
+                + jdbcTemplate.update(REJECT_CONFLICTS_BY_BSN, importId)
+                + jdbcTemplate.update(REJECT_CONFLICTS_BY_EMAIL, importId)
+                + jdbcTemplate.update(REJECT_EXISTING_ACCOUNTS, importId)
+                + jdbcTemplate.update(REJECT_EXISTING_CARDS, importId);
+
+        long users = jdbcTemplate.update(INSERT_USERS, importId);
+        // Customers committed by concurrent writers since the checks above
+        rejected += jdbcTemplate.update(REJECT_CONFLICTS_BY_BSN, importId)
+                + jdbcTemplate.update(REJECT_CONFLICTS_BY_EMAIL, importId);
+
+        long[] accounts = insertCounting(INSERT_ACCOUNTS, importId);
+        long[] cards = insertCounting(INSERT_CARDS, importId);
+        users -= jdbcTemplate.update(DELETE_USERS_WITHOUT_ACCOUNTS, importId);
+
+        return new MergeResult(rejected + accounts[1] + cards[1], users, accounts[0] - cards[1], cards[0]);
+    }
+
+    // Inserted rows, and rows rejected because a concurrent writer took their key
+    private long[] insertCounting(String sql, UUID importId) {
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)},
+                importId, importId);
+    }
+
+    /**
+     * Runs the set-based checks against the keys claimed by the shards. The rows that passed are then placed one
+     * by one; see {@link #forEachAccepted}.
+     *
+     * @return Rows rejected
+     */
+    public long rejectForShards(UUID importId) {
+        return rejectInFile(importId)
+                + jdbcTemplate.update(REJECT_CLAIMED_CONFLICTS_BY_BSN, importId)
+                + jdbcTemplate.update(REJECT_CLAIMED_CONFLICTS_BY_EMAIL, importId)
+                + jdbcTemplate.update(REJECT_CLAIMED_ACCOUNTS, importId)
+                + jdbcTemplate.update(REJECT_CLAIMED_CARDS, importId);
+    }
+
+    private long rejectInFile(UUID importId) {
+        // Autovacuum has not seen the rows yet: without statistics the planner assumes a tiny table
+        jdbcTemplate.execute("ANALYZE customer_import_staging");
+
+        return jdbcTemplate.update(REJECT_DUPLICATE_ACCOUNTS, importId, importId)
+                + jdbcTemplate.update(REJECT_DUPLICATE_CARDS, importId, importId)
+                + jdbcTemplate.update(REJECT_CONFLICTS_IN_FILE, importId, importId, importId);
+    }
+
+    /**
+     * Rows not rejected so far, in line order, one keyset page at a time.
+     */
+    public void forEachAccepted(UUID importId, Consumer<List<CustomerRecord>> pageConsumer) {
+        long after = 0;
+        List<CustomerRecord> page;
+        do {
+            page = jdbcTemplate.query("""
+                            SELECT line_no, email, full_name, bsn, account_number, currency, balance,
+                                   card_number, card_type, card_expiry, raw_record
+                            FROM customer_import_staging
+                            WHERE import_id = ? AND line_no > ? AND reject_reason IS NULL
+                            ORDER BY line_no LIMIT ?
+                            """,
+                    (rs, rowNum) -> {
+                        String cardType = rs.getString(9);
+                        Date expiry = rs.getDate(10);
+                        return new CustomerRecord(rs.getLong(1), rs.getString(11), rs.getString(2), rs.getString(3),
+                                rs.getString(4), rs.getString(5), rs.getString(6), rs.getBigDecimal(7),
+                                rs.getString(8), cardType == null ? null : CardType.valueOf(cardType),
+                                expiry == null ? null : YearMonth.from(expiry.toLocalDate()));
+                    },
+                    importId, after, PAGE_SIZE);
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page);
+                after = page.getLast().lineNumber();
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    // A row that passed the checks but lost its key to a concurrent writer
+    public void reject(UUID importId, long lineNumber, ImportRejectReason reason) {
+        jdbcTemplate.update("UPDATE customer_import_staging SET reject_reason = ? WHERE import_id = ? AND line_no = ?",
+                reason.name(), importId, lineNumber);
+    }
+
+    /**
+     * @return What the accounts inserted by {@link #merge} add to the bank-wide aggregates
+     */
+    public AggregateDelta mergedAccounts(UUID importId) {
+        AggregateDelta delta = new AggregateDelta();
+        jdbcTemplate.query(MERGED_ACCOUNTS, rs -> {
+            delta.accounts(rs.getString(1), AccountStatus.ACTIVE, rs.getLong(2), rs.getBigDecimal(3));
+        }, importId);
+        return delta;
+    }
+
+    /**
+     * Rows rejected by {@link #merge}, in line order, one keyset page at a time.
+     */
+    public void forEachReject(UUID importId, Consumer<StagedReject> consumer) {
+        long after = 0;
+        List<StagedReject> page;
+        do {
+            page = jdbcTemplate.query("""
+                            SELECT line_no, reject_reason, raw_record FROM customer_import_staging
+                            WHERE import_id = ? AND line_no > ? AND reject_reason IS NOT NULL
+                            ORDER BY line_no LIMIT ?
+                            """,
+                    (rs, rowNum) -> new StagedReject(rs.getLong(1),
+                            ImportRejectReason.valueOf(rs.getString(2)), rs.getString(3)),
+                    importId, after, PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                after = page.getLast().lineNumber();
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    /**
+     * Users behind the accepted rows (created or existing), one page at a time. A user with several accounts
+     * may be handed over more than once.
+     */
+    public void forEachImportedUserPage(UUID importId, Consumer<List<UserResponseDTO>> pageConsumer) {
+        long after = 0;
+        List<StagedUser> page;
+        do {
+            page = jdbcTemplate.query("""
+                            SELECT s.line_no, u.id, u.full_name, u.email FROM customer_import_staging s
+                            JOIN users u ON u.bsn_id = s.bsn
+                            WHERE s.import_id = ? AND s.line_no > ? AND s.reject_reason IS NULL
+                            ORDER BY s.line_no LIMIT ?
+                            """,
+                    (rs, rowNum) -> new StagedUser(rs.getLong(1),
+                            new UserResponseDTO(rs.getString(2), rs.getString(3), rs.getString(4))),
+                    importId, after, PAGE_SIZE);
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page.stream().map(StagedUser::user).toList());
+                after = page.getLast().lineNumber();
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    public void delete(UUID importId) {
+        jdbcTemplate.update("DELETE FROM customer_import_staging WHERE import_id = ?", importId);
+    }
+
+    // Leftovers of imports interrupted between commit and clean-up
+    public int deleteStale() {
+        return jdbcTemplate.update("DELETE FROM customer_import_staging WHERE staged_at < now() - interval '1 day'");
+    }
+
+    public record MergeResult(long rejected, long usersCreated, long accountsCreated, long cardsCreated) {
+    }
+
+    public record StagedReject(long lineNumber, ImportRejectReason reason, String rawRecord) {
+    }
+
+    private record StagedUser(long lineNumber, UserResponseDTO user) {
+    }
+
+    /**
+     * One {@code COPY} for the whole import; records are appended batch by batch and never held all at once.
+     */
+    public static final class Copy implements AutoCloseable {
+
+        private final String importId;
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder();
+
+        private Copy(String importId, CopyIn copyIn) {
+            this.importId = importId;
+            this.copyIn = copyIn;
+        }
+
+        public void write(List<CustomerRecord> records) {
+            if (records.isEmpty()) {
+                return;
+            }
+            buffer.setLength(0);
+            for (CustomerRecord record : records) {
+                field(importId).field(Long.toString(record.lineNumber())).field(record.email())
+                        .field(record.fullName()).field(record.bsn()).field(record.accountNumber())
+                        .field(record.currency()).field(record.balance().toPlainString())
+                        .field(record.cardNumber())
+                        .field(record.cardType() == null ? null : record.cardType().name())
+                        .field(record.cardExpiry() == null ? null : record.cardExpiry().atDay(1).toString())
+                        .field(record.rawRecord());
+                buffer.setCharAt(buffer.length() - 1, '\n');
+            }
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException ex) {
+                throw new IllegalStateException("COPY into customer_import_staging failed", ex);
+            }
+        }
+
+        public long finish() {
+            try {
+                return copyIn.endCopy();
+            } catch (SQLException ex) {
+                throw new IllegalStateException("COPY into customer_import_staging failed", ex);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (copyIn.isActive()) {
+                try {
+                    copyIn.cancelCopy();
+                } catch (SQLException ignored) {
+                    // The transaction is rolled back anyway
+                }
+            }
+        }
+
+        // COPY text format: tab separated, \N for null, backslash escapes for the separators
+        private Copy field(String value) {
+            if (value == null) {
+                buffer.append("\\N");
+            } else {
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    switch (c) {
+                        case '\\' -> buffer.append("\\\\");
+                        case '\t' -> buffer.append("\\t");
+                        case '\n' -> buffer.append("\\n");
+                        case '\r' -> buffer.append("\\r");
+                        default -> buffer.append(c);
+                    }
+                }
+            }
+            buffer.append('\t');
+            return this;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.waes.rabobank.bankingaccount.infrastructure.onboarding;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/**
+ * One validated line of a customer import: a customer, one of their accounts and optionally its card.
+ * A customer with several accounts appears on several lines with the same BSN and email.
+ */
+public record CustomerRecord(
+        long lineNumber,
+        String rawRecord,
+        String email,
+        String fullName,
+        String bsn,
+        String accountNumber,
+        String currency,
+        BigDecimal balance,
+        String cardNumber, // null: account without card
+        CardType cardType,
+        YearMonth cardExpiry
+) {
+}
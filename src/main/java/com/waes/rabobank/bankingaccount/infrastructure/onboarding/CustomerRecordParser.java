@@ -0,0 +1,164 @@
+package com.waes.rabobank.bankingaccount.infrastructure.onboarding;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits one line of a customer import into its fields. Immutable, shared by all validation threads.
+ * <p>
+ * CSV columns are matched by the header names (any order, unknown columns ignored), values may be quoted with
+ * {@code "} and {@code ""} escapes a quote. NDJSON uses the same names as object keys. One record per line.
+ */
+public final class CustomerRecordParser {
+
+    public enum Field {
+        EMAIL("email", true),
+        FULL_NAME("full_name", true),
+        BSN("bsn", true),
+        ACCOUNT_NUMBER("account_number", true),
+        CURRENCY("currency", false),
+        BALANCE("balance", false),
+        CARD_NUMBER("card_number", false),
+        CARD_TYPE("card_type", false),
+        CARD_EXPIRY("card_expiry", false);
+
+        private final String key;
+        private final boolean required;
+
+        Field(String key, boolean required) {
+            this.key = key;
+            this.required = required;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public boolean required() {
+            return required;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private final ImportFormat format;
+    private final int[] csvColumns; // Column index per field, -1 when the file has no such column
+    private final int csvColumnCount;
+    private final ObjectMapper objectMapper;
+
+    private CustomerRecordParser(ImportFormat format, int[] csvColumns, int csvColumnCount, ObjectMapper objectMapper) {
+        this.format = format;
+        this.csvColumns = csvColumns;
+        this.csvColumnCount = csvColumnCount;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @throws IllegalArgumentException when the header lacks a required column
+     */
+    public static CustomerRecordParser csv(String headerLine) {
+        if (headerLine == null || headerLine.isBlank()) {
+            throw new IllegalArgumentException("CSV import must start with a header line");
+        }
+        List<String> header = splitCsv(headerLine.startsWith("\uFEFF") ? headerLine.substring(1) : headerLine);
+        int[] columns = new int[FIELDS.length];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            for (Field field : FIELDS) {
+                if (field.key.equals(name)) {
+                    columns[field.ordinal()] = i;
+                }
+            }
+        }
+        for (Field field : FIELDS) {
+            if (field.required && columns[field.ordinal()] < 0) {
+                throw new IllegalArgumentException("CSV header is missing column " + field.key);
+            }
+        }
+        return new CustomerRecordParser(ImportFormat.CSV, columns, header.size(), null);
+    }
+
+    public static CustomerRecordParser ndjson(ObjectMapper objectMapper) {
+        return new CustomerRecordParser(ImportFormat.NDJSON, null, 0, objectMapper);
+    }
+
+    /**
+     * @return Trimmed values indexed by {@link Field#ordinal()}, {@code null} for absent or blank values
+     * @throws IllegalArgumentException when the line cannot be parsed
+     */
+    public String[] parse(String line) {
+        String[] values = new String[FIELDS.length];
+        if (format == ImportFormat.CSV) {
+            List<String> columns = splitCsv(line);
+            if (columns.size() != csvColumnCount) {
+                throw new IllegalArgumentException("Expected " + csvColumnCount + " columns, got " + columns.size());
+            }
+            for (Field field : FIELDS) {
+                int column = csvColumns[field.ordinal()];
+                values[field.ordinal()] = column < 0 ? null : blankToNull(columns.get(column));
+            }
+            return values;
+        }
+
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Invalid JSON", ex);
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        for (Field field : FIELDS) {
+            JsonNode value = node.get(field.key);
+            if (value != null && value.isContainerNode()) {
+                throw new IllegalArgumentException("Field " + field.key + " must be a scalar");
+            }
+            values[field.ordinal()] = value == null || value.isNull() ? null : blankToNull(value.asText());
+        }
+        return values;
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> columns = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                columns.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value");
+        }
+        columns.add(current.toString());
+        return columns;
+    }
+
+    private static String blankToNull(String value) {
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -0,0 +1,152 @@
+package com.waes.rabobank.bankingaccount.infrastructure.onboarding;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.CustomerRecordParser.Field;
+import com.waes.rabobank.bankingaccount.shared.identifier.Bsn;
+import com.waes.rabobank.bankingaccount.shared.identifier.Iban;
+import com.waes.rabobank.bankingaccount.shared.identifier.Luhn;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Pattern;
+
+/**
+ * Parses and validates one import line on its own: formats, check digits, ranges. Rules that need other lines
+ * or the database (duplicates, existing accounts) run later on the staged rows. Stateless and thread-safe.
+ */
+public final class CustomerRecordValidator {
+
+    // Same rule as the chk_email_format constraint on users
+    private static final Pattern EMAIL = Pattern.compile("^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+    private static final Pattern CURRENCY = Pattern.compile("[A-Z]{3}");
+    private static final Pattern CARD_NUMBER = Pattern.compile("\\d{16}");
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final BigDecimal MAX_BALANCE = new BigDecimal("1000000000000000"); // NUMERIC(19, 4)
+    private static final String DEFAULT_CURRENCY = "EUR";
+
+    private final CustomerRecordParser parser;
+    private final YearMonth currentMonth;
+
+    public CustomerRecordValidator(CustomerRecordParser parser, YearMonth currentMonth) {
+        this.parser = parser;
+        this.currentMonth = currentMonth;
+    }
+
+    public Outcome validate(long lineNumber, String line) {
+        String[] values;
+        try {
+            values = parser.parse(line);
+        } catch (IllegalArgumentException ex) {
+            return Outcome.rejected(lineNumber, line, ImportRejectReason.MALFORMED_RECORD);
+        }
+        for (Field field : Field.values()) {
+            if (field.required() && values[field.ordinal()] == null) {
+                return Outcome.rejected(lineNumber, line, ImportRejectReason.MISSING_FIELD);
+            }
+        }
+
+        String email = values[Field.EMAIL.ordinal()];
+        if (email.length() > MAX_TEXT_LENGTH || !EMAIL.matcher(email).matches()) {
+            return Outcome.rejected(lineNumber, line, ImportRejectReason.INVALID_EMAIL);
+        }
+        String fullName = values[Field.FULL_NAME.ordinal()];
+        if (fullName.length() > MAX_TEXT_LENGTH) {
+            return Outcome.rejected(lineNumber, line, ImportRejectReason.INVALID_NAME);
+        }
+        String bsn = values[Field.BSN.ordinal()];
+        if (!Bsn.isValid(bsn)) {
+            return Outcome.rejected(lineNumber, line, ImportRejectReason.INVALID_BSN);
+        }
+        String accountNumber = values[Field.ACCOUNT_NUMBER.ordinal()];
+        if (!Iban.isValid(accountNumber)) {
+            return Outcome.rejected(lineNumber, line, ImportRejectReason.INVALID_IBAN);
+        }
+        String currency = values[Field.CURRENCY.ordinal()] == null ? DEFAULT_CURRENCY : values[Field.CURRENCY.ordinal()];
+        if (!CURRENCY.matcher(currency).matches()) {
+            return Outcome.rejected(lineNumber, line, ImportRejectReason.INVALID_CURRENCY);
+        }
+        BigDecimal balance = parseBalance(values[Field.BALANCE.ordinal()]);
+        if (balance == null) {
+            return Outcome.rejected(lineNumber, line, ImportRejectReason.INVALID_BALANCE);
+        }
+
+        String cardNumber = values[Field.CARD_NUMBER.ordinal()];
+        String cardTypeValue = values[Field.CARD_TYPE.ordinal()];
+        String cardExpiryValue = values[Field.CARD_EXPIRY.ordinal()];
+        if (cardNumber == null) {
+            if (cardTypeValue != null || cardExpiryValue != null) {
+                return Outcome.rejected(lineNumber, line, ImportRejectReason.INVALID_CARD_NUMBER);
+            }
+            return Outcome.accepted(new CustomerRecord(lineNumber, line, email, fullName, bsn, accountNumber,
+                    currency, balance, null, null, null));
+        }
+
+        if (!CARD_NUMBER.matcher(cardNumber).matches() || !Luhn.isValid(cardNumber)) {
+            return Outcome.rejected(lineNumber, line, ImportRejectReason.INVALID_CARD_NUMBER);
+        }
+        CardType cardType = parseCardType(cardTypeValue);
+        if (cardType == null) {
+            return Outcome.rejected(lineNumber, line, ImportRejectReason.INVALID_CARD_TYPE);
+        }
+        YearMonth cardExpiry = parseExpiry(cardExpiryValue);
+        if (cardExpiry == null || cardExpiry.isBefore(currentMonth)) {
+            return Outcome.rejected(lineNumber, line, ImportRejectReason.INVALID_CARD_EXPIRY);
+        }
+
+        return Outcome.accepted(new CustomerRecord(lineNumber, line, email, fullName, bsn, accountNumber,
+                currency, balance, cardNumber, cardType, cardExpiry));
+    }
+
+    private static BigDecimal parseBalance(String value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        try {
+            BigDecimal balance = new BigDecimal(value);
+            boolean fits = balance.signum() >= 0 && balance.scale() <= 4 && balance.compareTo(MAX_BALANCE) < 0;
+            return fits ? balance : null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static CardType parseCardType(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (CardType type : CardType.values()) {
+            if (type.name().equalsIgnoreCase(value)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    // YYYY-MM, as printed on the card
+    private static YearMonth parseExpiry(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(value);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    public record Outcome(long lineNumber, String rawRecord, CustomerRecord record, ImportRejectReason rejectReason) {
+
+        static Outcome accepted(CustomerRecord record) {
+            return new Outcome(record.lineNumber(), record.rawRecord(), record, null);
+        }
+
+        static Outcome rejected(long lineNumber, String rawRecord, ImportRejectReason reason) {
+            return new Outcome(lineNumber, rawRecord, null, reason);
+        }
+
+        public boolean isAccepted() {
+            return record != null;
+        }
+    }
+}
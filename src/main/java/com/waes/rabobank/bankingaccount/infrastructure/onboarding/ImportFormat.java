@@ -0,0 +1,6 @@
+package com.waes.rabobank.bankingaccount.infrastructure.onboarding;
+
+public enum ImportFormat {
+    CSV, // Header line with column names, then one record per line
+    NDJSON // One JSON object per line, same field names as the CSV columns
+}
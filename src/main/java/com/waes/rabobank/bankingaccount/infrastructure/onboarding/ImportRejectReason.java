@@ -0,0 +1,25 @@
+package com.waes.rabobank.bankingaccount.infrastructure.onboarding;
+
+/**
+ * Why a record of a customer import was not loaded. The first group is found while parsing,
+ * the second by set-based checks on the staged rows.
+ */
+public enum ImportRejectReason {
+    MALFORMED_RECORD,
+    MISSING_FIELD,
+    INVALID_EMAIL,
+    INVALID_NAME,
+    INVALID_BSN,
+    INVALID_IBAN,
+    INVALID_CURRENCY,
+    INVALID_BALANCE,
+    INVALID_CARD_NUMBER,
+    INVALID_CARD_TYPE,
+    INVALID_CARD_EXPIRY,
+
+    DUPLICATE_ACCOUNT_IN_FILE, // Same IBAN on an earlier line of the file
+    DUPLICATE_CARD_IN_FILE, // Same card number on an earlier line of the file
+    CONFLICTING_CUSTOMER, // BSN and email point at different customers, in the file or in the database
+    ACCOUNT_EXISTS,
+    CARD_EXISTS
+}
@@ -0,0 +1,97 @@
+package com.waes.rabobank.bankingaccount.infrastructure.onboarding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Reject files of customer imports: {@code <reject-dir>/customers-<importId>-rejects.csv}, one CSV line
+ * {@code line,reason,record} per rejected record, with the record exactly as received.
+ */
+@Component
+public class RejectFiles {
+
+    private static final String HEADER = "line,reason,record";
+
+    private final Path directory;
+
+    public RejectFiles(@Value("${banking.import.reject-dir:${java.io.tmpdir}/banking-imports}") Path directory) {
+        this.directory = directory;
+    }
+
+    public Writer create(UUID importId) {
+        try {
+            Files.createDirectories(directory);
+            BufferedWriter writer = Files.newBufferedWriter(path(importId), StandardCharsets.UTF_8);
+            writer.write(HEADER);
+            writer.newLine();
+            return new Writer(writer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create reject file for import " + importId, ex);
+        }
+    }
+
+    public Optional<Path> find(UUID importId) {
+        Path path = path(importId);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    // Reject file of an import that did not commit: its lines would describe rows that were never imported
+    public void delete(UUID importId) {
+        try {
+            Files.deleteIfExists(path(importId));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot delete reject file of import " + importId, ex);
+        }
+    }
+
+    private Path path(UUID importId) {
+        return directory.resolve("customers-" + importId + "-rejects.csv");
+    }
+
+    public static final class Writer implements AutoCloseable {
+
+        private final BufferedWriter writer;
+        private long count;
+
+        private Writer(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        public void write(long lineNumber, ImportRejectReason reason, String rawRecord) {
+            try {
+                writer.write(Long.toString(lineNumber));
+                writer.write(',');
+                writer.write(reason.name());
+                writer.write(",\"");
+                writer.write(rawRecord.replace("\"", "\"\""));
+                writer.write('"');
+                writer.newLine();
+                count++;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+            try {
+                writer.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.waes.rabobank.bankingaccount.infrastructure.outbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends events to a local NDJSON file, one line per event:
+ * {@code {"id":1,"type":"withdrawal.completed","aggregateId":"…","createdAt":"…","payload":{…}}}.
+ * Each batch is one write followed by an fsync, so a batch is on disk before its rows are deleted.
+ */
+public class FileOutboxSink implements OutboxSink {
+
+    private final FileChannel channel;
+
+    public FileOutboxSink(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open outbox file " + file, ex);
+        }
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxMessage> batch) {
+        StringBuilder lines = new StringBuilder(batch.size() * 400);
+        for (OutboxMessage message : batch) {
+            // Fixed vocabulary and already serialized JSON: no escaping needed
+            lines.append("{\"id\":").append(message.id())
+                    .append(",\"type\":\"").append(message.eventType())
+                    .append("\",\"aggregateId\":\"").append(message.aggregateId())
+                    .append("\",\"createdAt\":\"").append(message.createdAt())
+                    .append("\",\"payload\":").append(message.payload())
+                    .append("}\n");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot append to outbox file", ex);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,26 @@
+package com.waes.rabobank.bankingaccount.infrastructure.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps delivered events in memory: a stand-in for tests and local runs without a downstream system.
+ */
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final ConcurrentLinkedQueue<OutboxMessage> delivered = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void publish(List<OutboxMessage> batch) {
+        delivered.addAll(batch);
+    }
+
+    public List<OutboxMessage> delivered() {
+        return new ArrayList<>(delivered);
+    }
+
+    public void clear() {
+        delivered.clear();
+    }
+}
@@ -0,0 +1,28 @@
+package com.waes.rabobank.bankingaccount.infrastructure.outbox;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Selects the {@link OutboxSink} with {@code banking.outbox.sink}: {@code file} (default) or {@code memory}.
+ * A message broker sink is one more implementation and one more bean here.
+ */
+@Configuration
+public class OutboxConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "banking.outbox.sink", havingValue = "file", matchIfMissing = true)
+    OutboxSink fileOutboxSink(@Value("${banking.outbox.file:${java.io.tmpdir}/banking-outbox/transaction-events.ndjson}") Path file) {
+        return new FileOutboxSink(file);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "banking.outbox.sink", havingValue = "memory")
+    OutboxSink inMemoryOutboxSink() {
+        return new InMemoryOutboxSink();
+    }
+}
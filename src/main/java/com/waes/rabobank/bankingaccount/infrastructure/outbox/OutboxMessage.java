@@ -0,0 +1,17 @@
+package com.waes.rabobank.bankingaccount.infrastructure.outbox;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Outbox row as handed to an {@link OutboxSink}. The id increases with insertion and identifies the event
+ * downstream, e.g. to drop the duplicates of an at-least-once redelivery.
+ */
+public record OutboxMessage(
+        long id,
+        String eventType,
+        UUID aggregateId,
+        String payload, // JSON
+        Instant createdAt
+) {
+}
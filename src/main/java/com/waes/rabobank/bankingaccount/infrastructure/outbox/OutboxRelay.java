@@ -0,0 +1,130 @@
+package com.waes.rabobank.bankingaccount.infrastructure.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.UUID;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Moves outbox rows to the {@link OutboxSink}: lock a batch with {@code FOR UPDATE SKIP LOCKED}, publish it,
+ * delete it, commit, all in one transaction.
+ * <p>
+ * Relays on any number of nodes can poll the same table. Each locks different rows and skips the ones locked by
+ * the others, so no row is delivered twice while the relays are healthy. A relay that dies after publishing and
+ * before committing leaves its batch for the next one: delivery is at least once, deduplicate on
+ * {@link OutboxMessage#id()}. Rows are taken in id order, which is close to, but not exactly, commit order.
+ * <p>
+ * Meters: {@code banking.outbox.published} (events) and {@code banking.outbox.batch} (timer per batch).
+ */
+@Component
+@ConditionalOnProperty(name = "banking.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final String LOCK_BATCH = """
+            SELECT id, event_type, aggregate_id, payload, created_at
+            FROM transaction_outbox
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxSink sink;
+    private final int batchSize;
+    private final Counter published;
+    private final Timer batchTimer;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       OutboxSink sink,
+                       @Value("${banking.outbox.relay.batch-size:500}") int batchSize,
+                       MeterRegistry meterRegistry
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.published = Counter.builder("banking.outbox.published")
+                .description("Outbox events delivered to the sink")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("banking.outbox.batch")
+                .description("Lock, publish and delete of one outbox batch, including commit")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${banking.outbox.relay.poll-interval:500ms}")
+    public void poll() {
+        drain();
+    }
+
+    /**
+     * Relays batches until the outbox is drained or a batch fails.
+     *
+     * @return Events delivered
+     */
+    public long drain() {
+        long total = 0;
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+                total += relayed;
+            } while (relayed == batchSize);
+        } catch (RuntimeException ex) {
+            // The batch stays in the outbox and is retried on the next poll
+            logger.warn("outbox.relay_failed", kv("relayedBeforeFailure", total), ex);
+        }
+        return total;
+    }
+
+    /**
+     * @return Events delivered, {@code 0} when nothing was left to lock
+     */
+    public int relayBatch() {
+        Timer.Sample sample = Timer.start();
+        Integer relayed = transactionTemplate.execute(status -> {
+            List<OutboxMessage> batch = jdbcTemplate.query(LOCK_BATCH,
+                    (rs, rowNum) -> new OutboxMessage(
+                            rs.getLong(1),
+                            rs.getString(2),
+                            rs.getObject(3, UUID.class),
+                            rs.getString(4),
+                            rs.getTimestamp(5).toInstant()),
+                    batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            sink.publish(batch);
+
+            Long[] ids = batch.stream().map(OutboxMessage::id).toArray(Long[]::new);
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement("DELETE FROM transaction_outbox WHERE id = ANY(?)");
+                ps.setArray(1, con.createArrayOf("bigint", ids));
+                return ps;
+            });
+            return batch.size();
+        });
+        if (relayed != null && relayed > 0) {
+            sample.stop(batchTimer);
+            published.increment(relayed);
+        }
+        return relayed == null ? 0 : relayed;
+    }
+}
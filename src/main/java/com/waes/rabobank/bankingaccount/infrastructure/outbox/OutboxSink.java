@@ -0,0 +1,15 @@
+package com.waes.rabobank.bankingaccount.infrastructure.outbox;
+
+import java.util.List;
+
+/**
+ * Destination of the {@link OutboxRelay}. Selected with {@code banking.outbox.sink}.
+ */
+public interface OutboxSink {
+
+    /**
+     * Delivers a batch in id order. Must only return once the batch is durable at the destination: the rows are
+     * deleted right after. Throwing leaves them in the outbox, to be delivered again.
+     */
+    void publish(List<OutboxMessage> batch);
+}
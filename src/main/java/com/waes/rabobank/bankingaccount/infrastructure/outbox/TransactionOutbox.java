@@ -0,0 +1,39 @@
+package com.waes.rabobank.bankingaccount.infrastructure.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Records events for downstream systems in the caller's transaction: they are published if and only if the
+ * money movement commits, and publishing never adds latency to the request. One insert per event.
+ */
+@Component
+public class TransactionOutbox {
+
+    public static final String WITHDRAWAL_COMPLETED = "withdrawal.completed";
+    public static final String TRANSFER_COMPLETED = "transfer.completed";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public TransactionOutbox(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String eventType, UUID aggregateId, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize " + eventType + " event", ex);
+        }
+        outboxEventRepository.save(new OutboxEvent(eventType, aggregateId, json));
+    }
+}
@@ -1,7 +1,10 @@
 package com.waes.rabobank.bankingaccount.infrastructure.persistence;
 
 import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountVersionDTO;
 import com.waes.rabobank.bankingaccount.domain.model.Account;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,18 +13,52 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, UUID> {
 
+    // Read model: constructor expression, no entity is hydrated or registered in the persistence context
     @Query("""
-            SELECT a
+            SELECT new com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO(
+                CAST(a.user.id AS string),
+                CAST(a.id AS string),
+                a.accountNumber,
+                a.balance,
+                a.currency)
+            FROM Account a
+            WHERE a.user.id = :userId
+            AND a.status = 'ACTIVE'
+            """)
+    List<AccountBalanceDTO> findBalancesByUserId(@Param("userId") UUID userId);
+
+    // Version-only read of the same rows: what the balances ETag is computed from
+    @Query("""
+            SELECT new com.waes.rabobank.bankingaccount.application.dto.AccountVersionDTO(
+                a.id,
+                COALESCE(a.version, 0))
             FROM Account a
             WHERE a.user.id = :userId
             AND a.status = 'ACTIVE'
             """)
-    List<Account> findBalancesByUserId(@Param("userId") UUID userId);
+    List<AccountVersionDTO> findVersionsByUserId(@Param("userId") UUID userId);
+
+    @Query("SELECT COALESCE(a.version, 0) FROM Account a WHERE a.id = :accountId")
+    Optional<Long> findVersionById(@Param("accountId") UUID accountId);
+
+    @Query("""
+            SELECT new com.waes.rabobank.bankingaccount.application.dto.AccountResponseDTO(
+                CAST(a.id AS string),
+                CAST(a.user.id AS string),
+                a.accountNumber,
+                a.balance,
+                a.currency,
+                CAST(a.status AS string))
+            FROM Account a
+            WHERE a.id = :accountId
+            """)
+    Optional<AccountResponseDTO> findAccountById(@Param("accountId") UUID accountId);
 
     // Admin use case only
     @Query("""
@@ -34,4 +71,18 @@ public interface AccountRepository extends JpaRepository<Account, UUID> {
             FROM Account a
             """)
     Page<AccountBalanceDTO> findAllAccounts(Pageable pageable);
+
+    // Admin use case only: keyset page over the primary key, same order as the sharded listing
+    @Query("""
+            SELECT new com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO(
+                CAST(a.user.id AS string),
+                CAST(a.id AS string),
+                a.accountNumber,
+                a.balance,
+                a.currency)
+            FROM Account a
+            WHERE a.id > :after
+            ORDER BY a.id
+            """)
+    List<AccountBalanceDTO> findPageAfter(@Param("after") UUID after, Limit limit);
 }
@@ -1,8 +1,10 @@
 package com.waes.rabobank.bankingaccount.infrastructure.persistence;
 
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
 import com.waes.rabobank.bankingaccount.domain.enums.TransactionType;
 import com.waes.rabobank.bankingaccount.domain.model.Transaction;
 import com.waes.rabobank.bankingaccount.domain.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,7 +17,36 @@ import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
 
-    Optional<User> findByEmailIgnoreCase(String email);
+    // Spelled out so the predicate matches the functional index idx_user_email_lower (V2)
+    @Query("""
+            SELECT u
+            FROM User u
+            WHERE lower(u.email) = lower(:email)
+            """)
+    Optional<User> findByEmailIgnoreCase(@Param("email") String email);
+
+    @Query("""
+            SELECT new com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO(
+                CAST(u.id AS string),
+                u.fullName,
+                u.email)
+            FROM User u
+            WHERE lower(u.email) LIKE :pattern ESCAPE '\\'
+            ORDER BY lower(u.email)
+            """)
+    List<UserResponseDTO> findByEmailPrefix(@Param("pattern") String pattern, Limit limit);
+
+    // Keyset page over the primary key, projected: the accounts collection is never touched
+    @Query("""
+            SELECT new com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO(
+                CAST(u.id AS string),
+                u.fullName,
+                u.email)
+            FROM User u
+            WHERE u.id > :after
+            ORDER BY u.id
+            """)
+    List<UserResponseDTO> findPageAfter(@Param("after") UUID after, Limit limit);
 
     @Query("""
             SELECT t 
@@ -0,0 +1,22 @@
+package com.waes.rabobank.bankingaccount.infrastructure.persistence.querybudget;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of SQL statements (database round trips) a method may issue, including the
+ * statements flushed when its transaction commits.
+ * <p>
+ * Enforced by {@link QueryBudgetInterceptor}: tests fail on overrun
+ * ({@code banking.query-budget.fail-on-exceed=true}), production logs and counts it.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+    int value();
+}
@@ -0,0 +1,45 @@
+package com.waes.rabobank.bankingaccount.infrastructure.persistence.querybudget;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+/**
+ * Wires the statement counter into Hibernate and the budget check around {@link QueryBudget} methods.
+ * The advisor runs outside {@code @Transactional}, so statements flushed at commit count as well.
+ */
+@Configuration(proxyBeanMethods = false)
+public class QueryBudgetConfiguration {
+
+    @Bean
+    HibernatePropertiesCustomizer queryCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCounter());
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor queryBudgetAdvisor(
+            ObjectProvider<EntityManagerFactory> entityManagerFactory,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${banking.query-budget.fail-on-exceed:false}") boolean failOnExceed
+    ) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(QueryBudget.class),
+                new QueryBudgetInterceptor(entityManagerFactory, meterRegistry, failOnExceed)
+        );
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+
+        return advisor;
+    }
+}
@@ -0,0 +1,83 @@
+package com.waes.rabobank.bankingaccount.infrastructure.persistence.querybudget;
+
+import com.waes.rabobank.bankingaccount.shared.exception.QueryBudgetExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+
+import java.lang.reflect.Method;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Compares the statements issued by a {@link QueryBudget} method with its budget after it returns.
+ * Failed invocations are not checked, the original exception wins.
+ * <p>
+ * When called inside an enclosing transaction (tests, nested services), its pending changes are flushed
+ * first so they are not charged to this method.
+ */
+public class QueryBudgetInterceptor implements MethodInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryBudgetInterceptor.class);
+
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final boolean failOnExceed;
+
+    public QueryBudgetInterceptor(
+            ObjectProvider<EntityManagerFactory> entityManagerFactory,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            boolean failOnExceed
+    ) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.meterRegistry = meterRegistry;
+        this.failOnExceed = failOnExceed;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        flushEnclosingTransaction();
+
+        long before = QueryCounter.current();
+        Object result = invocation.proceed();
+        long used = QueryCounter.current() - before;
+
+        Method method = invocation.getMethod();
+        QueryBudget budget = AnnotatedElementUtils.findMergedAnnotation(method, QueryBudget.class);
+        if (budget != null && used > budget.value()) {
+            onExceeded(method.getDeclaringClass().getSimpleName() + "." + method.getName(), budget.value(), used);
+        }
+        return result;
+    }
+
+    private void flushEnclosingTransaction() {
+        EntityManagerFactory factory = entityManagerFactory.getIfAvailable();
+        if (factory == null) {
+            return;
+        }
+        EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(factory);
+        if (entityManager != null && entityManager.isJoinedToTransaction()) {
+            entityManager.flush();
+        }
+    }
+
+    private void onExceeded(String operation, int budget, long used) {
+        if (failOnExceed) {
+            throw new QueryBudgetExceededException(operation, budget, used);
+        }
+        logger.warn("query_budget.exceeded",
+                kv("operation", operation),
+                kv("budget", budget),
+                kv("statements", used)
+        );
+        meterRegistry.ifAvailable(registry ->
+                registry.counter("banking.query.budget.exceeded", "operation", operation).increment());
+    }
+}
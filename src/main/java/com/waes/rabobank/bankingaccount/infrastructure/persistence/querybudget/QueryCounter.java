@@ -0,0 +1,32 @@
+package com.waes.rabobank.bankingaccount.infrastructure.persistence.querybudget;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts every SQL statement Hibernate prepares on the current thread.
+ * Registered as the Hibernate {@link StatementInspector}; the statement itself is returned unchanged.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * @return Monotonic number of statements issued by the current thread, compare two readings for a delta
+     */
+    public static long current() {
+        return COUNT.get()[0];
+    }
+
+    /**
+     * Adds statements another thread issued on behalf of the current one, like the group-commit committer.
+     */
+    public static void charge(long statements) {
+        COUNT.get()[0] += statements;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+}
@@ -0,0 +1,107 @@
+package com.waes.rabobank.bankingaccount.infrastructure.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * On-demand, time-boxed Java Flight Recorder recordings.
+ * <ul>
+ *     <li>{@code POST /actuator/jfr} {@code {"durationSeconds": 60}} starts a recording (profile settings + payment phases)</li>
+ *     <li>{@code GET /actuator/jfr} shows the state and file of the last recording</li>
+ *     <li>{@code DELETE /actuator/jfr} stops the running recording early and dumps it</li>
+ * </ul>
+ * Only one recording runs at a time; the duration is capped at {@value #MAX_DURATION_SECONDS} seconds.
+ * <p>
+ * Recordings are written to {@code banking.jfr.directory} (the temp directory by default). Only the last one is
+ * kept: starting a recording deletes the file of the previous one. Not exposed over HTTP in the prod profile.
+ */
+@Component
+@Endpoint(id = "jfr")
+public class JfrRecordingEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrRecordingEndpoint.class);
+
+    static final int DEFAULT_DURATION_SECONDS = 60;
+    static final int MAX_DURATION_SECONDS = 600;
+
+    private final Path directory;
+    private Recording recording;
+    private Path destination;
+
+    public JfrRecordingEndpoint(@Value("${banking.jfr.directory:${java.io.tmpdir}}") Path directory) {
+        this.directory = directory;
+    }
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("state", recording.getState().name());
+        status.put("startTime", recording.getStartTime());
+        status.put("duration", recording.getDuration());
+        status.put("file", destination.toString());
+
+        return status;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable Integer durationSeconds) throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("A JFR recording is already running");
+        }
+        if (recording != null) {
+            recording.close();
+            Files.deleteIfExists(destination);
+        }
+
+        int seconds = durationSeconds == null
+                ? DEFAULT_DURATION_SECONDS
+                : Math.clamp(durationSeconds, 1, MAX_DURATION_SECONDS);
+
+        destination = Files.createDirectories(directory).resolve("banking-account-" + Instant.now().getEpochSecond() + ".jfr");
+        recording = new Recording(Configuration.getConfiguration("profile"));
+        recording.setName("banking-account-on-demand");
+        recording.enable(PaymentPhaseEvent.class);
+        recording.setDuration(Duration.ofSeconds(seconds));
+        recording.setDestination(destination);
+        recording.setToDisk(true);
+        recording.start();
+
+        logger.info("jfr.recording_started", kv("durationSeconds", seconds), kv("file", destination));
+
+        return status();
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop(); // Dumps to the destination file
+            logger.info("jfr.recording_stopped", kv("file", destination));
+        }
+        return status();
+    }
+}
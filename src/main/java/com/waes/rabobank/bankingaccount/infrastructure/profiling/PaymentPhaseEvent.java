@@ -0,0 +1,25 @@
+package com.waes.rabobank.bankingaccount.infrastructure.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted for every phase of a withdrawal or transfer.
+ * Only costs a few nanoseconds unless a recording with this event enabled is running.
+ */
+@Name("com.waes.rabobank.PaymentPhase")
+@Label("Payment Phase")
+@Category({"Banking", "Payments"})
+@Description("Duration of one phase (load, validate, flush, insert) of a money operation")
+@StackTrace(false)
+class PaymentPhaseEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Phase")
+    String phase;
+}
@@ -0,0 +1,67 @@
+package com.waes.rabobank.bankingaccount.infrastructure.profiling;
+
+/**
+ * Splits a money operation into consecutive phases. Each phase is emitted as a {@link PaymentPhaseEvent}
+ * and, when enabled for the current request, appended to the {@code Server-Timing} response header.
+ *
+ * <pre>{@code
+ * PhaseTimer phases = PhaseTimer.start("withdrawal");
+ * phases.next("load_account");
+ * ...
+ * phases.next("validate");
+ * ...
+ * phases.end();
+ * }</pre>
+ */
+public final class PhaseTimer {
+
+    private final String operation;
+    private final ServerTimingContext serverTiming;
+
+    private String phase;
+    private long phaseStart;
+    private PaymentPhaseEvent event;
+
+    private PhaseTimer(String operation) {
+        this.operation = operation;
+        this.serverTiming = ServerTimingContext.current();
+    }
+
+    public static PhaseTimer start(String operation) {
+        return new PhaseTimer(operation);
+    }
+
+    /**
+     * Ends the current phase (if any) and starts the given one.
+     */
+    public void next(String phase) {
+        end();
+        this.phase = phase;
+        this.phaseStart = System.nanoTime();
+        this.event = new PaymentPhaseEvent();
+        this.event.begin();
+    }
+
+    /**
+     * Ends the current phase. Safe to call more than once, also from a finally block.
+     */
+    public void end() {
+        if (phase == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - phaseStart;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.phase = phase;
+            event.commit();
+        }
+        if (serverTiming != null) {
+            serverTiming.add(phase, elapsed);
+        }
+
+        phase = null;
+        event = null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.waes.rabobank.bankingaccount.infrastructure.profiling;
+
+/**
+ * Per-request collector of phase durations rendered as a {@code Server-Timing} header.
+ * Installed by {@link ServerTimingFilter} only when {@code banking.server-timing.enabled=true}.
+ */
+final class ServerTimingContext {
+
+    private static final ThreadLocal<ServerTimingContext> CURRENT = new ThreadLocal<>();
+
+    private final StringBuilder header = new StringBuilder(128);
+
+    static ServerTimingContext current() {
+        return CURRENT.get();
+    }
+
+    static void install() {
+        CURRENT.set(new ServerTimingContext());
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    void add(String name, long nanos) {
+        if (!header.isEmpty()) {
+            header.append(", ");
+        }
+        header.append(name).append(";dur=").append(nanos / 1_000 / 1_000.0);
+    }
+
+    String header() {
+        return header.toString();
+    }
+
+    boolean isEmpty() {
+        return header.isEmpty();
+    }
+}
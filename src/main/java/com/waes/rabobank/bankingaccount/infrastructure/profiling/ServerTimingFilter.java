@@ -0,0 +1,34 @@
+package com.waes.rabobank.bankingaccount.infrastructure.profiling;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Opens a {@link ServerTimingContext} for each request. The header itself is written by
+ * {@link ServerTimingResponseAdvice}, right before the body is serialized.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.server-timing.enabled", havingValue = "true")
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        ServerTimingContext.install();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ServerTimingContext.clear();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ratelimit;
+
+import com.waes.rabobank.bankingaccount.application.dto.TransferRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.shared.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+
+/**
+ * Rate limits withdrawals and transfers per user ({@code X-User-Id}) and per card (the {@code cardId} of the body),
+ * each with its own {@link TokenBucketRateLimiter}. Runs once the body is read, in whatever encoding, and before it
+ * is validated; a request over either limit gets a {@link RateLimitExceededException} (429 + {@code Retry-After})
+ * and takes a token from neither.
+ * <pre>
+ * banking.ratelimit.&lt;user|card&gt;.capacity            burst size
+ * banking.ratelimit.&lt;user|card&gt;.refill-per-second   sustained rate
+ * banking.ratelimit.max-keys                        buckets kept per limiter
+ * </pre>
+ * Meters: {@code banking.ratelimit.rejected} and {@code banking.ratelimit.keys}, tagged {@code scope}.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "banking.ratelimit.enabled", havingValue = "true", matchIfMissing = true)
+public class PaymentRateLimitAdvice extends RequestBodyAdviceAdapter {
+
+    static final String USER_ID_HEADER = "X-User-Id";
+
+    private static final int STRIPES = 64;
+
+    private final TokenBucketRateLimiter userLimiter;
+    private final TokenBucketRateLimiter cardLimiter;
+    private final Counter userRejected;
+    private final Counter cardRejected;
+
+    public PaymentRateLimitAdvice(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        int maxKeys = environment.getProperty("banking.ratelimit.max-keys", Integer.class, 100_000);
+        this.userLimiter = limiter(environment, "user", 20, 5, maxKeys);
+        this.cardLimiter = limiter(environment, "card", 10, 1, maxKeys);
+
+        // Web slices run without the metrics auto-configuration, fall back to the (no-op) global registry there
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.userRejected = rejectedCounter(registry, "user", userLimiter);
+        this.cardRejected = rejectedCounter(registry, "card", cardLimiter);
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return targetType == WithdrawalRequestDTO.class || targetType == TransferRequestDTO.class;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        String userId = inputMessage.getHeaders().getFirst(USER_ID_HEADER);
+        String cardId = body instanceof WithdrawalRequestDTO withdrawal ? withdrawal.cardId()
+                : body instanceof TransferRequestDTO transfer ? transfer.cardId()
+                : null;
+        boolean limitUser = userId != null && !userId.isBlank();
+        // A missing card id is left to validation
+        boolean limitCard = cardId != null && !cardId.isBlank();
+
+        // Both limits are checked before either token is taken: a request rejected for its card costs its user nothing
+        if (limitUser) {
+            check(userLimiter.waitNanos(userId), "user", userRejected);
+        }
+        if (limitCard) {
+            check(cardLimiter.waitNanos(cardId), "card", cardRejected);
+        }
+        if (limitUser) {
+            check(userLimiter.tryAcquire(userId), "user", userRejected);
+        }
+        if (limitCard) {
+            long waitNanos = cardLimiter.tryAcquire(cardId);
+            if (waitNanos > 0 && limitUser) {
+                // Another request for the card took its token in between
+                userLimiter.release(userId);
+            }
+            check(waitNanos, "card", cardRejected);
+        }
+        return body;
+    }
+
+    private static void check(long waitNanos, String scope, Counter rejected) {
+        if (waitNanos > 0) {
+            rejected.increment();
+            // Retry-After is in whole seconds, round up so the retry finds a token
+            throw new RateLimitExceededException(scope, Duration.ofSeconds(Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000)));
+        }
+    }
+
+    private static TokenBucketRateLimiter limiter(Environment environment, String scope, int capacity,
+                                                  double refillPerSecond, int maxKeys) {
+        String prefix = "banking.ratelimit." + scope + ".";
+        return new TokenBucketRateLimiter(
+                environment.getProperty(prefix + "capacity", Integer.class, capacity),
+                environment.getProperty(prefix + "refill-per-second", Double.class, refillPerSecond),
+                maxKeys,
+                STRIPES);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String scope, TokenBucketRateLimiter limiter) {
+        Gauge.builder("banking.ratelimit.keys", limiter, TokenBucketRateLimiter::size)
+                .description("Token buckets held by the payment rate limiter")
+                .tag("scope", scope)
+                .register(registry);
+        return Counter.builder("banking.ratelimit.rejected")
+                .description("Payment requests rejected with 429")
+                .tag("scope", scope)
+                .register(registry);
+    }
+}
@@ -0,0 +1,185 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ratelimit;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Token bucket per key: up to {@code capacity} requests in a burst, refilled at {@code refillPerSecond}.
+ * <p>
+ * Buckets are refilled lazily, on the next request of their key; there is no timer. They live in a fixed number of
+ * stripes, each an LRU map behind its own lock, so requests for different keys rarely wait on each other and a
+ * request for a known key allocates nothing.
+ * <p>
+ * State is bounded: a stripe holds at most {@code maxKeys / stripes} buckets. Only a bucket idle for the time it
+ * takes to refill completely is dropped: it would be full again, which is exactly what a new bucket is, so nothing
+ * is forgotten. A new key that finds its stripe full of buckets still refilling gets no bucket of its own; it draws
+ * from one bucket shared by every such key of the stripe until room frees up, so flooding the limiter with keys
+ * cannot reset anyone's budget.
+ */
+public class TokenBucketRateLimiter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final long idleNanos;
+    private final Stripe[] stripes;
+
+    public TokenBucketRateLimiter(int capacity, double refillPerSecond, int maxKeys, int stripes) {
+        if (capacity < 1 || refillPerSecond <= 0 || stripes < 1 || Integer.bitCount(stripes) != 1 || maxKeys < stripes) {
+            throw new IllegalArgumentException("Invalid rate limit: capacity=" + capacity + ", refillPerSecond="
+                    + refillPerSecond + ", maxKeys=" + maxKeys + ", stripes=" + stripes + " (a power of two)");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerSecond / NANOS_PER_SECOND;
+        this.idleNanos = (long) Math.ceil(capacity / tokensPerNano);
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe(maxKeys / stripes);
+        }
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next one is available
+     */
+    public long tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    long tryAcquire(String key, long nowNanos) {
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            Bucket bucket = stripe.bucketOf(key, nowNanos);
+            bucket.refill(nowNanos);
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return waitNanos(bucket.tokens);
+        }
+    }
+
+    /**
+     * Checks without taking a token or creating a bucket, so a request can be checked against several limiters
+     * before it takes from any of them.
+     *
+     * @return 0 if a token is available, otherwise the nanoseconds until the next one is
+     */
+    public long waitNanos(String key) {
+        return waitNanos(key, System.nanoTime());
+    }
+
+    long waitNanos(String key, long nowNanos) {
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            Bucket bucket = stripe.get(key);
+            if (bucket == null) {
+                if (stripe.size() < stripe.maxKeys || stripe.idle(nowNanos) || stripe.shared == null) {
+                    return 0;
+                }
+                bucket = stripe.shared;
+            }
+            double tokens = Math.min(capacity, bucket.tokens + Math.max(0, nowNanos - bucket.refilledAt) * tokensPerNano);
+            return tokens >= 1 ? 0 : waitNanos(tokens);
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire(String)}, for a request another limiter rejected meanwhile.
+     */
+    public void release(String key) {
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            Bucket bucket = stripe.get(key);
+            if (bucket == null) {
+                bucket = stripe.shared;
+            }
+            if (bucket != null) {
+                bucket.tokens = Math.min(capacity, bucket.tokens + 1);
+            }
+        }
+    }
+
+    /**
+     * @return Buckets currently held, across all stripes
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private long waitNanos(double tokens) {
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    private Stripe stripeOf(String key) {
+        int hash = key.hashCode();
+        // Spread the high bits, String hashes of similar ids differ mostly in the low ones
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private final class Bucket {
+
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+
+        private void refill(long nowNanos) {
+            long elapsed = nowNanos - refilledAt;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+                refilledAt = nowNanos;
+            }
+        }
+    }
+
+    // Access-ordered, and every access refills, so buckets are in refilledAt order: the idle ones come first.
+    // Guarded by itself
+    private final class Stripe extends LinkedHashMap<String, Bucket> {
+
+        private final int maxKeys;
+        private Bucket shared;
+
+        private Stripe(int maxKeys) {
+            super(16, 0.75f, true);
+            this.maxKeys = maxKeys;
+        }
+
+        private Bucket bucketOf(String key, long nowNanos) {
+            Bucket bucket = get(key);
+            if (bucket != null) {
+                return bucket;
+            }
+            evictIdle(nowNanos);
+            if (size() >= maxKeys) {
+                if (shared == null) {
+                    shared = new Bucket(capacity, nowNanos);
+                }
+                return shared;
+            }
+            bucket = new Bucket(capacity, nowNanos);
+            put(key, bucket);
+            return bucket;
+        }
+
+        private boolean idle(long nowNanos) {
+            return !isEmpty() && nowNanos - values().iterator().next().refilledAt >= idleNanos;
+        }
+
+        private void evictIdle(long nowNanos) {
+            Iterator<Bucket> buckets = values().iterator();
+            while (buckets.hasNext() && nowNanos - buckets.next().refilledAt >= idleNanos) {
+                buckets.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.waes.rabobank.bankingaccount.infrastructure.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardRegistry;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.WorkloadClass;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.WorkloadHandlerFilter;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.WorkloadLimiters;
+import com.waes.rabobank.bankingaccount.shared.exception.GlobalExceptionHandler;
+import com.waes.rabobank.bankingaccount.shared.exception.ShardingUnsupportedException;
+import com.waes.rabobank.bankingaccount.shared.exception.UserNotFoundException;
+import com.waes.rabobank.bankingaccount.shared.exception.WorkloadRejectedException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ServletHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Mounts the reactive read API next to the MVC controllers: WebFlux functional routes, adapted to a servlet of
+ * their own on {@code /reactive/*} in the same Tomcat. Tomcat hands the request over in async mode, so the
+ * container thread returns to the pool at once and the response is written when R2DBC delivers the rows.
+ * <p>
+ * Writes stay on the JPA path under {@code /api}.
+ * <pre>
+ * GET /reactive/api/accounts          (X-User-Id)
+ * GET /reactive/api/users?after=&amp;size=
+ * GET /reactive/api/users/search?email=
+ * </pre>
+ * Errors are rendered by the {@link GlobalExceptionHandler}, as for the MVC endpoints. R2DBC reads the primary
+ * database, so every route answers {@code 501} while sharding is on.
+ * <p>
+ * The MVC interceptors do not run on this servlet. Each route is admitted through the workload bulkhead of the
+ * MVC endpoint it mirrors instead ({@link WorkloadHandlerFilter}). Server-Timing is not written here, and the
+ * payment rate limits do not apply: there are no payments on this path.
+ */
+@Configuration
+@ConditionalOnProperty(name = "banking.reactive-read.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveReadConfiguration {
+
+    static final String MOUNT_PATH = "/reactive";
+
+    @Bean
+    RouterFunction<ServerResponse> reactiveReadRoutes(ReactiveReadHandler handler, GlobalExceptionHandler exceptionHandler,
+                                                      ShardRegistry shards, ObjectProvider<WorkloadLimiters> workloadLimiters) {
+        WorkloadLimiters limiters = workloadLimiters.getIfAvailable();
+        return RouterFunctions.route()
+                // Same classes as the MVC endpoints they mirror
+                .path("/api", api -> api
+                        .GET("/accounts", admitted(limiters, WorkloadClass.CUSTOMER_READ, handler::getBalances))
+                        .GET("/users/search", admitted(limiters, WorkloadClass.CUSTOMER_READ, handler::searchUsers))
+                        .GET("/users", admitted(limiters, WorkloadClass.REPORTING, handler::getUsers)))
+                .onError(WorkloadRejectedException.class,
+                        (ex, request) -> problem(exceptionHandler.handleWorkloadRejectedException((WorkloadRejectedException) ex)))
+                .onError(UserNotFoundException.class,
+                        (ex, request) -> problem(exceptionHandler.handleUserNotFoundException((UserNotFoundException) ex)))
+                .onError(ShardingUnsupportedException.class,
+                        (ex, request) -> problem(exceptionHandler.handleShardingUnsupportedException((ShardingUnsupportedException) ex)))
+                .onError(IllegalArgumentException.class,
+                        (ex, request) -> problem(exceptionHandler.handleIllegalArgumentException((IllegalArgumentException) ex)))
+                // Declared after the error handlers, so they render its error
+                .filter((request, next) -> shards.isEnabled()
+                        ? Mono.error(new ShardingUnsupportedException("Reactive read API"))
+                        : next.handle(request))
+                .build();
+    }
+
+    @Bean
+    ServletRegistrationBean<ServletHttpHandlerAdapter> reactiveReadServlet(RouterFunction<ServerResponse> reactiveReadRoutes,
+                                                                          ObjectMapper objectMapper) {
+        // The application's ObjectMapper, so both stacks write the same JSON
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+
+        ServletRegistrationBean<ServletHttpHandlerAdapter> registration = new ServletRegistrationBean<>(
+                new ServletHttpHandlerAdapter(RouterFunctions.toHttpHandler(reactiveReadRoutes, strategies)),
+                MOUNT_PATH + "/*");
+        registration.setName("reactiveRead");
+        registration.setAsyncSupported(true);
+        registration.setLoadOnStartup(1);
+        return registration;
+    }
+
+    // banking.workload.enabled=false admits every request, as on the MVC path
+    private static HandlerFunction<ServerResponse> admitted(WorkloadLimiters limiters, WorkloadClass workload,
+                                                            HandlerFunction<ServerResponse> handler) {
+        return limiters == null ? handler : new WorkloadHandlerFilter(limiters, workload).apply(handler);
+    }
+
+    private static Mono<ServerResponse> problem(ResponseEntity<ProblemDetail> response) {
+        return ServerResponse.status(response.getStatusCode())
+                .headers(headers -> headers.addAll(response.getHeaders()))
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .bodyValue(response.getBody());
+    }
+
+    private static Mono<ServerResponse> problem(ProblemDetail problem) {
+        return ServerResponse.status(problem.getStatus())
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .bodyValue(problem);
+    }
+}
@@ -0,0 +1,120 @@
+package com.waes.rabobank.bankingaccount.infrastructure.reactive;
+
+import com.waes.rabobank.bankingaccount.application.dto.UserPageDTO;
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
+import com.waes.rabobank.bankingaccount.application.service.AccountService;
+import com.waes.rabobank.bankingaccount.application.service.UserService;
+import com.waes.rabobank.bankingaccount.infrastructure.directory.UserDirectoryIndex;
+import com.waes.rabobank.bankingaccount.shared.exception.UserNotFoundException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Handler functions of the reactive read API. Same contracts as {@code AccountController.getAllAccounts} and
+ * {@code UserController}; nothing here blocks, so a request holds neither a thread nor a connection while it
+ * waits for the database.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.reactive-read.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveReadHandler {
+
+    private static final String USER_ID_HEADER = "X-User-Id";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    // Sorts before every UUID, keyset pagination starts after it
+    private static final UUID FIRST_CURSOR = new UUID(0L, 0L);
+
+    private final ReactiveReadRepository repository;
+    private final UserDirectoryIndex userDirectoryIndex;
+
+    public ReactiveReadHandler(ReactiveReadRepository repository, UserDirectoryIndex userDirectoryIndex) {
+        this.repository = repository;
+        this.userDirectoryIndex = userDirectoryIndex;
+    }
+
+    public Mono<ServerResponse> getBalances(ServerRequest request) {
+        // Deferred so that validation errors travel down the chain to the route's onError handlers
+        return Mono.defer(() -> balances(request));
+    }
+
+    public Mono<ServerResponse> getUsers(ServerRequest request) {
+        return Mono.defer(() -> users(request));
+    }
+
+    public Mono<ServerResponse> searchUsers(ServerRequest request) {
+        return Mono.defer(() -> search(request));
+    }
+
+    // Versions first for the ETag, as on the MVC path; balances projection only when If-None-Match misses
+    private Mono<ServerResponse> balances(ServerRequest request) {
+        UUID userId = parseUuid(request.headers().firstHeader(USER_ID_HEADER), USER_ID_HEADER);
+
+        return repository.findVersionsByUserId(userId)
+                .collectList()
+                .map(versions -> AccountService.eTagOf(userId, versions))
+                .flatMap(eTag -> request.checkNotModified(eTag)
+                        .switchIfEmpty(Mono.defer(() -> balances(userId, eTag))));
+    }
+
+    // Existence check only when the user has no active account
+    private Mono<ServerResponse> balances(UUID userId, String eTag) {
+        return repository.findBalancesByUserId(userId)
+                .collectList()
+                .flatMap(balances -> balances.isEmpty()
+                        ? repository.existsUserById(userId).flatMap(exists -> exists
+                                ? Mono.just(balances)
+                                : Mono.error(new UserNotFoundException(userId)))
+                        : Mono.just(balances))
+                .flatMap(balances -> ServerResponse.ok().eTag(eTag).bodyValue(balances));
+    }
+
+    private Mono<ServerResponse> users(ServerRequest request) {
+        int size = request.queryParam("size").map(Integer::parseInt).orElse(DEFAULT_PAGE_SIZE);
+        if (size < 1 || size > UserService.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + UserService.MAX_PAGE_SIZE);
+        }
+        UUID after = request.queryParam("after")
+                .filter(cursor -> !cursor.isBlank())
+                .map(cursor -> parseUuid(cursor, "cursor"))
+                .orElse(FIRST_CURSOR);
+
+        // One extra row tells whether another page exists without a count query
+        return repository.findUsersAfter(after, size + 1)
+                .collectList()
+                .map(users -> users.size() <= size
+                        ? new UserPageDTO(users, null)
+                        : new UserPageDTO(List.copyOf(users.subList(0, size)), users.get(size - 1).id()))
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    // Served from the directory index, the database is only asked on a miss
+    private Mono<ServerResponse> search(ServerRequest request) {
+        String email = request.queryParam("email")
+                .filter(value -> !value.isBlank())
+                .orElseThrow(() -> new IllegalArgumentException("Email must not be blank"));
+
+        Mono<UserResponseDTO> user = userDirectoryIndex.findByEmail(email)
+                .map(Mono::just)
+                .orElseGet(() -> repository.findUserByEmail(email.trim()));
+        return user
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException(email)))
+                .flatMap(found -> ServerResponse.ok().bodyValue(found));
+    }
+
+    private static UUID parseUuid(String value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.waes.rabobank.bankingaccount.infrastructure.reactive;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountVersionDTO;
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+/**
+ * Non-blocking reads over R2DBC for the {@code /reactive} API: the same projections as the JPA repositories,
+ * written as SQL.
+ * <p>
+ * The pool is private to this class on purpose. A {@code ConnectionFactory} bean would make Spring Boot back off
+ * the JDBC {@code DataSource} that JPA, Flyway and every write depend on. It connects to the database the
+ * {@code DataSource} uses and holds at most {@code banking.reactive-read.pool.max-size} connections, whatever the
+ * number of requests in flight.
+ * <p>
+ * Meters: {@code banking.reactive_read.pool.acquired} and {@code banking.reactive_read.pool.pending}.
+ */
+@Repository
+@ConditionalOnProperty(name = "banking.reactive-read.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveReadRepository {
+
+    private static final String BALANCES_BY_USER = """
+            SELECT a.user_id, a.id, a.account_number, a.balance, a.currency
+            FROM accounts a
+            WHERE a.user_id = :userId
+            AND a.status = 'ACTIVE'
+            """;
+    private static final String VERSIONS_BY_USER = """
+            SELECT a.id, COALESCE(a.version, 0) AS version
+            FROM accounts a
+            WHERE a.user_id = :userId
+            AND a.status = 'ACTIVE'
+            """;
+    private static final String USER_PAGE_AFTER = """
+            SELECT u.id, u.full_name, u.email
+            FROM users u
+            WHERE u.id > :after
+            ORDER BY u.id
+            LIMIT :limit
+            """;
+    // Matches the functional index idx_user_email_lower (V2)
+    private static final String USER_BY_EMAIL = """
+            SELECT u.id, u.full_name, u.email
+            FROM users u
+            WHERE lower(u.email) = lower(:email)
+            """;
+
+    private final ConnectionPool pool;
+    private final DatabaseClient databaseClient;
+
+    public ReactiveReadRepository(
+            JdbcConnectionDetails jdbcConnectionDetails,
+            @Value("${banking.reactive-read.pool.initial-size:2}") int initialSize,
+            @Value("${banking.reactive-read.pool.max-size:10}") int maxSize,
+            @Value("${banking.reactive-read.pool.max-acquire-time:5s}") Duration maxAcquireTime,
+            MeterRegistry meterRegistry
+    ) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(toR2dbcUrl(jdbcConnectionDetails.getJdbcUrl()))
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, jdbcConnectionDetails.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, jdbcConnectionDetails.getPassword())
+                .build();
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive-read")
+                .initialSize(Math.min(initialSize, maxSize))
+                .maxSize(maxSize)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+        this.databaseClient = DatabaseClient.create(pool);
+
+        Gauge.builder("banking.reactive_read.pool.acquired", pool, p -> metric(p, PoolMetrics::acquiredSize))
+                .description("R2DBC connections in use by the reactive read API")
+                .register(meterRegistry);
+        Gauge.builder("banking.reactive_read.pool.pending", pool, p -> metric(p, PoolMetrics::pendingAcquireSize))
+                .description("Reactive reads waiting for an R2DBC connection")
+                .register(meterRegistry);
+    }
+
+    public Flux<AccountBalanceDTO> findBalancesByUserId(UUID userId) {
+        return databaseClient.sql(BALANCES_BY_USER)
+                .bind("userId", userId)
+                .map(ReactiveReadRepository::toBalance)
+                .all();
+    }
+
+    public Flux<AccountVersionDTO> findVersionsByUserId(UUID userId) {
+        return databaseClient.sql(VERSIONS_BY_USER)
+                .bind("userId", userId)
+                .map(row -> new AccountVersionDTO(row.get("id", UUID.class), row.get("version", Long.class)))
+                .all();
+    }
+
+    public Mono<Boolean> existsUserById(UUID userId) {
+        return databaseClient.sql("SELECT 1 FROM users WHERE id = :id")
+                .bind("id", userId)
+                .map(row -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    public Flux<UserResponseDTO> findUsersAfter(UUID after, int limit) {
+        return databaseClient.sql(USER_PAGE_AFTER)
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveReadRepository::toUser)
+                .all();
+    }
+
+    public Mono<UserResponseDTO> findUserByEmail(String email) {
+        return databaseClient.sql(USER_BY_EMAIL)
+                .bind("email", email)
+                .map(ReactiveReadRepository::toUser)
+                .first();
+    }
+
+    /**
+     * @return Connections in use right now, for load tests
+     */
+    public int acquiredConnections() {
+        return metric(pool, PoolMetrics::acquiredSize);
+    }
+
+    /**
+     * @return Reads waiting for a connection right now, for load tests
+     */
+    public int pendingAcquires() {
+        return metric(pool, PoolMetrics::pendingAcquireSize);
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.dispose();
+    }
+
+    // jdbc:postgresql://host:port/db?params -> r2dbc:postgresql://host:port/db?params
+    static String toR2dbcUrl(String jdbcUrl) {
+        if (jdbcUrl == null || !jdbcUrl.startsWith("jdbc:postgresql:")) {
+            throw new IllegalStateException("Reactive reads need a PostgreSQL JDBC URL, got " + jdbcUrl);
+        }
+        return "r2dbc:" + jdbcUrl.substring("jdbc:".length());
+    }
+
+    private static AccountBalanceDTO toBalance(Readable row) {
+        return new AccountBalanceDTO(
+                row.get("user_id", UUID.class).toString(),
+                row.get("id", UUID.class).toString(),
+                row.get("account_number", String.class),
+                row.get("balance", BigDecimal.class),
+                row.get("currency", String.class));
+    }
+
+    private static UserResponseDTO toUser(Readable row) {
+        return new UserResponseDTO(
+                row.get("id", UUID.class).toString(),
+                row.get("full_name", String.class),
+                row.get("email", String.class));
+    }
+
+    private static int metric(ConnectionPool pool, ToIntFunction<PoolMetrics> metric) {
+        return pool.getMetrics().map(metric::applyAsInt).orElse(0);
+    }
+}
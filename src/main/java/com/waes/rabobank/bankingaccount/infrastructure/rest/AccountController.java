@@ -4,12 +4,17 @@ import com.waes.rabobank.bankingaccount.application.dto.*;
 import com.waes.rabobank.bankingaccount.application.service.AccountService;
 import com.waes.rabobank.bankingaccount.application.service.TransferService;
 import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.waes.rabobank.bankingaccount.infrastructure.stream.BalanceStreamHub;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.Workload;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.WorkloadClass;
 import com.waes.rabobank.bankingaccount.shared.exception.AccountIdMismatchException;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,27 +25,48 @@ public class AccountController {
     private final AccountService accountService;
     private final WithdrawalService withdrawalService;
     private final TransferService transferService;
+    private final BalanceStreamHub balanceStreamHub;
 
     public AccountController(AccountService accountService,
                              WithdrawalService withdrawalService,
-                             TransferService transferService
+                             TransferService transferService,
+                             BalanceStreamHub balanceStreamHub
     ) {
         this.accountService = accountService;
         this.withdrawalService = withdrawalService;
         this.transferService = transferService;
+        this.balanceStreamHub = balanceStreamHub;
     }
 
     // Get All accounts balance of the authenticated user
+    // The ETag is read first: a write racing with the body read costs one extra 200, never a stale 304
+    @Workload(WorkloadClass.CUSTOMER_READ)
     @GetMapping
-    public List<AccountBalanceDTO> getAllAccounts(
+    public ResponseEntity<List<AccountBalanceDTO>> getAllAccounts(
+            @RequestHeader("X-User-Id") String authenticatedUserId,
+            WebRequest webRequest
+    ) {
+        UUID userId = UUID.fromString(authenticatedUserId);
+
+        String eTag = accountService.getBalancesETag(userId);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(accountService.getBalancesByUserId(userId));
+    }
+
+    // Balances of the authenticated user as server-sent events: the current ones first, then every committed change
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBalances(
             @RequestHeader("X-User-Id") String authenticatedUserId
     ) {
         UUID userId = UUID.fromString(authenticatedUserId);
 
-        return accountService.getBalancesByUserId(userId);
+        return balanceStreamHub.subscribe(userId.toString(), () -> accountService.getBalancesByUserId(userId));
     }
 
     // Withdraw
+    @Workload(WorkloadClass.PAYMENT)
     @PostMapping("/{accountId}/withdraw")
     public WithdrawalResponseDTO withdraw(
             //@RequestHeader("X-User-Id") String authenticatedUserId,
@@ -55,6 +81,7 @@ public class AccountController {
     }
 
     // Transfer
+    @Workload(WorkloadClass.PAYMENT)
     @PostMapping("/{accountId}/transfer")
     public TransferResponseDTO transfer(
             //@RequestHeader("X-User-Id") String authenticatedUserId,
@@ -69,20 +96,17 @@ public class AccountController {
     }
 
     // Utils
+    @Workload(WorkloadClass.CUSTOMER_READ)
     @GetMapping("/{id}")
-    public AccountResponseDTO getAccount(@PathVariable UUID id) {
-        // Dummy implementation
-        return new AccountResponseDTO(
-                id.toString(),
-                "NL01RABO0123456789",
-                BigDecimal.valueOf(1000.50),
-                "EUR",
-                "Main Account",
-                "SAVINGS",
-                "ACTIVE"
-        );
+    public ResponseEntity<AccountResponseDTO> getAccount(@PathVariable UUID id, WebRequest webRequest) {
+        String eTag = accountService.getAccountETag(id);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(accountService.getAccount(id));
     }
 
+    @Workload(WorkloadClass.CUSTOMER_READ)
     @GetMapping("/count")
     public Long getAccountsCount() {
         // Dummy implementation
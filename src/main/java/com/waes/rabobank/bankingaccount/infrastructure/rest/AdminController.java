@@ -1,24 +1,37 @@
 package com.waes.rabobank.bankingaccount.infrastructure.rest;
 
 import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountPageDTO;
+import com.waes.rabobank.bankingaccount.application.dto.BalanceTotalDTO;
+import com.waes.rabobank.bankingaccount.application.dto.PaymentVolumeDTO;
 import com.waes.rabobank.bankingaccount.application.service.AccountService;
+import com.waes.rabobank.bankingaccount.application.service.BankAggregateService;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.Workload;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.WorkloadClass;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @RestController
 @RequestMapping("/admin")
+@Workload(WorkloadClass.REPORTING)
 public class AdminController {
 
     private final AccountService accountService;
+    private final BankAggregateService bankAggregateService;
 
-    public AdminController(AccountService accountService) {
+    public AdminController(AccountService accountService, BankAggregateService bankAggregateService) {
         this.accountService = accountService;
+        this.bankAggregateService = bankAggregateService;
     }
 
     @GetMapping("/accounts")
@@ -32,4 +45,34 @@ public class AdminController {
         return ResponseEntity.ok(accounts);
     }
 
+    // Keyset pages in account id order; with sharding, gathered from every shard
+    @GetMapping("/accounts/keyset")
+    public ResponseEntity<AccountPageDTO> getAccountsAfter(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        return ResponseEntity.ok(accountService.getAccountsAfter(after, size));
+    }
+
+    // Served from the aggregate tables; 404 while they are not maintained (banking.aggregates.enabled=false)
+    @GetMapping("/aggregates/balances")
+    public ResponseEntity<List<BalanceTotalDTO>> getBalanceTotals() {
+        if (!bankAggregateService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(bankAggregateService.getBalanceTotals());
+    }
+
+    // Per day, transaction type and currency; one day (today) by default
+    @GetMapping("/aggregates/volumes")
+    public ResponseEntity<List<PaymentVolumeDTO>> getPaymentVolumes(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        if (!bankAggregateService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(bankAggregateService.getPaymentVolumes(from, to));
+    }
+
 }
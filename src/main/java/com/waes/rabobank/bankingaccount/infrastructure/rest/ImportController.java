@@ -0,0 +1,54 @@
+package com.waes.rabobank.bankingaccount.infrastructure.rest;
+
+import com.waes.rabobank.bankingaccount.application.dto.CustomerImportResultDTO;
+import com.waes.rabobank.bankingaccount.application.service.CustomerImportService;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.ImportFormat;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.RejectFiles;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.Workload;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.WorkloadClass;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/imports")
+@Workload(WorkloadClass.REPORTING)
+public class ImportController {
+
+    private static final String TEXT_CSV = "text/csv";
+
+    private final CustomerImportService customerImportService;
+    private final RejectFiles rejectFiles;
+
+    public ImportController(CustomerImportService customerImportService, RejectFiles rejectFiles) {
+        this.customerImportService = customerImportService;
+        this.rejectFiles = rejectFiles;
+    }
+
+    // The request body is read as a stream, never buffered whole
+    @PostMapping(value = "/customers", consumes = TEXT_CSV)
+    public CustomerImportResultDTO importCustomersCsv(InputStream body) {
+        return customerImportService.importCustomers(body, ImportFormat.CSV);
+    }
+
+    @PostMapping(value = "/customers", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public CustomerImportResultDTO importCustomersNdjson(InputStream body) {
+        return customerImportService.importCustomers(body, ImportFormat.NDJSON);
+    }
+
+    @GetMapping(value = "/customers/{importId}/rejects", produces = TEXT_CSV)
+    public ResponseEntity<Resource> getRejects(@PathVariable UUID importId) {
+        return rejectFiles.find(importId)
+                .<ResponseEntity<Resource>>map(path -> ResponseEntity.ok(new FileSystemResource(path)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
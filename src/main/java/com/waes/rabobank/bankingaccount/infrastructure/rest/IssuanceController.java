@@ -0,0 +1,32 @@
+package com.waes.rabobank.bankingaccount.infrastructure.rest;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountIssuanceRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountIssuanceResultDTO;
+import com.waes.rabobank.bankingaccount.application.service.AccountIssuanceService;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.Workload;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.WorkloadClass;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/issuance")
+@Workload(WorkloadClass.REPORTING)
+public class IssuanceController {
+
+    private final AccountIssuanceService accountIssuanceService;
+
+    public IssuanceController(AccountIssuanceService accountIssuanceService) {
+        this.accountIssuanceService = accountIssuanceService;
+    }
+
+    @PostMapping("/accounts")
+    @ResponseStatus(HttpStatus.CREATED)
+    public AccountIssuanceResultDTO issueAccounts(@Valid @RequestBody AccountIssuanceRequestDTO request) {
+        return accountIssuanceService.issueAccounts(request);
+    }
+}
@@ -1,31 +1,90 @@
 package com.waes.rabobank.bankingaccount.infrastructure.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.waes.rabobank.bankingaccount.application.dto.UserPageDTO;
 import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
 import com.waes.rabobank.bankingaccount.application.service.UserService;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.Workload;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.WorkloadClass;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
+    private static final int STREAM_PAGE_SIZE = 1000;
+
     private final UserService userService;
+    private final ObjectWriter userWriter;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        // The response stream stays open between lines
+        this.userWriter = objectMapper.writerFor(UserResponseDTO.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
+    @Workload(WorkloadClass.REPORTING)
     @GetMapping
-    public List<UserResponseDTO> getUsers() {
-        return userService.getAllUsers();
+    public UserPageDTO getUsers(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        return userService.getUsers(after, size);
+    }
+
+    // One JSON document per line, flushed page by page: the first bytes leave before the table is read
+    @Workload(WorkloadClass.REPORTING)
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        StreamingResponseBody body = out -> {
+            try {
+                userService.streamUsers(STREAM_PAGE_SIZE, page -> {
+                    try {
+                        for (UserResponseDTO user : page) {
+                            userWriter.writeValue(out, user);
+                            out.write('\n');
+                        }
+                        out.flush();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
+    @Workload(WorkloadClass.CUSTOMER_READ)
     @GetMapping("/search")
     public UserResponseDTO searchUsers(@RequestParam String email) {
         return userService.searchUserByEmail(email);
     }
+
+    // Type-ahead for support staff: email prefix or name tokens ("jan de v")
+    @Workload(WorkloadClass.CUSTOMER_READ)
+    @GetMapping("/suggest")
+    public List<UserResponseDTO> suggestUsers(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return userService.suggestUsers(q, limit);
+    }
 }
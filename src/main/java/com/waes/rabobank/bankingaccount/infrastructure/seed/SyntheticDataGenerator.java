@@ -0,0 +1,205 @@
+package com.waes.rabobank.bankingaccount.infrastructure.seed;
+
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedules;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregateVerifier;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Loads a production-sized synthetic dataset ({@link SyntheticDataset}) for local performance work.
+ * <p>
+ * Each worker thread takes the next chunk of users, generates it in memory and streams it with PgJDBC
+ * {@link CopyManager} on its own connection: users, accounts, cards, transactions, then commit. Chunks commit
+ * independently, so an interrupted load leaves whole chunks only. Tables are analyzed at the end, and the
+ * bank-wide aggregates, which {@code COPY} bypasses, recomputed.
+ * <p>
+ * Activate with the {@code synthetic} profile; sizing via {@code banking.synthetic.*}.
+ * Skipped when the first synthetic user already exists.
+ */
+@Component
+@Profile("synthetic")
+public class SyntheticDataGenerator implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    // BSN is "8" + eight digits of the user number
+    static final long MAX_USERS = 100_000_000L;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final BankAggregateVerifier aggregateVerifier;
+    private final long users;
+    private final int chunkSize;
+    private final int threads;
+    private final int months;
+    private final int transactionsPerMonth;
+    private final long seed;
+    private final boolean skipForeignKeyChecks;
+
+    public SyntheticDataGenerator(
+            DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            BankAggregateVerifier aggregateVerifier,
+            @Value("${banking.synthetic.users:100000}") long users,
+            @Value("${banking.synthetic.chunk-size:2000}") int chunkSize,
+            @Value("${banking.synthetic.threads:4}") int threads,
+            @Value("${banking.synthetic.months:3}") int months,
+            @Value("${banking.synthetic.transactions-per-month:4}") int transactionsPerMonth,
+            @Value("${banking.synthetic.seed:42}") long seed,
+            @Value("${banking.synthetic.skip-foreign-key-checks:false}") boolean skipForeignKeyChecks
+    ) {
+        if (users < 1 || users > MAX_USERS || chunkSize < 1 || threads < 1 || months < 1 || transactionsPerMonth < 0) {
+            throw new IllegalArgumentException("Invalid banking.synthetic settings");
+        }
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.aggregateVerifier = aggregateVerifier;
+        this.users = users;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        this.months = months;
+        this.transactionsPerMonth = transactionsPerMonth;
+        this.seed = seed;
+        this.skipForeignKeyChecks = skipForeignKeyChecks;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        Boolean loaded = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE lower(email) = ?)",
+                Boolean.class, SyntheticDataset.email(0));
+        if (Boolean.TRUE.equals(loaded)) {
+            logger.info("synthetic.skipped", kv("reason", "synthetic users already exist"));
+            return;
+        }
+
+        SyntheticDataset dataset = new SyntheticDataset(seed, months, transactionsPerMonth, LocalDateTime.now(),
+                FeeSchedules.current());
+        long chunks = (users + chunkSize - 1) / chunkSize;
+        AtomicLong nextChunk = new AtomicLong();
+        Totals totals = new Totals();
+
+        logger.info("synthetic.started", kv("users", users), kv("chunks", chunks), kv("threads", threads));
+        long start = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    load(dataset, nextChunk, chunks, totals, start);
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Synthetic data load failed", ex.getCause());
+        }
+
+        long loadMs = (System.nanoTime() - start) / 1_000_000;
+        jdbcTemplate.execute("ANALYZE users, accounts, cards, transactions");
+        aggregateVerifier.rebuild();
+
+        logger.info("synthetic.completed",
+                kv("users", totals.users.get()),
+                kv("accounts", totals.accounts.get()),
+                kv("cards", totals.cards.get()),
+                kv("transactions", totals.transactions.get()),
+                kv("loadMs", loadMs),
+                kv("elapsedMs", (System.nanoTime() - start) / 1_000_000));
+    }
+
+    private void load(SyntheticDataset dataset, AtomicLong nextChunk, long chunks, Totals totals, long start)
+            throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                // Losing the last chunks on a crash is fine for generated data
+                statement.execute("SET synchronous_commit TO off");
+                if (skipForeignKeyChecks) {
+                    // Foreign keys are enforced by triggers, which replica mode does not fire. Parents are always
+                    // generated with their children, so the checks are redundant here. Requires a superuser.
+                    statement.execute("SET session_replication_role = replica");
+                }
+            }
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+
+            long chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                long firstUser = chunk * chunkSize;
+                SyntheticDataset.Chunk rows = dataset.generate(firstUser, Math.min(users, firstUser + chunkSize));
+
+                // Parents first: the foreign keys are checked row by row unless skipped
+                copy(copyManager, SyntheticDataset.USERS_COPY, rows.userRows);
+                copy(copyManager, SyntheticDataset.ACCOUNTS_COPY, rows.accountRows);
+                copy(copyManager, SyntheticDataset.CARDS_COPY, rows.cardRows);
+                copy(copyManager, SyntheticDataset.TRANSACTIONS_COPY, rows.transactionRows);
+                connection.commit();
+
+                totals.add(rows);
+                if ((chunk + 1) % 100 == 0) {
+                    logger.info("synthetic.progress",
+                            kv("chunks", chunk + 1),
+                            kv("of", chunks),
+                            kv("accounts", totals.accounts.get()),
+                            kv("elapsedMs", (System.nanoTime() - start) / 1_000_000));
+                }
+            }
+        }
+    }
+
+    private static void copy(CopyManager copyManager, String sql, StringBuilder rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+        CopyIn copyIn = copyManager.copyIn(sql);
+        try {
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static final class Totals {
+        final AtomicLong users = new AtomicLong();
+        final AtomicLong accounts = new AtomicLong();
+        final AtomicLong cards = new AtomicLong();
+        final AtomicLong transactions = new AtomicLong();
+
+        void add(SyntheticDataset.Chunk chunk) {
+            users.addAndGet(chunk.users);
+            accounts.addAndGet(chunk.accounts);
+            cards.addAndGet(chunk.cards);
+            transactions.addAndGet(chunk.transactions);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.waes.rabobank.bankingaccount.infrastructure.seed;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedule;
+import com.waes.rabobank.bankingaccount.shared.identifier.Iban;
+import com.waes.rabobank.bankingaccount.shared.identifier.Luhn;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Generates synthetic users, accounts, cards and transactions as PostgreSQL {@code COPY} text rows.
+ * <p>
+ * The dataset is split in chunks of consecutive user numbers. A chunk only depends on its number and the seed, so
+ * chunks can be generated in any order on any thread and a rerun with the same settings produces the same rows.
+ * Identifiers are derived from the user number (no coordination between chunks):
+ * <ul>
+ *     <li>email {@code user<n>@synthetic.example}, BSN {@code 8} + eight digits</li>
+ *     <li>account {@code n * 8 + j}: IBAN {@code NLkkRABO7xxxxxxxxx}, card {@code BIN + 9 digits + Luhn digit}</li>
+ * </ul>
+ * Skew: accounts per user are geometric (mean ~1.5, max 8), balances log-normal (median ~1 100), and the
+ * number of transactions per account follows a Pareto distribution, so a fifth of the accounts produce about
+ * half of the transactions. Every transaction carries the running balance and the account balance is the last one.
+ */
+final class SyntheticDataset {
+
+    static final String EMAIL_DOMAIN = "synthetic.example";
+    static final int MAX_ACCOUNTS_PER_USER = 8;
+
+    static final String USERS_COPY =
+            "COPY users (id, email, full_name, bsn_id, created_at, updated_at) FROM STDIN";
+    static final String ACCOUNTS_COPY =
+            "COPY accounts (id, user_id, account_number, balance, currency, status, version, created_at, updated_at) FROM STDIN";
+    static final String CARDS_COPY =
+            "COPY cards (id, card_type, account_id, card_number, expiry_date, status, created_at, updated_at) FROM STDIN";
+    static final String TRANSACTIONS_COPY =
+            "COPY transactions (id, account_id, card_id, transaction_type, amount, fee, balance_after, description, created_at) FROM STDIN";
+
+    private static final long ACCOUNT_NUMBER_OFFSET = 7_000_000_000L;
+    private static final String DEBIT_BIN = "676770";
+    private static final String CREDIT_BIN = "535110";
+    private static final int MAX_TRANSACTIONS_PER_ACCOUNT = 2_000;
+    private static final long MINOR_UNITS = 10_000L; // NUMERIC(19, 4)
+
+    private static final String[] FIRST_NAMES = {
+            "Anna", "Bram", "Daan", "Emma", "Fleur", "Jan", "Julia", "Lars", "Lotte", "Luuk",
+            "Maud", "Milan", "Noah", "Olivia", "Pieter", "Roos", "Sanne", "Sem", "Tess", "Thijs"
+    };
+    private static final String[] LAST_NAMES = {
+            "de Jong", "Jansen", "de Vries", "van den Berg", "van Dijk", "Bakker", "Janssen", "Visser",
+            "Smit", "Meijer", "de Boer", "Mulder", "de Groot", "Bos", "Vos", "Peters", "Hendriks", "Dekker"
+    };
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final long seed;
+    private final int months;
+    private final int transactionsPerMonth;
+    private final LocalDateTime now;
+    private final String nowText;
+    private final FeeSchedule fees;
+
+    SyntheticDataset(long seed, int months, int transactionsPerMonth, LocalDateTime now, FeeSchedule fees) {
+        this.seed = seed;
+        this.months = months;
+        this.transactionsPerMonth = transactionsPerMonth;
+        this.now = now.withNano(0);
+        this.nowText = TIMESTAMP.format(this.now);
+        this.fees = fees;
+    }
+
+    /**
+     * @param firstUser First user number of the chunk (inclusive)
+     * @param lastUser  Last user number of the chunk (exclusive)
+     */
+    Chunk generate(long firstUser, long lastUser) {
+        SplittableRandom random = new SplittableRandom(mix(seed, firstUser));
+        Chunk chunk = new Chunk();
+        for (long user = firstUser; user < lastUser; user++) {
+            UUID userId = uuid(random);
+            LocalDateTime userCreated = now.minusMonths(months).minusDays(random.nextInt(1, 3_650));
+            chunk.users++;
+            row(chunk.userRows, userId.toString(), email(user),
+                    FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                    "8" + pad(user, 8), TIMESTAMP.format(userCreated), nowText);
+
+            int accounts = 1;
+            while (accounts < MAX_ACCOUNTS_PER_USER && random.nextDouble() < 0.35) {
+                accounts++;
+            }
+            for (int j = 0; j < accounts; j++) {
+                account(chunk, random, userId, user * MAX_ACCOUNTS_PER_USER + j, userCreated);
+            }
+        }
+        return chunk;
+    }
+
+    static String email(long user) {
+        return "user" + user + "@" + EMAIL_DOMAIN;
+    }
+
+    private void account(Chunk chunk, SplittableRandom random, UUID userId, long accountSeq, LocalDateTime userCreated) {
+        UUID accountId = uuid(random);
+        double statusDraw = random.nextDouble();
+        String status = statusDraw < 0.96 ? "ACTIVE" : statusDraw < 0.99 ? "SUSPENDED" : "CLOSED";
+        String currency = random.nextDouble() < 0.98 ? "EUR" : "USD";
+        long balance = logNormalMinor(random, 7.0, 1.5);
+
+        double cardDraw = random.nextDouble();
+        CardType cardType = cardDraw < 0.70 ? CardType.DEBIT : cardDraw < 0.92 ? CardType.CREDIT : null;
+        if (cardType != null) {
+            UUID cardId = uuid(random);
+            double cardStatusDraw = random.nextDouble();
+            String cardStatus = cardStatusDraw < 0.95 ? "ACTIVE" : cardStatusDraw < 0.98 ? "BLOCKED" : "EXPIRED";
+            LocalDateTime expiry = "EXPIRED".equals(cardStatus)
+                    ? now.minusMonths(random.nextInt(1, 24))
+                    : now.plusMonths(random.nextInt(1, 60));
+            String bin = cardType == CardType.DEBIT ? DEBIT_BIN : CREDIT_BIN;
+            chunk.cards++;
+            row(chunk.cardRows, cardId.toString(), cardType.name(), accountId.toString(),
+                    Luhn.withCheckDigit(bin + pad(accountSeq, 9)),
+                    expiry.toLocalDate().withDayOfMonth(1).toString(), cardStatus,
+                    TIMESTAMP.format(userCreated), nowText);
+
+            balance = transactions(chunk, random, accountId, cardId, cardType, balance);
+        }
+
+        chunk.accounts++;
+        row(chunk.accountRows, accountId.toString(), userId.toString(),
+                Iban.dutch("RABO", ACCOUNT_NUMBER_OFFSET + accountSeq), decimal(balance), currency, status, "0",
+                TIMESTAMP.format(userCreated), nowText);
+    }
+
+    /**
+     * @return Balance after the last transaction
+     */
+    private long transactions(Chunk chunk, SplittableRandom random, UUID accountId, UUID cardId,
+                              CardType cardType, long openingBalance) {
+        // Pareto (alpha 1.5, mean 3): most accounts are quiet, a few are very busy
+        double activity = Math.pow(1.0 - random.nextDouble(), -1.0 / 1.5);
+        int count = (int) Math.min(MAX_TRANSACTIONS_PER_ACCOUNT,
+                Math.round(transactionsPerMonth * months * activity / 3.0));
+
+        long windowSeconds = months * 30L * 24 * 3_600;
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = random.nextLong(windowSeconds);
+        }
+        Arrays.sort(offsets);
+
+        long balance = openingBalance;
+        LocalDateTime start = now.minusSeconds(windowSeconds);
+        for (int i = 0; i < count; i++) {
+            long amount = logNormalMinor(random, 3.5, 1.2);
+            long fee = fees.feeMinor(cardType, FeeSchedule.STANDARD_SEGMENT, amount);
+            boolean withdrawal = random.nextDouble() < 0.55 && balance >= amount + fee;
+            if (withdrawal) {
+                balance -= amount + fee;
+            } else {
+                fee = 0;
+                balance += amount;
+            }
+            chunk.transactions++;
+            row(chunk.transactionRows, uuid(random).toString(), accountId.toString(), cardId.toString(),
+                    withdrawal ? "WITHDRAWAL" : "DEPOSIT", decimal(amount), decimal(fee), decimal(balance),
+                    withdrawal ? "Synthetic withdrawal" : "Synthetic deposit",
+                    TIMESTAMP.format(start.plusSeconds(offsets[i])));
+        }
+        return balance;
+    }
+
+    // exp(N(mu, sigma)) in currency units, rounded to cents and returned in 1/10 000 units
+    private static long logNormalMinor(SplittableRandom random, double mu, double sigma) {
+        double gaussian = Math.sqrt(-2.0 * Math.log(1.0 - random.nextDouble())) * Math.cos(2.0 * Math.PI * random.nextDouble());
+        long cents = Math.max(1, Math.round(Math.exp(mu + sigma * gaussian) * 100));
+        return cents * (MINOR_UNITS / 100);
+    }
+
+    // Scatters the chunk seeds over the whole 64-bit space: SplittableRandom streams whose seeds differ by
+    // a multiple of its gamma are the same sequence shifted, which would repeat UUIDs across chunks
+    static long mix(long seed, long firstUser) {
+        long z = seed * 31 + firstUser;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    // Version 4 (random) UUID drawn from the chunk's random, so it is reproducible
+    private static UUID uuid(SplittableRandom random) {
+        long msb = (random.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L;
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    private static String decimal(long minor) {
+        return minor / MINOR_UNITS + "." + pad(minor % MINOR_UNITS, 4);
+    }
+
+    // Zero-padded without String.format, which dominates the generation time otherwise
+    private static String pad(long value, int width) {
+        String digits = Long.toString(value);
+        return digits.length() >= width ? digits : "0".repeat(width - digits.length()) + digits;
+    }
+
+    // COPY text format: tab separated, newline terminated. Generated values never contain tabs or backslashes.
+    private static void row(StringBuilder target, String... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                target.append('\t');
+            }
+            target.append(values[i]);
+        }
+        target.append('\n');
+    }
+
+    static final class Chunk {
+        final StringBuilder userRows = new StringBuilder();
+        final StringBuilder accountRows = new StringBuilder();
+        final StringBuilder cardRows = new StringBuilder();
+        final StringBuilder transactionRows = new StringBuilder();
+        long users;
+        long accounts;
+        long cards;
+        long transactions;
+    }
+}
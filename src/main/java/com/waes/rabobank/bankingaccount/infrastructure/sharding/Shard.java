@@ -0,0 +1,17 @@
+package com.waes.rabobank.bankingaccount.infrastructure.sharding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * One shard database: its own pool, and a transaction manager that only spans it.
+ */
+public record Shard(
+        int index,
+        DataSource dataSource,
+        JdbcTemplate jdbcTemplate,
+        TransactionTemplate transactionTemplate
+) {
+}
@@ -0,0 +1,38 @@
+package com.waes.rabobank.bankingaccount.infrastructure.sharding;
+
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.OutboxRelay;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.OutboxSink;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Sharded payments write their outbox rows on their shard: one {@link OutboxRelay} per shard drains them to the
+ * same sink, with the same batching and delivery guarantees as the primary database's relay.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class ShardOutboxRelays {
+
+    private final List<OutboxRelay> relays;
+
+    public ShardOutboxRelays(ShardRegistry shards,
+                             OutboxSink sink,
+                             @Value("${banking.outbox.relay.batch-size:500}") int batchSize,
+                             MeterRegistry meterRegistry
+    ) {
+        this.relays = shards.shards().stream()
+                .map(shard -> new OutboxRelay(shard.jdbcTemplate(), shard.transactionTemplate(), sink, batchSize,
+                        meterRegistry))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${banking.outbox.relay.poll-interval:500ms}")
+    public void poll() {
+        relays.forEach(OutboxRelay::drain);
+    }
+}
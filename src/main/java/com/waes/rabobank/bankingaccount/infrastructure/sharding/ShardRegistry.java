@@ -0,0 +1,158 @@
+package com.waes.rabobank.bankingaccount.infrastructure.sharding;
+
+import com.waes.rabobank.bankingaccount.shared.exception.ShardingUnsupportedException;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Shard databases for accounts, enabled with {@code banking.sharding.enabled=true}: one pool per entry of
+ * {@code banking.sharding.urls}, each migrated on startup with {@code db/migration} and {@code db/shard}.
+ * <p>
+ * A user and everything it owns (accounts, cards, transactions, outbox rows) live on the shard its id hashes to.
+ * Account and card ids are minted on the same shard as their user ({@link #newIdOn(int)}), so a payment finds its
+ * shard from the ids in the request, without a directory lookup. The list of urls is the shard map: it may only
+ * grow by moving data, never be reordered.
+ */
+@Component
+public class ShardRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRegistry.class);
+
+    private final boolean enabled;
+    private final List<Shard> shards;
+    private final List<HikariDataSource> pools;
+    private final ExecutorService scatter;
+
+    public ShardRegistry(
+            @Value("${banking.sharding.enabled:false}") boolean enabled,
+            @Value("${banking.sharding.urls:}") List<String> urls,
+            @Value("${banking.sharding.username:${spring.datasource.username:}}") String username,
+            @Value("${banking.sharding.password:${spring.datasource.password:}}") String password,
+            @Value("${banking.sharding.pool-size:10}") int poolSize,
+            @Value("${spring.flyway.placeholders.app-user:bank}") String appUser
+    ) {
+        this.enabled = enabled;
+        if (!enabled) {
+            this.shards = List.of();
+            this.pools = List.of();
+            this.scatter = null;
+            return;
+        }
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("banking.sharding.urls must list at least one database");
+        }
+
+        List<Shard> shards = new ArrayList<>(urls.size());
+        List<HikariDataSource> pools = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("shard-" + i);
+            config.setJdbcUrl(urls.get(i));
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(poolSize);
+            HikariDataSource pool = new HikariDataSource(config);
+            pools.add(pool);
+
+            Flyway.configure()
+                    .dataSource(pool)
+                    .locations("classpath:db/migration", "classpath:db/shard")
+                    .baselineOnMigrate(true)
+                    .baselineVersion("0")
+                    .placeholders(Map.of("app-user", appUser))
+                    .load()
+                    .migrate();
+
+            shards.add(new Shard(i, pool, new JdbcTemplate(pool),
+                    new TransactionTemplate(new DataSourceTransactionManager(pool))));
+        }
+        this.shards = Collections.unmodifiableList(shards);
+        this.pools = pools;
+        this.scatter = Executors.newVirtualThreadPerTaskExecutor();
+        logger.info("sharding.started", kv("shards", shards.size()));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Guards features that still read or write users, accounts and cards on the primary database: while
+     * sharding is on, what they would see or create is not what payments use.
+     *
+     * @throws ShardingUnsupportedException when sharding is on
+     */
+    public void requireUnsharded(String operation) {
+        if (enabled) {
+            throw new ShardingUnsupportedException(operation);
+        }
+    }
+
+    public List<Shard> shards() {
+        return shards;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public Shard shard(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * @return The shard of a user, or of an account or card minted for it
+     */
+    public Shard shardOf(UUID id) {
+        return shards.get(indexOf(id, shards.size()));
+    }
+
+    /**
+     * A random id that hashes to the given shard; about as many draws as there are shards.
+     */
+    public UUID newIdOn(int shard) {
+        UUID id;
+        do {
+            id = UUID.randomUUID();
+        } while (indexOf(id, shards.size()) != shard);
+        return id;
+    }
+
+    /**
+     * Runs per-shard work of scatter-gather reads, one virtual thread per shard.
+     */
+    ExecutorService scatter() {
+        return scatter;
+    }
+
+    static int indexOf(UUID id, int shardCount) {
+        return Math.floorMod(id.hashCode(), shardCount);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scatter != null) {
+            scatter.close();
+        }
+        pools.forEach(HikariDataSource::close);
+    }
+}
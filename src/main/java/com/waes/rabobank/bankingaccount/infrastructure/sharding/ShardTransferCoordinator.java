@@ -0,0 +1,140 @@
+package com.waes.rabobank.bankingaccount.infrastructure.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Two-phase commit of a transfer whose legs live on two shards, on Postgres prepared transactions
+ * ({@code max_prepared_transactions} must be above 0 on every shard).
+ * <ol>
+ *     <li>Each leg runs in a transaction on its shard and ends with {@code PREPARE TRANSACTION}: its changes and
+ *     locks survive a crash of either side, but nobody sees them yet. Legs are prepared in shard order, and rows
+ *     within a shard are locked in id order, so two transfers never wait on each other across shards.</li>
+ *     <li>Once every leg is prepared, the coordinator (the source account's shard) records {@code COMMIT} in
+ *     {@code shard_transfer_decisions}. That insert is the commit point.</li>
+ *     <li>Each leg is committed with {@code COMMIT PREPARED}.</li>
+ * </ol>
+ * A leg that fails to prepare rolls back the legs prepared before it. Whatever is left prepared by a crash, a
+ * lost connection or a failed rollback is finished by {@link ShardTransferRecovery} according to the decision,
+ * and aborted if none was recorded within the grace period.
+ */
+final class ShardTransferCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardTransferCoordinator.class);
+
+    static final String GID_PREFIX = "banking-transfer:";
+    static final String COMMIT = "COMMIT";
+    static final String ABORT = "ABORT";
+
+    private static final String DECIDE = """
+            INSERT INTO shard_transfer_decisions (xid, decision, decided_at)
+            VALUES (?, ?, now())
+            ON CONFLICT (xid) DO NOTHING
+            """;
+    private static final String LOAD_DECISION = "SELECT decision FROM shard_transfer_decisions WHERE xid = ?";
+
+    private ShardTransferCoordinator() {
+    }
+
+    /**
+     * A leg of the transfer: the work of one shard, in that shard's transaction, before it is prepared.
+     */
+    record Leg(Shard shard, Runnable work) {
+    }
+
+    /**
+     * Prepares every leg, decides and commits. Returns once the decision is {@code COMMIT}, also when a leg
+     * could not be committed right away: recovery commits it.
+     *
+     * @param xid         Transfer id, unique
+     * @param coordinator Shard holding the decision
+     */
+    static void execute(String xid, Shard coordinator, List<Leg> legs) {
+        List<Leg> ordered = new ArrayList<>(legs);
+        ordered.sort(Comparator.comparingInt(leg -> leg.shard().index()));
+
+        List<Shard> prepared = new ArrayList<>(ordered.size());
+        try {
+            for (Leg leg : ordered) {
+                String gid = gid(coordinator, xid, leg.shard());
+                leg.shard().transactionTemplate().executeWithoutResult(status -> {
+                    leg.work().run();
+                    // Ends the transaction; the commit that follows it finds nothing left to commit
+                    leg.shard().jdbcTemplate().execute("PREPARE TRANSACTION '" + gid + "'");
+                });
+                prepared.add(leg.shard());
+            }
+        } catch (RuntimeException ex) {
+            prepared.forEach(shard -> finish(shard, gid(coordinator, xid, shard), false));
+            throw ex;
+        }
+
+        String decision = decide(coordinator, xid, COMMIT);
+        boolean commit = COMMIT.equals(decision);
+        prepared.forEach(shard -> finish(shard, gid(coordinator, xid, shard), commit));
+        if (!commit) {
+            throw new IllegalStateException("Transfer " + xid + " was aborted by shard recovery");
+        }
+    }
+
+    /**
+     * Records the decision unless one exists already.
+     *
+     * @return The decision in force
+     */
+    static String decide(Shard coordinator, String xid, String decision) {
+        coordinator.jdbcTemplate().update(DECIDE, xid, decision);
+        return coordinator.jdbcTemplate().queryForObject(LOAD_DECISION, String.class, xid);
+    }
+
+    /**
+     * @return The recorded decision, {@code null} if none
+     */
+    static String decision(Shard coordinator, String xid) {
+        return coordinator.jdbcTemplate().query(LOAD_DECISION, (rs, rowNum) -> rs.getString(1), xid)
+                .stream().findFirst().orElse(null);
+    }
+
+    /**
+     * Commits or rolls back a prepared leg. A failure is logged only: the leg stays prepared for recovery.
+     *
+     * @return Whether the leg was finished
+     */
+    static boolean finish(Shard shard, String gid, boolean commit) {
+        try {
+            shard.jdbcTemplate().execute((commit ? "COMMIT PREPARED '" : "ROLLBACK PREPARED '") + gid + "'");
+            return true;
+        } catch (RuntimeException ex) {
+            logger.warn("sharding.transfer_leg_unfinished", kv("gid", gid), kv("commit", commit), ex);
+            return false;
+        }
+    }
+
+    // banking-transfer:<coordinator shard>:<xid>:<leg shard>, unique across shards sharing a Postgres cluster
+    static String gid(Shard coordinator, String xid, Shard shard) {
+        return GID_PREFIX + coordinator.index() + ":" + xid + ":" + shard.index();
+    }
+
+    /**
+     * @return Coordinator shard and xid of a gid written by {@link #gid}
+     */
+    static ParsedGid parse(String gid) {
+        String[] parts = gid.substring(GID_PREFIX.length()).split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Not a transfer gid: " + gid);
+        }
+        // Only UUIDs are ever used as xid: nothing else reaches a PREPARE TRANSACTION literal
+        UUID.fromString(parts[1]);
+        return new ParsedGid(Integer.parseInt(parts[0]), parts[1]);
+    }
+
+    record ParsedGid(int coordinator, String xid) {
+    }
+}
@@ -0,0 +1,149 @@
+package com.waes.rabobank.bankingaccount.infrastructure.sharding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Finishes cross-shard transfer legs left prepared: after a crash of the coordinator, a lost connection, or a
+ * commit or rollback that failed. Each leg is committed or rolled back according to the decision of its
+ * transfer. A leg without decision past {@code prepared-grace} is aborted: recovery records {@code ABORT}
+ * first, so a coordinator that is merely slow finds it and aborts too.
+ * <p>
+ * Decisions are deleted once no shard holds a leg of them anymore and they are older than
+ * {@code decision-retention}; never after a pass that could not read every shard.
+ * <p>
+ * Meter: {@code banking.sharding.recovered} (legs finished, tag {@code outcome}).
+ */
+@Component
+public class ShardTransferRecovery {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardTransferRecovery.class);
+
+    private static final String FIND_PREPARED = """
+            SELECT gid, prepared < now() - make_interval(secs => ?)
+            FROM pg_prepared_xacts
+            WHERE database = current_database() AND gid LIKE ?
+            """;
+    private static final String DELETE_DECISIONS = """
+            DELETE FROM shard_transfer_decisions
+            WHERE decided_at < now() - make_interval(secs => ?)
+            AND NOT (xid = ANY(?))
+            """;
+
+    private final ShardRegistry shards;
+    private final Duration preparedGrace;
+    private final Duration decisionRetention;
+    private final Counter committed;
+    private final Counter aborted;
+
+    public ShardTransferRecovery(
+            ShardRegistry shards,
+            @Value("${banking.sharding.prepared-grace:60s}") Duration preparedGrace,
+            @Value("${banking.sharding.decision-retention:1h}") Duration decisionRetention,
+            MeterRegistry meterRegistry
+    ) {
+        this.shards = shards;
+        this.preparedGrace = preparedGrace;
+        this.decisionRetention = decisionRetention;
+        this.committed = Counter.builder("banking.sharding.recovered").tag("outcome", "commit")
+                .description("Prepared transfer legs finished by recovery")
+                .register(meterRegistry);
+        this.aborted = Counter.builder("banking.sharding.recovered").tag("outcome", "abort")
+                .description("Prepared transfer legs finished by recovery")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${banking.sharding.recovery-interval:30s}")
+    public void poll() {
+        recover();
+    }
+
+    /**
+     * @return Legs committed or rolled back
+     */
+    public int recover() {
+        if (!shards.isEnabled()) {
+            return 0;
+        }
+        Set<String> inDoubt = new HashSet<>();
+        boolean everyShardRead = true;
+        int finished = 0;
+        for (Shard shard : shards.shards()) {
+            List<PreparedLeg> legs;
+            try {
+                legs = shard.jdbcTemplate().query(FIND_PREPARED,
+                        (rs, rowNum) -> new PreparedLeg(rs.getString(1), rs.getBoolean(2)),
+                        preparedGrace.toSeconds(), ShardTransferCoordinator.GID_PREFIX + "%");
+            } catch (RuntimeException ex) {
+                everyShardRead = false;
+                logger.warn("sharding.recovery_shard_unreadable", kv("shard", shard.index()), ex);
+                continue;
+            }
+            for (PreparedLeg leg : legs) {
+                ShardTransferCoordinator.ParsedGid gid = ShardTransferCoordinator.parse(leg.gid());
+                inDoubt.add(gid.xid());
+                try {
+                    if (finish(shard, leg, gid)) {
+                        finished++;
+                    }
+                } catch (RuntimeException ex) {
+                    // Coordinator shard unreachable: the decision cannot be read nor taken, try again next pass
+                    logger.warn("sharding.recovery_undecided", kv("gid", leg.gid()), ex);
+                }
+            }
+        }
+        if (everyShardRead) {
+            deleteDecisions(inDoubt);
+        }
+        return finished;
+    }
+
+    private boolean finish(Shard shard, PreparedLeg leg, ShardTransferCoordinator.ParsedGid gid) {
+        Shard coordinator = shards.shard(gid.coordinator());
+        String decision = leg.expired()
+                ? ShardTransferCoordinator.decide(coordinator, gid.xid(), ShardTransferCoordinator.ABORT)
+                : ShardTransferCoordinator.decision(coordinator, gid.xid());
+        if (decision == null) {
+            // Young and undecided: its coordinator is still at work
+            return false;
+        }
+        boolean commit = ShardTransferCoordinator.COMMIT.equals(decision);
+        if (!ShardTransferCoordinator.finish(shard, leg.gid(), commit)) {
+            return false;
+        }
+        (commit ? committed : aborted).increment();
+        logger.info("sharding.transfer_leg_recovered", kv("gid", leg.gid()), kv("decision", decision));
+        return true;
+    }
+
+    private void deleteDecisions(Set<String> inDoubt) {
+        for (Shard shard : shards.shards()) {
+            try {
+                shard.jdbcTemplate().update(con -> {
+                    PreparedStatement ps = con.prepareStatement(DELETE_DECISIONS);
+                    ps.setLong(1, decisionRetention.toSeconds());
+                    ps.setArray(2, con.createArrayOf("varchar", inDoubt.toArray()));
+                    return ps;
+                });
+            } catch (RuntimeException ex) {
+                logger.warn("sharding.recovery_cleanup_failed", kv("shard", shard.index()), ex);
+            }
+        }
+    }
+
+    private record PreparedLeg(String gid, boolean expired) {
+    }
+}
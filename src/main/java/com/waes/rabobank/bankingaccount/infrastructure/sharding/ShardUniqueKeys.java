@@ -0,0 +1,69 @@
+package com.waes.rabobank.bankingaccount.infrastructure.sharding;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Global unique keys of sharded rows, claimed on the primary database ({@code shard_unique_keys}) before a row
+ * is placed on its shard. A shard's own unique constraints only see that shard, so without a claim two shards
+ * could hold the same email, BSN, account number or card number.
+ * <p>
+ * A claim commits before the shard insert and is released when the insert fails. A process that dies in between
+ * leaves the key claimed by an owner that does not exist: the key stays taken until the row is deleted, never
+ * handed out twice.
+ */
+@Component
+public class ShardUniqueKeys {
+
+    public enum Kind {
+        EMAIL, BSN, ACCOUNT_NUMBER, CARD_NUMBER
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public ShardUniqueKeys(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Claims all keys for {@code ownerId}, or none of them.
+     *
+     * @throws DuplicateKeyException when a key is already claimed, as a shard's own constraint would
+     */
+    public void claim(UUID ownerId, Map<Kind, String> keys) {
+        transactionTemplate.executeWithoutResult(status -> keys.forEach((kind, value) -> jdbcTemplate.update(
+                "INSERT INTO shard_unique_keys (kind, key_value, owner_id) VALUES (?, ?, ?)",
+                kind.name(), normalize(kind, value), ownerId)));
+    }
+
+    /**
+     * @return Id of the row holding the key, on whichever shard it is
+     */
+    public Optional<UUID> ownerOf(Kind kind, String value) {
+        return jdbcTemplate.query("SELECT owner_id FROM shard_unique_keys WHERE kind = ? AND key_value = ?",
+                (rs, rowNum) -> rs.getObject(1, UUID.class), kind.name(), normalize(kind, value)).stream().findFirst();
+    }
+
+    /**
+     * Frees the keys of a row that was never placed, or that was deleted.
+     */
+    public void release(UUID ownerId) {
+        jdbcTemplate.update("DELETE FROM shard_unique_keys WHERE owner_id = ?", ownerId);
+    }
+
+    // Emails are looked up ignoring case, so two spellings of one address are one key
+    private static String normalize(Kind kind, String value) {
+        return kind == Kind.EMAIL ? value.toLowerCase(Locale.ROOT) : value;
+    }
+}
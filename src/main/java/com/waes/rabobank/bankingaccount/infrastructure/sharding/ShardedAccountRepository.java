@@ -0,0 +1,361 @@
+package com.waes.rabobank.bankingaccount.infrastructure.sharding;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountVersionDTO;
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
+import com.waes.rabobank.bankingaccount.domain.enums.AccountStatus;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardUniqueKeys.Kind;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * User and account reads and writes routed to the shard that holds them. Reads of one user or account go to one
+ * shard; listings are scattered to every shard and merged. Unique keys of placed rows are claimed in
+ * {@link ShardUniqueKeys} first, so they are unique across shards, and a lookup by email or BSN asks the claims
+ * which user holds the key instead of asking every shard.
+ */
+@Repository
+public class ShardedAccountRepository {
+
+    // Postgres orders uuid as unsigned bytes; UUID.compareTo compares signed longs
+    public static final Comparator<UUID> UUID_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private static final String FIND_BALANCES_BY_USER = """
+            SELECT user_id, id, account_number, balance, currency
+            FROM accounts
+            WHERE user_id = ? AND status = 'ACTIVE'
+            """;
+    private static final String FIND_VERSIONS_BY_USER = """
+            SELECT id, COALESCE(version, 0)
+            FROM accounts
+            WHERE user_id = ? AND status = 'ACTIVE'
+            """;
+    private static final String FIND_ACCOUNT = """
+            SELECT id, user_id, account_number, balance, currency, status
+            FROM accounts
+            WHERE id = ?
+            """;
+    private static final String FIND_PAGE_AFTER = """
+            SELECT user_id, id, account_number, balance, currency
+            FROM accounts
+            WHERE id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+    private static final String FIND_USER = """
+            SELECT id, full_name, email
+            FROM users
+            WHERE id = ?
+            """;
+    private static final String FIND_USER_PAGE_AFTER = """
+            SELECT id, full_name, email
+            FROM users
+            WHERE id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final RowMapper<AccountBalanceDTO> BALANCE = (rs, rowNum) -> new AccountBalanceDTO(
+            rs.getString(1), rs.getString(2), rs.getString(3), rs.getBigDecimal(4), rs.getString(5));
+    private static final RowMapper<UserResponseDTO> USER = (rs, rowNum) -> new UserResponseDTO(
+            rs.getString(1), rs.getString(2), rs.getString(3));
+
+    private final ShardRegistry shards;
+    private final BankAggregates bankAggregates;
+    private final ShardUniqueKeys uniqueKeys;
+
+    public ShardedAccountRepository(ShardRegistry shards, BankAggregates bankAggregates, ShardUniqueKeys uniqueKeys) {
+        this.shards = shards;
+        this.bankAggregates = bankAggregates;
+        this.uniqueKeys = uniqueKeys;
+    }
+
+    public List<AccountBalanceDTO> findBalancesByUserId(UUID userId) {
+        return shards.shardOf(userId).jdbcTemplate().query(FIND_BALANCES_BY_USER, BALANCE, userId);
+    }
+
+    public List<AccountVersionDTO> findVersionsByUserId(UUID userId) {
+        return shards.shardOf(userId).jdbcTemplate().query(FIND_VERSIONS_BY_USER,
+                (rs, rowNum) -> new AccountVersionDTO(rs.getObject(1, UUID.class), rs.getLong(2)), userId);
+    }
+
+    public boolean existsUser(UUID userId) {
+        return Boolean.TRUE.equals(shards.shardOf(userId).jdbcTemplate().queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE id = ?)", Boolean.class, userId));
+    }
+
+    public Optional<AccountResponseDTO> findAccountById(UUID accountId) {
+        return shards.shardOf(accountId).jdbcTemplate().query(FIND_ACCOUNT,
+                (rs, rowNum) -> new AccountResponseDTO(rs.getString(1), rs.getString(2), rs.getString(3),
+                        rs.getBigDecimal(4), rs.getString(5), rs.getString(6)),
+                accountId).stream().findFirst();
+    }
+
+    public Optional<Long> findVersionById(UUID accountId) {
+        return shards.shardOf(accountId).jdbcTemplate().query(
+                "SELECT COALESCE(version, 0) FROM accounts WHERE id = ?",
+                (rs, rowNum) -> rs.getLong(1), accountId).stream().findFirst();
+    }
+
+    /**
+     * Scatter-gather keyset page: every shard returns its first {@code limit} accounts after the cursor, in id
+     * order, in parallel; the lists are merged and cut at {@code limit}. A shard holding more than was taken
+     * from it leaves a next page.
+     *
+     * @param after Last account id of the previous page, the nil UUID for the first page
+     * @return Up to {@code limit + 1} accounts: the extra one only tells that a next page exists
+     */
+    public List<AccountBalanceDTO> findPageAfter(UUID after, int limit) {
+        List<List<AccountBalanceDTO>> pages = scatter(jdbc -> jdbc.query(FIND_PAGE_AFTER, BALANCE, after, limit + 1));
+        return merge(pages, account -> UUID.fromString(account.accountId()), limit + 1);
+    }
+
+    /**
+     * Offset page in account id order, for the admin listing. Every shard has to return its first
+     * {@code offset + size} accounts, so deep pages cost more on every shard; the keyset page does not.
+     */
+    public Page<AccountBalanceDTO> findPage(Pageable pageable) {
+        int take = Math.toIntExact(pageable.getOffset() + pageable.getPageSize());
+        List<List<AccountBalanceDTO>> pages = scatter(jdbc -> jdbc.query(
+                "SELECT user_id, id, account_number, balance, currency FROM accounts ORDER BY id LIMIT ?",
+                BALANCE, take));
+        long total = scatter(jdbc -> jdbc.queryForObject("SELECT count(*) FROM accounts", Long.class)).stream()
+                .mapToLong(Long::longValue).sum();
+        List<AccountBalanceDTO> merged = merge(pages, account -> UUID.fromString(account.accountId()), take);
+        List<AccountBalanceDTO> content = merged.subList(Math.min(merged.size(), (int) pageable.getOffset()), merged.size());
+        return new PageImpl<>(List.copyOf(content), pageable, total);
+    }
+
+    // === Users ===
+
+    public Optional<UserResponseDTO> findUserById(UUID userId) {
+        return shards.shardOf(userId).jdbcTemplate().query(FIND_USER, USER, userId).stream().findFirst();
+    }
+
+    // The claim on the email names the user, so only its shard is read
+    public Optional<UserResponseDTO> findUserByEmail(String email) {
+        return uniqueKeys.ownerOf(Kind.EMAIL, email).flatMap(this::findUserById);
+    }
+
+    public Optional<UUID> findUserIdByBsn(String bsn) {
+        return uniqueKeys.ownerOf(Kind.BSN, bsn);
+    }
+
+    /**
+     * Scatter-gather keyset page of users, merged in id order like {@link #findPageAfter}.
+     *
+     * @return Up to {@code limit} users
+     */
+    public List<UserResponseDTO> findUserPageAfter(UUID after, int limit) {
+        List<List<UserResponseDTO>> pages = scatter(jdbc -> jdbc.query(FIND_USER_PAGE_AFTER, USER, after, limit));
+        return merge(pages, user -> UUID.fromString(user.id()), limit);
+    }
+
+    // One query per shard holding any of the users
+    public Set<UUID> findExistingUserIds(Set<UUID> userIds) {
+        Set<UUID> existing = new HashSet<>();
+        userIds.stream()
+                .collect(Collectors.groupingBy(shards::shardOf))
+                .forEach((shard, ids) -> existing.addAll(shard.jdbcTemplate().query(
+                        "SELECT id FROM users WHERE id = ANY(?)",
+                        ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray())),
+                        (rs, rowNum) -> rs.getObject(1, UUID.class))));
+        return existing;
+    }
+
+    // === Placement: onboarding onto the user's shard ===
+
+    /**
+     * @return Id of the new user, which decides its shard
+     * @throws org.springframework.dao.DuplicateKeyException when the email or BSN is taken on any shard
+     */
+    public UUID insertUser(String email, String fullName, String bsn) {
+        UUID userId = UUID.randomUUID();
+        placeClaimed(userId, Map.of(Kind.EMAIL, email, Kind.BSN, bsn),
+                () -> shards.shardOf(userId).jdbcTemplate().update(
+                        "INSERT INTO users (id, email, full_name, bsn_id) VALUES (?, ?, ?, ?)",
+                        userId, email, fullName, bsn));
+        return userId;
+    }
+
+    /**
+     * @return Id of the new account, minted on its user's shard
+     * @throws org.springframework.dao.DuplicateKeyException when the account number is taken on any shard
+     */
+    public UUID insertAccount(UUID userId, String accountNumber, String currency, BigDecimal balance) {
+        Shard shard = shards.shardOf(userId);
+        UUID accountId = shards.newIdOn(shard.index());
+        placeClaimed(accountId, Map.of(Kind.ACCOUNT_NUMBER, accountNumber),
+                () -> shard.transactionTemplate().executeWithoutResult(
+                        status -> insertAccountRow(shard, accountId, userId, accountNumber, currency, balance)));
+        return accountId;
+    }
+
+    /**
+     * An account and its card, in one transaction on the user's shard: both are placed or neither.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException when the account or card number is taken on any shard
+     */
+    public PlacedAccount insertAccountWithCard(UUID userId, String accountNumber, String currency, BigDecimal balance,
+                                               CardType type, String cardNumber, YearMonth expiry) {
+        Shard shard = shards.shardOf(userId);
+        UUID accountId = shards.newIdOn(shard.index());
+        UUID cardId = shards.newIdOn(shard.index());
+        placeClaimed(accountId, Map.of(Kind.ACCOUNT_NUMBER, accountNumber),
+                () -> placeClaimed(cardId, Map.of(Kind.CARD_NUMBER, cardNumber),
+                        () -> shard.transactionTemplate().executeWithoutResult(status -> {
+                            insertAccountRow(shard, accountId, userId, accountNumber, currency, balance);
+                            insertCardRow(shard, cardId, accountId, type, cardNumber, expiry);
+                        })));
+        return new PlacedAccount(accountId, cardId);
+    }
+
+    public Optional<UUID> findAccountIdByNumber(String accountNumber) {
+        return uniqueKeys.ownerOf(Kind.ACCOUNT_NUMBER, accountNumber);
+    }
+
+    /**
+     * @return Id of the new card, minted on its account's shard
+     * @throws org.springframework.dao.DuplicateKeyException when the card number is taken on any shard
+     */
+    public UUID insertCard(UUID accountId, CardType type, String cardNumber, YearMonth expiry) {
+        Shard shard = shards.shardOf(accountId);
+        UUID cardId = shards.newIdOn(shard.index());
+        placeClaimed(cardId, Map.of(Kind.CARD_NUMBER, cardNumber),
+                () -> insertCardRow(shard, cardId, accountId, type, cardNumber, expiry));
+        return cardId;
+    }
+
+    /**
+     * One account per user, each placed with {@link #insertAccount}.
+     *
+     * @return Account id by number, for the numbers that were placed; a number already taken is left out
+     */
+    public Map<String, UUID> insertAccounts(List<UUID> userIds, List<String> accountNumbers, String currency) {
+        Map<String, UUID> inserted = new LinkedHashMap<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            try {
+                inserted.put(accountNumbers.get(i), insertAccount(userIds.get(i), accountNumbers.get(i), currency, BigDecimal.ZERO));
+            } catch (DuplicateKeyException ex) {
+                // Drawn again by the caller
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * One card per account, each placed with {@link #insertCard}.
+     *
+     * @return Card id by number, for the numbers that were placed; a number already taken is left out
+     */
+    public Map<String, UUID> insertCards(List<UUID> accountIds, List<String> cardNumbers, CardType type, YearMonth expiry) {
+        Map<String, UUID> inserted = new LinkedHashMap<>();
+        for (int i = 0; i < accountIds.size(); i++) {
+            try {
+                inserted.put(cardNumbers.get(i), insertCard(accountIds.get(i), type, cardNumbers.get(i), expiry));
+            } catch (DuplicateKeyException ex) {
+                // Drawn again by the caller
+            }
+        }
+        return inserted;
+    }
+
+    private void insertAccountRow(Shard shard, UUID accountId, UUID userId, String accountNumber, String currency,
+                                  BigDecimal balance) {
+        shard.jdbcTemplate().update("""
+                        INSERT INTO accounts (id, user_id, account_number, balance, currency, status,
+                                              version, created_at, updated_at)
+                        VALUES (?, ?, ?, ?, ?, 'ACTIVE', 0, now(), now())
+                        """,
+                accountId, userId, accountNumber, balance, currency);
+        bankAggregates.apply(shard.jdbcTemplate(),
+                new AggregateDelta().accounts(currency, AccountStatus.ACTIVE, 1, balance));
+    }
+
+    private static void insertCardRow(Shard shard, UUID cardId, UUID accountId, CardType type, String cardNumber,
+                                      YearMonth expiry) {
+        shard.jdbcTemplate().update("""
+                        INSERT INTO cards (id, card_type, account_id, card_number, expiry_date, status,
+                                           created_at, updated_at)
+                        VALUES (?, ?, ?, ?, ?, 'ACTIVE', now(), now())
+                        """,
+                cardId, type.name(), accountId, cardNumber, Date.valueOf(expiry.atDay(1)));
+    }
+
+    // Claims the keys on the primary database, then writes the row on its shard; a failed write frees the keys
+    private void placeClaimed(UUID ownerId, Map<Kind, String> keys, Runnable insert) {
+        uniqueKeys.claim(ownerId, keys);
+        try {
+            insert.run();
+        } catch (RuntimeException ex) {
+            uniqueKeys.release(ownerId);
+            throw ex;
+        }
+    }
+
+    // Runs the query on every shard in parallel; results in shard order
+    private <T> List<T> scatter(Function<JdbcTemplate, T> query) {
+        List<CompletableFuture<T>> results = shards.shards().stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard.jdbcTemplate()), shards.scatter()))
+                .toList();
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    // k-way merge of lists sorted by id: the head of each list in a heap
+    private static <T> List<T> merge(List<List<T>> sorted, Function<T, UUID> id, int limit) {
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(
+                Comparator.comparing((Cursor<T> cursor) -> id.apply(cursor.head()), UUID_ORDER));
+        for (List<T> rows : sorted) {
+            if (!rows.isEmpty()) {
+                heads.add(new Cursor<>(rows, 0));
+            }
+        }
+        List<T> merged = new ArrayList<>(limit);
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Cursor<T> cursor = heads.poll();
+            merged.add(cursor.head());
+            if (cursor.position() + 1 < cursor.rows().size()) {
+                heads.add(new Cursor<>(cursor.rows(), cursor.position() + 1));
+            }
+        }
+        return merged;
+    }
+
+    public record PlacedAccount(UUID accountId, UUID cardId) {
+    }
+
+    private record Cursor<T>(List<T> rows, int position) {
+
+        T head() {
+            return rows.get(position);
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package com.waes.rabobank.bankingaccount.infrastructure.sharding;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+import com.waes.rabobank.bankingaccount.application.event.BalanceChangedEvent;
+import com.waes.rabobank.bankingaccount.domain.enums.AccountStatus;
+import com.waes.rabobank.bankingaccount.domain.enums.CardStatus;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.domain.enums.TransactionType;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedule;
+import com.waes.rabobank.bankingaccount.domain.fx.FxRates;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.AggregateDelta;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates;
+import com.waes.rabobank.bankingaccount.infrastructure.cache.CardAuthorization;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.TransactionOutbox;
+import com.waes.rabobank.bankingaccount.shared.exception.AccountNotFoundException;
+import com.waes.rabobank.bankingaccount.shared.exception.CardAccountMismatchException;
+import com.waes.rabobank.bankingaccount.shared.exception.InactiveAccountException;
+import com.waes.rabobank.bankingaccount.shared.exception.InactiveCardException;
+import com.waes.rabobank.bankingaccount.shared.exception.InsufficientFundsException;
+import com.waes.rabobank.bankingaccount.shared.exception.SelfTransferException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Withdrawals and transfers on sharded accounts, enabled with {@code banking.sharding.enabled=true}.
+ * <p>
+ * A withdrawal, and a transfer between two accounts of one shard, is one local transaction on that shard: the
+ * account rows are locked ({@code SELECT ... FOR UPDATE}, in id order) with their card joined, changed, and the
+ * transaction and outbox rows inserted, and the shard's aggregates updated. A transfer between two shards writes
+ * each leg, with its half of the aggregate delta, on its own shard, committed together by the
+ * {@link ShardTransferCoordinator}.
+ * <p>
+ * Same rules, exceptions and responses as the JPA path. The card is checked on the shard, from the locked row:
+ * the card authorization index reads the primary database.
+ */
+@Component
+public class ShardedPayments {
+
+    private static final String ACCOUNT_WITH_CARD = """
+            SELECT a.id, a.user_id, a.account_number, a.balance, a.currency, a.status,
+                   c.id, c.card_type, c.status, c.expiry_date, c.fee_segment
+            FROM accounts a
+            LEFT JOIN cards c ON c.account_id = a.id
+            """;
+    private static final String LOCK_ACCOUNTS = ACCOUNT_WITH_CARD + """
+            WHERE a.id = ANY(?)
+            ORDER BY a.id
+            FOR UPDATE OF a
+            """;
+    private static final String PEEK_ACCOUNT = ACCOUNT_WITH_CARD + "WHERE a.id = ?";
+    private static final String UPDATE_BALANCE = """
+            UPDATE accounts SET balance = ?, version = COALESCE(version, 0) + 1, updated_at = now() WHERE id = ?
+            """;
+    private static final String INSERT_TRANSACTION = """
+            INSERT INTO transactions (id, account_id, card_id, transaction_type, amount, fee, related_account_id,
+                                      related_transaction_id, balance_after, fx_rate, counter_amount, counter_currency,
+                                      created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String INSERT_OUTBOX =
+            "INSERT INTO transaction_outbox (event_type, aggregate_id, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private static final RowMapper<ShardedAccount> ACCOUNT = (rs, rowNum) -> new ShardedAccount(
+            rs.getObject(1, UUID.class),
+            rs.getObject(2, UUID.class),
+            rs.getString(3),
+            rs.getBigDecimal(4),
+            rs.getString(5),
+            AccountStatus.valueOf(rs.getString(6)),
+            rs.getObject(7) == null ? null : new CardAuthorization(
+                    rs.getObject(7, UUID.class),
+                    rs.getObject(1, UUID.class),
+                    CardStatus.valueOf(rs.getString(9)),
+                    YearMonth.from(rs.getDate(10).toLocalDate()),
+                    CardType.valueOf(rs.getString(8)),
+                    rs.getString(11)));
+
+    private final ShardRegistry shards;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BankAggregates bankAggregates;
+
+    public ShardedPayments(ShardRegistry shards, ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                           BankAggregates bankAggregates) {
+        this.shards = shards;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.bankAggregates = bankAggregates;
+    }
+
+    public boolean isEnabled() {
+        return shards.isEnabled();
+    }
+
+    /**
+     * @param authorized Told the type of the card once it is authorized, for the payment metrics
+     */
+    public WithdrawalResponseDTO withdraw(UUID accountId, UUID cardId, BigDecimal amount, FeeSchedule fees,
+                                          Consumer<CardType> authorized) {
+        Shard shard = shards.shardOf(accountId);
+        return shard.transactionTemplate().execute(status -> {
+            ShardedAccount account = lock(shard, accountId).get(accountId);
+            if (account == null) {
+                throw new AccountNotFoundException(accountId);
+            }
+            CardAuthorization card = authorize(account, cardId);
+            authorized.accept(card.type());
+            BigDecimal fee = fees.fee(card.type(), card.feeSegment(), amount);
+            BigDecimal balanceAfter = debit(account, amount, fee);
+            Instant now = Instant.now();
+
+            UUID transactionId = UUID.randomUUID();
+            shard.jdbcTemplate().update(UPDATE_BALANCE, balanceAfter, accountId);
+            shard.jdbcTemplate().update(INSERT_TRANSACTION, transactionId, accountId, cardId,
+                    TransactionType.WITHDRAWAL.name(), amount, fee, null, null, balanceAfter, null, null, null,
+                    Timestamp.from(now));
+
+            WithdrawalResponseDTO response = new WithdrawalResponseDTO(transactionId.toString(),
+                    accountId.toString(), cardId.toString(), amount, fee, balanceAfter);
+            recordEvent(shard, TransactionOutbox.WITHDRAWAL_COMPLETED, accountId, response, now);
+            bankAggregates.apply(shard.jdbcTemplate(), new AggregateDelta()
+                    .balance(account.currency(), account.status(), amount.add(fee).negate())
+                    .transaction(now, TransactionType.WITHDRAWAL, account.currency(), amount, fee));
+            // Pushed to open balance streams after commit
+            eventPublisher.publishEvent(balanceChanged(account, balanceAfter));
+            return response;
+        });
+    }
+
+    /**
+     * @param authorized Told the type of the card once it is authorized, for the payment metrics
+     */
+    public TransferResponseDTO transfer(UUID fromAccountId, UUID toAccountId, UUID cardId, BigDecimal amount,
+                                        FeeSchedule fees, FxRates rates, Consumer<CardType> authorized) {
+        if (fromAccountId.equals(toAccountId)) {
+            throw new SelfTransferException(fromAccountId);
+        }
+        Shard from = shards.shardOf(fromAccountId);
+        Shard to = shards.shardOf(toAccountId);
+        return from == to
+                ? transferWithinShard(from, fromAccountId, toAccountId, cardId, amount, fees, rates, authorized)
+                : transferAcrossShards(from, fromAccountId, to, toAccountId, cardId, amount, fees, rates, authorized);
+    }
+
+    private TransferResponseDTO transferWithinShard(Shard shard, UUID fromAccountId, UUID toAccountId, UUID cardId,
+                                                    BigDecimal amount, FeeSchedule fees, FxRates rates,
+                                                    Consumer<CardType> authorized) {
+        return shard.transactionTemplate().execute(status -> {
+            Map<UUID, ShardedAccount> accounts = lock(shard, fromAccountId, toAccountId);
+            ShardedAccount source = found(accounts, fromAccountId);
+            ShardedAccount target = found(accounts, toAccountId);
+
+            TransferLegs legs = TransferLegs.of(source, target, amount, rates, Instant.now());
+            CardAuthorization card = authorize(source, cardId);
+            authorized.accept(card.type());
+            legs.debit(source, card, fees);
+            legs.credit(target);
+            writeDebit(shard, legs, cardId);
+            writeCredit(shard, legs, cardId);
+            recordEvent(shard, TransactionOutbox.TRANSFER_COMPLETED, fromAccountId, legs.toResponse(), legs.createdAt);
+            bankAggregates.apply(shard.jdbcTemplate(), legs.debitDelta().add(legs.creditDelta()));
+            // Pushed to open balance streams after commit
+            eventPublisher.publishEvent(balanceChanged(source, legs.fromBalanceAfter));
+            eventPublisher.publishEvent(balanceChanged(target, legs.toBalanceAfter));
+            return legs.toResponse();
+        });
+    }
+
+    private TransferResponseDTO transferAcrossShards(Shard from, UUID fromAccountId, Shard to, UUID toAccountId,
+                                                     UUID cardId, BigDecimal amount, FeeSchedule fees, FxRates rates,
+                                                     Consumer<CardType> authorized) {
+        // Currencies never change: the amounts are fixed before any leg locks its row
+        ShardedAccount sourcePeek = peek(from, fromAccountId);
+        ShardedAccount targetPeek = peek(to, toAccountId);
+        TransferLegs legs = TransferLegs.of(sourcePeek, targetPeek, amount, rates, Instant.now());
+        ShardedAccount[] locked = new ShardedAccount[2];
+        // The event needs both balances: it is written by whichever leg is prepared last
+        Shard last = from.index() > to.index() ? from : to;
+
+        ShardTransferCoordinator.Leg debit = new ShardTransferCoordinator.Leg(from, () -> {
+            ShardedAccount source = found(lock(from, fromAccountId), fromAccountId);
+            CardAuthorization card = authorize(source, cardId);
+            authorized.accept(card.type());
+            legs.debit(source, card, fees);
+            writeDebit(from, legs, cardId);
+            if (from == last) {
+                recordEvent(from, TransactionOutbox.TRANSFER_COMPLETED, fromAccountId, legs.toResponse(), legs.createdAt);
+            }
+            // Each shard adds up its own rows: the debit here, the credit on the target's shard
+            bankAggregates.apply(from.jdbcTemplate(), legs.debitDelta());
+            locked[0] = source;
+        });
+        ShardTransferCoordinator.Leg credit = new ShardTransferCoordinator.Leg(to, () -> {
+            ShardedAccount target = found(lock(to, toAccountId), toAccountId);
+            legs.validateTarget(target);
+            legs.credit(target);
+            writeCredit(to, legs, cardId);
+            if (to == last) {
+                recordEvent(to, TransactionOutbox.TRANSFER_COMPLETED, fromAccountId, legs.toResponse(), legs.createdAt);
+            }
+            bankAggregates.apply(to.jdbcTemplate(), legs.creditDelta());
+            locked[1] = target;
+        });
+        ShardTransferCoordinator.execute(legs.transferTransactionId.toString(), from, List.of(debit, credit));
+
+        // Listeners act after commit: the legs are committed already, an empty transaction carries the events
+        from.transactionTemplate().executeWithoutResult(status -> {
+            eventPublisher.publishEvent(balanceChanged(locked[0], legs.fromBalanceAfter));
+            eventPublisher.publishEvent(balanceChanged(locked[1], legs.toBalanceAfter));
+        });
+        return legs.toResponse();
+    }
+
+    private static Map<UUID, ShardedAccount> lock(Shard shard, UUID... accountIds) {
+        List<ShardedAccount> accounts = shard.jdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement(LOCK_ACCOUNTS);
+            ps.setArray(1, con.createArrayOf("uuid", accountIds));
+            return ps;
+        }, ACCOUNT);
+        return accounts.stream().collect(Collectors.toMap(ShardedAccount::id, Function.identity()));
+    }
+
+    private static ShardedAccount peek(Shard shard, UUID accountId) {
+        return shard.jdbcTemplate().query(PEEK_ACCOUNT, ACCOUNT, accountId).stream().findFirst()
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+    }
+
+    private static ShardedAccount found(Map<UUID, ShardedAccount> accounts, UUID accountId) {
+        ShardedAccount account = accounts.get(accountId);
+        if (account == null) {
+            throw new AccountNotFoundException(accountId);
+        }
+        return account;
+    }
+
+    // Same rules as CardService.authorize, on the card joined to the locked account
+    private static CardAuthorization authorize(ShardedAccount account, UUID cardId) {
+        if (account.card() == null || !account.card().cardId().equals(cardId)) {
+            throw new CardAccountMismatchException(cardId, account.id());
+        }
+        if (!account.card().isActive()) {
+            throw new InactiveCardException(cardId);
+        }
+        return account.card();
+    }
+
+    // Same rules as Account.withdraw
+    private static BigDecimal debit(ShardedAccount account, BigDecimal amount, BigDecimal fee) {
+        BigDecimal total = amount.add(fee);
+        if (total.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (account.balance().compareTo(total) < 0) {
+            throw new InsufficientFundsException(account.id(), account.balance(), total);
+        }
+        return account.balance().subtract(total);
+    }
+
+    private void writeDebit(Shard shard, TransferLegs legs, UUID cardId) {
+        shard.jdbcTemplate().update(UPDATE_BALANCE, legs.fromBalanceAfter, legs.fromAccountId);
+        shard.jdbcTemplate().update(INSERT_TRANSACTION, legs.transferTransactionId, legs.fromAccountId, cardId,
+                TransactionType.TRANSFER.name(), legs.amount, legs.fee, legs.toAccountId, null,
+                legs.fromBalanceAfter,
+                legs.crossCurrency ? legs.fxRate : null,
+                legs.crossCurrency ? legs.creditedAmount : null,
+                legs.crossCurrency ? legs.toCurrency : null,
+                Timestamp.from(legs.createdAt));
+    }
+
+    private void writeCredit(Shard shard, TransferLegs legs, UUID cardId) {
+        shard.jdbcTemplate().update(UPDATE_BALANCE, legs.toBalanceAfter, legs.toAccountId);
+        // Across shards the transfer row it references lives on the other shard (no foreign key there)
+        shard.jdbcTemplate().update(INSERT_TRANSACTION, legs.depositTransactionId, legs.toAccountId, cardId,
+                TransactionType.DEPOSIT.name(), legs.creditedAmount, BigDecimal.ZERO, null,
+                legs.transferTransactionId, legs.toBalanceAfter,
+                legs.crossCurrency ? legs.inverseFxRate : null,
+                legs.crossCurrency ? legs.amount : null,
+                legs.crossCurrency ? legs.fromCurrency : null,
+                Timestamp.from(legs.createdAt));
+    }
+
+    private void recordEvent(Shard shard, String eventType, UUID aggregateId, Object payload, Instant createdAt) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize " + eventType + " event", ex);
+        }
+        shard.jdbcTemplate().update(INSERT_OUTBOX, eventType, aggregateId, json, Timestamp.from(createdAt));
+    }
+
+    private static BalanceChangedEvent balanceChanged(ShardedAccount account, BigDecimal balance) {
+        return new BalanceChangedEvent(new AccountBalanceDTO(account.userId().toString(), account.id().toString(),
+                account.accountNumber(), balance, account.currency()));
+    }
+
+    private record ShardedAccount(
+            UUID id,
+            UUID userId,
+            String accountNumber,
+            BigDecimal balance,
+            String currency,
+            AccountStatus status,
+            CardAuthorization card // null without a card
+    ) {
+
+        boolean active() {
+            return status == AccountStatus.ACTIVE;
+        }
+    }
+
+    /**
+     * Amounts and ids of both legs of a transfer. Filled in by the legs as they lock their rows, possibly on two
+     * shards one after the other.
+     */
+    private static final class TransferLegs {
+
+        private final UUID transferTransactionId = UUID.randomUUID();
+        private final UUID depositTransactionId = UUID.randomUUID();
+        private final UUID fromAccountId;
+        private final UUID toAccountId;
+        private final String fromCurrency;
+        private final String toCurrency;
+        private final boolean crossCurrency;
+        private final BigDecimal amount;
+        private final BigDecimal fxRate;
+        private final BigDecimal inverseFxRate;
+        private final BigDecimal creditedAmount;
+        private final Instant createdAt;
+        private AccountStatus fromStatus;
+        private AccountStatus toStatus;
+        private BigDecimal fee;
+        private BigDecimal fromBalanceAfter;
+        private BigDecimal toBalanceAfter;
+
+        private TransferLegs(ShardedAccount source, ShardedAccount target, BigDecimal amount, FxRates rates,
+                             Instant createdAt) {
+            this.fromAccountId = source.id();
+            this.toAccountId = target.id();
+            this.fromCurrency = source.currency();
+            this.toCurrency = target.currency();
+            this.crossCurrency = !fromCurrency.equals(toCurrency);
+            this.amount = amount;
+            this.fxRate = rates.rate(fromCurrency, toCurrency);
+            this.inverseFxRate = rates.rate(toCurrency, fromCurrency);
+            this.creditedAmount = crossCurrency ? FxRates.convert(amount, fxRate) : amount;
+            this.createdAt = createdAt;
+        }
+
+        static TransferLegs of(ShardedAccount source, ShardedAccount target, BigDecimal amount, FxRates rates,
+                               Instant createdAt) {
+            if (!source.active()) {
+                throw new InactiveAccountException(source.id());
+            }
+            if (!target.active()) {
+                throw new InactiveAccountException(target.id());
+            }
+            TransferLegs legs = new TransferLegs(source, target, amount, rates, createdAt);
+            if (legs.creditedAmount.signum() <= 0) {
+                throw new IllegalArgumentException("Amount must be positive");
+            }
+            return legs;
+        }
+
+        // Status may have changed since it was peeked
+        void validateTarget(ShardedAccount target) {
+            if (!target.active()) {
+                throw new InactiveAccountException(target.id());
+            }
+        }
+
+        void debit(ShardedAccount source, CardAuthorization card, FeeSchedule fees) {
+            if (!source.active()) {
+                throw new InactiveAccountException(source.id());
+            }
+            fee = fees.fee(card.type(), card.feeSegment(), amount);
+            fromBalanceAfter = ShardedPayments.debit(source, amount, fee);
+            fromStatus = source.status();
+        }
+
+        void credit(ShardedAccount target) {
+            toBalanceAfter = target.balance().add(creditedAmount);
+            toStatus = target.status();
+        }
+
+        AggregateDelta debitDelta() {
+            return new AggregateDelta()
+                    .balance(fromCurrency, fromStatus, amount.add(fee).negate())
+                    .transaction(createdAt, TransactionType.TRANSFER, fromCurrency, amount, fee);
+        }
+
+        AggregateDelta creditDelta() {
+            return new AggregateDelta()
+                    .balance(toCurrency, toStatus, creditedAmount)
+                    .transaction(createdAt, TransactionType.DEPOSIT, toCurrency, creditedAmount, BigDecimal.ZERO);
+        }
+
+        TransferResponseDTO toResponse() {
+            return new TransferResponseDTO(
+                    transferTransactionId.toString(),
+                    depositTransactionId.toString(),
+                    fromAccountId.toString(),
+                    toAccountId.toString(),
+                    amount,
+                    fee,
+                    fromBalanceAfter,
+                    toBalanceAfter,
+                    creditedAmount,
+                    fxRate);
+        }
+    }
+}
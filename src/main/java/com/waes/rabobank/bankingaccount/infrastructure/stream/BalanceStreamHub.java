@@ -0,0 +1,139 @@
+package com.waes.rabobank.bankingaccount.infrastructure.stream;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.event.BalanceChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-process fan-out of committed balance changes to the open {@code GET /api/accounts/stream} connections of
+ * the account holder.
+ * <p>
+ * An open stream costs no thread: the servlet request is in async mode and a virtual thread only exists while
+ * something is being written to that client. A heartbeat comment every {@code banking.balance-stream.heartbeat-interval}
+ * keeps proxies from closing idle streams and detects dead clients. Streams end after
+ * {@code banking.balance-stream.timeout}; the client reconnects and starts again from a fresh snapshot.
+ * <p>
+ * Only changes committed by this instance are seen.
+ * <p>
+ * Meters: {@code banking.balance_stream.subscribers} and {@code banking.balance_stream.updates}, tag
+ * {@code outcome} ({@code queued}, {@code coalesced}: replaced an update of the same account that was not sent yet).
+ */
+@Component
+public class BalanceStreamHub {
+
+    private final Map<String, Set<BalanceSubscription>> subscriptionsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final ExecutorService writers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("balance-stream-", 0).factory());
+    private final long timeoutMillis;
+    private final Counter queued;
+    private final Counter coalesced;
+
+    public BalanceStreamHub(@Value("${banking.balance-stream.timeout:30m}") Duration timeout, MeterRegistry meterRegistry) {
+        this.timeoutMillis = timeout.toMillis();
+        Gauge.builder("banking.balance_stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open balance streams")
+                .register(meterRegistry);
+        this.queued = meterRegistry.counter("banking.balance_stream.updates", "outcome", "queued");
+        this.coalesced = meterRegistry.counter("banking.balance_stream.updates", "outcome", "coalesced");
+    }
+
+    /**
+     * Opens a stream that starts with the snapshot (one event per account) and continues with every committed
+     * change of the user's accounts. The snapshot is read only once the stream receives changes: a change
+     * committed meanwhile is in the snapshot, delivered live, or both, and a live balance is never replaced by the
+     * snapshot's. When reading the snapshot fails (unknown user) no stream is opened.
+     */
+    public SseEmitter subscribe(String userId, Supplier<List<AccountBalanceDTO>> snapshot) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        BalanceSubscription[] self = new BalanceSubscription[1];
+        BalanceSubscription subscription = new BalanceSubscription(userId, emitter, writers, () -> remove(self[0]));
+        self[0] = subscription;
+
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(() -> {
+            subscription.close();
+            emitter.complete();
+        });
+        emitter.onError(ex -> subscription.close());
+
+        subscriptionsByUser.compute(userId, (key, subscriptions) -> {
+            Set<BalanceSubscription> target = subscriptions == null ? ConcurrentHashMap.newKeySet() : subscriptions;
+            target.add(subscription);
+            return target;
+        });
+        subscribers.incrementAndGet();
+
+        try {
+            subscription.offerSnapshot(snapshot.get());
+        } catch (RuntimeException ex) {
+            subscription.close();
+            throw ex;
+        }
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBalanceChanged(BalanceChangedEvent event) {
+        AccountBalanceDTO balance = event.balance();
+        Set<BalanceSubscription> subscriptions = subscriptionsByUser.get(balance.userId());
+        if (subscriptions == null) {
+            return;
+        }
+        for (BalanceSubscription subscription : subscriptions) {
+            if (subscription.offer(balance)) {
+                coalesced.increment();
+            } else {
+                queued.increment();
+            }
+        }
+    }
+
+    @Scheduled(
+            fixedDelayString = "${banking.balance-stream.heartbeat-interval:15s}",
+            initialDelayString = "${banking.balance-stream.heartbeat-interval:15s}"
+    )
+    public void heartbeat() {
+        subscriptionsByUser.values().forEach(subscriptions -> subscriptions.forEach(BalanceSubscription::heartbeat));
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptionsByUser.values().forEach(subscriptions -> subscriptions.forEach(subscription -> {
+            subscription.emitter().complete();
+            subscription.close();
+        }));
+        writers.shutdownNow();
+    }
+
+    private void remove(BalanceSubscription subscription) {
+        subscriptionsByUser.computeIfPresent(subscription.userId(), (key, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+        subscribers.decrementAndGet();
+    }
+}
@@ -0,0 +1,144 @@
+package com.waes.rabobank.bankingaccount.infrastructure.stream;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One open balance stream. Publishers only park the newest balance per account and make sure a drain is
+ * scheduled; the drain writes to the client on its own virtual thread, so a slow client never holds up a payment
+ * or the other streams.
+ * <p>
+ * Backpressure: a balance not yet written is replaced by a newer one of the same account (latest wins), so a
+ * client that reads slowly receives fewer, current updates and the memory held for it is bounded by its accounts.
+ */
+final class BalanceSubscription {
+
+    static final String BALANCE_EVENT = "balance";
+
+    private final String userId;
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private final Runnable onClose;
+
+    private final Map<String, AccountBalanceDTO> pending = new LinkedHashMap<>(); // Guarded by itself
+    private Set<String> liveAccounts = new HashSet<>(); // Until the snapshot is offered, guarded by pending
+    private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    BalanceSubscription(String userId, SseEmitter emitter, Executor executor, Runnable onClose) {
+        this.userId = userId;
+        this.emitter = emitter;
+        this.executor = executor;
+        this.onClose = onClose;
+    }
+
+    String userId() {
+        return userId;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    /**
+     * @return {@code true} when the update replaced one the client had not received yet
+     */
+    boolean offer(AccountBalanceDTO balance) {
+        AccountBalanceDTO replaced;
+        synchronized (pending) {
+            replaced = pending.put(balance.accountId(), balance);
+            if (liveAccounts != null) {
+                liveAccounts.add(balance.accountId());
+            }
+        }
+        scheduleDrain();
+        return replaced != null;
+    }
+
+    /**
+     * Queues the balances read when the stream opened, except for accounts a live update already reached
+     * (pending or sent): the snapshot may have been read before that change committed.
+     */
+    void offerSnapshot(List<AccountBalanceDTO> snapshot) {
+        synchronized (pending) {
+            for (AccountBalanceDTO balance : snapshot) {
+                if (!liveAccounts.contains(balance.accountId())) {
+                    pending.putIfAbsent(balance.accountId(), balance);
+                }
+            }
+            liveAccounts = null;
+        }
+        scheduleDrain();
+    }
+
+    void heartbeat() {
+        heartbeatDue.set(true);
+        scheduleDrain();
+    }
+
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            onClose.run();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (!closed.get() && draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            do {
+                AccountBalanceDTO next;
+                while (!closed.get() && (next = poll()) != null) {
+                    emitter.send(SseEmitter.event().name(BALANCE_EVENT).data(next, MediaType.APPLICATION_JSON));
+                }
+                if (!closed.get() && heartbeatDue.getAndSet(false)) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+                draining.set(false);
+                // An offer between the last poll and the reset above found the drain still running
+            } while (hasWork() && draining.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException ex) {
+            // Client gone or emitter already completed
+            draining.set(false);
+            emitter.completeWithError(ex);
+            close();
+        }
+    }
+
+    private AccountBalanceDTO poll() {
+        synchronized (pending) {
+            Iterator<AccountBalanceDTO> iterator = pending.values().iterator();
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            AccountBalanceDTO next = iterator.next();
+            iterator.remove();
+            return next;
+        }
+    }
+
+    private boolean hasWork() {
+        if (closed.get()) {
+            return false;
+        }
+        synchronized (pending) {
+            return !pending.isEmpty() || heartbeatDue.get();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.waes.rabobank.bankingaccount.infrastructure.workload;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive concurrency limit driven by latency, after the gradient algorithm of Netflix concurrency-limits.
+ * <p>
+ * Two moving averages of the response time are kept: a short one (last ~10 requests) and a long one (~600), the
+ * baseline. While the short one stays within {@code 1.5 x} the baseline the limit grows by about
+ * {@code sqrt(limit)}; once latency rises above that, the limit is cut by the ratio (at most in half). A request
+ * over the limit is rejected, not queued. The limit stays within {@code [minLimit, maxLimit]}.
+ */
+public class GradientLimiter {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int SHORT_WINDOW = 10;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private volatile boolean latencyRising;
+
+    // Guarded by this
+    private double shortRtt;
+    private double longRtt;
+
+    public GradientLimiter(int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max, got " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * @return Whether the request may run; if so, {@link #release(long)} must follow
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(limit());
+    }
+
+    /**
+     * Same as {@link #tryAcquire()}, against a lower cap than the current limit.
+     */
+    public boolean tryAcquire(int cap) {
+        int allowed = Math.min(cap, limit());
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends an admitted request and feeds its response time to the limit.
+     */
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        update(rttNanos, inFlightBefore);
+    }
+
+    private synchronized void update(long rttNanos, int inFlightBefore) {
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return;
+        }
+        shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+        longRtt += (shortRtt - longRtt) / LONG_WINDOW;
+        // Load went away: let the baseline come down quickly instead of over the whole long window
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        latencyRising = gradient < 1.0;
+
+        // Under half the limit in use says nothing about whether a higher limit would help
+        double current = limit;
+        if (gradient == 1.0 && inFlightBefore < current / 2) {
+            return;
+        }
+        double target = current * gradient + Math.sqrt(current);
+        double smoothed = current * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int minLimit() {
+        return minLimit;
+    }
+
+    public int maxLimit() {
+        return maxLimit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return Latency above tolerance, or every permit taken: classes below this one should back off
+     */
+    public boolean isCongested() {
+        return latencyRising || inFlight.get() >= limit();
+    }
+}
@@ -0,0 +1,21 @@
+package com.waes.rabobank.bankingaccount.infrastructure.workload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Workload class of a controller or handler method (the method wins). Requests to handlers without it are not
+ * limited.
+ * <p>
+ * Enforced by {@link WorkloadInterceptor}.
+ */
+@Documented
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Workload {
+
+    WorkloadClass value();
+}
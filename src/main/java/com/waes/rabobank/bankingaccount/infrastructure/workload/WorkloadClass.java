@@ -0,0 +1,23 @@
+package com.waes.rabobank.bankingaccount.infrastructure.workload;
+
+/**
+ * Classes of request traffic, each with its own concurrency budget and limiter. Declared by priority, highest
+ * first: a class is held to its minimum while a class above it is congested.
+ */
+public enum WorkloadClass {
+
+    PAYMENT("payment"),
+    CUSTOMER_READ("customer-read"),
+    REPORTING("reporting");
+
+    private final String key;
+
+    WorkloadClass(String key) {
+        this.key = key;
+    }
+
+    // Property key (banking.workload.<key>.*) and meter tag
+    public String key() {
+        return key;
+    }
+}
@@ -0,0 +1,72 @@
+package com.waes.rabobank.bankingaccount.infrastructure.workload;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Workload bulkheads. Per class ({@code payment}, {@code customer-read}, {@code reporting}):
+ * <pre>
+ * banking.workload.&lt;class&gt;.max-concurrency   budget: requests in flight, and so connections (OSIV is off)
+ * banking.workload.&lt;class&gt;.min-concurrency   floor of the adaptive limit, and all the class gets while a
+ *                                             higher class is congested
+ * banking.workload.&lt;class&gt;.retry-after       Retry-After of the 503
+ * </pre>
+ * Set {@code banking.workload.enabled=false} to admit every request.
+ */
+@Configuration
+@ConditionalOnProperty(name = "banking.workload.enabled", havingValue = "true", matchIfMissing = true)
+public class WorkloadConfiguration implements WebMvcConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadConfiguration.class);
+
+    private final Environment environment;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public WorkloadConfiguration(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    WorkloadLimiters workloadLimiters() {
+        Map<WorkloadClass, GradientLimiter> limiters = new EnumMap<>(WorkloadClass.class);
+        Map<WorkloadClass, Duration> retryAfter = new EnumMap<>(WorkloadClass.class);
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            String prefix = "banking.workload." + workload.key() + ".";
+            limiters.put(workload, new GradientLimiter(
+                    environment.getProperty(prefix + "min-concurrency", Integer.class, 1),
+                    environment.getProperty(prefix + "max-concurrency", Integer.class, 10)));
+            retryAfter.put(workload, environment.getProperty(prefix + "retry-after", Duration.class, Duration.ofSeconds(1)));
+        }
+
+        // Payments may use the whole pool, the classes below must leave it room
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        int lowerBudgets = limiters.get(WorkloadClass.CUSTOMER_READ).maxLimit() + limiters.get(WorkloadClass.REPORTING).maxLimit();
+        if (lowerBudgets >= poolSize) {
+            logger.warn("workload.budgets_exceed_pool", kv("lowerClassBudgets", lowerBudgets), kv("poolSize", poolSize));
+        }
+
+        // Web slices run without the metrics auto-configuration, fall back to the (no-op) global registry there
+        return new WorkloadLimiters(limiters, retryAfter, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new WorkloadInterceptor(workloadLimiters()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.waes.rabobank.bankingaccount.infrastructure.workload;
+
+import com.waes.rabobank.bankingaccount.shared.exception.WorkloadRejectedException;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * The {@link WorkloadInterceptor} for WebFlux routes: admits each request through the {@link WorkloadLimiters} of
+ * its class, or fails it with a {@link WorkloadRejectedException} (503 + {@code Retry-After}) before the handler
+ * runs. The permit is held until the handler's response is ready, or the request is cancelled.
+ */
+public class WorkloadHandlerFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    private final WorkloadLimiters limiters;
+    private final WorkloadClass workload;
+
+    public WorkloadHandlerFilter(WorkloadLimiters limiters, WorkloadClass workload) {
+        this.limiters = limiters;
+        this.workload = workload;
+    }
+
+    @Override
+    public Mono<ServerResponse> filter(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        return Mono.defer(() -> {
+            if (!limiters.tryAcquire(workload)) {
+                return Mono.error(new WorkloadRejectedException(workload.key(), limiters.retryAfter(workload)));
+            }
+            long startNanos = System.nanoTime();
+            return Mono.defer(() -> next.handle(request))
+                    .doFinally(signal -> limiters.release(workload, System.nanoTime() - startNanos));
+        });
+    }
+}
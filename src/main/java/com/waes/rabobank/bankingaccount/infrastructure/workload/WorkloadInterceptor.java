@@ -0,0 +1,93 @@
+package com.waes.rabobank.bankingaccount.infrastructure.workload;
+
+import com.waes.rabobank.bankingaccount.shared.exception.WorkloadRejectedException;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admits each request to a {@link Workload}-annotated handler through the {@link WorkloadLimiters} of its class,
+ * or rejects it with a {@link WorkloadRejectedException} (503 + {@code Retry-After}) before any work is done.
+ * <p>
+ * The permit is held until the response is complete: for streaming bodies that is when the async task ends,
+ * not when the handler returns.
+ */
+public class WorkloadInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ADMISSION = WorkloadInterceptor.class.getName() + ".admission";
+
+    private final WorkloadLimiters limiters;
+
+    public WorkloadInterceptor(WorkloadLimiters limiters) {
+        this.limiters = limiters;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Async dispatches complete a request that was admitted already
+        if (request.getDispatcherType() == DispatcherType.ASYNC || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        WorkloadClass workload = workloadOf(method);
+        if (workload == null) {
+            return true;
+        }
+        if (!limiters.tryAcquire(workload)) {
+            throw new WorkloadRejectedException(workload.key(), limiters.retryAfter(workload));
+        }
+
+        Admission admission = new Admission(workload, System.nanoTime());
+        request.setAttribute(ADMISSION, admission);
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ADMISSION, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                admission.release();
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ADMISSION) instanceof Admission admission
+                && !WebAsyncUtils.getAsyncManager(request).isConcurrentHandlingStarted()) {
+            admission.release();
+        }
+    }
+
+    private static WorkloadClass workloadOf(HandlerMethod method) {
+        Workload workload = AnnotatedElementUtils.findMergedAnnotation(method.getMethod(), Workload.class);
+        if (workload == null) {
+            workload = AnnotatedElementUtils.findMergedAnnotation(method.getBeanType(), Workload.class);
+        }
+        return workload == null ? null : workload.value();
+    }
+
+    // Released once, by whichever of the sync completion or the async task end comes first
+    private final class Admission {
+
+        private final WorkloadClass workload;
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Admission(WorkloadClass workload, long startNanos) {
+            this.workload = workload;
+            this.startNanos = startNanos;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limiters.release(workload, System.nanoTime() - startNanos);
+            }
+        }
+    }
+}
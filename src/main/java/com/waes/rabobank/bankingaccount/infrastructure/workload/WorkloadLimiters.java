@@ -0,0 +1,85 @@
+package com.waes.rabobank.bankingaccount.infrastructure.workload;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One {@link GradientLimiter} per {@link WorkloadClass}: the bulkheads. The maximum of each limiter is the
+ * concurrency (and so the connection) budget of its class; within it, the limit follows the class's own latency.
+ * <p>
+ * Load is shed lowest priority first: while a higher class is congested, a class only admits up to its minimum.
+ * <p>
+ * Meters: {@code banking.workload.limit}, {@code banking.workload.in_flight} and
+ * {@code banking.workload.rejected}, tagged {@code class}.
+ */
+public class WorkloadLimiters {
+
+    private final Map<WorkloadClass, GradientLimiter> limiters;
+    private final Map<WorkloadClass, Duration> retryAfter;
+    private final Map<WorkloadClass, Counter> rejected = new EnumMap<>(WorkloadClass.class);
+
+    public WorkloadLimiters(Map<WorkloadClass, GradientLimiter> limiters, Map<WorkloadClass, Duration> retryAfter,
+                            MeterRegistry meterRegistry) {
+        this.limiters = new EnumMap<>(limiters);
+        this.retryAfter = new EnumMap<>(retryAfter);
+
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            GradientLimiter limiter = this.limiters.get(workload);
+            Gauge.builder("banking.workload.limit", limiter, GradientLimiter::limit)
+                    .description("Current adaptive concurrency limit of the workload class")
+                    .tag("class", workload.key())
+                    .register(meterRegistry);
+            Gauge.builder("banking.workload.in_flight", limiter, GradientLimiter::inFlight)
+                    .description("Requests of the workload class being served")
+                    .tag("class", workload.key())
+                    .register(meterRegistry);
+            rejected.put(workload, Counter.builder("banking.workload.rejected")
+                    .description("Requests of the workload class shed with 503")
+                    .tag("class", workload.key())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * @return Whether the request may run; if so, {@link #release(WorkloadClass, long)} must follow
+     */
+    public boolean tryAcquire(WorkloadClass workload) {
+        GradientLimiter limiter = limiters.get(workload);
+        boolean admitted = higherClassCongested(workload)
+                ? limiter.tryAcquire(limiter.minLimit())
+                : limiter.tryAcquire();
+        if (!admitted) {
+            rejected.get(workload).increment();
+        }
+        return admitted;
+    }
+
+    public void release(WorkloadClass workload, long rttNanos) {
+        limiters.get(workload).release(rttNanos);
+    }
+
+    public Duration retryAfter(WorkloadClass workload) {
+        return retryAfter.get(workload);
+    }
+
+    public GradientLimiter limiter(WorkloadClass workload) {
+        return limiters.get(workload);
+    }
+
+    private boolean higherClassCongested(WorkloadClass workload) {
+        for (WorkloadClass higher : WorkloadClass.values()) {
+            if (higher == workload) {
+                return false;
+            }
+            if (limiters.get(higher).isCongested()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
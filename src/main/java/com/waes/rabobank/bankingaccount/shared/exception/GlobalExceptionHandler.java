@@ -1,9 +1,14 @@
 package com.waes.rabobank.bankingaccount.shared.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -16,11 +21,19 @@ public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private final MeterRegistry meterRegistry;
+
+    // Web slices run without the metrics auto-configuration, fall back to the (no-op) global registry there
+    public GlobalExceptionHandler(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
     // ============================
     // === 404 Not Found Errors ===
     // ============================
     @ExceptionHandler(AccountNotFoundException.class)
     public ProblemDetail handleAccountNotFoundException(AccountNotFoundException ex) {
+        countException(ex);
         logger.warn("exception.account_not_found", kv("accountId", ex.getAccountId()));
 
         ProblemDetail problem = ProblemDetail.forStatusAndDetail(
@@ -36,6 +49,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(CardNotFoundException.class)
     public ProblemDetail handleCardNotFoundException(CardNotFoundException ex) {
+        countException(ex);
         logger.warn("exception.card_not_found", kv("cardId", ex.getCardId()));
 
         ProblemDetail problem = ProblemDetail.forStatusAndDetail(
@@ -51,6 +65,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(UserNotFoundException.class)
     public ProblemDetail handleUserNotFoundException(UserNotFoundException ex) {
+        countException(ex);
         if (ex.getUserId() != null) {
             logger.warn("exception.user_not_found", kv("userId", ex.getUserId()));
         } else {
@@ -78,6 +93,7 @@ public class GlobalExceptionHandler {
     // ============================
     @ExceptionHandler(InsufficientFundsException.class)
     public ProblemDetail handleInsufficientFundsException(InsufficientFundsException ex) {
+        countException(ex);
         logger.warn("exception.insufficient_funds",
                 kv("accountId", ex.getAccountId()),
                 kv("availableBalance", ex.getAvailableBalance()),
@@ -101,6 +117,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(CardAccountMismatchException.class)
     public ProblemDetail handleCardAccountMismatchException(CardAccountMismatchException ex) {
+        countException(ex);
         logger.warn("exception.card_account_mismatch",
                 kv("cardId", ex.getCardId()),
                 kv("accountId", ex.getAccountId())
@@ -120,6 +137,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(InactiveCardException.class)
     public ProblemDetail handleInactiveCardException(InactiveCardException ex) {
+        countException(ex);
         logger.warn("exception.inactive_card", kv("cardId", ex.getCardId()));
 
         ProblemDetail problem = ProblemDetail.forStatusAndDetail(
@@ -135,6 +153,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(InactiveAccountException.class)
     public ProblemDetail handleInactiveAccountException(InactiveAccountException ex) {
+        countException(ex);
         logger.warn("exception.inactive_account", kv("accountId", ex.getAccountId()));
 
         ProblemDetail problem = ProblemDetail.forStatusAndDetail(
@@ -150,6 +169,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(SelfTransferException.class)
     public ProblemDetail handleSelfTransferException(SelfTransferException ex) {
+        countException(ex);
         logger.warn("exception.self_transfer", kv("accountId", ex.getAccountId()));
 
         ProblemDetail problem = ProblemDetail.forStatusAndDetail(
@@ -163,11 +183,32 @@ public class GlobalExceptionHandler {
         return problem;
     }
 
+    @ExceptionHandler(UnsupportedCurrencyPairException.class)
+    public ProblemDetail handleUnsupportedCurrencyPairException(UnsupportedCurrencyPairException ex) {
+        countException(ex);
+        logger.warn("exception.unsupported_currency_pair",
+                kv("fromCurrency", ex.getFromCurrency()),
+                kv("toCurrency", ex.getToCurrency())
+        );
+
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(
+                HttpStatus.UNPROCESSABLE_ENTITY,
+                ex.getMessage()
+        );
+        problem.setTitle("Unsupported Currency Pair");
+        problem.setType(URI.create("https://api.rabobank.com/errors/unsupported-currency-pair"));
+        problem.setProperty("fromCurrency", ex.getFromCurrency());
+        problem.setProperty("toCurrency", ex.getToCurrency());
+
+        return problem;
+    }
+
     // ============================
     // === 400 Bad Request ===
     // ============================
     @ExceptionHandler(IllegalArgumentException.class)
     public ProblemDetail handleIllegalArgumentException(IllegalArgumentException ex) {
+        countException(ex);
         logger.warn("exception.illegal_argument", kv("message", ex.getMessage()));
 
         ProblemDetail problem = ProblemDetail.forStatusAndDetail(
@@ -182,6 +223,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(AccountIdMismatchException.class)
     public ProblemDetail handleAccountIdMismatchException(AccountIdMismatchException ex) {
+        countException(ex);
         logger.warn("exception.account_id_mismatch",
                 kv("pathAccountId", ex.getPathAccountId()),
                 kv("bodyAccountId", ex.getBodyAccountId())
@@ -198,4 +240,89 @@ public class GlobalExceptionHandler {
 
         return problem;
     }
-}
\ No newline at end of file
+
+    // ============================
+    // === 429 Too Many Requests ===
+    // ============================
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ProblemDetail> handleRateLimitExceededException(RateLimitExceededException ex) {
+        countException(ex);
+        // A flooding client rejects in bursts, banking.ratelimit.rejected counts them
+        logger.debug("exception.rate_limit_exceeded", kv("scope", ex.getScope()));
+
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(
+                HttpStatus.TOO_MANY_REQUESTS,
+                ex.getMessage()
+        );
+        problem.setTitle("Rate Limit Exceeded");
+        problem.setType(URI.create("https://api.rabobank.com/errors/rate-limit-exceeded"));
+        problem.setProperty("scope", ex.getScope());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                .body(problem);
+    }
+
+    // ============================
+    // === 503 Service Unavailable ===
+    // ============================
+    @ExceptionHandler(WorkloadRejectedException.class)
+    public ResponseEntity<ProblemDetail> handleWorkloadRejectedException(WorkloadRejectedException ex) {
+        countException(ex);
+        // Shedding rejects in bursts, banking.workload.rejected counts them
+        logger.debug("exception.workload_rejected", kv("workload", ex.getWorkload()));
+
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                ex.getMessage()
+        );
+        problem.setTitle("Service Overloaded");
+        problem.setType(URI.create("https://api.rabobank.com/errors/service-overloaded"));
+        problem.setProperty("workload", ex.getWorkload());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                .body(problem);
+    }
+
+    @ExceptionHandler(SingleFlightTimeoutException.class)
+    public ResponseEntity<ProblemDetail> handleSingleFlightTimeoutException(SingleFlightTimeoutException ex) {
+        countException(ex);
+        logger.warn("exception.single_flight_timeout", kv("timeoutMs", ex.getTimeout().toMillis()));
+
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                ex.getMessage()
+        );
+        problem.setTitle("Request Timed Out");
+        problem.setType(URI.create("https://api.rabobank.com/errors/request-timed-out"));
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(problem);
+    }
+
+    // ============================
+    // === 501 Not Implemented ===
+    // ============================
+    @ExceptionHandler(ShardingUnsupportedException.class)
+    public ProblemDetail handleShardingUnsupportedException(ShardingUnsupportedException ex) {
+        countException(ex);
+        logger.warn("exception.sharding_unsupported", kv("operation", ex.getOperation()));
+
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(
+                HttpStatus.NOT_IMPLEMENTED,
+                ex.getMessage()
+        );
+        problem.setTitle("Not Available With Sharding");
+        problem.setType(URI.create("https://api.rabobank.com/errors/sharding-unsupported"));
+        problem.setProperty("operation", ex.getOperation());
+
+        return problem;
+    }
+
+    // Meter: banking.exceptions{exception=<simple class name>}
+    private void countException(Exception ex) {
+        meterRegistry.counter("banking.exceptions", "exception", ex.getClass().getSimpleName()).increment();
+    }
+}
@@ -0,0 +1,26 @@
+package com.waes.rabobank.bankingaccount.shared.exception;
+
+public class QueryBudgetExceededException extends RuntimeException {
+    private final String operation;
+    private final int budget;
+    private final long statements;
+
+    public QueryBudgetExceededException(String operation, int budget, long statements) {
+        super(String.format("%s issued %d SQL statements, budget is %d", operation, statements, budget));
+        this.operation = operation;
+        this.budget = budget;
+        this.statements = statements;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+}
@@ -0,0 +1,22 @@
+package com.waes.rabobank.bankingaccount.shared.exception;
+
+import java.time.Duration;
+
+public class RateLimitExceededException extends RuntimeException {
+    private final String scope;
+    private final Duration retryAfter;
+
+    public RateLimitExceededException(String scope, Duration retryAfter) {
+        super(String.format("Too many payment requests for this %s, retry in %d s", scope, retryAfter.toSeconds()));
+        this.scope = scope;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,14 @@
+package com.waes.rabobank.bankingaccount.shared.exception;
+
+public class ShardingUnsupportedException extends RuntimeException {
+    private final String operation;
+
+    public ShardingUnsupportedException(String operation) {
+        super(String.format("%s is not available while accounts are sharded", operation));
+        this.operation = operation;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+}
@@ -0,0 +1,16 @@
+package com.waes.rabobank.bankingaccount.shared.exception;
+
+import java.time.Duration;
+
+public class SingleFlightTimeoutException extends RuntimeException {
+    private final Duration timeout;
+
+    public SingleFlightTimeoutException(Duration timeout) {
+        super(String.format("Identical request still in flight after %d ms", timeout.toMillis()));
+        this.timeout = timeout;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
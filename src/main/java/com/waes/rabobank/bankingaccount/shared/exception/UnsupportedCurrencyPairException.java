@@ -0,0 +1,20 @@
+package com.waes.rabobank.bankingaccount.shared.exception;
+
+public class UnsupportedCurrencyPairException extends RuntimeException {
+    private final String fromCurrency;
+    private final String toCurrency;
+
+    public UnsupportedCurrencyPairException(String fromCurrency, String toCurrency) {
+        super(String.format("No exchange rate from %s to %s", fromCurrency, toCurrency));
+        this.fromCurrency = fromCurrency;
+        this.toCurrency = toCurrency;
+    }
+
+    public String getFromCurrency() {
+        return fromCurrency;
+    }
+
+    public String getToCurrency() {
+        return toCurrency;
+    }
+}
@@ -0,0 +1,22 @@
+package com.waes.rabobank.bankingaccount.shared.exception;
+
+import java.time.Duration;
+
+public class WorkloadRejectedException extends RuntimeException {
+    private final String workload;
+    private final Duration retryAfter;
+
+    public WorkloadRejectedException(String workload, Duration retryAfter) {
+        super(String.format("Too many %s requests in flight, retry in %d s", workload, retryAfter.toSeconds()));
+        this.workload = workload;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getWorkload() {
+        return workload;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,29 @@
+package com.waes.rabobank.bankingaccount.shared.identifier;
+
+/**
+ * Dutch citizen service number (BSN): nine digits passing the eleven test,
+ * {@code 9·d1 + 8·d2 + ... + 2·d8 - 1·d9} divisible by 11.
+ */
+public final class Bsn {
+
+    private static final int LENGTH = 9;
+
+    private Bsn() {
+    }
+
+    public static boolean isValid(CharSequence bsn) {
+        if (bsn == null || bsn.length() != LENGTH) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            char c = bsn.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            int weight = i == LENGTH - 1 ? -1 : LENGTH - i;
+            sum += weight * (c - '0');
+        }
+        return sum != 0 && sum % 11 == 0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.waes.rabobank.bankingaccount.shared.identifier;
+
+/**
+ * ISO 13616 IBANs: check digits and validation (mod 97 over the rearranged, letter-expanded number).
+ */
+public final class Iban {
+
+    private static final int MIN_LENGTH = 15;
+    private static final int MAX_LENGTH = 34;
+
+    private Iban() {
+    }
+
+    /**
+     * Dutch IBAN: {@code NL}, two check digits, four-letter bank code and a ten-digit account number,
+     * e.g. {@code dutch("RABO", 123456789)} gives {@code NL39RABO0123456789}.
+     */
+    public static String dutch(String bankCode, long accountNumber) {
+        if (bankCode.length() != 4 || accountNumber < 0 || accountNumber > 9_999_999_999L) {
+            throw new IllegalArgumentException("Invalid Dutch bank code or account number: " + bankCode + " " + accountNumber);
+        }
+        String bban = bankCode + String.format("%010d", accountNumber);
+        return "NL" + checkDigits("NL", bban) + bban;
+    }
+
+    public static boolean isValid(String iban) {
+        if (iban == null || iban.length() < MIN_LENGTH || iban.length() > MAX_LENGTH) {
+            return false;
+        }
+        if (!isLetter(iban.charAt(0)) || !isLetter(iban.charAt(1))
+                || !isDigit(iban.charAt(2)) || !isDigit(iban.charAt(3))) {
+            return false;
+        }
+        for (int i = 4; i < iban.length(); i++) {
+            if (!isLetter(iban.charAt(i)) && !isDigit(iban.charAt(i))) {
+                return false;
+            }
+        }
+        return mod97(iban.substring(4) + iban, 0, iban.length()) == 1;
+    }
+
+    static String checkDigits(String countryCode, String bban) {
+        int check = 98 - mod97(bban + countryCode + "00", 0, bban.length() + 4);
+        return check < 10 ? "0" + check : Integer.toString(check);
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Letters count as two digits (A = 10 ... Z = 35)
+    private static int mod97(String value, int from, int to) {
+        int remainder = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            remainder = c <= '9'
+                    ? (remainder * 10 + (c - '0')) % 97
+                    : (remainder * 100 + (c - 'A' + 10)) % 97;
+        }
+        return remainder;
+    }
+}
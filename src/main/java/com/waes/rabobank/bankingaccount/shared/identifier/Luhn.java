@@ -0,0 +1,52 @@
+package com.waes.rabobank.bankingaccount.shared.identifier;
+
+/**
+ * Luhn (mod 10) check digit used by payment card numbers.
+ */
+public final class Luhn {
+
+    private Luhn() {
+    }
+
+    /**
+     * @param payload Digits without the check digit
+     * @return The digit that makes {@code payload + digit} Luhn-valid
+     */
+    public static int checkDigit(CharSequence payload) {
+        // The check digit will be appended on the right, so the rightmost payload digit is doubled
+        return (10 - sum(payload, true) % 10) % 10;
+    }
+
+    public static String withCheckDigit(String payload) {
+        return payload + checkDigit(payload);
+    }
+
+    public static boolean isValid(CharSequence number) {
+        if (number == null || number.length() < 2) {
+            return false;
+        }
+        for (int i = 0; i < number.length(); i++) {
+            if (number.charAt(i) < '0' || number.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return sum(number, false) % 10 == 0;
+    }
+
+    private static int sum(CharSequence digits, boolean doubleRightmost) {
+        int sum = 0;
+        boolean doubled = doubleRightmost;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,4 @@
+-- Fee segment of a card: which fee_schedules rows price its payments. Segments without rules for the card type
+-- fall back to STANDARD, so existing cards keep their fees.
+ALTER TABLE cards
+    ADD COLUMN fee_segment VARCHAR(20) NOT NULL DEFAULT 'STANDARD';
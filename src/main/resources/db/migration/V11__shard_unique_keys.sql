@@ -0,0 +1,13 @@
+-- Keys that have to be unique across all shards (see docs/23-sharding.md). Shards enforce the unique constraints
+-- of their own rows only, so every email, BSN, account number and card number placed on a shard is claimed here
+-- first, on the primary database. The copy migrated onto each shard stays empty.
+CREATE TABLE shard_unique_keys
+(
+    kind       VARCHAR(20)                 NOT NULL,
+    key_value  VARCHAR(255)                NOT NULL,
+    owner_id   UUID                        NOT NULL,
+    claimed_at TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now(),
+    PRIMARY KEY (kind, key_value)
+);
+
+CREATE INDEX idx_shard_unique_keys_owner ON shard_unique_keys (owner_id);
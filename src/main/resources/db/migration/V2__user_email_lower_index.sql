@@ -0,0 +1,3 @@
+-- Case-insensitive email lookups (lower(email) = lower(?)) cannot use idx_user_email.
+-- text_pattern_ops also serves prefix searches (lower(email) LIKE 'jo%').
+CREATE INDEX idx_user_email_lower ON users (lower(email) text_pattern_ops);
@@ -0,0 +1,23 @@
+-- Fee schedules, compiled in memory by FeeScheduleLoader (see docs/11-fee-schedules.md).
+-- fee = fixed_fee + amount * rate_bps / 10000, clamped to [min_fee, max_fee], for amounts from band_from
+-- up to the next band of the same card type and segment. Rows with a validity window are promotions:
+-- while the window is open they replace the rows without one.
+CREATE TABLE fee_schedules
+(
+    id          BIGSERIAL PRIMARY KEY,
+    card_type   VARCHAR(31)    NOT NULL,
+    segment     VARCHAR(20)    NOT NULL DEFAULT 'STANDARD',
+    band_from   NUMERIC(19, 4) NOT NULL DEFAULT 0 CHECK (band_from >= 0),
+    rate_bps    INTEGER        NOT NULL CHECK (rate_bps >= 0 AND rate_bps <= 10000),
+    fixed_fee   NUMERIC(19, 4) NOT NULL DEFAULT 0 CHECK (fixed_fee >= 0),
+    min_fee     NUMERIC(19, 4) NOT NULL DEFAULT 0 CHECK (min_fee >= 0),
+    max_fee     NUMERIC(19, 4) CHECK (max_fee >= min_fee),
+    valid_from  DATE,
+    valid_until DATE,
+    CONSTRAINT uc_fee_schedules_band UNIQUE NULLS NOT DISTINCT (card_type, segment, band_from, valid_from, valid_until)
+);
+
+-- Current fees: debit cards free, credit cards 1%
+INSERT INTO fee_schedules (card_type, segment, band_from, rate_bps)
+VALUES ('DEBIT', 'STANDARD', 0, 0),
+       ('CREDIT', 'STANDARD', 0, 100);
@@ -0,0 +1,20 @@
+-- Exchange rates against EUR, loaded into an in-memory snapshot by FxRateProvider.
+-- Inverse and cross rates (e.g. USD -> GBP) are derived in memory.
+CREATE TABLE fx_rates
+(
+    currency     VARCHAR(3)                  PRIMARY KEY,
+    rate_per_eur NUMERIC(19, 8)              NOT NULL CHECK (rate_per_eur > 0),
+    updated_at   TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now()
+);
+
+INSERT INTO fx_rates (currency, rate_per_eur)
+VALUES ('USD', 1.08420000),
+       ('GBP', 0.85310000),
+       ('CHF', 0.94120000);
+
+-- Conversion applied to a transfer leg: rate from this account's currency to the counterpart's,
+-- and the amount in the counterpart's currency. NULL for same-currency transfers.
+ALTER TABLE transactions
+    ADD COLUMN fx_rate          NUMERIC(19, 8),
+    ADD COLUMN counter_amount   NUMERIC(19, 4),
+    ADD COLUMN counter_currency VARCHAR(3);
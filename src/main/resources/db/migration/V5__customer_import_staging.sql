@@ -0,0 +1,22 @@
+-- Staging area of the bulk customer import: rows are COPY'd here, checked against each other and the live
+-- tables with set-based SQL, then merged into users, accounts and cards. Rows only live for one import.
+-- UNLOGGED: no WAL for data that can always be re-staged from the source file.
+CREATE UNLOGGED TABLE customer_import_staging
+(
+    import_id      UUID                        NOT NULL,
+    line_no        BIGINT                      NOT NULL,
+    email          VARCHAR(255)                NOT NULL,
+    full_name      VARCHAR(255)                NOT NULL,
+    bsn            VARCHAR(9)                  NOT NULL,
+    account_number VARCHAR(34)                 NOT NULL,
+    currency       VARCHAR(3)                  NOT NULL,
+    balance        NUMERIC(19, 4)              NOT NULL,
+    card_number    VARCHAR(16),
+    card_type      VARCHAR(31),
+    card_expiry    DATE,
+    raw_record     TEXT                        NOT NULL,
+    reject_reason  VARCHAR(40),
+    staged_at      TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now(),
+
+    CONSTRAINT pk_customer_import_staging PRIMARY KEY (import_id, line_no)
+);
@@ -0,0 +1,15 @@
+-- Transactional outbox: one row per completed withdrawal or transfer, written in the same database transaction
+-- as its transactions rows. OutboxRelay publishes rows in id order and deletes them once the sink has them.
+CREATE TABLE transaction_outbox
+(
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_type   VARCHAR(40)                 NOT NULL,
+    aggregate_id UUID                        NOT NULL, -- Account the money left
+    payload      TEXT                        NOT NULL, -- JSON
+    created_at   TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+-- A queue table: every row is deleted within seconds, so dead tuples must be vacuumed long before the
+-- default 20% of the table has churned, or the relay's index scans slow down
+ALTER TABLE transaction_outbox
+    SET (autovacuum_vacuum_scale_factor = 0, autovacuum_vacuum_threshold = 5000);
@@ -0,0 +1,2 @@
+-- Balances by user (GET /api/accounts, the snapshot of every balance stream) scanned the whole accounts table.
+CREATE INDEX idx_account_user_id ON accounts (user_id);
@@ -0,0 +1,11 @@
+-- In-memory ledger engine: journal position up to which its entries are in accounts, transactions and
+-- transaction_outbox. Updated in the same database transaction as each persisted batch; -1 is nothing yet.
+CREATE TABLE ledger_checkpoint
+(
+    id               SMALLINT PRIMARY KEY CHECK (id = 1),
+    journal_position BIGINT                      NOT NULL,
+    updated_at       TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+INSERT INTO ledger_checkpoint (id, journal_position, updated_at)
+VALUES (1, -1, now());
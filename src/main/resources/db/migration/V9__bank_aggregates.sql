@@ -0,0 +1,50 @@
+-- Bank-wide aggregates for the admin dashboards, maintained by delta in the same database transaction as each
+-- change to accounts or transactions. Every logical row is split over stripes: concurrent payments add to
+-- different stripes instead of queueing on one row lock, readers sum the stripes.
+
+-- Accounts and deposits per currency and status
+CREATE TABLE account_totals
+(
+    currency      VARCHAR(3)                  NOT NULL,
+    status        VARCHAR(20)                 NOT NULL,
+    stripe        SMALLINT                    NOT NULL,
+    account_count BIGINT                      NOT NULL,
+    total_balance NUMERIC(38, 4)              NOT NULL,
+    updated_at    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+
+    PRIMARY KEY (currency, status, stripe)
+);
+
+-- Transactions per day (date of transactions.created_at), type and currency of the account
+CREATE TABLE daily_payment_volumes
+(
+    day               DATE                        NOT NULL,
+    transaction_type  VARCHAR(20)                 NOT NULL,
+    currency          VARCHAR(3)                  NOT NULL,
+    stripe            SMALLINT                    NOT NULL,
+    transaction_count BIGINT                      NOT NULL,
+    total_amount      NUMERIC(38, 4)              NOT NULL,
+    total_fee         NUMERIC(38, 4)              NOT NULL,
+    updated_at        TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+
+    PRIMARY KEY (day, transaction_type, currency, stripe)
+);
+
+-- Every payment updates a few rows of these tables: vacuum them long before 20% of them is dead
+ALTER TABLE account_totals
+    SET (autovacuum_vacuum_scale_factor = 0, autovacuum_vacuum_threshold = 5000);
+ALTER TABLE daily_payment_volumes
+    SET (autovacuum_vacuum_scale_factor = 0, autovacuum_vacuum_threshold = 5000);
+
+-- Starting point: what is there now, in stripe 0
+INSERT INTO account_totals (currency, status, stripe, account_count, total_balance, updated_at)
+SELECT currency, status, 0, count(*), sum(balance), now()
+FROM accounts
+GROUP BY currency, status;
+
+INSERT INTO daily_payment_volumes (day, transaction_type, currency, stripe, transaction_count, total_amount,
+                                   total_fee, updated_at)
+SELECT t.created_at::date, t.transaction_type, a.currency, 0, count(*), sum(t.amount), sum(t.fee), now()
+FROM transactions t
+         JOIN accounts a ON a.id = t.account_id
+GROUP BY t.created_at::date, t.transaction_type, a.currency;
@@ -0,0 +1,21 @@
+-- Applied to shard databases only (banking.sharding.enabled=true), after db/migration.
+-- A transfer between two shards writes each leg on its own shard, so its transactions rows point to an account,
+-- a transaction and (the deposit leg) a card the shard does not hold.
+ALTER TABLE transactions
+    DROP CONSTRAINT IF EXISTS FK_TRANSACTIONS_ON_RELATED_ACCOUNT;
+
+ALTER TABLE transactions
+    DROP CONSTRAINT IF EXISTS FK_TRANSACTIONS_ON_CARD;
+
+ALTER TABLE transactions
+    DROP CONSTRAINT IF EXISTS FK_TRANSACTIONS_ON_RELATED_TRANSACTION;
+
+-- Two-phase commit log of cross-shard transfers, on the shard of the source account (the coordinator). Whoever
+-- inserts first decides: the coordinator COMMIT once every leg is prepared, the recovery job ABORT for a leg
+-- left prepared past its grace period. Legs are committed or rolled back by this row only.
+CREATE TABLE IF NOT EXISTS shard_transfer_decisions
+(
+    xid        VARCHAR(64)                 PRIMARY KEY,
+    decision   VARCHAR(10)                 NOT NULL CHECK (decision IN ('COMMIT', 'ABORT')),
+    decided_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
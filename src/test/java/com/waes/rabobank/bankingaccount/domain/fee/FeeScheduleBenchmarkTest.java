@@ -0,0 +1,72 @@
+package com.waes.rabobank.bankingaccount.domain.fee;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latency and allocation of the compiled fee lookup on a 16-band table.
+ * <p>
+ * Run with {@code mvn test -Pperf}.
+ */
+@Tag("benchmark")
+class FeeScheduleBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeeScheduleBenchmarkTest.class);
+
+    private static final int WARMUP = 2_000_000;
+    private static final int ITERATIONS = 10_000_000;
+
+    @Test
+    void shouldComputeFeesWithoutAllocating() {
+        // Arrange
+        List<FeeRule> rules = new ArrayList<>(FeeSchedules.DEFAULT_RULES);
+        for (int band = 0; band < 16; band++) {
+            rules.add(new FeeRule(CardType.CREDIT, "TIERED", BigDecimal.valueOf(band * 500L), 200 - band * 10,
+                    new BigDecimal("0.25"), new BigDecimal("0.50"), new BigDecimal("50.00"), null, null));
+        }
+        FeeSchedule schedule = FeeSchedule.compile(rules, LocalDate.now());
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long sink = run(schedule, WARMUP);
+
+        // Act
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        sink += run(schedule, ITERATIONS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+
+        // Assert
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("iterations", ITERATIONS);
+        summary.put("nanosPerFee", "%.1f".formatted(elapsed / (double) ITERATIONS));
+        summary.put("bytesAllocated", allocated);
+        summary.put("checksum", sink);
+        logger.info("benchmark.fee_schedule {}", summary);
+
+        assertThat(allocated).isLessThan(64 * 1024); // Measurement noise only, nothing per call
+    }
+
+    private static long run(FeeSchedule schedule, int iterations) {
+        long sink = 0;
+        long amountMinor = 1;
+        for (int i = 0; i < iterations; i++) {
+            amountMinor = (amountMinor * 6364136223846793005L + 1442695040888963407L) >>> 1; // LCG
+            sink += schedule.feeMinor(CardType.CREDIT, "TIERED", amountMinor % 100_000_000L);
+        }
+        return sink;
+    }
+}
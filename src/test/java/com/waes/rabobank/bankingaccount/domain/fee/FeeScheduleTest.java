@@ -0,0 +1,125 @@
+package com.waes.rabobank.bankingaccount.domain.fee;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeeScheduleTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 6, 15);
+
+    @Test
+    void shouldMatchFormerHardCodedFeesWithDefaultRules() {
+        FeeSchedule schedule = FeeSchedule.compile(FeeSchedules.DEFAULT_RULES, TODAY);
+
+        for (String value : List.of("0.01", "0.05", "0.49", "0.50", "99.99", "100.00", "1234.56", "0.1234")) {
+            BigDecimal amount = new BigDecimal(value);
+            BigDecimal formerCreditFee = amount.multiply(new BigDecimal("0.01")).setScale(4, RoundingMode.HALF_UP);
+
+            assertThat(schedule.fee(CardType.CREDIT, amount)).isEqualTo(formerCreditFee);
+            assertThat(schedule.fee(CardType.DEBIT, amount)).isEqualByComparingTo(BigDecimal.ZERO);
+        }
+    }
+
+    @Test
+    void shouldApplyBandsAndCaps() {
+        // Arrange - 2% with 0.50 minimum below 1000, then 1% capped at 25.00
+        List<FeeRule> rules = new ArrayList<>(FeeSchedules.DEFAULT_RULES);
+        rules.add(rule(CardType.CREDIT, "PREMIUM", "0", 200, "0", "0.50", null, null, null));
+        rules.add(rule(CardType.CREDIT, "PREMIUM", "1000", 100, "0", "0", "25.00", null, null));
+
+        FeeSchedule schedule = FeeSchedule.compile(rules, TODAY);
+
+        // Act & Assert
+        assertThat(schedule.fee(CardType.CREDIT, "PREMIUM", new BigDecimal("10.00"))).isEqualByComparingTo("0.50");
+        assertThat(schedule.fee(CardType.CREDIT, "PREMIUM", new BigDecimal("999.99"))).isEqualByComparingTo("19.9998");
+        assertThat(schedule.fee(CardType.CREDIT, "PREMIUM", new BigDecimal("1000.00"))).isEqualByComparingTo("10.00");
+        assertThat(schedule.fee(CardType.CREDIT, "PREMIUM", new BigDecimal("5000.00"))).isEqualByComparingTo("25.00");
+    }
+
+    @Test
+    void shouldFallBackToStandardSegmentWhenSegmentHasNoRule() {
+        FeeSchedule schedule = FeeSchedule.compile(FeeSchedules.DEFAULT_RULES, TODAY);
+
+        assertThat(schedule.fee(CardType.CREDIT, "UNKNOWN", new BigDecimal("100.00"))).isEqualByComparingTo("1.00");
+    }
+
+    @Test
+    void shouldReplaceStandardRulesWhilePromotionIsOpen() {
+        // Arrange - half price credit card fees in June
+        List<FeeRule> rules = new ArrayList<>(FeeSchedules.DEFAULT_RULES);
+        rules.add(rule(CardType.CREDIT, FeeSchedule.STANDARD_SEGMENT, "0", 50, "0", "0", null,
+                LocalDate.of(2026, 6, 1), LocalDate.of(2026, 6, 30)));
+
+        // Act
+        FeeSchedule during = FeeSchedule.compile(rules, TODAY);
+        FeeSchedule after = FeeSchedule.compile(rules, LocalDate.of(2026, 7, 1));
+
+        // Assert
+        assertThat(during.fee(CardType.CREDIT, new BigDecimal("100.00"))).isEqualByComparingTo("0.50");
+        assertThat(after.fee(CardType.CREDIT, new BigDecimal("100.00"))).isEqualByComparingTo("1.00");
+        assertThat(during.fee(CardType.DEBIT, new BigDecimal("100.00"))).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void shouldKeepStandardRulesBelowLowestPromotionBand() {
+        // Arrange - no credit card fee from 1000 in June
+        List<FeeRule> rules = new ArrayList<>(FeeSchedules.DEFAULT_RULES);
+        rules.add(rule(CardType.CREDIT, FeeSchedule.STANDARD_SEGMENT, "1000", 0, "0", "0", null,
+                LocalDate.of(2026, 6, 1), LocalDate.of(2026, 6, 30)));
+
+        // Act
+        FeeSchedule schedule = FeeSchedule.compile(rules, TODAY);
+
+        // Assert
+        assertThat(schedule.fee(CardType.CREDIT, new BigDecimal("999.99"))).isEqualByComparingTo("9.9999");
+        assertThat(schedule.fee(CardType.CREDIT, new BigDecimal("1000.00"))).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void shouldPriceAmountsBelowSegmentPromotionWithStandardSegment() {
+        // Arrange - a segment whose only rule is a promotion from 500
+        List<FeeRule> rules = new ArrayList<>(FeeSchedules.DEFAULT_RULES);
+        rules.add(rule(CardType.CREDIT, "PREMIUM", "500", 50, "0", "0", null,
+                LocalDate.of(2026, 6, 1), LocalDate.of(2026, 6, 30)));
+
+        // Act
+        FeeSchedule schedule = FeeSchedule.compile(rules, TODAY);
+
+        // Assert
+        assertThat(schedule.fee(CardType.CREDIT, "PREMIUM", new BigDecimal("100.00"))).isEqualByComparingTo("1.00");
+        assertThat(schedule.fee(CardType.CREDIT, "PREMIUM", new BigDecimal("1000.00"))).isEqualByComparingTo("5.00");
+    }
+
+    @Test
+    void shouldRejectScheduleWithoutStandardRuleForEveryCardType() {
+        List<FeeRule> rules = List.of(FeeRule.standard(CardType.CREDIT, 100));
+
+        assertThatThrownBy(() -> FeeSchedule.compile(rules, TODAY))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("DEBIT");
+    }
+
+    @Test
+    void shouldRejectBandsNotStartingAtZero() {
+        List<FeeRule> rules = new ArrayList<>(FeeSchedules.DEFAULT_RULES);
+        rules.add(rule(CardType.DEBIT, "PREMIUM", "100", 0, "0", "0", null, null, null));
+
+        assertThatThrownBy(() -> FeeSchedule.compile(rules, TODAY))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static FeeRule rule(CardType type, String segment, String bandFrom, int rateBps, String fixedFee,
+                                String minFee, String maxFee, LocalDate validFrom, LocalDate validUntil) {
+        return new FeeRule(type, segment, new BigDecimal(bandFrom), rateBps, new BigDecimal(fixedFee),
+                new BigDecimal(minFee), maxFee == null ? null : new BigDecimal(maxFee), validFrom, validUntil);
+    }
+}
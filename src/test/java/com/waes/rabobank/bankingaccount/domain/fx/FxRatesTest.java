@@ -0,0 +1,54 @@
+package com.waes.rabobank.bankingaccount.domain.fx;
+
+import com.waes.rabobank.bankingaccount.shared.exception.UnsupportedCurrencyPairException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FxRatesTest {
+
+    private final FxRates rates = FxRates.of(Map.of(
+            "USD", new BigDecimal("1.25"),
+            "GBP", new BigDecimal("0.80")
+    ), Instant.now());
+
+    @Test
+    void shouldServePublishedAndInverseRates() {
+        assertThat(rates.rate("EUR", "USD")).isEqualByComparingTo("1.25");
+        assertThat(rates.rate("USD", "EUR")).isEqualByComparingTo("0.8");
+    }
+
+    @Test
+    void shouldDeriveCrossRatesThroughEuro() {
+        // 1 USD = 0.8 EUR = 0.64 GBP
+        assertThat(rates.rate("USD", "GBP")).isEqualByComparingTo("0.64");
+    }
+
+    @Test
+    void shouldReturnOneForSameCurrency() {
+        assertThat(rates.rate("CHF", "CHF")).isEqualByComparingTo(BigDecimal.ONE);
+    }
+
+    @Test
+    void shouldConvertRoundingToFourDecimals() {
+        assertThat(FxRates.convert(new BigDecimal("10.00"), new BigDecimal("1.23456789")))
+                .isEqualTo(new BigDecimal("12.3457"));
+    }
+
+    @Test
+    void shouldFailWhenCurrencyHasNoRate() {
+        assertThatThrownBy(() -> rates.rate("EUR", "JPY"))
+                .isInstanceOf(UnsupportedCurrencyPairException.class);
+    }
+
+    @Test
+    void shouldRejectNonPositiveRate() {
+        assertThatThrownBy(() -> FxRates.of(Map.of("USD", BigDecimal.ZERO), Instant.now()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,73 @@
+package com.waes.rabobank.bankingaccount.infrastructure.codec;
+
+import com.google.protobuf.CodedOutputStream;
+import com.waes.rabobank.bankingaccount.application.dto.TransferRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProtobufDtoCodecTest {
+
+    @Test
+    void shouldRoundTripTransferResponseKeepingScale() throws IOException {
+        TransferResponseDTO response = new TransferResponseDTO(
+                UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                new BigDecimal("100.00"), new BigDecimal("0.15"),
+                new BigDecimal("-12.50"), new BigDecimal("92345678901234.99"),
+                new BigDecimal("108.73"), new BigDecimal("1.087300"));
+
+        assertThat(ProtobufDtoCodec.decodeTransferResponse(ProtobufDtoCodec.encode(response))).isEqualTo(response);
+    }
+
+    @Test
+    void shouldDecodeAbsentFieldsAsNullWhenRequestIsIncomplete() throws IOException {
+        TransferRequestDTO request = new TransferRequestDTO(UUID.randomUUID().toString(), null, null, null);
+
+        assertThat(ProtobufDtoCodec.decodeTransferRequest(ProtobufDtoCodec.encode(request))).isEqualTo(request);
+        assertThat(ProtobufDtoCodec.decodeWithdrawalRequest(new byte[0]))
+                .isEqualTo(new WithdrawalRequestDTO(null, null, null));
+    }
+
+    @Test
+    void shouldSkipUnknownFieldsWhenDecoding() throws IOException {
+        WithdrawalRequestDTO request = new WithdrawalRequestDTO(UUID.randomUUID().toString(), new BigDecimal("25.00"),
+                UUID.randomUUID().toString());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(ProtobufDtoCodec.encode(request));
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        out.writeString(15, "added by a newer client");
+        out.flush();
+
+        assertThat(ProtobufDtoCodec.decodeWithdrawalRequest(bytes.toByteArray())).isEqualTo(request);
+    }
+
+    @Test
+    void shouldRejectUuidFieldWhenLengthIsNot16() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        out.writeString(1, "not-a-uuid");
+        out.flush();
+
+        assertThatThrownBy(() -> ProtobufDtoCodec.decodeWithdrawalRequest(bytes.toByteArray()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("16 bytes");
+    }
+
+    @Test
+    void shouldEncodeWithdrawalRequestIn44BytesWhenAllFieldsAreSet() {
+        WithdrawalRequestDTO request = new WithdrawalRequestDTO(UUID.randomUUID().toString(), new BigDecimal("100.00"),
+                UUID.randomUUID().toString());
+
+        // 2 x (tag + length + 16 id bytes) + tag + length + Decimal{unscaled 10000: 1 + 3, scale 2: 1 + 1}
+        assertThat(ProtobufDtoCodec.encode(request)).hasSize(2 * 18 + 2 + 6);
+    }
+}
@@ -0,0 +1,177 @@
+package com.waes.rabobank.bankingaccount.infrastructure.directory;
+
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserDirectoryIndexTest {
+
+    private UserDirectoryIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserDirectoryIndex(true, 100, Duration.ofMinutes(5));
+        index.upsert(new UserResponseDTO("1", "Jan de Vries", "Jan.deVries@example.com"));
+        index.upsert(new UserResponseDTO("2", "Dennis Jansen", "dennis@example.com"));
+        index.upsert(new UserResponseDTO("3", "José Álvarez", "jose@example.com"));
+        index.upsert(new UserResponseDTO("4", "Jan Bakker", "bakker@example.com"));
+    }
+
+    @Test
+    void shouldFindByEmailIgnoringCase() {
+        assertThat(index.findByEmail("  JAN.DEVRIES@example.com"))
+                .get()
+                .extracting(UserResponseDTO::id)
+                .isEqualTo("1");
+    }
+
+    @Test
+    void shouldSuggestByEmailPrefixFirst() {
+        assertThat(index.search("den", 10))
+                .extracting(UserResponseDTO::id)
+                .containsExactly("2");
+    }
+
+    @Test
+    void shouldSuggestUsersMatchingEveryNameToken() {
+        assertThat(index.search("jan de", 10))
+                .extracting(UserResponseDTO::id)
+                .containsExactlyInAnyOrder("1", "2");
+    }
+
+    @Test
+    void shouldMatchNamesWithoutAccents() {
+        assertThat(index.search("alva", 10))
+                .extracting(UserResponseDTO::id)
+                .containsExactly("3");
+    }
+
+    @Test
+    void shouldApplyLimit() {
+        assertThat(index.search("ja", 1)).hasSize(1);
+    }
+
+    @Test
+    void shouldReplaceOldKeysWhenUserChanges() {
+        // Act
+        index.upsert(new UserResponseDTO("4", "Jan Smit", "smit@example.com"));
+
+        // Assert
+        assertThat(index.findByEmail("bakker@example.com")).isEmpty();
+        assertThat(index.search("bakker", 10)).isEmpty();
+        assertThat(index.search("smit", 10)).extracting(UserResponseDTO::id).containsExactly("4");
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldNotOverwriteCommittedChangeWhenBulkLoading() {
+        index.putIfAbsent(new UserResponseDTO("4", "Jan Bakker (stale)", "stale@example.com"));
+
+        assertThat(index.findByEmail("stale@example.com")).isEmpty();
+        assertThat(index.findByEmail("bakker@example.com")).isPresent();
+    }
+
+    @Test
+    void shouldForgetRemovedUser() {
+        index.remove("1");
+
+        assertThat(index.findByEmail("jan.devries@example.com")).isEmpty();
+        assertThat(index.search("vries", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldNotServeEmailHitsOlderThanExpireAfterWrite() {
+        // Arrange - every entry is expired as soon as it is written
+        UserDirectoryIndex expiring = new UserDirectoryIndex(true, 100, Duration.ZERO);
+        expiring.upsert(new UserResponseDTO("1", "Jan de Vries", "jan@example.com"));
+
+        // Act & Assert - the caller asks the database; suggestions still come from the index
+        assertThat(expiring.findByEmail("jan@example.com")).isEmpty();
+        assertThat(expiring.search("jan", 10)).extracting(UserResponseDTO::id).containsExactly("1");
+    }
+
+    @Test
+    void shouldEmptyItselfPastMaxEntries() {
+        // Arrange
+        UserDirectoryIndex bounded = new UserDirectoryIndex(true, 2, Duration.ofMinutes(5));
+        bounded.upsert(new UserResponseDTO("1", "Jan de Vries", "jan@example.com"));
+        bounded.putIfAbsent(new UserResponseDTO("2", "Dennis Jansen", "dennis@example.com"));
+        bounded.markReady();
+
+        // Act
+        bounded.upsert(new UserResponseDTO("3", "Jan Bakker", "bakker@example.com"));
+        bounded.upsert(new UserResponseDTO("4", "Jan Smit", "smit@example.com"));
+
+        // Assert - every lookup goes to the database from now on
+        assertThat(bounded.size()).isZero();
+        assertThat(bounded.isReady()).isFalse();
+        assertThat(bounded.findByEmail("jan@example.com")).isEmpty();
+    }
+
+    @Test
+    void shouldServeBulkLoadedUsersFromTheSnapshot() {
+        // Arrange
+        UserDirectoryIndex loaded = new UserDirectoryIndex(true, 100, Duration.ofMinutes(5));
+        UserDirectoryIndex.BulkLoad bulkLoad = loaded.bulkLoad();
+        bulkLoad.add(new UserResponseDTO("0b6a41e4-5f4c-4f1e-9d9a-3c1d2b7e8f01", "Jan de Vries", "Jan.deVries@example.com"));
+        bulkLoad.add(new UserResponseDTO("0b6a41e4-5f4c-4f1e-9d9a-3c1d2b7e8f02", "Dennis Jansen", "dennis@example.com"));
+        bulkLoad.add(new UserResponseDTO("legacy-3", "José Álvarez", "jose@example.com"));
+
+        // Act
+        bulkLoad.finish();
+        loaded.markReady();
+
+        // Assert
+        assertThat(loaded.size()).isEqualTo(3);
+        assertThat(loaded.findByEmail("JAN.DEVRIES@example.com"))
+                .get()
+                .isEqualTo(new UserResponseDTO("0b6a41e4-5f4c-4f1e-9d9a-3c1d2b7e8f01", "Jan de Vries", "Jan.deVries@example.com"));
+        assertThat(loaded.search("jan de", 10))
+                .extracting(UserResponseDTO::name)
+                .containsExactlyInAnyOrder("Jan de Vries", "Dennis Jansen");
+        assertThat(loaded.search("alva", 10)).extracting(UserResponseDTO::id).containsExactly("legacy-3");
+    }
+
+    @Test
+    void shouldHideSnapshotEntriesBehindLaterWrites() {
+        // Arrange - a committed change lands while the bulk load runs
+        UserDirectoryIndex loaded = new UserDirectoryIndex(true, 100, Duration.ofMinutes(5));
+        UserDirectoryIndex.BulkLoad bulkLoad = loaded.bulkLoad();
+        bulkLoad.add(new UserResponseDTO("1", "Jan Bakker (stale)", "stale@example.com"));
+        bulkLoad.add(new UserResponseDTO("2", "Dennis Jansen", "dennis@example.com"));
+        loaded.upsert(new UserResponseDTO("1", "Jan Bakker", "bakker@example.com"));
+        bulkLoad.finish();
+
+        // Act
+        loaded.remove("2");
+
+        // Assert
+        assertThat(loaded.findByEmail("stale@example.com")).isEmpty();
+        assertThat(loaded.findByEmail("bakker@example.com")).isPresent();
+        assertThat(loaded.findByEmail("dennis@example.com")).isEmpty();
+        assertThat(loaded.search("jan", 10)).extracting(UserResponseDTO::email).containsExactly("bakker@example.com");
+        assertThat(loaded.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepEveryLookupAcrossCompaction() {
+        // Arrange
+        index.remove("3");
+        index.compact();
+
+        // Act - writes after the compaction hide the merged snapshot again
+        index.upsert(new UserResponseDTO("4", "Jan Smit", "smit@example.com"));
+
+        // Assert
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.findByEmail("jan.devries@example.com")).isPresent();
+        assertThat(index.findByEmail("jose@example.com")).isEmpty();
+        assertThat(index.findByEmail("bakker@example.com")).isEmpty();
+        assertThat(index.search("jan", 10)).extracting(UserResponseDTO::id).containsExactlyInAnyOrder("1", "2", "4");
+        assertThat(index.search("den", 10)).extracting(UserResponseDTO::id).containsExactly("2");
+    }
+}
@@ -0,0 +1,59 @@
+package com.waes.rabobank.bankingaccount.infrastructure.issuance;
+
+import com.waes.rabobank.bankingaccount.shared.identifier.Iban;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BloomFilterTest {
+
+    private static final int NUMBERS = 100_000;
+
+    @Test
+    void shouldNeverMissAnAddedValue() {
+        BloomFilter filter = BloomFilter.create(NUMBERS, 0.01);
+        IntStream.range(0, NUMBERS).parallel().forEach(i -> filter.put(Iban.dutch("RABO", i)));
+
+        assertThat(IntStream.range(0, NUMBERS).allMatch(i -> filter.mightContain(Iban.dutch("RABO", i)))).isTrue();
+        assertThat(filter.insertions()).isEqualTo(NUMBERS);
+    }
+
+    @Test
+    void shouldKeepFalsePositivesNearTheConfiguredRate() {
+        // Arrange - sequential account numbers, the worst case for a weak hash
+        BloomFilter filter = BloomFilter.create(NUMBERS, 0.001);
+        for (int i = 0; i < NUMBERS; i++) {
+            filter.put(Iban.dutch("RABO", i));
+        }
+
+        // Act
+        long falsePositives = IntStream.range(NUMBERS, 11 * NUMBERS)
+                .filter(i -> filter.mightContain(Iban.dutch("RABO", i)))
+                .count();
+
+        // Assert - 1M probes at 0.1%: ~1000 expected
+        assertThat(falsePositives).isBetween(500L, 2000L);
+        assertThat(filter.expectedFalsePositiveRate()).isCloseTo(0.001, offset(0.0002));
+        assertThat(filter.hashCount()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldReportHigherRateWhenFilledBeyondItsSize() {
+        BloomFilter filter = BloomFilter.create(1000, 0.01);
+        for (int i = 0; i < 3000; i++) {
+            filter.put("card-" + i);
+        }
+
+        assertThat(filter.expectedFalsePositiveRate()).isGreaterThan(0.2);
+    }
+
+    @Test
+    void shouldRejectInvalidSizing() {
+        assertThatThrownBy(() -> BloomFilter.create(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BloomFilter.create(1000, 1.0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,110 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LedgerJournalTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReadEntriesBackInOrderAcrossSegmentsAfterReopening() {
+        // Arrange
+        UUID accountId = UUID.randomUUID();
+        LedgerEntry.Opened opened = new LedgerEntry.Opened(1, accountId, UUID.randomUUID(), "NL91RABO0123456789",
+                "EUR", true, new BigDecimal("1000.0000"));
+        LedgerEntry.Withdrawn withdrawn = new LedgerEntry.Withdrawn(2, UUID.randomUUID(), accountId, UUID.randomUUID(),
+                new BigDecimal("100.00"), BigDecimal.ZERO, new BigDecimal("900.0000"),
+                Instant.parse("2026-10-19T10:15:30.123456Z"));
+        LedgerEntry.Transferred transferred = new LedgerEntry.Transferred(3, 1, UUID.randomUUID(), UUID.randomUUID(),
+                accountId, UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("50.00"), new BigDecimal("0.50"),
+                new BigDecimal("849.5000"), new BigDecimal("54.2500"), new BigDecimal("54.2500"), "EUR", "USD",
+                new BigDecimal("1.08500000"), new BigDecimal("0.92165899"), Instant.parse("2026-10-19T10:15:31Z"));
+
+        LedgerJournal journal = new LedgerJournal(directory, SEGMENT_BYTES);
+        long first = journal.append(encode(opened));
+        long second = journal.append(encode(withdrawn));
+        journal.roll();
+        long third = journal.append(encode(transferred));
+        journal.close();
+
+        // Act
+        LedgerJournal reopened = new LedgerJournal(directory, SEGMENT_BYTES);
+        List<Long> positions = new ArrayList<>();
+        List<LedgerEntry> entries = new ArrayList<>();
+        reopened.read(0, (position, record) -> {
+            positions.add(position);
+            entries.add(LedgerCodec.decode(record));
+        });
+
+        // Assert
+        assertThat(positions).containsExactly(first, second, third).isSorted();
+        assertThat(LedgerJournal.segmentOf(third)).isGreaterThan(LedgerJournal.segmentOf(second));
+        assertThat(entries).containsExactly(opened, withdrawn, transferred);
+        assertThat(reopened.segment()).isGreaterThan(LedgerJournal.segmentOf(third));
+        reopened.close();
+    }
+
+    @Test
+    void shouldStopReadingAtTornRecordWhenSegmentTailIsCorrupt() throws IOException {
+        // Arrange
+        LedgerJournal journal = new LedgerJournal(directory, SEGMENT_BYTES);
+        long intact = journal.append(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        long torn = journal.append(ByteBuffer.wrap(new byte[]{4, 5, 6}));
+        journal.append(ByteBuffer.wrap(new byte[]{7, 8, 9}));
+        journal.close();
+
+        // A crash in the middle of the second record: its bytes do not match the checksum
+        Path segment = directory.resolve("journal-%016d.log".formatted(LedgerJournal.segmentOf(torn)));
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            file.write(ByteBuffer.wrap(new byte[]{0}), (int) torn + 8 + 1);
+        }
+
+        // Act
+        LedgerJournal reopened = new LedgerJournal(directory, SEGMENT_BYTES);
+        List<Long> positions = new ArrayList<>();
+        reopened.read(0, (position, record) -> positions.add(position));
+
+        // Assert
+        assertThat(positions).containsExactly(intact);
+        reopened.close();
+    }
+
+    @Test
+    void shouldRollToNewSegmentWhenRecordDoesNotFit() {
+        // Arrange
+        LedgerJournal journal = new LedgerJournal(directory, 64);
+        long first = journal.append(ByteBuffer.wrap(new byte[40]));
+
+        // Act
+        long second = journal.append(ByteBuffer.wrap(new byte[40]));
+        journal.deleteBefore(LedgerJournal.segmentOf(second));
+
+        // Assert
+        assertThat(LedgerJournal.segmentOf(second)).isEqualTo(LedgerJournal.segmentOf(first) + 1);
+        assertThat(journal.segments()).containsExactly(LedgerJournal.segmentOf(second));
+        journal.close();
+    }
+
+    private static ByteBuffer encode(LedgerEntry entry) {
+        ByteBuffer buffer = ByteBuffer.allocate(LedgerCodec.MAX_ENTRY_BYTES);
+        LedgerCodec.encode(entry, buffer);
+        return buffer.flip();
+    }
+}
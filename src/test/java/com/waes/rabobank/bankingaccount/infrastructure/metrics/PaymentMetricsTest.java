@@ -0,0 +1,76 @@
+package com.waes.rabobank.bankingaccount.infrastructure.metrics;
+
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.shared.exception.InsufficientFundsException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private PaymentMetrics paymentMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        paymentMetrics = new PaymentMetrics(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldRecordSuccessWithCardTypeWhenNoTransactionIsActive() {
+        PaymentMetrics.Observation observation = paymentMetrics.observe("withdrawal");
+        observation.cardType(CardType.CREDIT);
+        observation.succeeded();
+
+        assertThat(timer("withdrawal", "CREDIT", "success").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldTagFailuresWithExceptionType() {
+        PaymentMetrics.Observation observation = paymentMetrics.observe("transfer");
+        observation.failed(new InsufficientFundsException(UUID.randomUUID(), BigDecimal.ONE, BigDecimal.TEN));
+
+        assertThat(timer("transfer", "UNKNOWN", "InsufficientFundsException").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDeferRecordingUntilTransactionCompletes() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        PaymentMetrics.Observation observation = paymentMetrics.observe("withdrawal");
+        observation.cardType(CardType.DEBIT);
+        observation.succeeded();
+
+        assertThat(registry.find(PaymentMetrics.PAYMENT_TIMER).timer()).isNull();
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(timer("withdrawal", "DEBIT", "rollback").count()).isEqualTo(1);
+    }
+
+    private Timer timer(String operation, String cardType, String outcome) {
+        return registry.get(PaymentMetrics.PAYMENT_TIMER)
+                .tag("operation", operation)
+                .tag("card_type", cardType)
+                .tag("outcome", outcome)
+                .timer();
+    }
+}
@@ -0,0 +1,77 @@
+package com.waes.rabobank.bankingaccount.infrastructure.onboarding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerRecordValidatorTest {
+
+    private static final String HEADER = "email,full_name,bsn,account_number,currency,balance,card_number,card_type,card_expiry";
+
+    private final CustomerRecordValidator csv =
+            new CustomerRecordValidator(CustomerRecordParser.csv(HEADER), YearMonth.of(2026, 1));
+    private final CustomerRecordValidator ndjson =
+            new CustomerRecordValidator(CustomerRecordParser.ndjson(new ObjectMapper()), YearMonth.of(2026, 1));
+
+    @Test
+    void shouldAcceptValidCsvRecord() {
+        // Act
+        var outcome = csv.validate(2, "anna@partner.nl,\"de Vries, Anna\",100000010,NL62RABO3000000001,,12.5,4200000000000018,debit,2027-03");
+
+        // Assert
+        assertThat(outcome.isAccepted()).isTrue();
+        CustomerRecord record = outcome.record();
+        assertThat(record.fullName()).isEqualTo("de Vries, Anna");
+        assertThat(record.currency()).isEqualTo("EUR");
+        assertThat(record.balance()).isEqualByComparingTo("12.5");
+        assertThat(record.cardType()).isEqualTo(CardType.DEBIT);
+        assertThat(record.cardExpiry()).isEqualTo(YearMonth.of(2027, 3));
+    }
+
+    @Test
+    void shouldAcceptValidNdjsonRecordWithoutCard() {
+        var outcome = ndjson.validate(1, """
+                {"email":"anna@partner.nl","full_name":"Anna","bsn":"100000010","account_number":"NL62RABO3000000001","balance":0}""");
+
+        assertThat(outcome.isAccepted()).isTrue();
+        assertThat(outcome.record().cardNumber()).isNull();
+    }
+
+    @Test
+    void shouldRejectRecordsWithInvalidFields() {
+        assertThat(reason("anna@partner.nl,Anna,100000010,NL62RABO3000000001,EUR,0,,")).isEqualTo(ImportRejectReason.MALFORMED_RECORD);
+        assertThat(reason(",Anna,100000010,NL62RABO3000000001,EUR,0,,,")).isEqualTo(ImportRejectReason.MISSING_FIELD);
+        assertThat(reason("anna@partner,Anna,100000010,NL62RABO3000000001,EUR,0,,,")).isEqualTo(ImportRejectReason.INVALID_EMAIL);
+        assertThat(reason("anna@partner.nl,Anna,123456789,NL62RABO3000000001,EUR,0,,,")).isEqualTo(ImportRejectReason.INVALID_BSN);
+        assertThat(reason("anna@partner.nl,Anna,100000010,NL63RABO3000000001,EUR,0,,,")).isEqualTo(ImportRejectReason.INVALID_IBAN);
+        assertThat(reason("anna@partner.nl,Anna,100000010,NL62RABO3000000001,eur,0,,,")).isEqualTo(ImportRejectReason.INVALID_CURRENCY);
+        assertThat(reason("anna@partner.nl,Anna,100000010,NL62RABO3000000001,EUR,-1,,,")).isEqualTo(ImportRejectReason.INVALID_BALANCE);
+        assertThat(reason("anna@partner.nl,Anna,100000010,NL62RABO3000000001,EUR,0.00001,,,")).isEqualTo(ImportRejectReason.INVALID_BALANCE);
+        assertThat(reason("anna@partner.nl,Anna,100000010,NL62RABO3000000001,EUR,0,4200000000000019,DEBIT,2027-03")).isEqualTo(ImportRejectReason.INVALID_CARD_NUMBER);
+        assertThat(reason("anna@partner.nl,Anna,100000010,NL62RABO3000000001,EUR,0,,DEBIT,")).isEqualTo(ImportRejectReason.INVALID_CARD_NUMBER);
+        assertThat(reason("anna@partner.nl,Anna,100000010,NL62RABO3000000001,EUR,0,4200000000000018,PREPAID,2027-03")).isEqualTo(ImportRejectReason.INVALID_CARD_TYPE);
+        assertThat(reason("anna@partner.nl,Anna,100000010,NL62RABO3000000001,EUR,0,4200000000000018,DEBIT,2025-12")).isEqualTo(ImportRejectReason.INVALID_CARD_EXPIRY);
+    }
+
+    @Test
+    void shouldRejectNdjsonLineThatIsNotAnObject() {
+        assertThat(ndjson.validate(1, "[1,2]").rejectReason()).isEqualTo(ImportRejectReason.MALFORMED_RECORD);
+        assertThat(ndjson.validate(2, "{\"email\":").rejectReason()).isEqualTo(ImportRejectReason.MALFORMED_RECORD);
+    }
+
+    @Test
+    void shouldFailWhenCsvHeaderLacksRequiredColumn() {
+        assertThatThrownBy(() -> CustomerRecordParser.csv("email,full_name,account_number"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("bsn");
+    }
+
+    private ImportRejectReason reason(String line) {
+        return csv.validate(2, line).rejectReason();
+    }
+}
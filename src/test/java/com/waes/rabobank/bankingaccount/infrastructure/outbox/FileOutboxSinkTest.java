@@ -0,0 +1,51 @@
+package com.waes.rabobank.bankingaccount.infrastructure.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileOutboxSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldAppendOneJsonLinePerEventAcrossBatches() throws IOException {
+        // Arrange
+        Path file = directory.resolve("outbox/events.ndjson");
+        FileOutboxSink sink = new FileOutboxSink(file);
+        UUID accountId = UUID.randomUUID();
+        Instant createdAt = Instant.parse("2026-10-19T10:15:30.123Z");
+
+        // Act
+        sink.publish(List.of(
+                new OutboxMessage(1, TransactionOutbox.WITHDRAWAL_COMPLETED, accountId, "{\"amount\":10.00}", createdAt),
+                new OutboxMessage(2, TransactionOutbox.TRANSFER_COMPLETED, accountId, "{\"amount\":5}", createdAt)));
+        sink.publish(List.of(
+                new OutboxMessage(3, TransactionOutbox.WITHDRAWAL_COMPLETED, accountId, "{\"note\":\"a \\\"quote\\\"\"}", createdAt)));
+        sink.close();
+
+        // Assert
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(3);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode first = objectMapper.readTree(lines.getFirst());
+        assertThat(first.get("id").asLong()).isEqualTo(1);
+        assertThat(first.get("type").asText()).isEqualTo("withdrawal.completed");
+        assertThat(first.get("aggregateId").asText()).isEqualTo(accountId.toString());
+        assertThat(first.get("createdAt").asText()).isEqualTo("2026-10-19T10:15:30.123Z");
+        assertThat(first.get("payload").get("amount").decimalValue()).isEqualByComparingTo("10.00");
+        assertThat(objectMapper.readTree(lines.get(2)).get("payload").get("note").asText()).isEqualTo("a \"quote\"");
+    }
+}
@@ -0,0 +1,36 @@
+package com.waes.rabobank.bankingaccount.infrastructure.profiling;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JfrRecordingEndpointTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldKeepOnlyTheFileOfTheLastRecording() throws Exception {
+        // Arrange
+        JfrRecordingEndpoint endpoint = new JfrRecordingEndpoint(directory);
+        endpoint.start(1);
+        endpoint.stop();
+        Path first = Path.of((String) endpoint.status().get("file"));
+        assertThat(first).exists();
+
+        // Act
+        endpoint.start(1);
+        endpoint.stop();
+
+        // Assert
+        Path last = Path.of((String) endpoint.status().get("file"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).containsExactly(last);
+        }
+    }
+}
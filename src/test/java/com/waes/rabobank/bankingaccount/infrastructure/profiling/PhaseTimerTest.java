@@ -0,0 +1,37 @@
+package com.waes.rabobank.bankingaccount.infrastructure.profiling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PhaseTimerTest {
+
+    @AfterEach
+    void tearDown() {
+        ServerTimingContext.clear();
+    }
+
+    @Test
+    void shouldAppendEveryPhaseToServerTimingWhenContextIsInstalled() {
+        ServerTimingContext.install();
+
+        PhaseTimer phases = PhaseTimer.start("withdrawal");
+        phases.next("load_account");
+        phases.next("validate");
+        phases.end();
+        phases.end(); // idempotent
+
+        assertThat(ServerTimingContext.current().header())
+                .matches("load_account;dur=[0-9.]+, validate;dur=[0-9.]+");
+    }
+
+    @Test
+    void shouldNotCollectAnythingWhenServerTimingIsDisabled() {
+        PhaseTimer phases = PhaseTimer.start("transfer");
+        phases.next("load_accounts");
+        phases.end();
+
+        assertThat(ServerTimingContext.current()).isNull();
+    }
+}
@@ -0,0 +1,119 @@
+package com.waes.rabobank.bankingaccount.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void shouldAdmitBurstThenRejectWithWaitUntilNextToken() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 2, 100, 4);
+
+        assertThat(limiter.tryAcquire("card-1", 0)).isZero();
+        assertThat(limiter.tryAcquire("card-1", 0)).isZero();
+        assertThat(limiter.tryAcquire("card-1", 0)).isZero();
+
+        assertThat(limiter.tryAcquire("card-1", 0)).isEqualTo(SECOND / 2);
+        assertThat(limiter.tryAcquire("card-1", SECOND / 4)).isEqualTo(SECOND / 4);
+    }
+
+    @Test
+    void shouldRefillLazilyUpToCapacity() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 2, 100, 4);
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("card-1", 0);
+        }
+
+        assertThat(limiter.tryAcquire("card-1", SECOND / 2)).isZero();
+        assertThat(limiter.tryAcquire("card-1", SECOND / 2)).isPositive();
+
+        // Idle for a minute refills to capacity, not 120 tokens
+        long later = 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("card-1", later)).isZero();
+        }
+        assertThat(limiter.tryAcquire("card-1", later)).isPositive();
+    }
+
+    @Test
+    void shouldKeepSeparateBucketPerKey() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 100, 4);
+
+        assertThat(limiter.tryAcquire("user-1", 0)).isZero();
+        assertThat(limiter.tryAcquire("user-1", 0)).isPositive();
+
+        assertThat(limiter.tryAcquire("user-2", 0)).isZero();
+    }
+
+    @Test
+    void shouldShareOneBucketAmongNewKeysOnceFullOfActiveBuckets() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 64, 1);
+
+        for (int i = 0; i < 1_000; i++) {
+            limiter.tryAcquire("card-" + i, 0);
+        }
+
+        assertThat(limiter.size()).isEqualTo(64);
+        // No drained bucket is forgotten, and the keys without one drained the shared bucket
+        assertThat(limiter.tryAcquire("card-0", 0)).isPositive();
+        assertThat(limiter.tryAcquire("card-999", 0)).isPositive();
+        assertThat(limiter.tryAcquire("card-1000", 0)).isPositive();
+
+        // Once the buckets are full again they make room for new keys
+        assertThat(limiter.tryAcquire("card-1000", SECOND)).isZero();
+        assertThat(limiter.tryAcquire("card-1000", SECOND)).isPositive();
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDropBucketsIdleLongEnoughToBeFull() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(4, 2, 100, 1);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("card-" + i, 0);
+        }
+
+        // 4 tokens at 2 per second: full again after 2 seconds
+        limiter.tryAcquire("card-new", SECOND);
+        assertThat(limiter.size()).isEqualTo(11);
+
+        limiter.tryAcquire("card-newer", 2 * SECOND);
+        assertThat(limiter.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRejectInvalidConfiguration() {
+        assertThatThrownBy(() -> new TokenBucketRateLimiter(0, 1, 100, 4)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucketRateLimiter(1, 0, 100, 4)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucketRateLimiter(1, 1, 100, 3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucketRateLimiter(1, 1, 2, 4)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldCheckWithoutTakingAToken() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 2, 100, 4);
+
+        assertThat(limiter.waitNanos("card-1", 0)).isZero();
+        assertThat(limiter.size()).isZero();
+
+        limiter.tryAcquire("card-1", 0);
+        assertThat(limiter.waitNanos("card-1", 0)).isEqualTo(SECOND / 2);
+        assertThat(limiter.waitNanos("card-1", SECOND / 2)).isZero();
+    }
+
+    @Test
+    void shouldGiveBackAReleasedToken() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 100, 4);
+        limiter.tryAcquire("user-1", 0);
+
+        limiter.release("user-1");
+
+        assertThat(limiter.tryAcquire("user-1", 0)).isZero();
+        assertThat(limiter.tryAcquire("user-1", 0)).isPositive();
+    }
+}
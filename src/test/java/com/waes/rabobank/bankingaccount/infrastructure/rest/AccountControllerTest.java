@@ -4,7 +4,13 @@ import com.waes.rabobank.bankingaccount.application.dto.*;
 import com.waes.rabobank.bankingaccount.application.service.AccountService;
 import com.waes.rabobank.bankingaccount.application.service.TransferService;
 import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.waes.rabobank.bankingaccount.infrastructure.codec.ProtobufDtoCodec;
+import com.waes.rabobank.bankingaccount.infrastructure.codec.ProtobufDtoHttpMessageConverter;
+import com.waes.rabobank.bankingaccount.infrastructure.stream.BalanceStreamHub;
+import com.waes.rabobank.bankingaccount.shared.exception.AccountNotFoundException;
 import com.waes.rabobank.bankingaccount.shared.exception.InsufficientFundsException;
+import com.waes.rabobank.bankingaccount.shared.exception.UserNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -15,9 +21,14 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -37,6 +48,9 @@ class AccountControllerTest {
     @MockitoBean
     private TransferService transferService;
 
+    @MockitoBean
+    private BalanceStreamHub balanceStreamHub;
+
     @Test
     void shouldReturnBalancesWhenGettingAllAccounts() throws Exception {
         UUID userId = UUID.randomUUID();
@@ -56,11 +70,14 @@ class AccountControllerTest {
                         "EUR"
                 )
         );
+        when(accountService.getBalancesETag(userId)).thenReturn("\"b1\"");
         when(accountService.getBalancesByUserId(eq(userId))).thenReturn(balances);
 
         mockMvc.perform(get("/api/accounts")
-                        .header("X-User-Id", userId.toString()))
+                        .header("X-User-Id", userId.toString())
+                        .header("If-None-Match", "\"b0\""))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"b1\""))
                 .andExpect(jsonPath("$[0].accountId").value("acc-1"))
                 .andExpect(jsonPath("$[0].balance").value(100.0))
                 .andExpect(jsonPath("$[1].accountId").value("acc-2"))
@@ -68,14 +85,61 @@ class AccountControllerTest {
     }
 
     @Test
-    void shouldReturnAccountWhenGettingById() throws Exception {
+    void shouldReturnAccountWithETagWhenGettingById() throws Exception {
         UUID id = UUID.randomUUID();
+        when(accountService.getAccountETag(id)).thenReturn("\"v1\"");
+        when(accountService.getAccount(id)).thenReturn(new AccountResponseDTO(
+                id.toString(),
+                UUID.randomUUID().toString(),
+                "NL01RABO0123456789",
+                new BigDecimal("1000.50"),
+                "EUR",
+                "ACTIVE"
+        ));
+
         mockMvc.perform(get("/api/accounts/" + id))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v1\""))
                 .andExpect(jsonPath("$.accountId").value(id.toString()))
                 .andExpect(jsonPath("$.balance").value(1000.50));
     }
 
+    @Test
+    void shouldReturn304WithoutReadingAccountWhenETagMatches() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(accountService.getAccountETag(id)).thenReturn("\"v1\"");
+
+        mockMvc.perform(get("/api/accounts/" + id)
+                        .header("If-None-Match", "\"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"v1\""))
+                .andExpect(content().bytes(new byte[0]));
+
+        verify(accountService, never()).getAccount(any());
+    }
+
+    @Test
+    void shouldReturn404WhenAccountDoesNotExist() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(accountService.getAccountETag(id)).thenThrow(new AccountNotFoundException(id));
+
+        mockMvc.perform(get("/api/accounts/" + id))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturn304WithoutReadingBalancesWhenETagMatches() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(accountService.getBalancesETag(userId)).thenReturn("\"b1\"");
+
+        mockMvc.perform(get("/api/accounts")
+                        .header("X-User-Id", userId.toString())
+                        .header("If-None-Match", "\"b0\", \"b1\""))
+                .andExpect(status().isNotModified());
+
+        verify(accountService, never()).getBalancesByUserId(any());
+    }
+
     @Test
     void shouldReturnCountWhenGettingAccountsCount() throws Exception {
         mockMvc.perform(get("/api/accounts/count"))
@@ -192,6 +256,97 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$.title").value("Account ID Mismatch"));
     }
 
+    @Test
+    void shouldReturn429WhenCardExceedsRateLimit() throws Exception {
+        UUID accountId = UUID.randomUUID();
+        String requestBody = String.format("""
+            {
+                "accountId": "%s",
+                "amount": 10.00,
+                "cardId": "%s"
+            }
+            """, accountId, UUID.randomUUID());
+
+        // Burst of banking.ratelimit.card.capacity
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(post("/api/accounts/" + accountId + "/withdraw")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(post("/api/accounts/" + accountId + "/withdraw")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.title").value("Rate Limit Exceeded"))
+                .andExpect(jsonPath("$.scope").value("card"));
+        verify(withdrawalService, times(10)).withdraw(any(WithdrawalRequestDTO.class));
+    }
+
+    @Test
+    void shouldReturn429WhenUserExceedsRateLimitAcrossCards() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UUID fromAccountId = UUID.randomUUID();
+
+        // Burst of banking.ratelimit.user.capacity, every request on another card
+        for (int i = 0; i <= 20; i++) {
+            String requestBody = String.format("""
+                {
+                    "fromAccountId": "%s",
+                    "toAccountId": "%s",
+                    "amount": 10.00,
+                    "cardId": "%s"
+                }
+                """, fromAccountId, UUID.randomUUID(), UUID.randomUUID());
+
+            mockMvc.perform(post("/api/accounts/" + fromAccountId + "/transfer")
+                            .header("X-User-Id", userId.toString())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(i < 20 ? status().isOk() : status().isTooManyRequests());
+        }
+        verify(transferService, times(20)).transfer(any(TransferRequestDTO.class));
+    }
+
+    @Test
+    void shouldNotChargeUserForRequestsRejectedByCardLimit() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UUID fromAccountId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+
+        // Burst of banking.ratelimit.card.capacity, then 5 requests rejected for the card
+        for (int i = 0; i < 15; i++) {
+            mockMvc.perform(post("/api/accounts/" + fromAccountId + "/transfer")
+                            .header("X-User-Id", userId.toString())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(transferBody(fromAccountId, cardId)))
+                    .andExpect(i < 10 ? status().isOk() : status().isTooManyRequests());
+        }
+
+        // The rejected requests took no user token: 10 of the 20 are left, not 5
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(post("/api/accounts/" + fromAccountId + "/transfer")
+                            .header("X-User-Id", userId.toString())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(transferBody(fromAccountId, UUID.randomUUID())))
+                    .andExpect(status().isOk());
+        }
+        verify(transferService, times(20)).transfer(any(TransferRequestDTO.class));
+    }
+
+    private static String transferBody(UUID fromAccountId, UUID cardId) {
+        return String.format("""
+            {
+                "fromAccountId": "%s",
+                "toAccountId": "%s",
+                "amount": 10.00,
+                "cardId": "%s"
+            }
+            """, fromAccountId, UUID.randomUUID(), cardId);
+    }
+
     // === Transfer Endpoint Tests ===
     @Test
     void shouldTransferSuccessfully() throws Exception {
@@ -209,7 +364,9 @@ class AccountControllerTest {
                 new BigDecimal("100.00"),
                 new BigDecimal("1.00"),
                 new BigDecimal("799.00"),
-                new BigDecimal("600.00")
+                new BigDecimal("600.00"),
+                new BigDecimal("100.00"),
+                BigDecimal.ONE
         );
 
         when(transferService.transfer(any(TransferRequestDTO.class)))
@@ -279,4 +436,112 @@ class AccountControllerTest {
                         .content(requestBody))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReturn404WhenStreamingBalancesOfUnknownUser() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(accountService.getBalancesByUserId(userId)).thenThrow(new UserNotFoundException(userId));
+        // The hub reads the snapshot once the stream is registered
+        when(balanceStreamHub.subscribe(eq(userId.toString()), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+
+        mockMvc.perform(get("/api/accounts/stream")
+                        .header("X-User-Id", userId.toString())
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound());
+    }
+
+    // === Binary Encoding Tests ===
+    @Test
+    void shouldReturnProtobufBalancesWhenAcceptingProtobuf() throws Exception {
+        UUID userId = UUID.randomUUID();
+        List<AccountBalanceDTO> balances = List.of(
+                new AccountBalanceDTO(userId.toString(), UUID.randomUUID().toString(), "NL01RABO0123456789",
+                        new BigDecimal("100.50"), "EUR"),
+                new AccountBalanceDTO(userId.toString(), UUID.randomUUID().toString(), "NL01RABO0987654321",
+                        new BigDecimal("-20.00"), "EUR")
+        );
+        when(accountService.getBalancesByUserId(eq(userId))).thenReturn(balances);
+
+        byte[] body = mockMvc.perform(get("/api/accounts")
+                        .header("X-User-Id", userId.toString())
+                        .accept(ProtobufDtoHttpMessageConverter.APPLICATION_X_PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ProtobufDtoHttpMessageConverter.APPLICATION_X_PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(ProtobufDtoCodec.decodeBalances(body)).isEqualTo(balances);
+    }
+
+    @Test
+    void shouldWithdrawWhenBodiesAreProtobuf() throws Exception {
+        UUID accountId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+        WithdrawalRequestDTO request = new WithdrawalRequestDTO(accountId.toString(), new BigDecimal("100.00"), cardId.toString());
+        WithdrawalResponseDTO response = new WithdrawalResponseDTO(UUID.randomUUID().toString(), accountId.toString(),
+                cardId.toString(), new BigDecimal("100.00"), new BigDecimal("1.00"), new BigDecimal("899.00"));
+        when(withdrawalService.withdraw(eq(request))).thenReturn(response);
+
+        byte[] body = mockMvc.perform(post("/api/accounts/" + accountId + "/withdraw")
+                        .contentType(ProtobufDtoHttpMessageConverter.APPLICATION_X_PROTOBUF)
+                        .accept(ProtobufDtoHttpMessageConverter.APPLICATION_X_PROTOBUF)
+                        .content(ProtobufDtoCodec.encode(request)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(ProtobufDtoCodec.decodeWithdrawalResponse(body)).isEqualTo(response);
+    }
+
+    @Test
+    void shouldReturn400WhenProtobufWithdrawalHasNoAmount() throws Exception {
+        UUID accountId = UUID.randomUUID();
+        WithdrawalRequestDTO request = new WithdrawalRequestDTO(accountId.toString(), null, UUID.randomUUID().toString());
+
+        mockMvc.perform(post("/api/accounts/" + accountId + "/withdraw")
+                        .contentType(ProtobufDtoHttpMessageConverter.APPLICATION_X_PROTOBUF)
+                        .accept(ProtobufDtoHttpMessageConverter.APPLICATION_X_PROTOBUF)
+                        .content(ProtobufDtoCodec.encode(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnProblemJsonWhenProtobufWithdrawalFails() throws Exception {
+        UUID accountId = UUID.randomUUID();
+        WithdrawalRequestDTO request = new WithdrawalRequestDTO(accountId.toString(), new BigDecimal("100.00"),
+                UUID.randomUUID().toString());
+        when(withdrawalService.withdraw(any(WithdrawalRequestDTO.class)))
+                .thenThrow(new InsufficientFundsException(accountId, new BigDecimal("50.00"), new BigDecimal("100.00")));
+
+        mockMvc.perform(post("/api/accounts/" + accountId + "/withdraw")
+                        .contentType(ProtobufDtoHttpMessageConverter.APPLICATION_X_PROTOBUF)
+                        .accept(ProtobufDtoHttpMessageConverter.APPLICATION_X_PROTOBUF)
+                        .content(ProtobufDtoCodec.encode(request)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.title").value("Insufficient Funds"));
+    }
+
+    @Test
+    void shouldTransferWhenBodiesAreCbor() throws Exception {
+        CBORMapper cbor = new CBORMapper();
+        UUID fromAccountId = UUID.randomUUID();
+        UUID toAccountId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+        TransferRequestDTO request = new TransferRequestDTO(fromAccountId.toString(), toAccountId.toString(),
+                new BigDecimal("100.00"), cardId.toString());
+        TransferResponseDTO response = new TransferResponseDTO(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                fromAccountId.toString(), toAccountId.toString(), new BigDecimal("100.00"), new BigDecimal("1.00"),
+                new BigDecimal("799.00"), new BigDecimal("600.00"), new BigDecimal("100.00"), BigDecimal.ONE);
+        when(transferService.transfer(eq(request))).thenReturn(response);
+
+        byte[] body = mockMvc.perform(post("/api/accounts/" + fromAccountId + "/transfer")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(request)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(cbor.readValue(body, TransferResponseDTO.class)).isEqualTo(response);
+    }
+}
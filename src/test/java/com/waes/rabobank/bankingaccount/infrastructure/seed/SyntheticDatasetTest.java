@@ -0,0 +1,74 @@
+package com.waes.rabobank.bankingaccount.infrastructure.seed;
+
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedules;
+import com.waes.rabobank.bankingaccount.shared.identifier.Iban;
+import com.waes.rabobank.bankingaccount.shared.identifier.Luhn;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SyntheticDatasetTest {
+
+    private final SyntheticDataset dataset = new SyntheticDataset(
+            42, 3, 4, LocalDateTime.of(2026, 1, 15, 12, 0), FeeSchedules.current());
+
+    @Test
+    void shouldGenerateValidIdentifiers() {
+        // Act
+        SyntheticDataset.Chunk chunk = dataset.generate(1_000, 1_500);
+
+        // Assert
+        List<String[]> users = rows(chunk.userRows);
+        List<String[]> accounts = rows(chunk.accountRows);
+        List<String[]> cards = rows(chunk.cardRows);
+
+        assertThat(users).hasSize(500);
+        assertThat(users.getFirst()[1]).isEqualTo("user1000@synthetic.example");
+        assertThat(users.getFirst()[3]).isEqualTo("800001000");
+        assertThat(accounts).hasSize((int) chunk.accounts).hasSizeGreaterThan(500);
+        assertThat(accounts).allSatisfy(account -> assertThat(Iban.isValid(account[2])).isTrue());
+        assertThat(cards).hasSize((int) chunk.cards);
+        assertThat(cards).allSatisfy(card -> assertThat(Luhn.isValid(card[3])).isTrue());
+        assertThat(rows(chunk.transactionRows)).hasSize((int) chunk.transactions);
+    }
+
+    @Test
+    void shouldEndEachAccountOnItsLastRunningBalance() {
+        // Act
+        SyntheticDataset.Chunk chunk = dataset.generate(0, 300);
+
+        // Assert
+        Map<String, String> lastBalanceAfter = new HashMap<>();
+        for (String[] transaction : rows(chunk.transactionRows)) {
+            assertThat(transaction[6]).doesNotStartWith("-");
+            lastBalanceAfter.put(transaction[1], transaction[6]);
+        }
+        assertThat(lastBalanceAfter).isNotEmpty();
+        for (String[] account : rows(chunk.accountRows)) {
+            if (lastBalanceAfter.containsKey(account[0])) {
+                assertThat(account[3]).isEqualTo(lastBalanceAfter.get(account[0]));
+            }
+        }
+    }
+
+    @Test
+    void shouldGenerateSameChunkForSameSeed() {
+        SyntheticDataset.Chunk first = dataset.generate(0, 100);
+        SyntheticDataset.Chunk second = dataset.generate(0, 100);
+
+        assertThat(second.transactionRows.toString()).isEqualTo(first.transactionRows.toString());
+    }
+
+    private static List<String[]> rows(StringBuilder copyText) {
+        return Arrays.stream(copyText.toString().split("\n"))
+                .filter(line -> !line.isEmpty())
+                .map(line -> line.split("\t"))
+                .toList();
+    }
+}
@@ -0,0 +1,57 @@
+package com.waes.rabobank.bankingaccount.infrastructure.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardTransferCoordinatorTest {
+
+    private static final Shard COORDINATOR = new Shard(2, null, null, null);
+    private static final Shard TARGET = new Shard(0, null, null, null);
+
+    @Test
+    void shouldParseCoordinatorAndXidBackFromGid() {
+        String xid = UUID.randomUUID().toString();
+
+        String gid = ShardTransferCoordinator.gid(COORDINATOR, xid, TARGET);
+
+        assertThat(gid).startsWith(ShardTransferCoordinator.GID_PREFIX).hasSizeLessThan(200);
+        assertThat(ShardTransferCoordinator.parse(gid))
+                .isEqualTo(new ShardTransferCoordinator.ParsedGid(2, xid));
+    }
+
+    @Test
+    void shouldRejectGidWhoseXidIsNotUuid() {
+        assertThatThrownBy(() -> ShardTransferCoordinator.parse(ShardTransferCoordinator.GID_PREFIX + "1:x'; --:0"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ShardTransferCoordinator.parse(ShardTransferCoordinator.GID_PREFIX + "1:2"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldOrderUuidsAsPostgresDoes() {
+        // Unsigned byte order: 0x80... sorts after 0x7f..., UUID.compareTo puts it first
+        UUID low = UUID.fromString("7fffffff-ffff-ffff-ffff-ffffffffffff");
+        UUID high = UUID.fromString("80000000-0000-0000-0000-000000000000");
+        assertThat(high.compareTo(low)).isNegative();
+        assertThat(ShardedAccountRepository.UUID_ORDER.compare(high, low)).isPositive();
+
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        ids.sort(ShardedAccountRepository.UUID_ORDER);
+        for (int i = 1; i < ids.size(); i++) {
+            assertThat(hex(ids.get(i - 1))).isLessThan(hex(ids.get(i)));
+        }
+    }
+
+    private static String hex(UUID id) {
+        return id.toString().replace("-", "");
+    }
+}
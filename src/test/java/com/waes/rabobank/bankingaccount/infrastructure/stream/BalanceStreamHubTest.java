@@ -0,0 +1,123 @@
+package com.waes.rabobank.bankingaccount.infrastructure.stream;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.event.BalanceChangedEvent;
+import com.waes.rabobank.bankingaccount.application.service.AccountService;
+import com.waes.rabobank.bankingaccount.application.service.TransferService;
+import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.waes.rabobank.bankingaccount.infrastructure.rest.AccountController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class BalanceStreamHubTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final AccountService accountService = mock(AccountService.class);
+
+    private BalanceStreamHub hub;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        hub = new BalanceStreamHub(Duration.ofMinutes(1), new SimpleMeterRegistry());
+        mockMvc = MockMvcBuilders.standaloneSetup(new AccountController(
+                accountService, mock(WithdrawalService.class), mock(TransferService.class), hub)).build();
+        when(accountService.getBalancesByUserId(userId)).thenReturn(List.of(balance("acc-1", "100.00")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void shouldStreamSnapshotThenCommittedChangesOfTheUser() throws Exception {
+        // Arrange - snapshot sent, else the change below would replace it before it is written
+        MvcResult stream = open();
+        await().atMost(Duration.ofSeconds(5)).until(() -> content(stream).contains("100.00"));
+
+        // Act
+        hub.onBalanceChanged(new BalanceChangedEvent(balance("acc-1", "75.00")));
+        hub.onBalanceChanged(new BalanceChangedEvent(
+                new AccountBalanceDTO("someone-else", "acc-9", "NL00", BigDecimal.ONE, "EUR")));
+
+        // Assert
+        await().atMost(Duration.ofSeconds(5)).until(() -> content(stream).contains("75.00"));
+        assertThat(content(stream))
+                .startsWith("event:balance\ndata:{\"userId\":\"" + userId + "\",\"accountId\":\"acc-1\"")
+                .contains("\"balance\":100.00")
+                .doesNotContain("acc-9");
+        assertThat(hub.subscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepBalanceOfWithdrawalCommittedWhileSnapshotIsRead() throws Exception {
+        // Arrange - a withdrawal commits after the snapshot read 100.00, before the snapshot is queued
+        when(accountService.getBalancesByUserId(userId)).thenAnswer(invocation -> {
+            List<AccountBalanceDTO> snapshot = List.of(balance("acc-1", "100.00"));
+            hub.onBalanceChanged(new BalanceChangedEvent(balance("acc-1", "75.00")));
+            return snapshot;
+        });
+
+        // Act
+        MvcResult stream = open();
+
+        // Assert - the older snapshot balance never follows, nor replaces, the committed one
+        await().atMost(Duration.ofSeconds(5)).until(() -> content(stream).contains("75.00"));
+        hub.heartbeat();
+        await().atMost(Duration.ofSeconds(5)).until(() -> content(stream).contains(":heartbeat\n\n"));
+        assertThat(content(stream)).doesNotContain("100.00");
+    }
+
+    @Test
+    void shouldSendHeartbeatComments() throws Exception {
+        MvcResult stream = open();
+
+        hub.heartbeat();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> content(stream).contains(":heartbeat\n\n"));
+    }
+
+    @Test
+    void shouldForgetStreamsThatCompleted() throws Exception {
+        open();
+        open();
+        assertThat(hub.subscriberCount()).isEqualTo(2);
+
+        hub.shutdown();
+
+        assertThat(hub.subscriberCount()).isZero();
+    }
+
+    private MvcResult open() throws Exception {
+        return mockMvc.perform(get("/api/accounts/stream").header("X-User-Id", userId.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private AccountBalanceDTO balance(String accountId, String amount) {
+        return new AccountBalanceDTO(userId.toString(), accountId, "NL01RABO0123456789", new BigDecimal(amount), "EUR");
+    }
+
+    private static String content(MvcResult result) throws UnsupportedEncodingException {
+        return result.getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,104 @@
+package com.waes.rabobank.bankingaccount.infrastructure.workload;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GradientLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    void shouldRejectWhenLimitIsReached() {
+        GradientLimiter limiter = new GradientLimiter(1, 3);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.isCongested()).isTrue();
+
+        limiter.release(FAST);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire(2)).isFalse();
+    }
+
+    @Test
+    void shouldShrinkLimitWhenLatencyRises() {
+        GradientLimiter limiter = new GradientLimiter(1, 20);
+        runBatches(limiter, 50, FAST);
+        assertThat(limiter.limit()).isEqualTo(20);
+
+        runBatches(limiter, 10, SLOW);
+
+        assertThat(limiter.limit()).isLessThanOrEqualTo(5);
+        assertThat(limiter.isCongested()).isTrue();
+    }
+
+    @Test
+    void shouldNotShrinkBelowMinimum() {
+        GradientLimiter limiter = new GradientLimiter(8, 20);
+        runBatches(limiter, 50, FAST);
+
+        runBatches(limiter, 10, SLOW);
+
+        assertThat(limiter.limit()).isEqualTo(8);
+    }
+
+    @Test
+    void shouldGrowBackWhenLatencyRecovers() {
+        GradientLimiter limiter = new GradientLimiter(1, 20);
+        runBatches(limiter, 50, FAST);
+        runBatches(limiter, 10, SLOW);
+
+        runBatches(limiter, 30, FAST);
+
+        assertThat(limiter.limit()).isEqualTo(20);
+        assertThat(limiter.isCongested()).isFalse();
+    }
+
+    @Test
+    void shouldKeepLimitWhenMostPermitsAreUnused() {
+        GradientLimiter limiter = new GradientLimiter(1, 20);
+        runBatches(limiter, 50, FAST);
+        runBatches(limiter, 10, SLOW);
+        runSerially(limiter, 50, FAST);
+        int reduced = limiter.limit();
+
+        // One request at a time never shows that more concurrency would be served as fast
+        runSerially(limiter, 500, FAST);
+
+        assertThat(limiter.limit()).isEqualTo(reduced).isLessThan(20);
+    }
+
+    @Test
+    void shouldRejectInvalidLimits() {
+        assertThatThrownBy(() -> new GradientLimiter(0, 5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new GradientLimiter(5, 4)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Fills every permit, then completes them all with the same response time
+    private static void runBatches(GradientLimiter limiter, int batches, long rttNanos) {
+        for (int batch = 0; batch < batches; batch++) {
+            int admitted = 0;
+            while (limiter.tryAcquire()) {
+                admitted++;
+            }
+            for (int i = 0; i < admitted; i++) {
+                limiter.release(rttNanos);
+            }
+        }
+    }
+
+    private static void runSerially(GradientLimiter limiter, int requests, long rttNanos) {
+        for (int i = 0; i < requests; i++) {
+            limiter.tryAcquire();
+            limiter.release(rttNanos);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.waes.rabobank.bankingaccount.infrastructure.workload;
+
+import com.waes.rabobank.bankingaccount.shared.exception.GlobalExceptionHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class WorkloadInterceptorTest {
+
+    private final CountDownLatch streamGate = new CountDownLatch(1);
+
+    private WorkloadLimiters limiters;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        limiters = new WorkloadLimiters(
+                Map.of(WorkloadClass.PAYMENT, new GradientLimiter(1, 4),
+                        WorkloadClass.CUSTOMER_READ, new GradientLimiter(1, 2),
+                        WorkloadClass.REPORTING, new GradientLimiter(1, 1)),
+                Map.of(WorkloadClass.PAYMENT, Duration.ofSeconds(1),
+                        WorkloadClass.CUSTOMER_READ, Duration.ofSeconds(1),
+                        WorkloadClass.REPORTING, Duration.ofSeconds(10)),
+                new SimpleMeterRegistry());
+        mockMvc = MockMvcBuilders.standaloneSetup(new ReportController(), new HealthController())
+                .setControllerAdvice(new GlobalExceptionHandler(
+                        new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class)))
+                .addInterceptors(new WorkloadInterceptor(limiters))
+                .build();
+    }
+
+    @Test
+    void shouldReturn503WithRetryAfterWhenClassBudgetIsTaken() throws Exception {
+        assertThat(limiters.tryAcquire(WorkloadClass.REPORTING)).isTrue();
+
+        mockMvc.perform(get("/report"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "10"))
+                .andExpect(jsonPath("$.title").value("Service Overloaded"))
+                .andExpect(jsonPath("$.workload").value("reporting"));
+    }
+
+    @Test
+    void shouldReleasePermitWhenRequestCompletes() throws Exception {
+        mockMvc.perform(get("/report")).andExpect(status().isOk());
+        mockMvc.perform(get("/report")).andExpect(status().isOk());
+
+        assertThat(limiters.limiter(WorkloadClass.REPORTING).inFlight()).isZero();
+    }
+
+    @Test
+    void shouldNotLimitHandlersWithoutWorkload() throws Exception {
+        assertThat(limiters.tryAcquire(WorkloadClass.REPORTING)).isTrue();
+
+        mockMvc.perform(get("/health")).andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldHoldPermitUntilStreamingBodyCompletes() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/report/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(limiters.limiter(WorkloadClass.REPORTING).inFlight()).isOne();
+        mockMvc.perform(get("/report")).andExpect(status().isServiceUnavailable());
+
+        streamGate.countDown();
+        mockMvc.perform(asyncDispatch(stream)).andExpect(status().isOk());
+
+        assertThat(limiters.limiter(WorkloadClass.REPORTING).inFlight()).isZero();
+    }
+
+    @RestController
+    @Workload(WorkloadClass.REPORTING)
+    class ReportController {
+
+        @GetMapping("/report")
+        String report() {
+            return "report";
+        }
+
+        @GetMapping("/report/stream")
+        StreamingResponseBody stream() {
+            return out -> {
+                try {
+                    streamGate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                out.write("row\n".getBytes());
+            };
+        }
+    }
+
+    @RestController
+    static class HealthController {
+
+        @GetMapping("/health")
+        String health() {
+            return "up";
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.waes.rabobank.bankingaccount.infrastructure.workload;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkloadLimitersTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WorkloadLimiters limiters = new WorkloadLimiters(
+            Map.of(WorkloadClass.PAYMENT, new GradientLimiter(1, 2),
+                    WorkloadClass.CUSTOMER_READ, new GradientLimiter(1, 3),
+                    WorkloadClass.REPORTING, new GradientLimiter(1, 3)),
+            Map.of(WorkloadClass.PAYMENT, Duration.ofSeconds(1),
+                    WorkloadClass.CUSTOMER_READ, Duration.ofSeconds(1),
+                    WorkloadClass.REPORTING, Duration.ofSeconds(10)),
+            meterRegistry);
+
+    @Test
+    void shouldHoldLowerClassesToMinimumWhenPaymentsAreCongested() {
+        assertThat(limiters.tryAcquire(WorkloadClass.PAYMENT)).isTrue();
+        assertThat(limiters.tryAcquire(WorkloadClass.PAYMENT)).isTrue();
+        assertThat(limiters.tryAcquire(WorkloadClass.PAYMENT)).isFalse();
+
+        assertThat(limiters.tryAcquire(WorkloadClass.REPORTING)).isTrue();
+        assertThat(limiters.tryAcquire(WorkloadClass.REPORTING)).isFalse();
+        assertThat(limiters.tryAcquire(WorkloadClass.CUSTOMER_READ)).isTrue();
+        assertThat(limiters.tryAcquire(WorkloadClass.CUSTOMER_READ)).isFalse();
+    }
+
+    @Test
+    void shouldAdmitLowerClassesUpToTheirBudgetWhenPaymentsHaveRoom() {
+        assertThat(limiters.tryAcquire(WorkloadClass.PAYMENT)).isTrue();
+
+        assertThat(limiters.tryAcquire(WorkloadClass.REPORTING)).isTrue();
+        assertThat(limiters.tryAcquire(WorkloadClass.REPORTING)).isTrue();
+        assertThat(limiters.tryAcquire(WorkloadClass.REPORTING)).isTrue();
+        assertThat(limiters.tryAcquire(WorkloadClass.REPORTING)).isFalse();
+    }
+
+    @Test
+    void shouldCountRejectionsPerClass() {
+        for (int i = 0; i < 5; i++) {
+            limiters.tryAcquire(WorkloadClass.REPORTING);
+        }
+
+        assertThat(meterRegistry.get("banking.workload.rejected").tag("class", "reporting").counter().count())
+                .isEqualTo(2.0);
+        assertThat(meterRegistry.get("banking.workload.in_flight").tag("class", "reporting").gauge().value())
+                .isEqualTo(3.0);
+        assertThat(meterRegistry.get("banking.workload.rejected").tag("class", "payment").counter().count())
+                .isZero();
+    }
+}
@@ -0,0 +1,137 @@
+package com.waes.rabobank.bankingaccount.integration.aggregates;
+
+import com.waes.rabobank.bankingaccount.application.dto.BalanceTotalDTO;
+import com.waes.rabobank.bankingaccount.application.dto.PaymentVolumeDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+import com.waes.rabobank.bankingaccount.application.service.BankAggregateService;
+import com.waes.rabobank.bankingaccount.application.service.TransferService;
+import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregateVerifier;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Aggregates kept by delta on the primary database. The seed accounts are saved without deltas, so every test
+ * starts from a rebuild. Deltas are written at commit, so the class opts out of the rollback-per-test transaction
+ * and cleans the tables itself.
+ */
+@SpringBootTest(properties = "banking.ratelimit.enabled=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BankAggregatesIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private BankAggregateService bankAggregateService;
+
+    @Autowired
+    private BankAggregateVerifier verifier;
+
+    @Autowired
+    private WithdrawalService withdrawalService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void rebuild() {
+        verifier.rebuild();
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.execute("TRUNCATE account_totals, daily_payment_volumes, transaction_outbox, transactions, "
+                + "cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldAddPaymentsToTheAggregatesWhenTheyCommit() {
+        // Arrange
+        assertThat(bankAggregateService.getBalanceTotals()).singleElement().satisfies(total -> {
+            assertThat(total.currency()).isEqualTo("EUR");
+            assertThat(total.status()).isEqualTo("ACTIVE");
+            assertThat(total.totalBalance()).isEqualByComparingTo("3000.00");
+        });
+
+        // Act
+        WithdrawalResponseDTO withdrawal = withdrawalService.withdraw(new WithdrawalRequestDTO(
+                testAccount.getId().toString(), new BigDecimal("100.00"), testDebitCard.getId().toString()));
+        TransferResponseDTO transfer = transferService.transfer(new TransferRequestDTO(
+                testCreditCardAccount.getId().toString(), testAccount.getId().toString(),
+                new BigDecimal("250.00"), testCreditCard.getId().toString()));
+
+        // Assert - money leaves the bank only as withdrawals and fees
+        BigDecimal expectedBalance = new BigDecimal("3000.00")
+                .subtract(new BigDecimal("100.00")).subtract(withdrawal.fee()).subtract(transfer.fee());
+        assertThat(bankAggregateService.getBalanceTotals()).singleElement().satisfies(total -> {
+            assertThat(total.accounts()).isEqualTo(2);
+            assertThat(total.totalBalance()).isEqualByComparingTo(expectedBalance);
+        });
+        List<PaymentVolumeDTO> volumes = bankAggregateService.getPaymentVolumes(null, null);
+        assertThat(volumes).extracting(PaymentVolumeDTO::transactionType)
+                .containsExactly("DEPOSIT", "TRANSFER", "WITHDRAWAL");
+        assertThat(volumes).allSatisfy(volume -> {
+            assertThat(volume.day()).isEqualTo(LocalDate.now());
+            assertThat(volume.transactions()).isEqualTo(1);
+        });
+        assertThat(volumes.get(0).amount()).isEqualByComparingTo("250.00");
+        assertThat(volumes.get(1).fees()).isEqualByComparingTo(transfer.fee());
+        assertThat(volumes.get(2).amount()).isEqualByComparingTo("100.00");
+        assertThat(volumes.get(2).fees()).isEqualByComparingTo(withdrawal.fee());
+        assertThat(verifier.verify()).isZero();
+    }
+
+    @Test
+    void shouldRepairAggregatesThatDrifted() {
+        // Arrange
+        double driftBefore = drift();
+        jdbcTemplate.update("UPDATE account_totals SET account_count = account_count + 5");
+
+        // Act
+        int drifted = verifier.verify();
+
+        // Assert
+        assertThat(drifted).isEqualTo(1);
+        assertThat(drift() - driftBefore).isEqualTo(1);
+        assertThat(bankAggregateService.getBalanceTotals())
+                .extracting(BalanceTotalDTO::accounts)
+                .containsExactly(2L);
+        assertThat(verifier.verify()).isZero();
+    }
+
+    @Test
+    void shouldRejectVolumeRangesReversedOrLongerThanAYear() {
+        LocalDate today = LocalDate.now();
+
+        assertThatThrownBy(() -> bankAggregateService.getPaymentVolumes(today, today.minusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bankAggregateService.getPaymentVolumes(today.minusYears(2), today))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private double drift() {
+        return meterRegistry.get("banking.aggregates.drift").tag("table", "account_totals").counter().count();
+    }
+}
@@ -0,0 +1,123 @@
+package com.waes.rabobank.bankingaccount.integration.benchmark;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.domain.model.Account;
+import com.waes.rabobank.bankingaccount.domain.model.DebitCard;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the former entity read path of the balance inquiry with the constructor-expression projection
+ * for a user with many accounts: bytes allocated by the calling thread and average latency per call. Also
+ * measures the version-only read behind the balances ETag, which is all a matching {@code If-None-Match} costs.
+ * Every call starts from an empty persistence context, as a request would.
+ * <p>
+ * Run with {@code mvn test -Pperf}.
+ */
+@Tag("benchmark")
+class AccountBalanceReadBenchmarkTest extends BaseIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountBalanceReadBenchmarkTest.class);
+
+    private static final int ACCOUNTS = 500;
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 200;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void shouldAllocateLessWithProjectionThanWithEntities() {
+        // Arrange
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = new Account(testUser, "NL00BNCH%010d".formatted(i));
+            account.deposit(new BigDecimal("100.00"));
+            accountRepository.save(account);
+            cardRepository.save(new DebitCard(account, "6200%012d".formatted(i), YearMonth.of(2030, 12)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        UUID userId = testUser.getId();
+
+        // Act
+        Result entities = measure(() -> loadAsEntities(userId));
+        Result projection = measure(() -> accountRepository.findBalancesByUserId(userId));
+        Result versions = measure(() -> accountRepository.findVersionsByUserId(userId));
+
+        // Assert
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("accounts", ACCOUNTS + 2);
+        summary.put("entityBytesPerCall", entities.bytesPerCall);
+        summary.put("projectionBytesPerCall", projection.bytesPerCall);
+        summary.put("versionsBytesPerCall", versions.bytesPerCall);
+        summary.put("entityMicrosPerCall", entities.microsPerCall);
+        summary.put("projectionMicrosPerCall", projection.microsPerCall);
+        summary.put("versionsMicrosPerCall", versions.microsPerCall);
+        logger.info("benchmark.balance_read {}", summary);
+
+        assertThat(projection.rows).isEqualTo(entities.rows).isEqualTo(versions.rows).isEqualTo(ACCOUNTS + 2);
+        assertThat(projection.bytesPerCall).isLessThan(entities.bytesPerCall);
+        assertThat(versions.bytesPerCall).isLessThan(projection.bytesPerCall);
+    }
+
+    // Read path before the projection: managed entities with their card, copied into DTOs
+    private List<AccountBalanceDTO> loadAsEntities(UUID userId) {
+        return entityManager.createQuery("""
+                        SELECT a
+                        FROM Account a
+                        LEFT JOIN FETCH a.card
+                        WHERE a.user.id = :userId
+                        AND a.status = 'ACTIVE'
+                        """, Account.class)
+                .setParameter("userId", userId)
+                .getResultList()
+                .stream()
+                .map(account -> new AccountBalanceDTO(
+                        account.getUser().getId().toString(),
+                        account.getId().toString(),
+                        account.getAccountNumber(),
+                        account.getBalance(),
+                        account.getCurrency()
+                ))
+                .toList();
+    }
+
+    private Result measure(Supplier<List<?>> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int rows = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            rows = read.get().size();
+            entityManager.clear();
+        }
+
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            read.get();
+            entityManager.clear();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+
+        return new Result(rows, allocated / ITERATIONS, elapsed / ITERATIONS / 1_000);
+    }
+
+    private record Result(int rows, long bytesPerCall, long microsPerCall) {
+    }
+}
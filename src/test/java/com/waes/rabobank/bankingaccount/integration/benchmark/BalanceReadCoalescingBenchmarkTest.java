@@ -0,0 +1,168 @@
+package com.waes.rabobank.bankingaccount.integration.benchmark;
+
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends {@code GET /api/accounts} in bursts: each round, 10 users refresh from 8 places at once. Reports how many
+ * connections the bursts checked out and for how long ({@code hikaricp.connections.usage}), and the latency the
+ * clients saw.
+ * <p>
+ * Run with {@code mvn test -Pperf}; add {@code -Dbanking.single-flight.enabled=false} to see the same bursts
+ * without coalescing.
+ */
+@Tag("benchmark")
+// A burst of 8 is over the customer-read bulkhead, which is not what is measured
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "banking.workload.enabled=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BalanceReadCoalescingBenchmarkTest extends BaseIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceReadCoalescingBenchmarkTest.class);
+
+    private static final int USERS = 1_000;
+    private static final int ROUNDS = 200;
+    private static final int USERS_PER_ROUND = 10;
+    private static final int BURST = 8;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<UUID> userIds = new ArrayList<>();
+    private HttpClient httpClient;
+
+    @BeforeEach
+    void seedUsers() {
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> accounts = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            UUID userId = UUID.randomUUID();
+            userIds.add(userId);
+            users.add(new Object[]{userId, "burst%05d@test.com".formatted(i), "Burst User " + i, "%09d".formatted(200_000 + i)});
+            accounts.add(new Object[]{userId, "NL00BRST%010d".formatted(2 * i)});
+            accounts.add(new Object[]{userId, "NL00BRST%010d".formatted(2 * i + 1)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, email, full_name, bsn_id) VALUES (?, ?, ?, ?)", users);
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO accounts (user_id, account_number, balance, currency, status, version, created_at, updated_at)
+                VALUES (?, ?, 100, 'EUR', 'ACTIVE', 0, now(), now())
+                """, accounts);
+        httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @AfterEach
+    void cleanup() {
+        httpClient.close();
+        jdbcTemplate.execute("TRUNCATE transaction_outbox, transactions, cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldServeBurstsOfIdenticalReads() throws Exception {
+        runBursts(ROUNDS / 4);
+
+        Timer usage = meterRegistry.get("hikaricp.connections.usage").timer();
+        long checkoutsBefore = usage.count();
+        double usageMillisBefore = usage.totalTime(TimeUnit.MILLISECONDS);
+        Burst burst = runBursts(ROUNDS);
+        long checkouts = usage.count() - checkoutsBefore;
+        double usageMillis = usage.totalTime(TimeUnit.MILLISECONDS) - usageMillisBefore;
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", burst.requests());
+        summary.put("errors", burst.errors());
+        summary.put("connectionCheckouts", checkouts);
+        summary.put("checkoutsPerRequest", (double) checkouts / burst.requests());
+        summary.put("connectionMillis", Math.round(usageMillis));
+        summary.put("p50Millis", burst.p50Millis());
+        summary.put("p99Millis", burst.p99Millis());
+        logger.info("benchmark.balance_read_coalescing {}", summary);
+
+        assertThat(burst.errors()).isZero();
+    }
+
+    private Burst runBursts(int rounds) throws Exception {
+        int requests = rounds * USERS_PER_ROUND * BURST;
+        long[] latencies = new long[requests];
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int round = 0; round < rounds; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> inRound = new ArrayList<>();
+                for (int u = 0; u < USERS_PER_ROUND; u++) {
+                    UUID userId = userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/accounts"))
+                            .header("X-User-Id", userId.toString())
+                            .timeout(Duration.ofSeconds(30))
+                            .build();
+                    for (int b = 0; b < BURST; b++) {
+                        inRound.add(clients.submit(() -> {
+                            start.await();
+                            long sent = System.nanoTime();
+                            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                            latencies[completed.getAndIncrement()] = System.nanoTime() - sent;
+                            return null;
+                        }));
+                    }
+                }
+                start.countDown();
+                for (Future<?> future : inRound) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+            }
+        }
+
+        Arrays.sort(latencies);
+        return new Burst(requests, errors.get(), latencies[requests / 2] / 1_000_000.0,
+                latencies[(int) (requests * 0.99)] / 1_000_000.0);
+    }
+
+    private record Burst(int requests, int errors, double p50Millis, double p99Millis) {
+    }
+}
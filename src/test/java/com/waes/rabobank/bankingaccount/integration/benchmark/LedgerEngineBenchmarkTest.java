@@ -0,0 +1,124 @@
+package com.waes.rabobank.bankingaccount.integration.benchmark;
+
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.waes.rabobank.bankingaccount.domain.model.Account;
+import com.waes.rabobank.bankingaccount.domain.model.DebitCard;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Payment engines compared: {@value #THREADS} callers withdraw from their own account. Reports withdrawals per
+ * second as the callers see them and, in ledger mode, how long the database then takes to hold every withdrawal.
+ * <p>
+ * Run with {@code mvn test -Pperf}; add {@code -Dbanking.ledger.enabled=true} for the in-memory ledger, the JPA
+ * path otherwise.
+ */
+@Tag("benchmark")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LedgerEngineBenchmarkTest extends BaseIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerEngineBenchmarkTest.class);
+
+    private static final int THREADS = 32;
+    private static final int WITHDRAWALS_PER_THREAD = 100;
+
+    @Autowired
+    private WithdrawalService withdrawalService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${banking.ledger.enabled}")
+    private boolean ledger;
+
+    private final List<WithdrawalRequestDTO> requests = new ArrayList<>();
+
+    @BeforeEach
+    void setupAccounts() {
+        for (int i = 0; i < THREADS; i++) {
+            Account account = new Account(testUser, "NL00LDBM%010d".formatted(i));
+            account.deposit(new BigDecimal("100000.00"));
+            accountRepository.save(account);
+            DebitCard card = new DebitCard(account, "43000000000000%02d".formatted(i), YearMonth.of(2030, 12));
+            cardRepository.save(card);
+            requests.add(new WithdrawalRequestDTO(account.getId().toString(), new BigDecimal("1.00"), card.getId().toString()));
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.execute("TRUNCATE transaction_outbox, transactions, cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldMeasureWithdrawalThroughput() throws Exception {
+        int warmUp = run(WITHDRAWALS_PER_THREAD / 5);
+
+        long start = System.nanoTime();
+        int withdrawals = run(WITHDRAWALS_PER_THREAD);
+        long elapsedNanos = System.nanoTime() - start;
+        awaitPersisted(warmUp + withdrawals);
+        long persistedNanos = System.nanoTime() - start;
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("ledger", ledger);
+        summary.put("withdrawals", withdrawals);
+        summary.put("withdrawalsPerSecond", withdrawals * 1_000_000_000L / elapsedNanos);
+        summary.put("persistedAfterMs", persistedNanos / 1_000_000);
+        logger.info("benchmark.ledger_engine {}", summary);
+
+        assertThat(withdrawals).isEqualTo(THREADS * WITHDRAWALS_PER_THREAD);
+    }
+
+    private int run(int perThread) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        int completed = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (WithdrawalRequestDTO request : requests) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        withdrawalService.withdraw(request);
+                    }
+                    return perThread;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                completed += result.get();
+            }
+        }
+        return completed;
+    }
+
+    private void awaitPersisted(int withdrawals) throws InterruptedException {
+        while (jdbcTemplate.queryForObject("SELECT count(*) FROM transactions", Long.class) < withdrawals) {
+            Thread.sleep(10);
+        }
+    }
+}
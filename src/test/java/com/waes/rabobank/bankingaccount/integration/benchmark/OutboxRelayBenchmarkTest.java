@@ -0,0 +1,119 @@
+package com.waes.rabobank.bankingaccount.integration.benchmark;
+
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.FileOutboxSink;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.InMemoryOutboxSink;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.OutboxRelay;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.OutboxSink;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Relay throughput: events per second drained from a pre-filled outbox, by batch size, number of concurrent
+ * relays (nodes) and sink. Payloads are sized like a transfer event (~400 bytes).
+ * <p>
+ * Run with {@code mvn test -Pperf}.
+ */
+@Tag("benchmark")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayBenchmarkTest extends BaseIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelayBenchmarkTest.class);
+
+    private static final int EVENTS = 20_000;
+    private static final String PAYLOAD = """
+            {"transferTransactionId":"%s","depositTransactionId":"%s","fromAccountId":"%s",\
+            "toAccountId":"%s","amount":125.00,"fee":1.25,"fromAccountBalanceAfter":873.75,\
+            "toAccountBalanceAfter":625.00,"creditedAmount":125.00,"fxRate":1}""";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.execute("TRUNCATE transaction_outbox, transactions, cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldMeasureRelayThroughput() throws Exception {
+        measure(500, 1, InMemoryOutboxSink::new); // Warm-up
+
+        Map<String, Long> eventsPerSecond = new LinkedHashMap<>();
+        eventsPerSecond.put("memory_batch100_relays1", measure(100, 1, InMemoryOutboxSink::new));
+        eventsPerSecond.put("memory_batch500_relays1", measure(500, 1, InMemoryOutboxSink::new));
+        eventsPerSecond.put("memory_batch1000_relays1", measure(1000, 1, InMemoryOutboxSink::new));
+        eventsPerSecond.put("memory_batch500_relays4", measure(500, 4, InMemoryOutboxSink::new));
+        eventsPerSecond.put("file_batch10_relays1", measure(10, 1, this::fileSink));
+        eventsPerSecond.put("file_batch500_relays1", measure(500, 1, this::fileSink));
+        eventsPerSecond.put("file_batch500_relays4", measure(500, 4, this::fileSink));
+        logger.info("benchmark.outbox_relay {}", eventsPerSecond);
+
+        assertThat(eventsPerSecond.get("memory_batch500_relays1")).isGreaterThan(eventsPerSecond.get("file_batch10_relays1"));
+    }
+
+    private long measure(int batchSize, int relays, Supplier<OutboxSink> sinks) throws Exception {
+        fill();
+        List<OutboxRelay> nodes = new ArrayList<>();
+        for (int i = 0; i < relays; i++) {
+            nodes.add(new OutboxRelay(jdbcTemplate, transactionTemplate, sinks.get(), batchSize, new SimpleMeterRegistry()));
+        }
+
+        long start = System.nanoTime();
+        long delivered = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(relays)) {
+            List<Future<Long>> results = new ArrayList<>();
+            for (OutboxRelay relay : nodes) {
+                results.add(executor.submit(relay::drain));
+            }
+            for (Future<Long> result : results) {
+                delivered += result.get();
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        assertThat(delivered).isEqualTo(EVENTS);
+        return delivered * 1_000_000_000L / elapsedNanos;
+    }
+
+    private void fill() {
+        jdbcTemplate.update("""
+                INSERT INTO transaction_outbox (event_type, aggregate_id, payload, created_at)
+                SELECT 'transfer.completed', gen_random_uuid(),
+                       format(?, gen_random_uuid(), gen_random_uuid(), gen_random_uuid(), gen_random_uuid()), now()
+                FROM generate_series(1, ?)
+                """, PAYLOAD, EVENTS);
+        jdbcTemplate.execute("VACUUM ANALYZE transaction_outbox");
+    }
+
+    private OutboxSink fileSink() {
+        return new FileOutboxSink(directory.resolve("events-" + System.nanoTime() + ".ndjson"));
+    }
+}
@@ -0,0 +1,179 @@
+package com.waes.rabobank.bankingaccount.integration.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+import com.waes.rabobank.bankingaccount.infrastructure.codec.ProtobufDtoCodec;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Encodes and decodes the balance, withdrawal and transfer payloads as JSON, CBOR and protobuf, the same codecs
+ * the message converters call. Reports the bytes on the wire and the CPU time per encode and decode, measured on
+ * this thread after a warm-up. No database or server is involved.
+ * <p>
+ * Run with {@code mvn test -Pperf}.
+ */
+@Tag("benchmark")
+class PayloadEncodingBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayloadEncodingBenchmarkTest.class);
+
+    private static final int WARMUP_ROUNDS = 200_000;
+    private static final int MEASURED_ROUNDS = 500_000;
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final CBORMapper cbor = new CBORMapper();
+
+    @Test
+    void shouldEncodeSmallerAndCheaperThanJson() throws Exception {
+        List<AccountBalanceDTO> balances = balances(3);
+        WithdrawalRequestDTO withdrawalRequest = new WithdrawalRequestDTO(id(), new BigDecimal("100.00"), id());
+        WithdrawalResponseDTO withdrawalResponse = new WithdrawalResponseDTO(id(), id(), id(),
+                new BigDecimal("100.00"), new BigDecimal("1.00"), new BigDecimal("2899.00"));
+        TransferRequestDTO transferRequest = new TransferRequestDTO(id(), id(), new BigDecimal("250.00"), id());
+        TransferResponseDTO transferResponse = new TransferResponseDTO(id(), id(), id(), id(),
+                new BigDecimal("250.00"), new BigDecimal("2.50"), new BigDecimal("1747.50"),
+                new BigDecimal("520.31"), new BigDecimal("270.31"), new BigDecimal("1.081240"));
+
+        List<Result> results = new ArrayList<>();
+        results.addAll(measure("balances[3]",
+                () -> json.writeValueAsBytes(balances),
+                bytes -> json.readValue(bytes, new TypeReference<List<AccountBalanceDTO>>() { }),
+                () -> cbor.writeValueAsBytes(balances),
+                bytes -> cbor.readValue(bytes, new TypeReference<List<AccountBalanceDTO>>() { }),
+                () -> ProtobufDtoCodec.encodeBalances(balances),
+                ProtobufDtoCodec::decodeBalances));
+        results.addAll(measure("withdrawal.request",
+                () -> json.writeValueAsBytes(withdrawalRequest),
+                bytes -> json.readValue(bytes, WithdrawalRequestDTO.class),
+                () -> cbor.writeValueAsBytes(withdrawalRequest),
+                bytes -> cbor.readValue(bytes, WithdrawalRequestDTO.class),
+                () -> ProtobufDtoCodec.encode(withdrawalRequest),
+                ProtobufDtoCodec::decodeWithdrawalRequest));
+        results.addAll(measure("withdrawal.response",
+                () -> json.writeValueAsBytes(withdrawalResponse),
+                bytes -> json.readValue(bytes, WithdrawalResponseDTO.class),
+                () -> cbor.writeValueAsBytes(withdrawalResponse),
+                bytes -> cbor.readValue(bytes, WithdrawalResponseDTO.class),
+                () -> ProtobufDtoCodec.encode(withdrawalResponse),
+                ProtobufDtoCodec::decodeWithdrawalResponse));
+        results.addAll(measure("transfer.request",
+                () -> json.writeValueAsBytes(transferRequest),
+                bytes -> json.readValue(bytes, TransferRequestDTO.class),
+                () -> cbor.writeValueAsBytes(transferRequest),
+                bytes -> cbor.readValue(bytes, TransferRequestDTO.class),
+                () -> ProtobufDtoCodec.encode(transferRequest),
+                ProtobufDtoCodec::decodeTransferRequest));
+        results.addAll(measure("transfer.response",
+                () -> json.writeValueAsBytes(transferResponse),
+                bytes -> json.readValue(bytes, TransferResponseDTO.class),
+                () -> cbor.writeValueAsBytes(transferResponse),
+                bytes -> cbor.readValue(bytes, TransferResponseDTO.class),
+                () -> ProtobufDtoCodec.encode(transferResponse),
+                ProtobufDtoCodec::decodeTransferResponse));
+
+        results.forEach(result -> logger.info("benchmark.payload_encoding {}", result.summary()));
+        for (int i = 0; i < results.size(); i += 3) {
+            Result jsonResult = results.get(i);
+            assertThat(results.get(i + 1).bytes()).isLessThan(jsonResult.bytes());
+            assertThat(results.get(i + 2).bytes()).isLessThan(results.get(i + 1).bytes());
+        }
+    }
+
+    private List<Result> measure(String payload,
+                                 Encoder jsonEncoder, Decoder jsonDecoder,
+                                 Encoder cborEncoder, Decoder cborDecoder,
+                                 Encoder protobufEncoder, Decoder protobufDecoder) throws Exception {
+        Object expected = jsonDecoder.decode(jsonEncoder.encode());
+        assertThat(cborDecoder.decode(cborEncoder.encode())).isEqualTo(expected);
+        assertThat(protobufDecoder.decode(protobufEncoder.encode())).isEqualTo(expected);
+
+        return List.of(
+                measure(payload, "json", jsonEncoder, jsonDecoder),
+                measure(payload, "cbor", cborEncoder, cborDecoder),
+                measure(payload, "protobuf", protobufEncoder, protobufDecoder));
+    }
+
+    private Result measure(String payload, String encoding, Encoder encoder, Decoder decoder) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        byte[] bytes = encoder.encode();
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += encoder.encode().length;
+            sink += decoder.decode(bytes).hashCode();
+        }
+
+        long start = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sink += encoder.encode().length;
+        }
+        long encodeNanos = threads.getCurrentThreadCpuTime() - start;
+
+        start = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sink += decoder.decode(bytes).hashCode();
+        }
+        long decodeNanos = threads.getCurrentThreadCpuTime() - start;
+
+        return new Result(payload, encoding, bytes.length,
+                encodeNanos / MEASURED_ROUNDS, decodeNanos / MEASURED_ROUNDS, sink);
+    }
+
+    private static List<AccountBalanceDTO> balances(int count) {
+        String userId = id();
+        List<AccountBalanceDTO> balances = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            balances.add(new AccountBalanceDTO(userId, id(), "NL%02dRABO%010d".formatted(10 + i, 123_456_789L + i),
+                    new BigDecimal("1234.56").multiply(BigDecimal.valueOf(i + 1)), "EUR"));
+        }
+        return balances;
+    }
+
+    private static String id() {
+        return UUID.randomUUID().toString();
+    }
+
+    @FunctionalInterface
+    private interface Encoder {
+        byte[] encode() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Decoder {
+        Object decode(byte[] bytes) throws Exception;
+    }
+
+    // The sink keeps the JIT from dropping the loops
+    private record Result(String payload, String encoding, int bytes, long encodeCpuNanos, long decodeCpuNanos,
+                          long sink) {
+
+        Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("payload", payload);
+            summary.put("encoding", encoding);
+            summary.put("bytes", bytes);
+            summary.put("encodeCpuNanos", encodeCpuNanos);
+            summary.put("decodeCpuNanos", decodeCpuNanos);
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.waes.rabobank.bankingaccount.integration.benchmark;
+
+import com.waes.rabobank.bankingaccount.infrastructure.ratelimit.TokenBucketRateLimiter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Calls {@link TokenBucketRateLimiter#tryAcquire(String)} the way the payment advice does, over 100 000 known keys,
+ * from 1 and from 4 threads. Reports CPU time and heap allocated per call. Each key is a fresh copy of the id, as a
+ * header or body value would be, so hashing and comparing it is part of the cost.
+ * <p>
+ * Run with {@code mvn test -Pperf}.
+ */
+@Tag("benchmark")
+class RateLimiterBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiterBenchmarkTest.class);
+
+    private static final int KEYS = 100_000;
+    private static final int CALLS_PER_THREAD = 1_000_000;
+
+    @Test
+    void shouldDecideUnderAMicrosecondWithoutAllocating() throws Exception {
+        // Enough tokens that every call takes the same path
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1_000_000, 1_000, 2 * KEYS, 64);
+        String[] ids = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            limiter.tryAcquire(ids[i]);
+        }
+
+        List<Result> results = new ArrayList<>();
+        results.add(run(limiter, ids, 1));
+        results.add(run(limiter, ids, 1));
+        results.add(run(limiter, ids, 4));
+
+        results.forEach(result -> logger.info("benchmark.rate_limiter {}", result.summary()));
+        Result measured = results.get(1);
+        assertThat(measured.cpuNanosPerCall()).isLessThan(1_000);
+        assertThat(measured.bytesPerCall()).isLessThan(1);
+        assertThat(results.get(2).cpuNanosPerCall()).isLessThan(1_000);
+    }
+
+    private Result run(TokenBucketRateLimiter limiter, String[] ids, int threads) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * 7_919;
+                futures.add(executor.submit(() -> callAll(limiter, ids, offset)));
+            }
+            long cpuNanos = 0;
+            long bytes = 0;
+            long sink = 0;
+            for (Future<long[]> future : futures) {
+                long[] measured = future.get();
+                cpuNanos += measured[0];
+                bytes += measured[1];
+                sink += measured[2];
+            }
+            long calls = (long) threads * CALLS_PER_THREAD;
+            return new Result(threads, cpuNanos / calls, (double) bytes / calls, sink);
+        }
+    }
+
+    // Returns {cpu nanos, allocated bytes, sink}
+    private static long[] callAll(TokenBucketRateLimiter limiter, String[] ids, int offset) {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String[] keys = new String[CALLS_PER_THREAD];
+        for (int i = 0; i < CALLS_PER_THREAD; i++) {
+            keys[i] = new String(ids[(offset + i) % ids.length]);
+        }
+
+        long sink = 0;
+        long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+        long cpuBefore = threadBean.getCurrentThreadCpuTime();
+        for (String key : keys) {
+            sink += limiter.tryAcquire(key);
+        }
+        long cpuNanos = threadBean.getCurrentThreadCpuTime() - cpuBefore;
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new long[]{cpuNanos, allocated, sink};
+    }
+
+    // The sink keeps the JIT from dropping the loop
+    private record Result(int threads, long cpuNanosPerCall, double bytesPerCall, long sink) {
+
+        Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("threads", threads);
+            summary.put("cpuNanosPerCall", cpuNanosPerCall);
+            summary.put("bytesPerCall", bytesPerCall);
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.waes.rabobank.bankingaccount.integration.benchmark;
+
+import com.waes.rabobank.bankingaccount.infrastructure.reactive.ReactiveReadRepository;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives {@code GET /api/accounts} (MVC + JPA) and {@code GET /reactive/api/accounts} (WebFlux + R2DBC) with the
+ * same closed-loop load at rising concurrency. Reports throughput, latency, and the peak database connections,
+ * waiters and JVM threads each stack needed. Both pools are capped at 10 connections.
+ * <p>
+ * The reactive stack runs first: Tomcat keeps the worker threads the blocking stack makes it grow.
+ * <p>
+ * Run with {@code mvn test -Pperf}.
+ */
+@Tag("benchmark")
+// Measures the stacks, not the bulkheads: 1000 clients on one class would mostly be shed with 503
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "banking.workload.enabled=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReactiveReadLoadBenchmarkTest extends BaseIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveReadLoadBenchmarkTest.class);
+
+    private static final int USERS = 2_000;
+    private static final int[] CONCURRENCY = {50, 400, 1_000};
+    private static final int REQUESTS_PER_RUN = 20_000;
+    private static final int WARMUP_REQUESTS = 5_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReactiveReadRepository reactiveReadRepository;
+
+    private final List<UUID> userIds = new ArrayList<>();
+    private HttpClient httpClient;
+
+    @BeforeEach
+    void seedUsers() {
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> accounts = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            UUID userId = UUID.randomUUID();
+            userIds.add(userId);
+            users.add(new Object[]{userId, "load%05d@test.com".formatted(i), "Load User " + i, "%09d".formatted(100_000 + i)});
+            accounts.add(new Object[]{userId, "NL00LOAD%010d".formatted(2 * i)});
+            accounts.add(new Object[]{userId, "NL00LOAD%010d".formatted(2 * i + 1)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, email, full_name, bsn_id) VALUES (?, ?, ?, ?)", users);
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO accounts (user_id, account_number, balance, currency, status, version, created_at, updated_at)
+                VALUES (?, ?, 100, 'EUR', 'ACTIVE', 0, now(), now())
+                """, accounts);
+        httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @AfterEach
+    void cleanup() {
+        httpClient.close();
+        jdbcTemplate.execute("TRUNCATE transaction_outbox, transactions, cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldServeHighConcurrencyWithBoundedConnections() throws Exception {
+        HikariPoolMXBean hikari = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+
+        List<Result> results = new ArrayList<>();
+        run("/reactive/api/accounts", 50, WARMUP_REQUESTS,
+                reactiveReadRepository::acquiredConnections, reactiveReadRepository::pendingAcquires);
+        for (int concurrency : CONCURRENCY) {
+            results.add(run("/reactive/api/accounts", concurrency, REQUESTS_PER_RUN,
+                    reactiveReadRepository::acquiredConnections, reactiveReadRepository::pendingAcquires));
+        }
+        run("/api/accounts", 50, WARMUP_REQUESTS,
+                hikari::getActiveConnections, hikari::getThreadsAwaitingConnection);
+        for (int concurrency : CONCURRENCY) {
+            results.add(run("/api/accounts", concurrency, REQUESTS_PER_RUN,
+                    hikari::getActiveConnections, hikari::getThreadsAwaitingConnection));
+        }
+
+        results.forEach(result -> logger.info("benchmark.reactive_read {}", result.summary()));
+        assertThat(results).allSatisfy(result -> assertThat(result.errors()).isZero());
+        assertThat(results).allSatisfy(result -> assertThat(result.peakConnections()).isLessThanOrEqualTo(10));
+    }
+
+    private Result run(String path, int concurrency, int requests, IntSupplier connectionsInUse, IntSupplier waiting)
+            throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        AtomicInteger remaining = new AtomicInteger(requests);
+        AtomicInteger errors = new AtomicInteger();
+        AtomicLong peakConnections = new AtomicLong();
+        AtomicLong peakWaiting = new AtomicLong();
+        long[] latencies = new long[requests];
+        AtomicInteger completed = new AtomicInteger();
+
+        Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peakConnections.accumulateAndGet(connectionsInUse.getAsInt(), Math::max);
+                peakWaiting.accumulateAndGet(waiting.getAsInt(), Math::max);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        });
+
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        UUID userId = userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                                .header("X-User-Id", userId.toString())
+                                .timeout(Duration.ofSeconds(30))
+                                .build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception ex) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[completed.getAndIncrement()] = System.nanoTime() - sent;
+                    }
+                    return null;
+                });
+            }
+            clients.shutdown();
+            assertThat(clients.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+        }
+        long elapsed = System.nanoTime() - start;
+        sampler.interrupt();
+        sampler.join();
+
+        Arrays.sort(latencies);
+        return new Result(path, concurrency, requests, errors.get(),
+                requests * 1_000_000_000L / elapsed,
+                latencies[requests / 2] / 1_000_000.0,
+                latencies[(int) (requests * 0.99)] / 1_000_000.0,
+                peakConnections.get(), peakWaiting.get(), threads.getPeakThreadCount());
+    }
+
+    private record Result(String path, int concurrency, int requests, int errors, long requestsPerSecond,
+                          double p50Millis, double p99Millis, long peakConnections, long peakWaiting,
+                          int peakJvmThreads) {
+
+        Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("path", path);
+            summary.put("concurrency", concurrency);
+            summary.put("requests", requests);
+            summary.put("errors", errors);
+            summary.put("requestsPerSecond", requestsPerSecond);
+            summary.put("p50Millis", p50Millis);
+            summary.put("p99Millis", p99Millis);
+            summary.put("peakConnections", peakConnections);
+            summary.put("peakWaiting", peakWaiting);
+            summary.put("peakJvmThreads", peakJvmThreads);
+            return summary;
+        }
+    }
+}
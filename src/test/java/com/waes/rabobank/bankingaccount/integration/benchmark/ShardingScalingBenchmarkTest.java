@@ -0,0 +1,146 @@
+package com.waes.rabobank.bankingaccount.integration.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedules;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.Shard;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardRegistry;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardUniqueKeys;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardedAccountRepository;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardedPayments;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import com.waes.rabobank.bankingaccount.support.ShardContainers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Withdrawal throughput over 1, 2 and {@value ShardContainers#SHARDS} shard databases, one Postgres container
+ * each with its own pool. {@value #THREADS} callers withdraw from their own account, so nothing contends on a
+ * row: throughput is bounded by what the databases commit. Reports withdrawals per second and the speedup over
+ * one shard. The containers share the host, so the speedup also tells how much CPU and disk the host has left.
+ * <p>
+ * Run with {@code mvn test -Pperf}.
+ */
+@Tag("benchmark")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ShardingScalingBenchmarkTest extends BaseIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardingScalingBenchmarkTest.class);
+
+    private static final int THREADS = 64;
+    private static final int WITHDRAWALS_PER_THREAD = 100;
+    private static final int POOL_SIZE_PER_SHARD = 10;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BankAggregates bankAggregates;
+
+    @Autowired
+    private ShardUniqueKeys uniqueKeys;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // The seed of the base class commits too, outside a rollback-per-test transaction
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.execute(
+                "TRUNCATE shard_unique_keys, transaction_outbox, transactions, cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldMeasureWithdrawalThroughputPerShardCount() throws Exception {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        long single = 0;
+        for (int shardCount : new int[]{1, 2, ShardContainers.SHARDS}) {
+            ShardRegistry registry = new ShardRegistry(true, ShardContainers.urls(shardCount),
+                    ShardContainers.USERNAME, ShardContainers.PASSWORD, POOL_SIZE_PER_SHARD, "bank");
+            try {
+                long perSecond = measure(registry);
+                single = shardCount == 1 ? perSecond : single;
+                summary.put("shards" + shardCount + ".withdrawalsPerSecond", perSecond);
+                summary.put("shards" + shardCount + ".speedup", (double) perSecond / single);
+            } finally {
+                for (Shard shard : registry.shards()) {
+                    shard.jdbcTemplate().execute("TRUNCATE account_totals, daily_payment_volumes, "
+                            + "transaction_outbox, transactions, cards, accounts, users CASCADE");
+                }
+                jdbcTemplate.execute("TRUNCATE shard_unique_keys");
+                registry.close();
+            }
+        }
+        logger.info("benchmark.sharding_scaling {}", summary);
+    }
+
+    private long measure(ShardRegistry registry) throws Exception {
+        ShardedAccountRepository accounts = new ShardedAccountRepository(registry, bankAggregates, uniqueKeys);
+        ShardedPayments payments = new ShardedPayments(registry, objectMapper, eventPublisher, bankAggregates);
+        List<UUID[]> callers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            UUID userId = accounts.insertUser("bench%d@test.com".formatted(i), "Bench User " + i, "%09d".formatted(i + 1));
+            UUID accountId = accounts.insertAccount(userId, "NL00SHBM%010d".formatted(i), "EUR", new BigDecimal("100000.00"));
+            UUID cardId = accounts.insertCard(accountId, CardType.DEBIT, "44000000%08d".formatted(i), YearMonth.of(2030, 12));
+            callers.add(new UUID[]{accountId, cardId});
+        }
+
+        run(payments, callers, WITHDRAWALS_PER_THREAD / 5); // Warm-up
+        long start = System.nanoTime();
+        int withdrawals = run(payments, callers, WITHDRAWALS_PER_THREAD);
+        long elapsedNanos = System.nanoTime() - start;
+
+        assertThat(withdrawals).isEqualTo(THREADS * WITHDRAWALS_PER_THREAD);
+        return withdrawals * 1_000_000_000L / elapsedNanos;
+    }
+
+    private static int run(ShardedPayments payments, List<UUID[]> callers, int perThread) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        int completed = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (UUID[] caller : callers) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        payments.withdraw(caller[0], caller[1], new BigDecimal("1.00"), FeeSchedules.current(),
+                                type -> {
+                                });
+                    }
+                    return perThread;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                completed += result.get();
+            }
+        }
+        return completed;
+    }
+}
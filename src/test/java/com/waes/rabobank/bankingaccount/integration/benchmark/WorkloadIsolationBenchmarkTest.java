@@ -0,0 +1,199 @@
+package com.waes.rabobank.bankingaccount.integration.benchmark;
+
+import com.waes.rabobank.bankingaccount.domain.model.Account;
+import com.waes.rabobank.bankingaccount.domain.model.DebitCard;
+import com.waes.rabobank.bankingaccount.domain.model.User;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Withdrawals over HTTP, first alone and then while reporting clients page through {@code /admin/accounts} with
+ * 1000-row pages as fast as they can. With the bulkheads on, the payment latency should barely move and the
+ * reports that do not fit their budget get a 503.
+ * <p>
+ * Run with {@code mvn test -Pperf}; add {@code -Dbanking.workload.enabled=false} to see the same run without
+ * bulkheads.
+ */
+@Tag("benchmark")
+// Thousands of withdrawals on a handful of cards: far over the per-card rate limit, which is not what is measured
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "banking.ratelimit.enabled=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WorkloadIsolationBenchmarkTest extends BaseIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadIsolationBenchmarkTest.class);
+
+    private static final int REPORT_ACCOUNTS = 50_000;
+    private static final int PAYMENT_CLIENTS = 8;
+    private static final int PAYMENTS_PER_RUN = 4_000;
+    private static final int REPORT_CLIENTS = 32;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // One account per payment client: the run measures admission, not row locks
+    private final List<Account> paymentAccounts = new ArrayList<>();
+    private HttpClient httpClient;
+
+    @BeforeEach
+    void seed() {
+        User payer = userRepository.save(new User("payer@test.com", "Payer", "000000002"));
+        for (int i = 0; i < PAYMENT_CLIENTS; i++) {
+            Account account = new Account(payer, "NL00PAYS%010d".formatted(i));
+            account.deposit(new BigDecimal("1000000.00"));
+            accountRepository.save(account);
+            DebitCard card = cardRepository.save(new DebitCard(account, "40000000100000%02d".formatted(i), YearMonth.of(2030, 12)));
+            account.setCard(card);
+            paymentAccounts.add(account);
+        }
+
+        UUID reportUser = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, full_name, bsn_id) VALUES (?, 'report@test.com', 'Report User', '000000003')",
+                reportUser);
+        List<Object[]> accounts = new ArrayList<>();
+        for (int i = 0; i < REPORT_ACCOUNTS; i++) {
+            accounts.add(new Object[]{reportUser, "NL00REPT%010d".formatted(i)});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO accounts (user_id, account_number, balance, currency, status, version, created_at, updated_at)
+                VALUES (?, ?, 100, 'EUR', 'ACTIVE', 0, now(), now())
+                """, accounts);
+
+        httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @AfterEach
+    void cleanup() {
+        httpClient.close();
+        jdbcTemplate.execute("TRUNCATE transaction_outbox, transactions, cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldKeepPaymentLatencyWhileReportsRun() throws Exception {
+        runPayments(PAYMENTS_PER_RUN / 4);
+        PaymentRun alone = runPayments(PAYMENTS_PER_RUN);
+
+        AtomicBoolean reporting = new AtomicBoolean(true);
+        AtomicInteger reportsServed = new AtomicInteger();
+        AtomicInteger reportsShed = new AtomicInteger();
+        PaymentRun withReports;
+        try (ExecutorService reports = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < REPORT_CLIENTS; c++) {
+                reports.submit(() -> {
+                    while (reporting.get()) {
+                        int page = ThreadLocalRandom.current().nextInt(REPORT_ACCOUNTS / 1_000);
+                        HttpRequest request = HttpRequest.newBuilder(
+                                        URI.create("http://localhost:" + port + "/admin/accounts?size=1000&page=" + page))
+                                .timeout(Duration.ofSeconds(30))
+                                .build();
+                        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 503) {
+                            reportsShed.incrementAndGet();
+                            // A well-behaved client would wait Retry-After; this one keeps the pressure on
+                            Thread.sleep(5);
+                        } else {
+                            reportsServed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            // Let the reports saturate their budget first
+            Thread.sleep(1_000);
+            withReports = runPayments(PAYMENTS_PER_RUN);
+            reporting.set(false);
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("p50MillisAlone", alone.p50Millis());
+        summary.put("p99MillisAlone", alone.p99Millis());
+        summary.put("p50MillisWithReports", withReports.p50Millis());
+        summary.put("p99MillisWithReports", withReports.p99Millis());
+        summary.put("reportsServed", reportsServed.get());
+        summary.put("reportsShed", reportsShed.get());
+        logger.info("benchmark.workload_isolation {}", summary);
+
+        assertThat(alone.errors()).isZero();
+        assertThat(withReports.errors()).isZero();
+        assertThat(reportsServed.get()).isPositive();
+    }
+
+    private PaymentRun runPayments(int payments) throws Exception {
+        AtomicInteger remaining = new AtomicInteger(payments);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        long[] latencies = new long[payments];
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Account account : paymentAccounts) {
+                String body = """
+                        {"accountId":"%s","amount":1.00,"cardId":"%s"}
+                        """.formatted(account.getId(), account.getCard().getId());
+                HttpRequest request = HttpRequest.newBuilder(
+                                URI.create("http://localhost:" + port + "/api/accounts/" + account.getId() + "/withdraw"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .timeout(Duration.ofSeconds(30))
+                        .build();
+                clients.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        long sent = System.nanoTime();
+                        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[completed.getAndIncrement()] = System.nanoTime() - sent;
+                    }
+                    return null;
+                });
+            }
+            clients.shutdown();
+            assertThat(clients.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+        }
+
+        Arrays.sort(latencies);
+        return new PaymentRun(errors.get(), latencies[payments / 2] / 1_000_000.0,
+                latencies[(int) (payments * 0.99)] / 1_000_000.0);
+    }
+
+    private record PaymentRun(int errors, double p50Millis, double p99Millis) {
+    }
+}
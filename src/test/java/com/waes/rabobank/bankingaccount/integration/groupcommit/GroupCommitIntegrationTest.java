@@ -0,0 +1,182 @@
+package com.waes.rabobank.bankingaccount.integration.groupcommit;
+
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.waes.rabobank.bankingaccount.domain.model.Account;
+import com.waes.rabobank.bankingaccount.domain.model.DebitCard;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregateVerifier;
+import com.waes.rabobank.bankingaccount.infrastructure.persistence.querybudget.QueryCounter;
+import com.waes.rabobank.bankingaccount.shared.exception.InsufficientFundsException;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Withdrawals in group-commit mode. The delay is long enough for every concurrent caller of a test to join the
+ * same batch, which then closes on its size. Commits are real, so the class opts out of the rollback-per-test
+ * transaction and cleans the tables itself.
+ */
+@SpringBootTest(properties = {
+        "banking.group-commit.enabled=true",
+        "banking.group-commit.max-batch=" + GroupCommitIntegrationTest.CALLERS,
+        "banking.group-commit.max-delay=2s",
+        "banking.ratelimit.enabled=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GroupCommitIntegrationTest extends BaseIntegrationTest {
+
+    static final int CALLERS = 8;
+
+    @Autowired
+    private WithdrawalService withdrawalService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BankAggregateVerifier aggregateVerifier;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Account> accounts = new ArrayList<>();
+    private final List<DebitCard> cards = new ArrayList<>();
+
+    @BeforeEach
+    void setupAccounts() {
+        for (int i = 0; i < CALLERS; i++) {
+            Account account = new Account(testUser, "NL00GRPC%010d".formatted(i));
+            account.deposit(new BigDecimal("100.00"));
+            accountRepository.save(account);
+            DebitCard card = new DebitCard(account, "41000000000000%02d".formatted(i), YearMonth.of(2030, 12));
+            cardRepository.save(card);
+            accounts.add(account);
+            cards.add(card);
+        }
+        // Seeded without deltas
+        aggregateVerifier.rebuild();
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.execute("TRUNCATE account_totals, daily_payment_volumes, transaction_outbox, transactions, "
+                + "cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldCommitConcurrentWithdrawalsInOneBatch() throws Exception {
+        // Arrange
+        long batchesBefore = batchSizeCount();
+
+        // Act
+        List<Future<WithdrawalResponseDTO>> results = withdrawConcurrently(i -> new BigDecimal("30.00"));
+
+        // Assert
+        for (Future<WithdrawalResponseDTO> result : results) {
+            assertThat(result.get().balanceAfter()).isEqualByComparingTo("70.00");
+        }
+        for (Account account : accounts) {
+            assertThat(balanceOf(account)).isEqualByComparingTo("70.00");
+        }
+        assertThat(batchSizeCount() - batchesBefore).isEqualTo(1);
+        assertThat(meterRegistry.get("banking.group_commit.batch.size").summary().max()).isEqualTo(CALLERS);
+        assertThat(rows("transactions")).isEqualTo(CALLERS);
+        assertThat(rows("transaction_outbox")).isEqualTo(CALLERS);
+        assertThat(aggregateVerifier.verify()).isZero();
+    }
+
+    @Test
+    void shouldFailOnlyTheRejectedWithdrawalAndCommitTheRestOfTheBatch() throws Exception {
+        // Arrange
+        double fallbacksBefore = meterRegistry.get("banking.group_commit.fallbacks").counter().count();
+        double rejectionsBefore = meterRegistry.get("banking.group_commit.rejections").counter().count();
+        long batchesBefore = batchSizeCount();
+
+        // Act - the last caller asks for more than its balance
+        List<Future<WithdrawalResponseDTO>> results = withdrawConcurrently(
+                i -> i == CALLERS - 1 ? new BigDecimal("500.00") : new BigDecimal("30.00"));
+
+        // Assert
+        for (int i = 0; i < CALLERS - 1; i++) {
+            assertThat(results.get(i).get().balanceAfter()).isEqualByComparingTo("70.00");
+            assertThat(balanceOf(accounts.get(i))).isEqualByComparingTo("70.00");
+        }
+        Future<WithdrawalResponseDTO> failed = results.get(CALLERS - 1);
+        assertThatThrownBy(failed::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(InsufficientFundsException.class);
+        assertThat(balanceOf(accounts.get(CALLERS - 1))).isEqualByComparingTo("100.00");
+        assertThat(batchSizeCount() - batchesBefore).isEqualTo(1);
+        assertThat(meterRegistry.get("banking.group_commit.rejections").counter().count() - rejectionsBefore).isEqualTo(1);
+        assertThat(meterRegistry.get("banking.group_commit.fallbacks").counter().count() - fallbacksBefore).isZero();
+        assertThat(aggregateVerifier.verify()).isZero();
+        assertThat(rows("transactions")).isEqualTo(CALLERS - 1);
+        assertThat(rows("transaction_outbox")).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void shouldChargeStatementsRunOnTheCommitterToTheCaller() {
+        // Arrange
+        WithdrawalRequestDTO request = new WithdrawalRequestDTO(
+                accounts.getFirst().getId().toString(), new BigDecimal("30.00"), cards.getFirst().getId().toString());
+        long before = QueryCounter.current();
+
+        // Act
+        withdrawalService.withdraw(request);
+
+        // Assert - account read, account update, transaction and outbox inserts
+        assertThat(QueryCounter.current() - before).isBetween(4L, 5L);
+    }
+
+    private List<Future<WithdrawalResponseDTO>> withdrawConcurrently(IntFunction<BigDecimal> amount)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<WithdrawalResponseDTO>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            for (int i = 0; i < CALLERS; i++) {
+                WithdrawalRequestDTO request = new WithdrawalRequestDTO(
+                        accounts.get(i).getId().toString(), amount.apply(i), cards.get(i).getId().toString());
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return withdrawalService.withdraw(request);
+                }));
+            }
+            start.countDown();
+        }
+        return results;
+    }
+
+    private long batchSizeCount() {
+        return meterRegistry.get("banking.group_commit.batch.size").summary().count();
+    }
+
+    private BigDecimal balanceOf(Account account) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE id = ?", BigDecimal.class, account.getId());
+    }
+
+    private long rows(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+    }
+}
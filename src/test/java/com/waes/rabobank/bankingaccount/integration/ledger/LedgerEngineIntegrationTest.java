@@ -0,0 +1,221 @@
+package com.waes.rabobank.bankingaccount.integration.ledger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waes.rabobank.bankingaccount.application.dto.TransferRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+import com.waes.rabobank.bankingaccount.application.service.TransferService;
+import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.waes.rabobank.bankingaccount.domain.fx.FxRates;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregateVerifier;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregates;
+import com.waes.rabobank.bankingaccount.infrastructure.ledger.LedgerEngine;
+import com.waes.rabobank.bankingaccount.shared.exception.InsufficientFundsException;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Payments in ledger mode. The database catches up after the response, so assertions on it poll. Recovery tests
+ * run their own engines over a temporary directory, against the same database. Commits are real, so the class
+ * opts out of the rollback-per-test transaction and cleans the tables itself.
+ */
+@SpringBootTest(properties = {
+        "banking.ledger.enabled=true",
+        "banking.ledger.directory=${java.io.tmpdir}/banking-ledger-test-${random.uuid}",
+        "banking.ratelimit.enabled=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LedgerEngineIntegrationTest extends BaseIntegrationTest {
+
+    private static final long PERSIST_TIMEOUT_MILLIS = 10_000;
+
+    @Autowired
+    private WithdrawalService withdrawalService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BankAggregates bankAggregates;
+
+    @Autowired
+    private BankAggregateVerifier aggregateVerifier;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @TempDir
+    Path directory;
+
+    // Seeded without deltas
+    @BeforeEach
+    void rebuildAggregates() {
+        aggregateVerifier.rebuild();
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.execute("TRUNCATE account_totals, daily_payment_volumes, transaction_outbox, transactions, "
+                + "cards, accounts, users CASCADE");
+        jdbcTemplate.update("UPDATE ledger_checkpoint SET journal_position = -1");
+    }
+
+    @Test
+    void shouldAnswerFromLedgerAndPersistPaymentsAfterwards() {
+        // Act
+        WithdrawalResponseDTO withdrawal = withdrawalService.withdraw(new WithdrawalRequestDTO(
+                testAccount.getId().toString(), new BigDecimal("100.00"), testDebitCard.getId().toString()));
+        TransferResponseDTO transfer = transferService.transfer(new TransferRequestDTO(
+                testAccount.getId().toString(), testCreditCardAccount.getId().toString(),
+                new BigDecimal("200.00"), testDebitCard.getId().toString()));
+
+        // Assert
+        assertThat(withdrawal.balanceAfter()).isEqualByComparingTo("900.00");
+        assertThat(transfer.fromAccountBalanceAfter()).isEqualByComparingTo("700.00");
+        assertThat(transfer.toAccountBalanceAfter()).isEqualByComparingTo("2200.00");
+
+        awaitPersisted(() -> rows("transactions") == 3 && rows("transaction_outbox") == 2);
+        assertThat(balanceOf(testAccount.getId())).isEqualByComparingTo("700.00");
+        assertThat(balanceOf(testCreditCardAccount.getId())).isEqualByComparingTo("2200.00");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT related_transaction_id FROM transactions WHERE id = ?", UUID.class,
+                UUID.fromString(transfer.depositTransactionId())))
+                .isEqualTo(UUID.fromString(transfer.transferTransactionId()));
+        assertThat(aggregateVerifier.verify()).isZero();
+    }
+
+    @Test
+    void shouldRejectWithdrawalWithoutJournalingWhenFundsAreInsufficient() {
+        // Act & Assert
+        assertThatThrownBy(() -> withdrawalService.withdraw(new WithdrawalRequestDTO(
+                testAccount.getId().toString(), new BigDecimal("5000.00"), testDebitCard.getId().toString())))
+                .isInstanceOf(InsufficientFundsException.class);
+
+        WithdrawalResponseDTO withdrawal = withdrawalService.withdraw(new WithdrawalRequestDTO(
+                testAccount.getId().toString(), new BigDecimal("1000.00"), testDebitCard.getId().toString()));
+        assertThat(withdrawal.balanceAfter()).isEqualByComparingTo("0.00");
+        awaitPersisted(() -> rows("transactions") == 1);
+    }
+
+    @Test
+    void shouldRecoverBalancesFromSnapshotAndJournalWhenRestarted() throws InterruptedException {
+        // Arrange - changes before and after a snapshot, all persisted
+        LedgerEngine engine = newEngine();
+        try {
+            engine.withdraw(testAccount.getId(), testDebitCard.getId(), new BigDecimal("100.00"), BigDecimal.ZERO);
+            engine.snapshot();
+            engine.withdraw(testAccount.getId(), testDebitCard.getId(), new BigDecimal("50.00"), BigDecimal.ZERO);
+            engine.transfer(testAccount.getId(), testCreditCardAccount.getId(), testDebitCard.getId(),
+                    new BigDecimal("100.00"), BigDecimal.ZERO, FxRates.empty());
+            awaitPersisted(() -> rows("transactions") == 4);
+        } finally {
+            engine.shutdown();
+        }
+        // Anything read from the database from now on would show
+        jdbcTemplate.update("UPDATE accounts SET balance = 0");
+
+        // Act
+        LedgerEngine restarted = newEngine();
+        try {
+            // Assert
+            assertThat(restarted.balance(testAccount.getId())).hasValueSatisfying(
+                    balance -> assertThat(balance).isEqualByComparingTo("750.00"));
+            assertThat(restarted.balance(testCreditCardAccount.getId())).hasValueSatisfying(
+                    balance -> assertThat(balance).isEqualByComparingTo("2100.00"));
+            WithdrawalResponseDTO withdrawal = restarted.withdraw(
+                    testAccount.getId(), testDebitCard.getId(), new BigDecimal("10.00"), BigDecimal.ZERO);
+            assertThat(withdrawal.balanceAfter()).isEqualByComparingTo("740.00");
+            awaitPersisted(() -> rows("transactions") == 5);
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    void shouldPersistJournaledEntriesPastCheckpointWhenRestarted() throws InterruptedException {
+        // Arrange - journaled, then the database loses what was written for it
+        LedgerEngine engine = newEngine();
+        try {
+            engine.withdraw(testAccount.getId(), testDebitCard.getId(), new BigDecimal("100.00"), BigDecimal.ZERO);
+            engine.transfer(testAccount.getId(), testCreditCardAccount.getId(), testDebitCard.getId(),
+                    new BigDecimal("100.00"), BigDecimal.ZERO, FxRates.empty());
+            awaitPersisted(() -> rows("transactions") == 3);
+        } finally {
+            engine.shutdown();
+        }
+        jdbcTemplate.execute("TRUNCATE transaction_outbox, transactions");
+        jdbcTemplate.update("UPDATE accounts SET balance = 0");
+        jdbcTemplate.update("UPDATE ledger_checkpoint SET journal_position = -1");
+
+        // Act
+        LedgerEngine restarted = newEngine();
+        try {
+            // Assert - written again, once
+            awaitPersisted(() -> rows("transactions") == 3 && rows("transaction_outbox") == 2);
+            assertThat(balanceOf(testAccount.getId())).isEqualByComparingTo("800.00");
+            assertThat(balanceOf(testCreditCardAccount.getId())).isEqualByComparingTo("2100.00");
+        } finally {
+            restarted.shutdown();
+        }
+        assertThat(rows("transactions")).isEqualTo(3);
+    }
+
+    private LedgerEngine newEngine() {
+        return new LedgerEngine(true, directory, 2, 1024, DataSize.ofMegabytes(1), true, 100,
+                jdbcTemplate, transactionManager, objectMapper, eventPublisher, bankAggregates, meterRegistry);
+    }
+
+    private void awaitPersisted(Supplier<Boolean> condition) {
+        long deadline = System.currentTimeMillis() + PERSIST_TIMEOUT_MILLIS;
+        while (!condition.get()) {
+            assertThat(System.currentTimeMillis()).as("persisted in time").isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    private BigDecimal balanceOf(UUID accountId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE id = ?", BigDecimal.class, accountId);
+    }
+
+    private long rows(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+    }
+}
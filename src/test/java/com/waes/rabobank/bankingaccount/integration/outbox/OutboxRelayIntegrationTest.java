@@ -0,0 +1,143 @@
+package com.waes.rabobank.bankingaccount.integration.outbox;
+
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.InMemoryOutboxSink;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.OutboxMessage;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.OutboxRelay;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.OutboxSink;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.TransactionOutbox;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Relays against committed outbox rows, so the class opts out of the rollback-per-test transaction and cleans
+ * the tables itself. Each relay stands for one node.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayIntegrationTest extends BaseIntegrationTest {
+
+    private static final int EVENTS = 2000;
+    private static final int RELAYS = 4;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private WithdrawalService withdrawalService;
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.execute("TRUNCATE transaction_outbox, transactions, cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldDeliverEveryEventOnceAcrossConcurrentRelays() throws Exception {
+        // Arrange
+        insertEvents(EVENTS);
+        List<InMemoryOutboxSink> sinks = new ArrayList<>();
+        List<OutboxRelay> relays = new ArrayList<>();
+        for (int i = 0; i < RELAYS; i++) {
+            InMemoryOutboxSink sink = new InMemoryOutboxSink();
+            sinks.add(sink);
+            relays.add(relay(sink, 50));
+        }
+
+        // Act
+        try (ExecutorService executor = Executors.newFixedThreadPool(RELAYS)) {
+            List<Future<Long>> results = new ArrayList<>();
+            for (OutboxRelay relay : relays) {
+                results.add(executor.submit(relay::drain));
+            }
+            for (Future<Long> result : results) {
+                result.get();
+            }
+        }
+
+        // Assert
+        List<Long> delivered = sinks.stream()
+                .flatMap(sink -> sink.delivered().stream())
+                .map(OutboxMessage::id)
+                .toList();
+        assertThat(delivered).hasSize(EVENTS).doesNotHaveDuplicates();
+        for (InMemoryOutboxSink sink : sinks) {
+            assertThat(sink.delivered()).isSortedAccordingTo(Comparator.comparingLong(OutboxMessage::id));
+        }
+        assertThat(outboxRows()).isZero();
+    }
+
+    @Test
+    void shouldKeepBatchForTheNextPollWhenSinkFails() {
+        // Arrange
+        insertEvents(10);
+        OutboxSink failing = batch -> {
+            throw new IllegalStateException("Downstream unavailable");
+        };
+        InMemoryOutboxSink healthy = new InMemoryOutboxSink();
+
+        // Act
+        long failed = relay(failing, 5).drain();
+        long recovered = relay(healthy, 5).drain();
+
+        // Assert
+        assertThat(failed).isZero();
+        assertThat(recovered).isEqualTo(10);
+        assertThat(healthy.delivered()).extracting(OutboxMessage::id).doesNotHaveDuplicates().hasSize(10);
+        assertThat(outboxRows()).isZero();
+    }
+
+    @Test
+    void shouldRelayEventOfCommittedWithdrawal() {
+        // Arrange
+        WithdrawalResponseDTO response = withdrawalService.withdraw(new WithdrawalRequestDTO(
+                testAccount.getId().toString(), new BigDecimal("25.00"), testDebitCard.getId().toString()));
+        InMemoryOutboxSink sink = new InMemoryOutboxSink();
+
+        // Act
+        relay(sink, 10).drain();
+
+        // Assert
+        assertThat(sink.delivered()).singleElement().satisfies(message -> {
+            assertThat(message.eventType()).isEqualTo(TransactionOutbox.WITHDRAWAL_COMPLETED);
+            assertThat(message.aggregateId()).isEqualTo(testAccount.getId());
+            assertThat(message.payload()).contains(response.transactionId());
+        });
+    }
+
+    private OutboxRelay relay(OutboxSink sink, int batchSize) {
+        return new OutboxRelay(jdbcTemplate, transactionTemplate, sink, batchSize, new SimpleMeterRegistry());
+    }
+
+    private void insertEvents(int count) {
+        jdbcTemplate.update("""
+                INSERT INTO transaction_outbox (event_type, aggregate_id, payload, created_at)
+                SELECT 'withdrawal.completed', gen_random_uuid(), '{"sequence":' || n || '}', now()
+                FROM generate_series(1, ?) AS n
+                """, count);
+    }
+
+    private long outboxRows() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM transaction_outbox", Long.class);
+    }
+}
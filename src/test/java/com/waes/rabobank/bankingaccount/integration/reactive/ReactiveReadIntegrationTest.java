@@ -0,0 +1,200 @@
+package com.waes.rabobank.bankingaccount.integration.reactive;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.UserPageDTO;
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
+import com.waes.rabobank.bankingaccount.application.service.AccountService;
+import com.waes.rabobank.bankingaccount.domain.model.User;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.WorkloadClass;
+import com.waes.rabobank.bankingaccount.infrastructure.workload.WorkloadLimiters;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Calls the {@code /reactive} servlet over HTTP. R2DBC reads on connections of its own, so the fixtures are
+ * committed instead of rolled back and the tables are emptied after each test.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReactiveReadIntegrationTest extends BaseIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private WorkloadLimiters workloadLimiters;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUpClient() {
+        client = WebTestClient.bindToServer(new JdkClientHttpConnector())
+                .baseUrl("http://localhost:" + port + "/reactive/api")
+                .build();
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.execute("TRUNCATE transaction_outbox, transactions, cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldReturnSameBalancesAsJpaReadPath() {
+        var balances = client.get().uri("/accounts")
+                .header("X-User-Id", testUser.getId().toString())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(AccountBalanceDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(balances)
+                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("balance")
+                .containsExactlyInAnyOrderElementsOf(accountRepository.findBalancesByUserId(testUser.getId()));
+        assertThat(balances)
+                .extracting(AccountBalanceDTO::balance)
+                .usingComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .containsExactlyInAnyOrder(new BigDecimal("1000.00"), new BigDecimal("2000.00"));
+    }
+
+    @Test
+    void shouldReturn304WhenBalancesETagMatches() {
+        String eTag = client.get().uri("/accounts")
+                .header("X-User-Id", testUser.getId().toString())
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+
+        assertThat(eTag).isEqualTo(accountService.getBalancesETag(testUser.getId()));
+        client.get().uri("/accounts")
+                .header("X-User-Id", testUser.getId().toString())
+                .header("If-None-Match", eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", eTag)
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void shouldReturnProblemDetailWhenUserDoesNotExist() {
+        UUID unknownUserId = UUID.randomUUID();
+
+        client.get().uri("/accounts")
+                .header("X-User-Id", unknownUserId.toString())
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("User Not Found")
+                .jsonPath("$.userId").isEqualTo(unknownUserId.toString());
+    }
+
+    @Test
+    void shouldReturnEmptyListWhenUserHasNoActiveAccounts() {
+        User user = userRepository.save(new User("empty@test.com", "Empty User", "000000002"));
+
+        client.get().uri("/accounts")
+                .header("X-User-Id", user.getId().toString())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[]");
+    }
+
+    @Test
+    void shouldPageUsersWithKeysetCursor() {
+        User second = userRepository.save(new User("second@test.com", "Second User", "000000002"));
+
+        UserPageDTO first = client.get().uri("/users?size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserPageDTO.class)
+                .returnResult()
+                .getResponseBody();
+        UserPageDTO last = client.get().uri("/users?size=1&after=" + first.nextCursor())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserPageDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(first.users()).hasSize(1);
+        assertThat(first.nextCursor()).isEqualTo(first.users().getFirst().id());
+        assertThat(last.users()).hasSize(1);
+        assertThat(last.nextCursor()).isNull();
+        assertThat(List.of(first.users().getFirst().id(), last.users().getFirst().id()))
+                .containsExactlyInAnyOrder(testUser.getId().toString(), second.getId().toString());
+    }
+
+    @Test
+    void shouldFindUserByEmailIgnoringCase() {
+        client.get().uri("/users/search?email=TEST@test.com")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserResponseDTO.class)
+                .isEqualTo(new UserResponseDTO(testUser.getId().toString(), "Test User", "test@test.com"));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenPageSizeIsOutOfRange() {
+        client.get().uri("/users?size=0")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Invalid Request");
+    }
+
+    @Test
+    void shouldShedRequestsPastTheWorkloadBulkhead() {
+        // Arrange - the reporting class is at its limit
+        int held = 0;
+        while (workloadLimiters.tryAcquire(WorkloadClass.REPORTING)) {
+            held++;
+        }
+
+        try {
+            // Act & Assert
+            client.get().uri("/users")
+                    .exchange()
+                    .expectStatus().isEqualTo(503)
+                    .expectHeader().exists("Retry-After")
+                    .expectBody()
+                    .jsonPath("$.workload").isEqualTo("reporting");
+        } finally {
+            for (int i = 0; i < held; i++) {
+                workloadLimiters.release(WorkloadClass.REPORTING, 0);
+            }
+        }
+
+        // A served request gives its permit back, once the response has been written
+        client.get().uri("/users").exchange().expectStatus().isOk();
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> workloadLimiters.limiter(WorkloadClass.REPORTING).inFlight() == 0);
+    }
+}
@@ -0,0 +1,94 @@
+package com.waes.rabobank.bankingaccount.integration.service;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountIssuanceRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountIssuanceResultDTO;
+import com.waes.rabobank.bankingaccount.application.dto.IssuedAccountDTO;
+import com.waes.rabobank.bankingaccount.application.service.AccountIssuanceService;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.domain.model.Account;
+import com.waes.rabobank.bankingaccount.infrastructure.issuance.IssuedNumberFilters;
+import com.waes.rabobank.bankingaccount.infrastructure.issuance.IssuedNumberFilters.Kind;
+import com.waes.rabobank.bankingaccount.shared.exception.UserNotFoundException;
+import com.waes.rabobank.bankingaccount.shared.identifier.Iban;
+import com.waes.rabobank.bankingaccount.shared.identifier.Luhn;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccountIssuanceServiceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private AccountIssuanceService accountIssuanceService;
+
+    @Autowired
+    private IssuedNumberFilters issuedNumberFilters;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void flushFixtures() {
+        // Issuance checks the users and inserts with plain SQL
+        entityManager.flush();
+    }
+
+    @Test
+    void shouldIssueAccountsWithCardsUnderValidNumbers() {
+        // Act
+        AccountIssuanceResultDTO result = accountIssuanceService.issueAccounts(new AccountIssuanceRequestDTO(
+                List.of(testUser.getId(), testUser.getId(), testUser.getId()), "USD", CardType.CREDIT));
+
+        // Assert
+        assertThat(result.accountsIssued()).isEqualTo(3);
+        assertThat(result.cardsIssued()).isEqualTo(3);
+        assertThat(result.accounts()).extracting(IssuedAccountDTO::accountNumber).doesNotHaveDuplicates();
+
+        for (IssuedAccountDTO issued : result.accounts()) {
+            assertThat(Iban.isValid(issued.accountNumber())).isTrue();
+            assertThat(issued.cardNumber()).startsWith("535110").hasSize(16);
+            assertThat(Luhn.isValid(issued.cardNumber())).isTrue();
+            assertThat(issuedNumberFilters.mightBeTaken(Kind.ACCOUNT_NUMBER, issued.accountNumber()))
+                    .isEqualTo(issuedNumberFilters.isReady());
+
+            Account account = accountRepository.findById(UUID.fromString(issued.accountId())).orElseThrow();
+            assertThat(account.getAccountNumber()).isEqualTo(issued.accountNumber());
+            assertThat(account.getCurrency()).isEqualTo("USD");
+            assertThat(cardRepository.findById(UUID.fromString(issued.cardId())))
+                    .get()
+                    .satisfies(card -> assertThat(card.getType()).isEqualTo(CardType.CREDIT));
+        }
+    }
+
+    @Test
+    void shouldIssueAccountsWithoutCardsInEuroByDefault() {
+        AccountIssuanceResultDTO result = accountIssuanceService.issueAccounts(
+                new AccountIssuanceRequestDTO(List.of(testUser.getId()), null, null));
+
+        assertThat(result.cardsIssued()).isZero();
+        assertThat(result.accounts().getFirst().cardId()).isNull();
+        assertThat(accountRepository.findById(UUID.fromString(result.accounts().getFirst().accountId())))
+                .get()
+                .extracting(Account::getCurrency)
+                .isEqualTo("EUR");
+    }
+
+    @Test
+    void shouldIssueNothingWhenAUserIsUnknown() {
+        UUID unknown = UUID.randomUUID();
+        long accountsBefore = accountRepository.count();
+
+        assertThatThrownBy(() -> accountIssuanceService.issueAccounts(
+                new AccountIssuanceRequestDTO(List.of(testUser.getId(), unknown), null, CardType.DEBIT)))
+                .isInstanceOf(UserNotFoundException.class)
+                .hasMessageContaining(unknown.toString());
+        assertThat(accountRepository.count()).isEqualTo(accountsBefore);
+    }
+}
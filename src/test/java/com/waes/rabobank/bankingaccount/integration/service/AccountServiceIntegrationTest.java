@@ -0,0 +1,157 @@
+package com.waes.rabobank.bankingaccount.integration.service;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountResponseDTO;
+import com.waes.rabobank.bankingaccount.application.service.AccountService;
+import com.waes.rabobank.bankingaccount.domain.model.Account;
+import com.waes.rabobank.bankingaccount.domain.model.DebitCard;
+import com.waes.rabobank.bankingaccount.domain.model.User;
+import com.waes.rabobank.bankingaccount.shared.exception.AccountNotFoundException;
+import com.waes.rabobank.bankingaccount.shared.exception.UserNotFoundException;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs with {@code banking.query-budget.fail-on-exceed=true}: an N+1 regression fails these tests
+ * with a QueryBudgetExceededException instead of going unnoticed.
+ */
+class AccountServiceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void shouldReturnBalancesOfAllActiveAccountsWithinQueryBudget() {
+        // Arrange - more accounts (each with a card) than the budget allows statements
+        for (int i = 0; i < 5; i++) {
+            Account account = new Account(testUser, "NL00BUDG%010d".formatted(i));
+            account.deposit(new BigDecimal("10.00"));
+            accountRepository.save(account);
+            cardRepository.save(new DebitCard(account, "6100%012d".formatted(i), YearMonth.of(2030, 12)));
+        }
+        // Start from an empty persistence context, as a real request would
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<AccountBalanceDTO> balances = accountService.getBalancesByUserId(testUser.getId());
+
+        // Assert
+        assertThat(balances).hasSize(7);
+        assertThat(balances).allSatisfy(balance -> assertThat(balance.userId()).isEqualTo(testUser.getId().toString()));
+    }
+
+    @Test
+    void shouldNotManageAccountEntitiesWhenReadingBalances() {
+        entityManager.flush();
+        entityManager.clear();
+
+        List<AccountBalanceDTO> balances = accountService.getBalancesByUserId(testUser.getId());
+
+        int managedEntities = entityManager.unwrap(SessionImplementor.class)
+                .getPersistenceContext()
+                .getNumberOfManagedEntities();
+        assertThat(balances).hasSize(2);
+        assertThat(managedEntities).isZero();
+    }
+
+    @Test
+    void shouldReturnEmptyListWhenUserHasNoActiveAccounts() {
+        User userWithoutAccounts = userRepository.save(new User("no.accounts@test.com", "No Accounts", "000000002"));
+
+        assertThat(accountService.getBalancesByUserId(userWithoutAccounts.getId())).isEmpty();
+    }
+
+    @Test
+    void shouldFailWhenUserDoesNotExist() {
+        assertThatThrownBy(() -> accountService.getBalancesByUserId(UUID.randomUUID()))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    void shouldPageAllAccountsWithinQueryBudget() {
+        entityManager.flush();
+        entityManager.clear();
+
+        var page = accountService.getAllAccounts(PageRequest.of(0, 1));
+
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getTotalElements()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void shouldKeepBalancesETagWhenNothingChanged() {
+        entityManager.flush();
+        entityManager.clear();
+
+        String first = accountService.getBalancesETag(testUser.getId());
+        String second = accountService.getBalancesETag(testUser.getId());
+
+        assertThat(first).matches("\"[0-9a-f]{32}\"").isEqualTo(second);
+        assertThat(accountService.getAccountETag(testAccount.getId())).isNotEqualTo(first);
+    }
+
+    @Test
+    void shouldChangeETagsWhenBalanceChanges() {
+        entityManager.flush();
+        String balancesBefore = accountService.getBalancesETag(testUser.getId());
+        String accountBefore = accountService.getAccountETag(testAccount.getId());
+        String otherAccountBefore = accountService.getAccountETag(testCreditCardAccount.getId());
+
+        accountRepository.findById(testAccount.getId()).orElseThrow().withdraw(new BigDecimal("10.00"));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(accountService.getBalancesETag(testUser.getId())).isNotEqualTo(balancesBefore);
+        assertThat(accountService.getAccountETag(testAccount.getId())).isNotEqualTo(accountBefore);
+        assertThat(accountService.getAccountETag(testCreditCardAccount.getId())).isEqualTo(otherAccountBefore);
+    }
+
+    @Test
+    void shouldChangeBalancesETagWhenAccountIsOpened() {
+        entityManager.flush();
+        String before = accountService.getBalancesETag(testUser.getId());
+
+        accountRepository.save(new Account(testUser, "NL00ETAG0000000001"));
+        entityManager.flush();
+
+        assertThat(accountService.getBalancesETag(testUser.getId())).isNotEqualTo(before);
+    }
+
+    @Test
+    void shouldReadAccountWithoutManagingEntity() {
+        entityManager.flush();
+        entityManager.clear();
+
+        AccountResponseDTO account = accountService.getAccount(testAccount.getId());
+
+        assertThat(account).isEqualTo(new AccountResponseDTO(testAccount.getId().toString(),
+                testUser.getId().toString(), "NL00TEST0000000001", account.balance(), "EUR", "ACTIVE"));
+        assertThat(account.balance()).isEqualByComparingTo("1000.00");
+        assertThat(entityManager.unwrap(SessionImplementor.class).getPersistenceContext().getNumberOfManagedEntities())
+                .isZero();
+    }
+
+    @Test
+    void shouldFailWhenAccountDoesNotExist() {
+        assertThatThrownBy(() -> accountService.getAccountETag(UUID.randomUUID()))
+                .isInstanceOf(AccountNotFoundException.class);
+        assertThatThrownBy(() -> accountService.getAccount(UUID.randomUUID()))
+                .isInstanceOf(AccountNotFoundException.class);
+    }
+}
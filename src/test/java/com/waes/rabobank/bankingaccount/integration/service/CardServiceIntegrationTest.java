@@ -0,0 +1,100 @@
+package com.waes.rabobank.bankingaccount.integration.service;
+
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.application.service.CardService;
+import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.waes.rabobank.bankingaccount.domain.enums.CardStatus;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.infrastructure.cache.CardAuthorization;
+import com.waes.rabobank.bankingaccount.infrastructure.persistence.querybudget.QueryCounter;
+import com.waes.rabobank.bankingaccount.shared.exception.CardAccountMismatchException;
+import com.waes.rabobank.bankingaccount.shared.exception.InactiveCardException;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CardServiceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private WithdrawalService withdrawalService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void flushFixtures() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldServeRepeatedAuthorizationFromIndex() {
+        // Arrange - first call loads the card
+        cardService.authorize(testCreditCard.getId(), testCreditCardAccount.getId());
+        long before = QueryCounter.current();
+
+        // Act
+        CardAuthorization authorization = cardService.authorize(testCreditCard.getId(), testCreditCardAccount.getId());
+
+        // Assert
+        assertThat(QueryCounter.current() - before).isZero();
+        assertThat(authorization.type()).isEqualTo(CardType.CREDIT);
+        assertThat(authorization.accountId()).isEqualTo(testCreditCardAccount.getId());
+    }
+
+    @Test
+    void shouldRejectMismatchedCardWithoutDatabaseRoundTrip() {
+        // Arrange
+        cardService.authorize(testDebitCard.getId(), testAccount.getId());
+        long before = QueryCounter.current();
+
+        // Act & Assert
+        assertThatThrownBy(() -> cardService.authorize(testDebitCard.getId(), testCreditCardAccount.getId()))
+                .isInstanceOf(CardAccountMismatchException.class);
+        assertThat(QueryCounter.current() - before).isZero();
+    }
+
+    @Test
+    void shouldEvictCardWhenStatusChangeIsFlushed() {
+        // Arrange - cached as active
+        cardService.authorize(testDebitCard.getId(), testAccount.getId());
+
+        // Act
+        cardRepository.findById(testDebitCard.getId()).orElseThrow().setStatus(CardStatus.BLOCKED);
+        entityManager.flush();
+
+        // Assert
+        assertThatThrownBy(() -> cardService.authorize(testDebitCard.getId(), testAccount.getId()))
+                .isInstanceOf(InactiveCardException.class);
+    }
+
+    @Test
+    void shouldRejectPaymentWhenCardIsBlockedOutsideThisInstance() {
+        // Arrange - cached as active, then blocked without going through JPA (another node, manual SQL)
+        cardService.authorize(testDebitCard.getId(), testAccount.getId());
+        jdbcTemplate.update("UPDATE cards SET status = 'BLOCKED' WHERE id = ?", testDebitCard.getId());
+        entityManager.clear(); // The payment is a new request: the card is loaded again with the account
+
+        // Act & Assert - the index still says active, the card loaded with the account does not
+        assertThat(cardService.authorize(testDebitCard.getId(), testAccount.getId()).isActive()).isTrue();
+        assertThatThrownBy(() -> withdrawalService.withdraw(new WithdrawalRequestDTO(
+                testAccount.getId().toString(), new BigDecimal("10.00"), testDebitCard.getId().toString())))
+                .isInstanceOf(InactiveCardException.class);
+        assertThatThrownBy(() -> cardService.authorize(testDebitCard.getId(), testAccount.getId()))
+                .isInstanceOf(InactiveCardException.class);
+    }
+}
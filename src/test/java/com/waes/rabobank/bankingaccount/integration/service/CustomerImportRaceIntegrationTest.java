@@ -0,0 +1,117 @@
+package com.waes.rabobank.bankingaccount.integration.service;
+
+import com.waes.rabobank.bankingaccount.application.dto.CustomerImportResultDTO;
+import com.waes.rabobank.bankingaccount.application.service.CustomerImportService;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.ImportFormat;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.RejectFiles;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keys committed by a concurrent writer after the import's checks ran. The writer holds its rows uncommitted
+ * while the import starts, so the checks cannot see them and the merge has to wait for them. Commits are real,
+ * so the class opts out of the rollback-per-test transaction and cleans the tables itself.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerImportRaceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private CustomerImportService customerImportService;
+
+    @Autowired
+    private RejectFiles rejectFiles;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.execute("TRUNCATE account_totals, customer_import_staging, transaction_outbox, transactions, "
+                + "cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldRejectRowsWhoseKeysAConcurrentWriterCommittedAfterTheChecks() throws Exception {
+        // Arrange - another writer takes an account number and a card number of the file, commits a second later
+        CountDownLatch written = new CountDownLatch(1);
+        TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+        concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> concurrent.executeWithoutResult(status -> {
+            jdbcTemplate.update("""
+                    INSERT INTO accounts (user_id, account_number, balance, currency, status, version, created_at, updated_at)
+                    VALUES (?, 'NL62RABO3000000001', 0, 'EUR', 'ACTIVE', 0, now(), now()),
+                           (?, 'NL00RACE0000000001', 0, 'EUR', 'ACTIVE', 0, now(), now())
+                    """, testUser.getId(), testUser.getId());
+            jdbcTemplate.update("""
+                    INSERT INTO cards (card_type, account_id, card_number, expiry_date, status, created_at, updated_at)
+                    SELECT 'DEBIT', id, '4200000000000018', DATE '2031-01-01', 'ACTIVE', now(), now()
+                    FROM accounts WHERE account_number = 'NL00RACE0000000001'
+                    """);
+            written.countDown();
+            sleep(1_000);
+        }));
+        assertThat(written.await(10, TimeUnit.SECONDS)).isTrue();
+
+        String csv = """
+                email,full_name,bsn,account_number,currency,balance,card_number,card_type,card_expiry
+                hans@partner.nl,Hans Kok,100000010,NL62RABO3000000001,EUR,0,,,
+                hans@partner.nl,Hans Kok,100000010,NL35RABO3000000002,EUR,10,4200000000000018,DEBIT,2031-01
+                ida@partner.nl,Ida de Jong,100000022,NL08RABO3000000003,EUR,0,,,
+                """;
+
+        // Act
+        CustomerImportResultDTO result = customerImportService.importCustomers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV);
+        writer.get(10, TimeUnit.SECONDS);
+
+        // Assert - nothing of the lost rows is left behind
+        assertThat(result.usersCreated()).isEqualTo(1);
+        assertThat(result.accountsCreated()).isEqualTo(1);
+        assertThat(result.cardsCreated()).isZero();
+        assertThat(result.rejected()).isEqualTo(2);
+        assertThat(rejectReasons(result)).containsExactly("2,ACCOUNT_EXISTS", "3,CARD_EXISTS");
+
+        assertThat(userRepository.findByEmailIgnoreCase("hans@partner.nl")).isEmpty();
+        assertThat(userRepository.findByEmailIgnoreCase("ida@partner.nl")).isPresent();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM accounts WHERE account_number = 'NL35RABO3000000002'", Long.class)).isZero();
+    }
+
+    private List<String> rejectReasons(CustomerImportResultDTO result) throws IOException {
+        List<String> lines = Files.readAllLines(rejectFiles.find(UUID.fromString(result.importId())).orElseThrow());
+        return lines.subList(1, lines.size()).stream()
+                .map(line -> line.substring(0, line.indexOf(",\"")))
+                .toList();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
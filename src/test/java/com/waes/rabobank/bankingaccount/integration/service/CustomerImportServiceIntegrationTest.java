@@ -0,0 +1,182 @@
+package com.waes.rabobank.bankingaccount.integration.service;
+
+import com.waes.rabobank.bankingaccount.application.dto.CustomerImportResultDTO;
+import com.waes.rabobank.bankingaccount.application.service.CustomerImportService;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.domain.model.Account;
+import com.waes.rabobank.bankingaccount.domain.model.User;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.ImportFormat;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.RejectFiles;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerImportServiceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private CustomerImportService customerImportService;
+
+    @Autowired
+    private RejectFiles rejectFiles;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Value("${banking.import.reject-dir:${java.io.tmpdir}/banking-imports}")
+    private Path rejectDirectory;
+
+    @Test
+    void shouldImportCustomersAccountsAndCardsFromCsv() {
+        // Arrange - one customer with two accounts, one without card
+        String csv = """
+                email,full_name,bsn,account_number,currency,balance,card_number,card_type,card_expiry
+                anna@partner.nl,Anna de Vries,100000010,NL62RABO3000000001,EUR,250.50,4200000000000018,DEBIT,2031-01
+                anna@partner.nl,Anna de Vries,100000010,NL35RABO3000000002,EUR,10,,,
+                "bram@partner.nl","Bakker, Bram",100000022,NL08RABO3000000003,USD,0,4200000000000026,credit,2030-06
+                """;
+
+        // Act
+        CustomerImportResultDTO result = importCsv(csv);
+
+        // Assert
+        assertThat(result.records()).isEqualTo(3);
+        assertThat(result.usersCreated()).isEqualTo(2);
+        assertThat(result.accountsCreated()).isEqualTo(3);
+        assertThat(result.cardsCreated()).isEqualTo(2);
+        assertThat(result.rejected()).isZero();
+
+        User anna = userRepository.findByEmailIgnoreCase("anna@partner.nl").orElseThrow();
+        assertThat(accountRepository.findBalancesByUserId(anna.getId())).hasSize(2);
+
+        Account bramAccount = entityManager
+                .createQuery("SELECT a FROM Account a WHERE a.accountNumber = :accountNumber", Account.class)
+                .setParameter("accountNumber", "NL08RABO3000000003")
+                .getSingleResult();
+        assertThat(bramAccount.getUser().getFullName()).isEqualTo("Bakker, Bram");
+        assertThat(bramAccount.getCurrency()).isEqualTo("USD");
+        assertThat(bramAccount.getCard().getType()).isEqualTo(CardType.CREDIT);
+    }
+
+    @Test
+    void shouldWriteInvalidDuplicateAndConflictingRecordsToRejectFile() throws IOException {
+        // Arrange
+        Account existing = new Account(testUser, "NL78RABO3000000004");
+        accountRepository.save(existing);
+        entityManager.flush();
+
+        String ndjson = """
+                {"email":"carla@partner.nl","full_name":"Carla Smit","bsn":"100000034","account_number":"NL51RABO3000000005"}
+                {"email":"dirk@partner.nl","full_name":"Dirk Bos","bsn":"123456789","account_number":"NL24RABO3000000006"}
+                {"email":"erik@partner.nl","full_name":"Erik Vos","bsn":"100000046","account_number":"NL51RABO3000000005"}
+                {"email":"test@test.com","full_name":"Not Test User","bsn":"100000058","account_number":"NL62RABO3000000001"}
+                {"email":"femke@partner.nl","full_name":"Femke Mulder","bsn":"100000071","account_number":"NL78RABO3000000004"}
+                {"email":"gijs@partner.nl","full_name":"Gijs Dekker","bsn":"100000071","account_number":"NL35RABO3000000002","card_number":"4200000000000019","card_type":"DEBIT","card_expiry":"2031-01"}
+                not json
+                """;
+
+        // Act
+        CustomerImportResultDTO result = customerImportService.importCustomers(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ImportFormat.NDJSON);
+
+        // Assert
+        assertThat(result.records()).isEqualTo(7);
+        assertThat(result.usersCreated()).isEqualTo(1);
+        assertThat(result.accountsCreated()).isEqualTo(1);
+        assertThat(result.rejected()).isEqualTo(6);
+
+        List<String> rejects = Files.readAllLines(rejectFiles.find(UUID.fromString(result.importId())).orElseThrow());
+        assertThat(rejects).first().isEqualTo("line,reason,record");
+        assertThat(rejects.subList(1, rejects.size()))
+                .extracting(line -> line.substring(0, line.indexOf(",\"")))
+                .containsExactly(
+                        "2,INVALID_BSN",
+                        "6,INVALID_CARD_NUMBER",
+                        "7,MALFORMED_RECORD",
+                        "3,DUPLICATE_ACCOUNT_IN_FILE",
+                        "4,CONFLICTING_CUSTOMER",
+                        "5,ACCOUNT_EXISTS"
+                );
+        assertThat(userRepository.findByEmailIgnoreCase("carla@partner.nl")).isPresent();
+        assertThat(userRepository.findByEmailIgnoreCase("erik@partner.nl")).isEmpty();
+    }
+
+    @Test
+    void shouldAddAccountsToKnownCustomerWithSameBsnAndEmail() {
+        // Arrange
+        User known = new User("known@partner.nl", "Known Customer", "100000010");
+        userRepository.save(known);
+        entityManager.flush();
+
+        String csv = """
+                email,full_name,bsn,account_number
+                KNOWN@partner.nl,Known Customer,100000010,NL62RABO3000000001
+                """;
+
+        // Act
+        CustomerImportResultDTO result = importCsv(csv);
+
+        // Assert
+        assertThat(result.usersCreated()).isZero();
+        assertThat(result.accountsCreated()).isEqualTo(1);
+        assertThat(accountRepository.findBalancesByUserId(known.getId())).hasSize(1);
+    }
+
+    @Test
+    void shouldFailWhenCsvHeaderLacksRequiredColumn() {
+        assertThatThrownBy(() -> importCsv("email,full_name,account_number\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("bsn");
+    }
+
+    @Test
+    void shouldDeleteRejectFileWhenImportFails() throws IOException {
+        // Arrange - the stream breaks after a rejected record was written
+        Files.createDirectories(rejectDirectory);
+        long rejectFilesBefore = countFiles(rejectDirectory);
+        InputStream breaking = new SequenceInputStream(
+                new ByteArrayInputStream("""
+                        email,full_name,bsn,account_number
+                        not-an-email,Broken Record,123456789,NL62RABO3000000001
+                        """.getBytes(StandardCharsets.UTF_8)),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("Connection reset");
+                    }
+                });
+
+        // Act & Assert
+        assertThatThrownBy(() -> customerImportService.importCustomers(breaking, ImportFormat.CSV))
+                .isInstanceOf(UncheckedIOException.class);
+        assertThat(countFiles(rejectDirectory)).isEqualTo(rejectFilesBefore);
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private CustomerImportResultDTO importCsv(String csv) {
+        entityManager.flush(); // Fixtures are read by plain SQL
+        return customerImportService.importCustomers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV);
+    }
+}
@@ -4,7 +4,12 @@ import com.waes.rabobank.bankingaccount.application.dto.TransferRequestDTO;
 import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
 import com.waes.rabobank.bankingaccount.application.service.TransferService;
 import com.waes.rabobank.bankingaccount.domain.enums.CardStatus;
+import com.waes.rabobank.bankingaccount.domain.fx.FxRates;
 import com.waes.rabobank.bankingaccount.domain.model.*;
+import com.waes.rabobank.bankingaccount.infrastructure.fx.FxRateProvider;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.OutboxEvent;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.OutboxEventRepository;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.TransactionOutbox;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.*;
 import com.waes.rabobank.bankingaccount.shared.exception.*;
 import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
@@ -25,6 +30,12 @@ class TransferServiceIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private FxRateProvider fxRateProvider;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
     private Account destinationAccount;
 
     @BeforeEach
@@ -67,17 +78,30 @@ class TransferServiceIntegrationTest extends BaseIntegrationTest {
 
         var destTransactions = transactionRepository.findByAccountId(destinationAccount.getId());
         assertThat(destTransactions).hasSize(1); // DEPOSIT in
+
+        // Verify one event for both legs
+        OutboxEvent event = outboxEventRepository.findAll().getFirst();
+        assertThat(outboxEventRepository.count()).isEqualTo(1);
+        assertThat(event.getEventType()).isEqualTo(TransactionOutbox.TRANSFER_COMPLETED);
+        assertThat(event.getAggregateId()).isEqualTo(testAccount.getId());
+        assertThat(event.getPayload())
+                .contains(response.transferTransactionId())
+                .contains(response.depositTransactionId());
     }
 
     @Test
     void shouldTransferWithCreditCardAndApplyFee() {
-        // Arrange - Create credit card
-        CreditCard creditCard = new CreditCard(testAccount, "5000000000000001", YearMonth.of(2030, 12));
+        // Arrange - Credit card on its own account (one card per account)
+        Account creditAccount = new Account(testUser, "NL00TEST" + System.nanoTime());
+        creditAccount.deposit(new BigDecimal("1000.00"));
+        accountRepository.save(creditAccount);
+
+        CreditCard creditCard = new CreditCard(creditAccount, "5000000000000001", YearMonth.of(2030, 12));
         cardRepository.save(creditCard);
-        testAccount.setCard(creditCard);
+        creditAccount.setCard(creditCard);
 
         TransferRequestDTO request = new TransferRequestDTO(
-                testAccount.getId().toString(),
+                creditAccount.getId().toString(),
                 destinationAccount.getId().toString(),
                 new BigDecimal("100.00"),
                 creditCard.getId().toString()
@@ -122,9 +146,9 @@ class TransferServiceIntegrationTest extends BaseIntegrationTest {
                 testDebitCard.getId().toString()
         );
 
-        // Act & Assert
+        // Act & Assert - the card is authorized before any account is loaded, it is not held by that account
         assertThatThrownBy(() -> transferService.transfer(request))
-                .isInstanceOf(AccountNotFoundException.class);
+                .isInstanceOf(CardAccountMismatchException.class);
     }
 
     @Test
@@ -261,4 +285,60 @@ class TransferServiceIntegrationTest extends BaseIntegrationTest {
         assertThatThrownBy(() -> transferService.transfer(request))
                 .isInstanceOf(InactiveAccountException.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldConvertAmountWhenDestinationAccountHasOtherCurrency() {
+        // Arrange
+        Account usdAccount = new Account(testUser, "NL00TEST" + System.nanoTime(), "USD");
+        accountRepository.save(usdAccount);
+        BigDecimal rate = fxRateProvider.current().rate("EUR", "USD");
+
+        TransferRequestDTO request = new TransferRequestDTO(
+                testAccount.getId().toString(),
+                usdAccount.getId().toString(),
+                new BigDecimal("100.00"),
+                testDebitCard.getId().toString()
+        );
+
+        // Act
+        TransferResponseDTO response = transferService.transfer(request);
+
+        // Assert
+        BigDecimal expectedCredit = FxRates.convert(new BigDecimal("100.00"), rate);
+        assertThat(response.fxRate()).isEqualByComparingTo(rate);
+        assertThat(response.creditedAmount()).isEqualByComparingTo(expectedCredit);
+        assertThat(response.fromAccountBalanceAfter()).isEqualByComparingTo("900.00");
+        assertThat(response.toAccountBalanceAfter()).isEqualByComparingTo(expectedCredit);
+
+        Transaction out = transactionRepository.findByAccountId(testAccount.getId()).getFirst();
+        assertThat(out.getFxRate()).isEqualByComparingTo(rate);
+        assertThat(out.getCounterAmount()).isEqualByComparingTo(expectedCredit);
+        assertThat(out.getCounterCurrency()).isEqualTo("USD");
+
+        Transaction in = transactionRepository.findByAccountId(usdAccount.getId()).getFirst();
+        assertThat(in.getAmount()).isEqualByComparingTo(expectedCredit);
+        assertThat(in.getCounterAmount()).isEqualByComparingTo("100.00");
+        assertThat(in.getCounterCurrency()).isEqualTo("EUR");
+    }
+
+    @Test
+    void shouldFailWhenCurrencyPairIsNotSupported() {
+        // Arrange
+        Account jpyAccount = new Account(testUser, "NL00TEST" + System.nanoTime(), "JPY");
+        accountRepository.save(jpyAccount);
+
+        TransferRequestDTO request = new TransferRequestDTO(
+                testAccount.getId().toString(),
+                jpyAccount.getId().toString(),
+                new BigDecimal("100.00"),
+                testDebitCard.getId().toString()
+        );
+
+        // Act & Assert
+        assertThatThrownBy(() -> transferService.transfer(request))
+                .isInstanceOf(UnsupportedCurrencyPairException.class);
+
+        Account reloaded = accountRepository.findById(testAccount.getId()).orElseThrow();
+        assertThat(reloaded.getBalance()).isEqualByComparingTo("1000.00");
+    }
+}
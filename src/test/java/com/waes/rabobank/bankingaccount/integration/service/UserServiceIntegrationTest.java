@@ -0,0 +1,77 @@
+package com.waes.rabobank.bankingaccount.integration.service;
+
+import com.waes.rabobank.bankingaccount.application.dto.UserPageDTO;
+import com.waes.rabobank.bankingaccount.application.dto.UserResponseDTO;
+import com.waes.rabobank.bankingaccount.application.service.UserService;
+import com.waes.rabobank.bankingaccount.domain.model.User;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserServiceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setupUsers() {
+        for (int i = 0; i < 24; i++) {
+            userRepository.save(new User("page%02d@test.com".formatted(i), "Page User " + i, "1%08d".formatted(i)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldWalkAllUsersWithKeysetCursor() {
+        // Act
+        List<UserResponseDTO> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            UserPageDTO page = userService.getUsers(cursor, 10);
+            seen.addAll(page.users());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Assert - 25 users (fixture + 24), no duplicates, no empty trailing page
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).hasSize(25);
+        assertThat(seen).extracting(UserResponseDTO::id).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void shouldStreamAllUsersPageByPage() {
+        // Act
+        List<Integer> pageSizes = new ArrayList<>();
+        userService.streamUsers(10, page -> pageSizes.add(page.size()));
+
+        // Assert
+        assertThat(pageSizes).containsExactly(10, 10, 5);
+    }
+
+    @Test
+    void shouldFindUserByEmailIgnoringCase() {
+        UserResponseDTO user = userService.searchUserByEmail(" PAGE07@Test.COM ");
+
+        assertThat(user.name()).isEqualTo("Page User 7");
+    }
+
+    @Test
+    void shouldFailWhenCursorIsInvalid() {
+        assertThatThrownBy(() -> userService.getUsers("not-a-uuid", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -3,9 +3,16 @@ package com.waes.rabobank.bankingaccount.integration.service;
 import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
 import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
 import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
 import com.waes.rabobank.bankingaccount.domain.enums.TransactionType;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeRule;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedule;
+import com.waes.rabobank.bankingaccount.domain.fee.FeeSchedules;
 import com.waes.rabobank.bankingaccount.domain.model.Account;
 import com.waes.rabobank.bankingaccount.domain.model.Transaction;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.OutboxEvent;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.OutboxEventRepository;
+import com.waes.rabobank.bankingaccount.infrastructure.outbox.TransactionOutbox;
 import com.waes.rabobank.bankingaccount.infrastructure.persistence.TransactionRepository;
 import com.waes.rabobank.bankingaccount.shared.exception.InsufficientFundsException;
 import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
@@ -13,6 +20,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -26,6 +35,9 @@ public class WithdrawalServiceIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
     @Test
     void shouldWithdrawSuccessfully() {
         // Arrange
@@ -45,6 +57,28 @@ public class WithdrawalServiceIntegrationTest extends BaseIntegrationTest {
         assertThat(reloadedAccount.getBalance()).isEqualByComparingTo(new BigDecimal("900.00"));
     }
 
+    @Test
+    void shouldRecordWithdrawalEventInOutbox() {
+        // Arrange
+        WithdrawalRequestDTO request = new WithdrawalRequestDTO(
+                testAccount.getId().toString(),
+                new BigDecimal("100.00"),
+                testDebitCard.getId().toString()
+        );
+
+        // Act
+        WithdrawalResponseDTO response = withdrawalService.withdraw(request);
+
+        // Assert - written in the withdrawal's transaction, visible before any relay ran
+        List<OutboxEvent> events = outboxEventRepository.findAll();
+        assertThat(events).hasSize(1);
+        assertThat(events.getFirst().getEventType()).isEqualTo(TransactionOutbox.WITHDRAWAL_COMPLETED);
+        assertThat(events.getFirst().getAggregateId()).isEqualTo(testAccount.getId());
+        assertThat(events.getFirst().getPayload())
+                .contains("\"transactionId\":\"" + response.transactionId() + "\"")
+                .contains("\"balanceAfter\":900");
+    }
+
     @Test
     void shouldFailWithInsufficientFunds() {
         // Arrange
@@ -58,6 +92,7 @@ public class WithdrawalServiceIntegrationTest extends BaseIntegrationTest {
         // Act & Assert
         assertThatThrownBy(() -> withdrawalService.withdraw(request))
                 .isInstanceOf(InsufficientFundsException.class);
+        assertThat(outboxEventRepository.count()).isZero();
     }
 
     @Test
@@ -99,6 +134,33 @@ public class WithdrawalServiceIntegrationTest extends BaseIntegrationTest {
         assertThat(response.balanceAfter()).isEqualByComparingTo("1899.00");  // 2000 - 100 - 1
     }
 
+    @Test
+    void shouldApplyFeeOfTheCardsSegment() {
+        // Arrange - premium credit cards pay 0.5%
+        List<FeeRule> rules = new ArrayList<>(FeeSchedules.DEFAULT_RULES);
+        rules.add(new FeeRule(CardType.CREDIT, "PREMIUM", BigDecimal.ZERO, 50, BigDecimal.ZERO, BigDecimal.ZERO,
+                null, null, null));
+        FeeSchedule previous = FeeSchedules.swap(FeeSchedule.compile(rules, LocalDate.now()));
+        testCreditCard.setFeeSegment("PREMIUM");
+        cardRepository.saveAndFlush(testCreditCard);
+        WithdrawalRequestDTO request = new WithdrawalRequestDTO(
+                testCreditCardAccount.getId().toString(),
+                new BigDecimal("100.00"),
+                testCreditCard.getId().toString()
+        );
+
+        try {
+            // Act
+            WithdrawalResponseDTO response = withdrawalService.withdraw(request);
+
+            // Assert
+            assertThat(response.fee()).isEqualByComparingTo("0.50");
+            assertThat(response.balanceAfter()).isEqualByComparingTo("1899.50");
+        } finally {
+            FeeSchedules.swap(previous);
+        }
+    }
+
     @Test
     void shouldRejectWithdrawalThatWouldCauseNegativeBalance() {
         // Arrange
@@ -0,0 +1,442 @@
+package com.waes.rabobank.bankingaccount.integration.sharding;
+
+import com.waes.rabobank.bankingaccount.application.dto.AccountBalanceDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountIssuanceRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountIssuanceResultDTO;
+import com.waes.rabobank.bankingaccount.application.dto.AccountPageDTO;
+import com.waes.rabobank.bankingaccount.application.dto.CustomerImportResultDTO;
+import com.waes.rabobank.bankingaccount.application.dto.IssuedAccountDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.UserPageDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+import com.waes.rabobank.bankingaccount.application.service.AccountIssuanceService;
+import com.waes.rabobank.bankingaccount.application.service.AccountService;
+import com.waes.rabobank.bankingaccount.application.service.CustomerImportService;
+import com.waes.rabobank.bankingaccount.application.service.TransferService;
+import com.waes.rabobank.bankingaccount.application.service.UserService;
+import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.waes.rabobank.bankingaccount.domain.enums.CardType;
+import com.waes.rabobank.bankingaccount.infrastructure.aggregates.BankAggregateVerifier;
+import com.waes.rabobank.bankingaccount.infrastructure.onboarding.ImportFormat;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.Shard;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardRegistry;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardTransferRecovery;
+import com.waes.rabobank.bankingaccount.infrastructure.sharding.ShardedAccountRepository;
+import com.waes.rabobank.bankingaccount.shared.exception.InsufficientFundsException;
+import com.waes.rabobank.bankingaccount.shared.exception.ShardingUnsupportedException;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import com.waes.rabobank.bankingaccount.support.ShardContainers;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Payments and reads with accounts spread over {@value ShardContainers#SHARDS} Postgres containers. Recovery
+ * only runs when a test calls it, and aborts undecided legs at once. Commits are real, so the class opts out of
+ * the rollback-per-test transaction and cleans every shard itself.
+ */
+@SpringBootTest(properties = {
+        "banking.sharding.enabled=true",
+        "banking.sharding.prepared-grace=0s",
+        "banking.sharding.recovery-interval=1h",
+        "banking.ratelimit.enabled=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ShardingIntegrationTest extends BaseIntegrationTest {
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) {
+        ShardContainers.register(registry);
+    }
+
+    @Autowired
+    private ShardRegistry shards;
+
+    @Autowired
+    private ShardedAccountRepository shardedAccountRepository;
+
+    @Autowired
+    private ShardTransferRecovery recovery;
+
+    @Autowired
+    private BankAggregateVerifier aggregateVerifier;
+
+    @Autowired
+    private WithdrawalService withdrawalService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private CustomerImportService customerImportService;
+
+    @Autowired
+    private AccountIssuanceService accountIssuanceService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private int sequence;
+
+    @AfterEach
+    void cleanup() {
+        for (Shard shard : shards.shards()) {
+            shard.jdbcTemplate().query("SELECT gid FROM pg_prepared_xacts WHERE database = current_database()",
+                            (rs, rowNum) -> rs.getString(1))
+                    .forEach(gid -> shard.jdbcTemplate().execute("ROLLBACK PREPARED '" + gid + "'"));
+            shard.jdbcTemplate().execute(
+                    "TRUNCATE shard_transfer_decisions, account_totals, daily_payment_volumes, transaction_outbox, "
+                            + "transactions, cards, accounts, users CASCADE");
+        }
+        jdbcTemplate.execute(
+                "TRUNCATE shard_unique_keys, transaction_outbox, transactions, cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldWithdrawOnTheShardOfTheAccount() {
+        // Arrange
+        Placed placed = place(new BigDecimal("1000.00"));
+
+        // Act
+        WithdrawalResponseDTO withdrawal = withdrawalService.withdraw(new WithdrawalRequestDTO(
+                placed.accountId().toString(), new BigDecimal("100.00"), placed.cardId().toString()));
+
+        // Assert
+        assertThat(withdrawal.balanceAfter()).isEqualByComparingTo("900.00");
+        assertThat(balanceOf(placed.accountId())).isEqualByComparingTo("900.00");
+        assertThat(meterRegistry.find("banking.payment")
+                .tags("operation", "withdrawal", "card_type", "DEBIT", "outcome", "success").timer())
+                .isNotNull();
+        for (Shard shard : shards.shards()) {
+            assertThat(rows(shard, "transactions")).isEqualTo(shard == placed.shard() ? 1 : 0);
+            assertThat(rows(shard, "transaction_outbox")).isEqualTo(shard == placed.shard() ? 1 : 0);
+        }
+        assertThat(accountService.getBalancesByUserId(placed.userId()))
+                .extracting(AccountBalanceDTO::balance)
+                .singleElement()
+                .satisfies(balance -> assertThat(balance).isEqualByComparingTo("900.00"));
+    }
+
+    @Test
+    void shouldCommitBothLegsWhenTransferringAcrossShards() {
+        // Arrange
+        Placed source = placeOn(2, new BigDecimal("1000.00"));
+        Placed target = placeOn(1, new BigDecimal("50.00"));
+
+        // Act
+        TransferResponseDTO transfer = transferService.transfer(new TransferRequestDTO(
+                source.accountId().toString(), target.accountId().toString(),
+                new BigDecimal("200.00"), source.cardId().toString()));
+
+        // Assert
+        assertThat(transfer.fromAccountBalanceAfter()).isEqualByComparingTo("800.00");
+        assertThat(transfer.toAccountBalanceAfter()).isEqualByComparingTo("250.00");
+        assertThat(balanceOf(source.accountId())).isEqualByComparingTo("800.00");
+        assertThat(balanceOf(target.accountId())).isEqualByComparingTo("250.00");
+        assertThat(target.shard().jdbcTemplate().queryForObject(
+                "SELECT related_transaction_id FROM transactions WHERE id = ?", UUID.class,
+                UUID.fromString(transfer.depositTransactionId())))
+                .isEqualTo(UUID.fromString(transfer.transferTransactionId()));
+        assertThat(source.shard().jdbcTemplate().queryForObject(
+                "SELECT decision FROM shard_transfer_decisions WHERE xid = ?", String.class,
+                transfer.transferTransactionId()))
+                .isEqualTo("COMMIT");
+        assertThat(prepared(source.shard()) + prepared(target.shard())).isZero();
+        assertThat(aggregateVerifier.verify()).isZero();
+        assertThat(rows(source.shard(), "transaction_outbox") + rows(target.shard(), "transaction_outbox"))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldRollBackPreparedLegWhenLaterLegFails() {
+        // Arrange - the target's shard comes first, so its leg is prepared before the source runs out of funds
+        Placed from = placeOn(1, new BigDecimal("100.00"));
+        Placed to = placeOn(0, new BigDecimal("50.00"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> transferService.transfer(new TransferRequestDTO(
+                from.accountId().toString(), to.accountId().toString(),
+                new BigDecimal("500.00"), from.cardId().toString())))
+                .isInstanceOf(InsufficientFundsException.class);
+
+        assertThat(balanceOf(from.accountId())).isEqualByComparingTo("100.00");
+        assertThat(balanceOf(to.accountId())).isEqualByComparingTo("50.00");
+        assertThat(prepared(from.shard()) + prepared(to.shard())).isZero();
+        assertThat(rows(to.shard(), "transactions")).isZero();
+    }
+
+    @Test
+    void shouldFinishLegsLeftPreparedAccordingToDecision() {
+        // Arrange - two transfers whose coordinator died after preparing: one decided, one not. Each credits its
+        // own account: a prepared leg keeps its row locked until it is finished
+        Placed source = placeOn(0, new BigDecimal("1000.00"));
+        Placed target = placeOn(3, new BigDecimal("0.00"));
+        Placed otherTarget = placeOn(3, new BigDecimal("0.00"));
+        String decided = UUID.randomUUID().toString();
+        String undecided = UUID.randomUUID().toString();
+        prepareCredit(source, target, decided, new BigDecimal("10.00"));
+        prepareCredit(source, otherTarget, undecided, new BigDecimal("20.00"));
+        source.shard().jdbcTemplate().update(
+                "INSERT INTO shard_transfer_decisions (xid, decision, decided_at) VALUES (?, 'COMMIT', now())",
+                decided);
+
+        // Act
+        int finished = recovery.recover();
+
+        // Assert - the decided one committed, the other aborted and recorded as such
+        assertThat(finished).isEqualTo(2);
+        assertThat(prepared(target.shard())).isZero();
+        assertThat(balanceOf(target.accountId())).isEqualByComparingTo("10.00");
+        assertThat(balanceOf(otherTarget.accountId())).isEqualByComparingTo("0.00");
+        assertThat(source.shard().jdbcTemplate().queryForObject(
+                "SELECT decision FROM shard_transfer_decisions WHERE xid = ?", String.class, undecided))
+                .isEqualTo("ABORT");
+    }
+
+    @Test
+    void shouldPageAccountsOfEveryShardInIdOrder() {
+        // Arrange
+        List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            accountIds.add(place(new BigDecimal("1.00")).accountId());
+        }
+        accountIds.sort(ShardedAccountRepository.UUID_ORDER);
+
+        // Act
+        List<UUID> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            AccountPageDTO page = accountService.getAccountsAfter(cursor, 3);
+            assertThat(page.accounts()).hasSizeLessThanOrEqualTo(3);
+            page.accounts().forEach(account -> listed.add(UUID.fromString(account.accountId())));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        // Assert
+        assertThat(listed).containsExactlyElementsOf(accountIds);
+        assertThat(shards.shards()).allSatisfy(shard -> assertThat(rows(shard, "accounts")).isLessThan(11));
+    }
+
+    @Test
+    void shouldRejectKeysTakenOnAnyShard() {
+        // Arrange
+        Placed placed = placeOn(0, BigDecimal.ZERO);
+        Placed other = placeOn(1, BigDecimal.ZERO);
+        String accountNumber = jdbcOf(placed).queryForObject(
+                "SELECT account_number FROM accounts WHERE id = ?", String.class, placed.accountId());
+        String cardNumber = jdbcOf(placed).queryForObject(
+                "SELECT card_number FROM cards WHERE id = ?", String.class, placed.cardId());
+        String email = jdbcOf(placed).queryForObject(
+                "SELECT email FROM users WHERE id = ?", String.class, placed.userId());
+
+        // Act & Assert - new user ids land on random shards, mostly not the first user's
+        for (int i = 0; i < 8; i++) {
+            assertThatThrownBy(() -> shardedAccountRepository.insertUser(
+                    email.toUpperCase(), "Same Email", "000000999"))
+                    .isInstanceOf(DuplicateKeyException.class);
+        }
+        assertThatThrownBy(() -> shardedAccountRepository.insertAccount(
+                other.userId(), accountNumber, "EUR", BigDecimal.ZERO))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThatThrownBy(() -> shardedAccountRepository.insertCard(
+                other.accountId(), CardType.CREDIT, cardNumber, YearMonth.of(2030, 12)))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(shards.shards().stream().mapToLong(shard -> shard.jdbcTemplate().queryForObject(
+                "SELECT count(*) FROM users WHERE lower(email) = ?", Long.class, email)).sum()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReleaseKeysOfRowsTheShardRejected() {
+        // Arrange - the shard's BSN check fails after the keys were claimed
+        assertThatThrownBy(() -> shardedAccountRepository.insertUser("retry@test.com", "Retry", "12"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        // Act
+        UUID userId = shardedAccountRepository.insertUser("retry@test.com", "Retry", "000000998");
+
+        // Assert
+        assertThat(shardedAccountRepository.existsUser(userId)).isTrue();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM shard_unique_keys WHERE owner_id = ?", Long.class, userId)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldImportCustomersOntoTheirShards() {
+        // Arrange - a placed customer owns the email of the last line under another BSN
+        Placed known = place(BigDecimal.ZERO);
+        String csv = """
+                email,full_name,bsn,account_number,currency,balance,card_number,card_type,card_expiry
+                anna@partner.nl,Anna de Vries,100000010,NL62RABO3000000001,EUR,250.50,4200000000000018,DEBIT,2031-01
+                anna@partner.nl,Anna de Vries,100000010,NL35RABO3000000002,EUR,10,,,
+                bram@partner.nl,Bram Bakker,100000022,NL08RABO3000000003,USD,0,4200000000000026,CREDIT,2030-06
+                shard0@test.com,Not Known,100000034,NL51RABO3000000005,EUR,0,,,
+                """;
+
+        // Act
+        CustomerImportResultDTO result = importCsv(csv);
+        CustomerImportResultDTO rerun = importCsv(csv);
+
+        // Assert
+        assertThat(result.usersCreated()).isEqualTo(2);
+        assertThat(result.accountsCreated()).isEqualTo(3);
+        assertThat(result.cardsCreated()).isEqualTo(2);
+        assertThat(result.rejected()).isEqualTo(1);
+        assertThat(rerun.accountsCreated()).isZero();
+        assertThat(rerun.rejected()).isEqualTo(4);
+
+        UUID anna = UUID.fromString(userService.searchUserByEmail("ANNA@partner.nl").id());
+        assertThat(shardedAccountRepository.findBalancesByUserId(anna))
+                .extracting(AccountBalanceDTO::balance)
+                .containsExactlyInAnyOrder(new BigDecimal("250.5000"), new BigDecimal("10.0000"));
+        assertThat(userService.searchUserByEmail("shard0@test.com").id()).isEqualTo(known.userId().toString());
+        assertThat(aggregateVerifier.verify()).isZero();
+    }
+
+    @Test
+    void shouldIssueAccountsOnTheShardsOfTheirUsers() {
+        // Arrange
+        Placed first = placeOn(0, BigDecimal.ZERO);
+        Placed second = placeOn(1, BigDecimal.ZERO);
+
+        // Act
+        AccountIssuanceResultDTO result = accountIssuanceService.issueAccounts(new AccountIssuanceRequestDTO(
+                List.of(first.userId(), second.userId(), first.userId()), "EUR", CardType.DEBIT));
+
+        // Assert
+        assertThat(result.accountsIssued()).isEqualTo(3);
+        assertThat(result.cardsIssued()).isEqualTo(3);
+        assertThat(shardedAccountRepository.findBalancesByUserId(first.userId())).hasSize(3);
+        assertThat(shardedAccountRepository.findBalancesByUserId(second.userId())).hasSize(2);
+        for (IssuedAccountDTO issued : result.accounts()) {
+            UUID accountId = UUID.fromString(issued.accountId());
+            assertThat(shards.shardOf(accountId)).isEqualTo(shards.shardOf(UUID.fromString(issued.userId())));
+            assertThat(shardedAccountRepository.findAccountIdByNumber(issued.accountNumber())).contains(accountId);
+            assertThat(shards.shardOf(accountId).jdbcTemplate().queryForObject(
+                    "SELECT account_id FROM cards WHERE id = ?", UUID.class, UUID.fromString(issued.cardId())))
+                    .isEqualTo(accountId);
+        }
+        assertThat(aggregateVerifier.verify()).isZero();
+    }
+
+    @Test
+    void shouldListUsersAndAccountsOfEveryShard() {
+        // Arrange
+        List<UUID> userIds = new ArrayList<>();
+        List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Placed placed = place(BigDecimal.ONE);
+            userIds.add(placed.userId());
+            accountIds.add(placed.accountId());
+        }
+        userIds.sort(ShardedAccountRepository.UUID_ORDER);
+        accountIds.sort(ShardedAccountRepository.UUID_ORDER);
+
+        // Act
+        List<UUID> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserPageDTO page = userService.getUsers(cursor, 3);
+            page.users().forEach(user -> listed.add(UUID.fromString(user.id())));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        Page<AccountBalanceDTO> secondPage = accountService.getAllAccounts(PageRequest.of(1, 3));
+
+        // Assert
+        assertThat(listed).containsExactlyElementsOf(userIds);
+        assertThat(secondPage.getTotalElements()).isEqualTo(7);
+        assertThat(secondPage.getContent())
+                .extracting(account -> UUID.fromString(account.accountId()))
+                .containsExactlyElementsOf(accountIds.subList(3, 6));
+        assertThatThrownBy(() -> userService.suggestUsers("shard", 10))
+                .isInstanceOf(ShardingUnsupportedException.class);
+    }
+
+    // Leg of a transfer left prepared, as a coordinator that died before deciding leaves it
+    private void prepareCredit(Placed coordinator, Placed target, String xid, BigDecimal amount) {
+        String gid = "banking-transfer:" + coordinator.shard().index() + ":" + xid + ":" + target.shard().index();
+        target.shard().transactionTemplate().executeWithoutResult(status -> {
+            target.shard().jdbcTemplate().update(
+                    "UPDATE accounts SET balance = balance + ? WHERE id = ?", amount, target.accountId());
+            target.shard().jdbcTemplate().execute("PREPARE TRANSACTION '" + gid + "'");
+        });
+    }
+
+    private CustomerImportResultDTO importCsv(String csv) {
+        return customerImportService.importCustomers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV);
+    }
+
+    private Placed place(BigDecimal balance) {
+        int n = sequence++;
+        UUID userId = shardedAccountRepository.insertUser(
+                "shard%d@test.com".formatted(n), "Shard User " + n, "%09d".formatted(n + 100));
+        UUID accountId = shardedAccountRepository.insertAccount(
+                userId, "NL00SHRD%010d".formatted(n), "EUR", balance);
+        UUID cardId = shardedAccountRepository.insertCard(
+                accountId, CardType.DEBIT, "43000000%08d".formatted(n), YearMonth.of(2030, 12));
+        return new Placed(shards.shardOf(userId), userId, accountId, cardId);
+    }
+
+    // Users land on the shard their random id hashes to: placed until one lands on the wanted shard
+    private Placed placeOn(int shard, BigDecimal balance) {
+        Placed placed;
+        do {
+            placed = place(balance);
+        } while (placed.shard().index() != shard);
+        return placed;
+    }
+
+    private static JdbcTemplate jdbcOf(Placed placed) {
+        return placed.shard().jdbcTemplate();
+    }
+
+    private BigDecimal balanceOf(UUID accountId) {
+        return shards.shardOf(accountId).jdbcTemplate().queryForObject(
+                "SELECT balance FROM accounts WHERE id = ?", BigDecimal.class, accountId);
+    }
+
+    private static long rows(Shard shard, String table) {
+        return shard.jdbcTemplate().queryForObject("SELECT count(*) FROM " + table, Long.class);
+    }
+
+    private static long prepared(Shard shard) {
+        return shard.jdbcTemplate().queryForObject(
+                "SELECT count(*) FROM pg_prepared_xacts WHERE database = current_database()", Long.class);
+    }
+
+    private record Placed(Shard shard, UUID userId, UUID accountId, UUID cardId) {
+    }
+}
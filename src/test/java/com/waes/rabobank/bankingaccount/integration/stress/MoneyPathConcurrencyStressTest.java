@@ -0,0 +1,316 @@
+package com.waes.rabobank.bankingaccount.integration.stress;
+
+import com.waes.rabobank.bankingaccount.application.dto.TransferRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.TransferResponseDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalRequestDTO;
+import com.waes.rabobank.bankingaccount.application.dto.WithdrawalResponseDTO;
+import com.waes.rabobank.bankingaccount.application.service.TransferService;
+import com.waes.rabobank.bankingaccount.application.service.WithdrawalService;
+import com.waes.rabobank.bankingaccount.domain.model.Account;
+import com.waes.rabobank.bankingaccount.domain.model.Card;
+import com.waes.rabobank.bankingaccount.domain.model.CreditCard;
+import com.waes.rabobank.bankingaccount.domain.model.DebitCard;
+import com.waes.rabobank.bankingaccount.shared.exception.InsufficientFundsException;
+import com.waes.rabobank.bankingaccount.support.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires thousands of concurrent withdrawals and criss-cross transfers at a small set of accounts
+ * and verifies the money invariants afterwards. Runs against committed data, so the class opts out
+ * of the rollback-per-test transaction and cleans the tables itself.
+ * <p>
+ * Run with {@code mvn test -Pperf}.
+ */
+@Tag("stress")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MoneyPathConcurrencyStressTest extends BaseIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoneyPathConcurrencyStressTest.class);
+
+    private static final int ACCOUNTS = 8;
+    private static final int THREADS = 32;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("10000.00");
+
+    @Autowired
+    private WithdrawalService withdrawalService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Account> accounts = new ArrayList<>();
+    private final List<Card> cards = new ArrayList<>();
+
+    @BeforeEach
+    void setupStressAccounts() {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = new Account(testUser, "NL00STRS%010d".formatted(i));
+            account.deposit(INITIAL_BALANCE);
+            accountRepository.save(account);
+
+            String cardNumber = "5100%012d".formatted(i);
+            Card card = i % 2 == 0
+                    ? new DebitCard(account, cardNumber, YearMonth.of(2030, 12))
+                    : new CreditCard(account, cardNumber, YearMonth.of(2030, 12));
+            cardRepository.save(card);
+
+            accounts.add(account);
+            cards.add(card);
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.execute("TRUNCATE transaction_outbox, transactions, cards, accounts, users CASCADE");
+    }
+
+    @Test
+    void shouldPreserveInvariantsUnderConcurrentWithdrawals() throws Exception {
+        RunStats stats = run(4000, 0);
+
+        assertThat(stats.unexpected).hasValue(0);
+        assertInvariants(stats);
+    }
+
+    @Test
+    void shouldPreserveInvariantsUnderCrissCrossTransfers() throws Exception {
+        RunStats stats = run(0, 4000);
+
+        assertThat(stats.unexpected).hasValue(0);
+        assertInvariants(stats);
+    }
+
+    @Test
+    void shouldPreserveInvariantsUnderMixedLoad() throws Exception {
+        RunStats stats = run(2000, 2000);
+
+        assertThat(stats.unexpected).hasValue(0);
+        assertInvariants(stats);
+    }
+
+    // === Load generation ===
+
+    private RunStats run(int withdrawals, int transfers) throws Exception {
+        RunStats stats = new RunStats();
+        List<Runnable> operations = new ArrayList<>(withdrawals + transfers);
+        for (int i = 0; i < withdrawals; i++) {
+            operations.add(() -> withdrawRandomly(stats));
+        }
+        for (int i = 0; i < transfers; i++) {
+            operations.add(() -> transferRandomly(stats));
+        }
+        Collections.shuffle(operations);
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>(operations.size());
+            for (Runnable operation : operations) {
+                futures.add(executor.submit(operation));
+            }
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        }
+        stats.elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        stats.report(withdrawals + transfers);
+        return stats;
+    }
+
+    private void withdrawRandomly(RunStats stats) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(ACCOUNTS);
+        BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 500));
+
+        execute(stats, () -> {
+            WithdrawalResponseDTO response = withdrawalService.withdraw(new WithdrawalRequestDTO(
+                    accounts.get(index).getId().toString(),
+                    amount,
+                    cards.get(index).getId().toString()
+            ));
+            stats.acknowledgedOutflow(response.amount().add(response.fee()));
+        });
+    }
+
+    private void transferRandomly(RunStats stats) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(ACCOUNTS);
+        int to = (from + random.nextInt(1, ACCOUNTS)) % ACCOUNTS;
+        BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 500));
+
+        execute(stats, () -> {
+            TransferResponseDTO response = transferService.transfer(new TransferRequestDTO(
+                    accounts.get(from).getId().toString(),
+                    accounts.get(to).getId().toString(),
+                    amount,
+                    cards.get(from).getId().toString()
+            ));
+            stats.acknowledgedOutflow(response.fee());
+        });
+    }
+
+    private void execute(RunStats stats, Runnable operation) {
+        try {
+            operation.run();
+            stats.succeeded.incrementAndGet();
+        } catch (InsufficientFundsException ex) {
+            stats.rejected.incrementAndGet();
+        } catch (OptimisticLockingFailureException ex) {
+            stats.optimisticConflicts.incrementAndGet();
+        } catch (PessimisticLockingFailureException ex) {
+            stats.lockConflicts.incrementAndGet();
+        } catch (RuntimeException ex) {
+            logger.error("stress.unexpected_failure", ex);
+            stats.unexpected.incrementAndGet();
+        }
+    }
+
+    // === Invariants ===
+
+    private void assertInvariants(RunStats stats) {
+        // No negative balances
+        Integer negative = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM accounts WHERE balance < 0", Integer.class);
+        assertThat(negative).isZero();
+
+        // Total money conserved minus withdrawals and fees
+        BigDecimal initialTotal = INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS));
+        BigDecimal finalTotal = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(balance), 0) FROM accounts WHERE account_number LIKE 'NL00STRS%'", BigDecimal.class);
+        BigDecimal recordedOutflow = jdbcTemplate.queryForObject("""
+                SELECT COALESCE(SUM(CASE WHEN transaction_type = 'WITHDRAWAL' THEN amount + fee
+                                         WHEN transaction_type = 'TRANSFER' THEN fee
+                                         ELSE 0 END), 0)
+                FROM transactions
+                """, BigDecimal.class);
+        assertThat(finalTotal).isEqualByComparingTo(initialTotal.subtract(recordedOutflow));
+        assertThat(recordedOutflow).isEqualByComparingTo(stats.acknowledgedOutflow.get());
+
+        // Exactly one DEPOSIT per TRANSFER, mirroring amount and counterpart account
+        Integer unmatchedTransfers = jdbcTemplate.queryForObject("""
+                SELECT count(*)
+                FROM transactions t
+                WHERE t.transaction_type = 'TRANSFER'
+                AND (SELECT count(*)
+                     FROM transactions d
+                     WHERE d.related_transaction_id = t.id
+                     AND d.transaction_type = 'DEPOSIT'
+                     AND d.amount = t.amount
+                     AND d.account_id = t.related_account_id) <> 1
+                """, Integer.class);
+        Integer orphanDeposits = jdbcTemplate.queryForObject("""
+                SELECT count(*)
+                FROM transactions d
+                LEFT JOIN transactions t ON t.id = d.related_transaction_id AND t.transaction_type = 'TRANSFER'
+                WHERE d.transaction_type = 'DEPOSIT'
+                AND t.id IS NULL
+                """, Integer.class);
+        assertThat(unmatchedTransfers).isZero();
+        assertThat(orphanDeposits).isZero();
+
+        // balance_after chains replay from the initial balance to the stored balance
+        for (Account account : accounts) {
+            assertBalanceChain(account.getId());
+        }
+    }
+
+    /**
+     * Concurrent commits can share a {@code created_at}, and ids are random, so rows have no reliable order. Each
+     * row is checked as a link {@code balance before -> balance_after} instead: the links chain from the initial
+     * to the stored balance when every balance is left as many times as it is reached, the two ends aside.
+     */
+    private void assertBalanceChain(UUID accountId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("""
+                SELECT transaction_type, amount, fee, balance_after
+                FROM transactions
+                WHERE account_id = ?
+                """, accountId);
+        BigDecimal stored = jdbcTemplate.queryForObject(
+                "SELECT balance FROM accounts WHERE id = ?", BigDecimal.class, accountId);
+
+        // +1 per link leaving a balance, -1 per link reaching it
+        Map<BigDecimal, Integer> unbalanced = new HashMap<>();
+        unbalanced.merge(stored.setScale(4), 1, Integer::sum);
+        unbalanced.merge(INITIAL_BALANCE.setScale(4), -1, Integer::sum);
+        for (Map<String, Object> row : rows) {
+            BigDecimal amount = (BigDecimal) row.get("amount");
+            BigDecimal fee = (BigDecimal) row.get("fee");
+            BigDecimal after = ((BigDecimal) row.get("balance_after")).setScale(4);
+            BigDecimal before = "DEPOSIT".equals(row.get("transaction_type"))
+                    ? after.subtract(amount)
+                    : after.add(amount).add(fee);
+
+            unbalanced.merge(before.setScale(4), 1, Integer::sum);
+            unbalanced.merge(after, -1, Integer::sum);
+        }
+        unbalanced.values().removeIf(count -> count == 0);
+
+        assertThat(unbalanced)
+                .as("balance_after links of account %s that do not chain from %s to %s", accountId, INITIAL_BALANCE, stored)
+                .isEmpty();
+    }
+
+    // === Measurements ===
+
+    private static final class RunStats {
+        final AtomicLong succeeded = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong optimisticConflicts = new AtomicLong();
+        final AtomicLong lockConflicts = new AtomicLong();
+        final AtomicLong unexpected = new AtomicLong();
+        final AtomicReference<BigDecimal> acknowledgedOutflow = new AtomicReference<>(BigDecimal.ZERO);
+        Duration elapsed;
+
+        void acknowledgedOutflow(BigDecimal amount) {
+            acknowledgedOutflow.accumulateAndGet(amount, BigDecimal::add);
+        }
+
+        void report(int attempted) {
+            double seconds = elapsed.toNanos() / 1_000_000_000.0;
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("attempted", attempted);
+            summary.put("succeeded", succeeded.get());
+            summary.put("rejected", rejected.get());
+            summary.put("optimisticConflicts", optimisticConflicts.get());
+            summary.put("lockConflicts", lockConflicts.get());
+            summary.put("elapsedMs", elapsed.toMillis());
+            summary.put("committedPerSecond", "%.1f".formatted(succeeded.get() / seconds));
+            summary.put("conflictRate", "%.3f".formatted(
+                    (optimisticConflicts.get() + lockConflicts.get()) / (double) attempted));
+
+            logger.info("stress.run_completed {}", summary);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.waes.rabobank.bankingaccount.shared.concurrent;
+
+import com.waes.rabobank.bankingaccount.shared.exception.SingleFlightTimeoutException;
+import com.waes.rabobank.bankingaccount.shared.exception.UserNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch loadStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseLoad = new CountDownLatch(1);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        releaseLoad.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldRunOneLoadForConcurrentCallersOfSameKey() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofSeconds(5));
+
+        Future<String> leader = executor.submit(() -> flight.execute("user-1", this::blockingLoad));
+        assertThat(loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            followers.add(executor.submit(() -> flight.execute("user-1", this::blockingLoad)));
+        }
+        awaitWaiters(flight, followers);
+        releaseLoad.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("balances-1");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("balances-1");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(flight.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldLoadAgainOnceFlightHasLanded() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(Duration.ofSeconds(5));
+
+        assertThat(flight.execute("user-1", loads::incrementAndGet)).isEqualTo(1);
+        assertThat(flight.execute("user-1", loads::incrementAndGet)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCoalesceDifferentKeys() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofSeconds(5));
+        executor.submit(() -> flight.execute("user-1", this::blockingLoad));
+        assertThat(loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(flight.execute("user-2", () -> "other")).isEqualTo("other");
+    }
+
+    @Test
+    void shouldPropagateLeaderExceptionToFollowers() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofSeconds(5));
+        UUID userId = UUID.randomUUID();
+        UserNotFoundException notFound = new UserNotFoundException(userId);
+
+        Future<String> leader = executor.submit(() -> flight.execute("user-1", () -> {
+            blockingLoad();
+            throw notFound;
+        }));
+        assertThat(loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> follower = executor.submit(() -> flight.execute("user-1", this::blockingLoad));
+        awaitWaiters(flight, List.of(follower));
+        releaseLoad.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class).hasCause(notFound);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class).hasCause(notFound);
+        assertThat(loads).hasValue(1);
+        assertThat(flight.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldTimeOutFollowerWithoutCancellingLeader() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofMillis(50));
+
+        Future<String> leader = executor.submit(() -> flight.execute("user-1", this::blockingLoad));
+        assertThat(loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> flight.execute("user-1", this::blockingLoad))
+                .isInstanceOf(SingleFlightTimeoutException.class);
+
+        releaseLoad.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("balances-1");
+    }
+
+    @Test
+    void shouldStartNewLoadForCallersArrivingAfterForget() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofSeconds(5));
+        Future<String> stale = executor.submit(() -> flight.execute("user-1", this::blockingLoad));
+        assertThat(loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        flight.forget("user-1");
+
+        assertThat(flight.execute("user-1", () -> "fresh")).isEqualTo("fresh");
+        releaseLoad.countDown();
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("balances-1");
+    }
+
+    private String blockingLoad() {
+        int load = loads.incrementAndGet();
+        loadStarted.countDown();
+        try {
+            releaseLoad.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return "balances-" + load;
+    }
+
+    // Followers have no observable waiting state: give them time to join before the leader lands
+    private static void awaitWaiters(SingleFlight<?, ?> flight, List<? extends Future<?>> followers) throws InterruptedException {
+        Thread.sleep(100);
+        assertThat(flight.inFlight()).isOne();
+        assertThat(followers).noneMatch(Future::isDone);
+    }
+}
@@ -0,0 +1,23 @@
+package com.waes.rabobank.bankingaccount.shared.identifier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BsnTest {
+
+    @Test
+    void shouldAcceptNumbersPassingElevenTest() {
+        assertThat(Bsn.isValid("111222333")).isTrue();
+        assertThat(Bsn.isValid("123456782")).isTrue();
+    }
+
+    @Test
+    void shouldRejectNumbersFailingElevenTestOrFormat() {
+        assertThat(Bsn.isValid("123456789")).isFalse();
+        assertThat(Bsn.isValid("000000000")).isFalse();
+        assertThat(Bsn.isValid("12345678")).isFalse();
+        assertThat(Bsn.isValid("12345678a")).isFalse();
+        assertThat(Bsn.isValid(null)).isFalse();
+    }
+}
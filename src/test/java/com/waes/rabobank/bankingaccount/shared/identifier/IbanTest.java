@@ -0,0 +1,37 @@
+package com.waes.rabobank.bankingaccount.shared.identifier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IbanTest {
+
+    @Test
+    void shouldGenerateDutchIbanWithCheckDigits() {
+        assertThat(Iban.dutch("ABNA", 417164300)).isEqualTo("NL91ABNA0417164300");
+        assertThat(Iban.isValid(Iban.dutch("RABO", 7_000_000_042L))).isTrue();
+    }
+
+    @Test
+    void shouldValidatePublishedExamples() {
+        assertThat(Iban.isValid("NL91ABNA0417164300")).isTrue();
+        assertThat(Iban.isValid("DE89370400440532013000")).isTrue();
+        assertThat(Iban.isValid("GB82WEST12345698765432")).isTrue();
+    }
+
+    @Test
+    void shouldRejectWrongCheckDigitsOrFormat() {
+        assertThat(Iban.isValid("NL92ABNA0417164300")).isFalse();
+        assertThat(Iban.isValid("NL91ABNA0417164301")).isFalse();
+        assertThat(Iban.isValid("nl91abna0417164300")).isFalse();
+        assertThat(Iban.isValid("NL91")).isFalse();
+        assertThat(Iban.isValid(null)).isFalse();
+    }
+
+    @Test
+    void shouldRejectAccountNumberLongerThanTenDigits() {
+        assertThatThrownBy(() -> Iban.dutch("RABO", 10_000_000_000L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,22 @@
+package com.waes.rabobank.bankingaccount.shared.identifier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LuhnTest {
+
+    @Test
+    void shouldComputeCheckDigit() {
+        assertThat(Luhn.checkDigit("7992739871")).isEqualTo(3);
+        assertThat(Luhn.withCheckDigit("411111111111111")).isEqualTo("4111111111111111");
+    }
+
+    @Test
+    void shouldValidateCardNumbers() {
+        assertThat(Luhn.isValid("4111111111111111")).isTrue();
+        assertThat(Luhn.isValid("5555555555554444")).isTrue();
+        assertThat(Luhn.isValid("4111111111111112")).isFalse();
+        assertThat(Luhn.isValid("4111-1111")).isFalse();
+    }
+}
@@ -0,0 +1,52 @@
+package com.waes.rabobank.bankingaccount.support;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * JVM-wide singleton Postgres containers serving as shard databases, next to the primary one of
+ * {@link BaseIntegrationTest}. Prepared transactions are enabled, cross-shard transfers need them.
+ */
+public final class ShardContainers {
+
+    public static final int SHARDS = 4;
+    public static final String USERNAME = "test";
+    public static final String PASSWORD = "test";
+
+    private static final List<PostgreSQLContainer<?>> CONTAINERS = new ArrayList<>();
+
+    static {
+        for (int i = 0; i < SHARDS; i++) {
+            @SuppressWarnings("resource")
+            PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:16-alpine")
+                    .withDatabaseName("shard" + i)
+                    .withUsername(USERNAME)
+                    .withPassword(PASSWORD)
+                    .withCommand("postgres", "-c", "max_prepared_transactions=100");
+            container.withReuse(true);
+            CONTAINERS.add(container);
+        }
+        // Started in parallel, once per JVM
+        CONTAINERS.parallelStream().forEach(PostgreSQLContainer::start);
+    }
+
+    private ShardContainers() {
+    }
+
+    /**
+     * @return JDBC urls of the first {@code count} shards, in shard order
+     */
+    public static List<String> urls(int count) {
+        return CONTAINERS.subList(0, count).stream().map(PostgreSQLContainer::getJdbcUrl).toList();
+    }
+
+    public static void register(DynamicPropertyRegistry registry) {
+        registry.add("banking.sharding.urls", () -> urls(SHARDS).stream().collect(Collectors.joining(",")));
+        registry.add("banking.sharding.username", () -> USERNAME);
+        registry.add("banking.sharding.password", () -> PASSWORD);
+    }
+}